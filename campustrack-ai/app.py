@@ -1,4 +1,5 @@
-from fastapi import FastAPI, UploadFile, Form
+from fastapi import FastAPI, UploadFile, Form, Request
+import io
 import os
 
 app = FastAPI()
@@ -34,10 +35,61 @@ try:
         combined_emb = np.concatenate([text_emb, img_emb]) if img_emb is not None else text_emb
         return {"status": "success", "embedding_vector": combined_emb.tolist()}
 
+    # Batch variant: repeated "description" fields, plus an optional "image_<i>" file for item i.
+    # Texts go through MiniLM in one call and images through MobileNetV2 in one call.
+    @app.post("/predict_batch/")
+    async def predict_batch(request: Request):
+        form = await request.form()
+        descriptions = form.getlist("description")
+        text_embs = text_model.encode(descriptions) if descriptions else []
+
+        slots, arrays = [], []
+        for i in range(len(descriptions)):
+            image_file = form.get(f"image_{i}")
+            if image_file is None or isinstance(image_file, str):
+                continue
+            contents = await image_file.read()
+            try:
+                img = image.load_img(io.BytesIO(contents), target_size=(224, 224))
+                arrays.append(image.img_to_array(img))
+            except Exception as err:
+                # one unreadable upload must not fail the whole batch: that item gets its
+                # text-only vector, as if it had no image
+                print(f"predict_batch: image_{i} not decodable, using text only: {err}")
+                continue
+            slots.append(i)
+        img_embs = {}
+        if arrays:
+            preds = image_model.predict(preprocess_input(np.stack(arrays)))
+            img_embs = {slot: preds[j].flatten() for j, slot in enumerate(slots)}
+
+        vectors = []
+        for i, text_emb in enumerate(text_embs):
+            combined = np.concatenate([text_emb, img_embs[i]]) if i in img_embs else text_emb
+            vectors.append(combined.tolist())
+        return {"status": "success", "embedding_vectors": vectors}
+
 except Exception as e:
     
+    import asyncio
     import hashlib
     import json
+    import random
+    from fastapi import HTTPException
+
+    # Knobs for exercising the backend's AI client against the stub:
+    # STUB_DELAY_MS adds latency (STUB_DELAY_JITTER_MS of it random), STUB_FAILURE_RATE fails
+    # that fraction of requests with a 503.
+    STUB_DELAY_MS = float(os.environ.get("STUB_DELAY_MS", "0"))
+    STUB_DELAY_JITTER_MS = float(os.environ.get("STUB_DELAY_JITTER_MS", "0"))
+    STUB_FAILURE_RATE = float(os.environ.get("STUB_FAILURE_RATE", "0"))
+
+    async def simulate_conditions():
+        delay = STUB_DELAY_MS + random.random() * STUB_DELAY_JITTER_MS
+        if delay > 0:
+            await asyncio.sleep(delay / 1000.0)
+        if STUB_FAILURE_RATE > 0 and random.random() < STUB_FAILURE_RATE:
+            raise HTTPException(status_code=503, detail="stub failure")
 
     def text_to_embedding(text, dim=128):
         # deterministic pseudo-embedding via hashing
@@ -53,6 +105,7 @@ except Exception as e:
 
     @app.post("/predict_match/")
     async def predict_match(description: str = Form(...), image_file: UploadFile = None):
+        await simulate_conditions()
         desc = description or ""
         emb_text = text_to_embedding(desc, dim=128)
         emb_img = None
@@ -65,4 +118,22 @@ except Exception as e:
                 emb_img = (emb_img * ((128 // len(emb_img)) + 1))[:128]
 
         combined = emb_text + emb_img if emb_img is not None else emb_text
-        return {"status": "success", "embedding_vector": combined}
\ No newline at end of file
+        return {"status": "success", "embedding_vector": combined}
+
+    @app.post("/predict_batch/")
+    async def predict_batch(request: Request):
+        await simulate_conditions()
+        form = await request.form()
+        vectors = []
+        for i, desc in enumerate(form.getlist("description")):
+            emb_text = text_to_embedding(desc or "", dim=128)
+            emb_img = None
+            image_file = form.get(f"image_{i}")
+            if image_file is not None and not isinstance(image_file, str):
+                contents = await image_file.read()
+                h = hashlib.sha256(contents).digest()
+                emb_img = [b / 255.0 for b in h]
+                if len(emb_img) < 128:
+                    emb_img = (emb_img * ((128 // len(emb_img)) + 1))[:128]
+            vectors.append(emb_text + emb_img if emb_img is not None else emb_text)
+        return {"status": "success", "embedding_vectors": vectors}
\ No newline at end of file
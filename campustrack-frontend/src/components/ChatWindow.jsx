@@ -1,6 +1,23 @@
 import React, { useEffect, useRef, useState } from 'react';
 import { API_BASE } from '../utils/api';
 
+const HISTORY_PAGE = 50;
+const RECONNECT_MS = 3000;
+
+function myEmail() {
+  return ((JSON.parse(localStorage.getItem('campustrack_user') || '{}')).email || '').toLowerCase();
+}
+
+function fromRecord(d) {
+  const mine = d.fromEmail && d.fromEmail.toLowerCase() === myEmail();
+  return { id: d.id, from: mine ? 'me' : d.fromEmail, text: d.text, createdAt: d.createdAt, delivered: d.delivered };
+}
+
+// highest server id we hold: where a sync after (re)connecting picks up
+function lastId(list) {
+  return list.reduce((max, m) => (m && m.id != null && m.id > max ? m.id : max), 0);
+}
+
 function initialsFromEmail(email) {
   if (!email) return '?';
   const name = email.split('@')[0];
@@ -19,23 +36,45 @@ export default function ChatWindow({ initialTo = '', initialName = '', onClose }
   const [typing, setTyping] = useState(false);
   const [showBlockModal, setShowBlockModal] = useState(false);
   const [blockReason, setBlockReason] = useState('');
+  const [hasOlder, setHasOlder] = useState(false);
+  const [loadingOlder, setLoadingOlder] = useState(false);
   const wsRef = useRef(null);
+  const messagesRef = useRef([]);
+  const stickToBottom = useRef(true);
   const listRef = useRef(null);
   const lastTypingSent = useRef(0);
 
-  // load history and connect websocket when `to` changes
+  useEffect(() => { messagesRef.current = messages; }, [messages]);
+
+  // ask the server for whatever arrived after the newest message we hold (sent while offline,
+  // or between the history fetch and the socket opening)
+  const sendSync = (after) => {
+    const ws = wsRef.current;
+    const id = after || lastId(messagesRef.current);
+    if (!to || !id || !ws || ws.readyState !== WebSocket.OPEN) return;
+    try { ws.send(JSON.stringify({ type: 'sync', to, id })); } catch (e) {}
+  };
+
+  // load the latest page of history and connect websocket when `to` changes; the socket reconnects
+  // after drops and syncs only the missed range
   useEffect(() => {
     let cancelled = false;
+    let reconnectTimer = null;
 
     const loadHistory = async (email) => {
       if (!email) return;
       try {
-        const res = await fetch(`${API_BASE}/api/chat/history?with=${encodeURIComponent(email)}`, { credentials: 'include' });
+        const res = await fetch(`${API_BASE}/api/chat/history?with=${encodeURIComponent(email)}&limit=${HISTORY_PAGE}`, { credentials: 'include' });
         if (res.ok) {
           const data = await res.json();
           if (!cancelled) {
-            const mapped = data.map(d => ({ id: d.id, from: d.fromEmail, text: d.text, createdAt: d.createdAt, delivered: d.delivered }));
+            // pages come newest first
+            const mapped = data.messages.map(fromRecord).reverse();
+            stickToBottom.current = true;
+            messagesRef.current = mapped;
             setMessages(mapped);
+            setHasOlder(data.hasMore);
+            sendSync();
           }
         }
       } catch (e) {
@@ -43,19 +82,17 @@ export default function ChatWindow({ initialTo = '', initialName = '', onClose }
       }
     };
 
-    // Clean up previous socket
-    try { if (wsRef.current) { wsRef.current.close(); wsRef.current = null; } } catch (e) {}
-
-    if (to) {
-      loadHistory(to);
-
+    const connect = () => {
       try {
         const wsProto = API_BASE.startsWith('https') ? 'wss' : 'ws';
         const wsBase = API_BASE.replace(/^https?/, wsProto);
         const wsUrl = `${wsBase}/ws/chat`;
         const ws = new WebSocket(wsUrl);
         wsRef.current = ws;
-        ws.onopen = () => setConnected(true);
+        ws.onopen = () => {
+          setConnected(true);
+          sendSync();
+        };
         ws.onmessage = (ev) => {
           try {
             const parsed = JSON.parse(ev.data);
@@ -72,22 +109,32 @@ export default function ChatWindow({ initialTo = '', initialName = '', onClose }
             }
 
             if (parsed.type === 'read') {
-              // mark specific message as delivered/read
+              // the other side has read up to this message: mark ours up to it as delivered/read
               const mid = parsed.id;
               if (mid != null) {
-                setMessages((m) => m.map(x => x.id === mid ? { ...x, delivered: true } : x));
+                setMessages((m) => m.map(x => (x.from === 'me' && x.id != null && x.id <= mid) ? { ...x, delivered: true } : x));
               }
               return;
             }
 
+            if (parsed.type === 'sync') {
+              // the missed messages came in before this; keep going if the server stopped at a page
+              if (parsed.more) sendSync(parsed.id);
+              return;
+            }
+
             // normal message: reconcile sender's optimistic message
             const serverFrom = parsed.from || '';
             const isFromMe = meEmail && serverFrom && serverFrom.toLowerCase() === meEmail.toLowerCase();
             const serverMsg = { id: parsed.id, from: isFromMe ? 'me' : parsed.from, text: parsed.text || '', createdAt: parsed.createdAt || new Date().toISOString(), delivered: !!parsed.delivered };
 
+            // history and a sync can overlap: a message we already hold is not added again
+            const known = (m) => serverMsg.id != null && m.some(x => x.id === serverMsg.id);
+            stickToBottom.current = true;
             if (isFromMe) {
               // if we have an optimistic message (id === null) with same text, replace it instead of appending
               setMessages((m) => {
+                if (known(m)) return m;
                 const idx = m.map(x => x && x.id).lastIndexOf(null);
                 if (idx !== -1 && m[idx].text === serverMsg.text) {
                   const copy = [...m];
@@ -99,40 +146,77 @@ export default function ChatWindow({ initialTo = '', initialName = '', onClose }
               });
             } else {
               // incoming from other user
-              setMessages((m) => [...m, serverMsg]);
+              setMessages((m) => (known(m) ? m : [...m, serverMsg]));
             }
           } catch (e) {
             setMessages((m) => [...m, { from: 'them', text: ev.data, createdAt: new Date().toISOString() }]);
           }
         };
-        ws.onclose = () => setConnected(false);
+        ws.onclose = () => {
+          setConnected(false);
+          if (!cancelled && wsRef.current === ws) reconnectTimer = setTimeout(connect, RECONNECT_MS);
+        };
         ws.onerror = () => setConnected(false);
       } catch (e) {
         setConnected(false);
       }
+    };
+
+    // Clean up previous socket
+    try { if (wsRef.current) { const old = wsRef.current; wsRef.current = null; old.close(); } } catch (e) {}
+
+    messagesRef.current = [];
+    setMessages([]);
+    setHasOlder(false);
+    if (to) {
+      loadHistory(to);
+      connect();
     } else {
-      setMessages([]);
       setConnected(false);
     }
 
-    return () => { cancelled = true; try { if (wsRef.current) wsRef.current.close(); } catch (e) {} };
+    return () => {
+      cancelled = true;
+      clearTimeout(reconnectTimer);
+      try { if (wsRef.current) { const ws = wsRef.current; wsRef.current = null; ws.close(); } } catch (e) {}
+    };
   }, [to]);
 
-  // Auto-scroll when messages change
+  // fetch the page before the oldest message shown and put it on top (without jumping to the bottom)
+  const loadOlder = async () => {
+    const oldest = messages.find(m => m.id != null);
+    if (!to || !oldest || loadingOlder) return;
+    setLoadingOlder(true);
+    try {
+      const res = await fetch(`${API_BASE}/api/chat/history?with=${encodeURIComponent(to)}&before=${oldest.id}&limit=${HISTORY_PAGE}`, { credentials: 'include' });
+      if (res.ok) {
+        const data = await res.json();
+        const older = data.messages.map(fromRecord).reverse();
+        stickToBottom.current = false;
+        setMessages((m) => [...older.filter(o => !m.some(x => x.id === o.id)), ...m]);
+        setHasOlder(data.hasMore);
+      }
+    } catch (e) {
+      // ignore
+    } finally {
+      setLoadingOlder(false);
+    }
+  };
+
+  // Auto-scroll when messages change (not when older messages were put on top)
   useEffect(() => {
-    if (listRef.current) {
+    if (listRef.current && stickToBottom.current) {
       listRef.current.scrollTop = listRef.current.scrollHeight;
     }
     // when new messages from other user arrive, send read receipts
     const unreadFromThem = messages.filter(m => m.from !== 'me' && !m.delivered && m.id).map(m => m.id);
     if (unreadFromThem.length > 0 && wsRef.current && wsRef.current.readyState === WebSocket.OPEN) {
-      // send read receipts for each id
-      unreadFromThem.forEach(id => {
-        const payload = JSON.stringify({ type: 'read', to, id });
-        try { wsRef.current.send(payload); } catch (e) {}
-        // optimistically mark delivered locally
-        setMessages((ms) => ms.map(x => x.id === id ? { ...x, delivered: true } : x));
-      });
+      // one read receipt for the newest: the server marks everything up to it as read
+      const upTo = Math.max(...unreadFromThem);
+      const payload = JSON.stringify({ type: 'read', to, id: upTo });
+      try { wsRef.current.send(payload); } catch (e) {}
+      // optimistically mark delivered locally
+      setMessages((ms) => ms.map(x => (x.from !== 'me' && x.id && x.id <= upTo) ? { ...x, delivered: true } : x));
     }
   }, [messages, to]);
 
@@ -151,6 +235,7 @@ export default function ChatWindow({ initialTo = '', initialName = '', onClose }
       const payload = JSON.stringify({ type: 'message', to, text });
       try { wsRef.current.send(payload); } catch (e) {}
       // optimistic UI: push temporary message (id will be replaced by server echo)
+      stickToBottom.current = true;
       setMessages((m) => [...m, { id: null, from: 'me', text, createdAt: new Date().toISOString(), delivered: false }]);
       setText('');
       return;
@@ -219,6 +304,11 @@ export default function ChatWindow({ initialTo = '', initialName = '', onClose }
       </div>
 
       <div ref={listRef} className="border rounded p-3 mb-3 h-60 overflow-auto bg-gray-50">
+        {hasOlder && (
+          <div className="text-center mb-2">
+            <button onClick={loadOlder} disabled={loadingOlder} className="text-sm text-blue-600 hover:text-blue-800">{loadingOlder ? 'Loading...' : 'Load earlier messages'}</button>
+          </div>
+        )}
         {messages.length === 0 ? (
           <div className="text-sm text-gray-500">No messages yet.</div>
         ) : (
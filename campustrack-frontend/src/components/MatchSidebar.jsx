@@ -81,10 +81,11 @@ export default function MatchSidebar({ foundId, lostId, highlightLostId }) {
           {suggestions.map((s) => {
             const lost = lostItemsMap[s.lostItemId] || {};
             const isMatch = highlightLostId && highlightLostId === s.lostItemId;
-            const imageSrc = lost.imageUrl
-              ? lost.imageUrl.startsWith("/uploads/")
-                ? `${API_BASE}${lost.imageUrl}`
-                : lost.imageUrl
+            const thumb = lost.thumbnailUrl || lost.imageUrl;
+            const imageSrc = thumb
+              ? thumb.startsWith("/uploads/")
+                ? `${API_BASE}${thumb}`
+                : thumb
               : null;
 
             return (
@@ -3,23 +3,35 @@ import { API_BASE } from '../utils/api';
 
 const ViewFoundItems = () => {
   const [foundItems, setFoundItems] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
 
-  useEffect(() => {
-    fetch(`${API_BASE}/api/founditems/all`, {
+  // one page at a time, newest first; nextCursor is null on the last page
+  const loadPage = (cursor) => {
+    const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : "";
+    return fetch(`${API_BASE}/api/founditems${query}`, {
       credentials: "include",
     })
       .then((res) => res.json())
-      .then((data) => {
-        setFoundItems(data);
-        setLoading(false);
+      .then((page) => {
+        setFoundItems((prev) => (cursor ? [...prev, ...page.items] : page.items));
+        setNextCursor(page.nextCursor);
       })
       .catch((err) => {
         console.error("❌ Error fetching found items:", err);
-        setLoading(false);
       });
+  };
+
+  useEffect(() => {
+    loadPage(null).finally(() => setLoading(false));
   }, []);
 
+  const loadMore = () => {
+    setLoadingMore(true);
+    loadPage(nextCursor).finally(() => setLoadingMore(false));
+  };
+
   if (loading)
     return (
       <div className="flex items-center justify-center min-h-screen">
@@ -44,10 +56,12 @@ const ViewFoundItems = () => {
             >
               {item.imageUrl ? (
                 (() => {
-                  // Use server URL when imageUrl is served from backend (/uploads/...)
-                  const src = item.imageUrl.startsWith('/uploads/')
-                    ? `${API_BASE}${item.imageUrl}`
-                    : item.imageUrl;
+                  // Use server URL when imageUrl is served from backend (/uploads/...);
+                  // cards show the 480px preview when the upload has one
+                  const url = item.previewUrl || item.imageUrl;
+                  const src = url.startsWith('/uploads/')
+                    ? `${API_BASE}${url}`
+                    : url;
                   return (
                     <img
                       src={src}
@@ -74,15 +88,27 @@ const ViewFoundItems = () => {
                 <p className="text-gray-700"><strong>Size:</strong> {item.size}</p>
               ) : null}
               <p className="text-gray-700"><strong>Location:</strong> {item.location}</p>
-              <p className="text-gray-700"><strong>About:</strong> {item.about}</p>
+              <p className="text-gray-700"><strong>About:</strong> {item.aboutExcerpt}</p>
 
               <p className="text-gray-500 mt-2 text-sm">
-                Found on: {new Date(item.foundDateTime).toLocaleString()}
+                Found on: {new Date(item.reportedAt).toLocaleString()}
               </p>
             </div>
           ))}
         </div>
       )}
+
+      {nextCursor ? (
+        <div className="text-center mt-8">
+          <button
+            onClick={loadMore}
+            disabled={loadingMore}
+            className="px-5 py-2 bg-blue-600 text-white rounded-lg hover:bg-blue-700"
+          >
+            {loadingMore ? "Loading..." : "Load more"}
+          </button>
+        </div>
+      ) : null}
     </div>
   );
 };
@@ -1,71 +1,75 @@
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import { API_BASE } from '../utils/api';
 
 const ViewLostItems = () => {
   const [items, setItems] = useState([]);
-  const [filteredItems, setFilteredItems] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState("");
   const [startDate, setStartDate] = useState("");
   const [endDate, setEndDate] = useState("");
   const [locationFilter, setLocationFilter] = useState("");
   const [categoryFilter, setCategoryFilter] = useState("All");
-  const [categories, setCategories] = useState([]);
+  const [categories, setCategories] = useState(['All']);
+  // bumped whenever the filters change, so a "load more" started under the old filters is dropped
+  const generation = useRef(0);
 
   useEffect(() => {
-    const fetchItems = async () => {
+    fetch(`${API_BASE}/api/lostitems/brands`, { credentials: 'include' })
+      .then(res => res.ok ? res.json() : [])
+      .then(brands => setCategories(['All', ...brands]))
+      .catch(err => console.error(err));
+  }, []);
+
+  // filters are applied by the server; a page is fetched at a time, newest first
+  const fetchPage = async (cursor) => {
+    const params = new URLSearchParams();
+    if (cursor) params.set('cursor', cursor);
+    if (startDate) params.set('from', startDate);
+    if (endDate) params.set('to', endDate);
+    if (locationFilter.trim() !== '') params.set('location', locationFilter.trim());
+    if (categoryFilter !== 'All') params.set('brand', categoryFilter);
+    const res = await fetch(`${API_BASE}/api/lostitems?${params}`, { credentials: 'include' });
+    if (!res.ok) throw new Error("Failed to fetch items");
+    return res.json();
+  };
+
+  useEffect(() => {
+    let cancelled = false;
+    generation.current += 1;
+    // wait for typing in the location box to settle before asking the server
+    const timer = setTimeout(async () => {
       try {
-        const res = await fetch(`${API_BASE}/api/lostitems/all`, { credentials: 'include' });
-        if (!res.ok) throw new Error("Failed to fetch items");
-        const data = await res.json();
-        setItems(data);
-        setFilteredItems(data);
-        // derive categories from brand (fallback to 'Other')
-        const cats = new Set();
-        data.forEach(it => {
-          const b = it.brand && String(it.brand).trim() !== '' ? it.brand : 'Other';
-          cats.add(b);
-        });
-        setCategories(['All', ...Array.from(cats).sort()]);
+        const page = await fetchPage(null);
+        if (cancelled) return;
+        setItems(page.items);
+        setNextCursor(page.nextCursor);
+        setError("");
       } catch (err) {
-        setError("⚠️ Unable to load lost items. Please try again later.");
+        if (!cancelled) setError("⚠️ Unable to load lost items. Please try again later.");
         console.error(err);
       } finally {
-        setLoading(false);
+        if (!cancelled) setLoading(false);
       }
-    };
-
-    fetchItems();
-  }, []);
+    }, 250);
+    return () => { cancelled = true; clearTimeout(timer); };
+  }, [startDate, endDate, locationFilter, categoryFilter]);
 
-  useEffect(() => {
-    // apply filters to items
-    let out = items;
-    // date filtering (lostDateTime expected in ISO string)
-    if (startDate) {
-      const s = new Date(startDate);
-      out = out.filter(it => it.lostDateTime ? new Date(it.lostDateTime) >= s : false);
-    }
-    if (endDate) {
-      // include entire day
-      const e = new Date(endDate);
-      e.setHours(23,59,59,999);
-      out = out.filter(it => it.lostDateTime ? new Date(it.lostDateTime) <= e : false);
-    }
-    // location filter (contains, case-insensitive)
-    if (locationFilter && locationFilter.trim() !== '') {
-      const lf = locationFilter.trim().toLowerCase();
-      out = out.filter(it => (it.location || '').toLowerCase().includes(lf));
+  const loadMore = async () => {
+    const started = generation.current;
+    setLoadingMore(true);
+    try {
+      const page = await fetchPage(nextCursor);
+      if (started !== generation.current) return;
+      setItems(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      console.error(err);
+    } finally {
+      setLoadingMore(false);
     }
-    // category filter (brand-based in this implementation)
-    if (categoryFilter && categoryFilter !== 'All') {
-      out = out.filter(it => {
-        const b = it.brand && String(it.brand).trim() !== '' ? it.brand : 'Other';
-        return b === categoryFilter;
-      });
-    }
-    setFilteredItems(out);
-  }, [items, startDate, endDate, locationFilter, categoryFilter]);
+  };
 
   if (loading) {
     return (
@@ -112,18 +116,18 @@ const ViewLostItems = () => {
         </div>
       </div>
 
-      {filteredItems.length === 0 ? (
+      {items.length === 0 ? (
         <p className="text-center text-gray-500">No items reported yet.</p>
       ) : (
         <div className="grid grid-cols-1 sm:grid-cols-2 md:grid-cols-3 gap-6">
-          {filteredItems.map((item) => (
+          {items.map((item) => (
             <div
               key={item.id}
               className="bg-white rounded-2xl shadow-lg p-4 hover:shadow-2xl transition duration-200 item-card"
             >
               {item.imageUrl ? (
                 <img
-                  src={`${API_BASE}${item.imageUrl}`}
+                  src={`${API_BASE}${item.previewUrl || item.imageUrl}`}
                   alt={item.itemName}
                   className="rounded-xl w-full h-48 object-cover mb-3"
                 />
@@ -154,17 +158,25 @@ const ViewLostItems = () => {
               </p>
               <p className="text-sm text-gray-600">
                 <strong>Lost On:</strong>{" "}
-                {item.lostDateTime
-                  ? new Date(item.lostDateTime).toLocaleString()
+                {item.reportedAt
+                  ? new Date(item.reportedAt).toLocaleString()
                   : "Unknown"}
               </p>
               <p className="text-sm text-gray-600 mt-2">
-                <strong>About:</strong> {item.about}
+                <strong>About:</strong> {item.aboutExcerpt}
               </p>
             </div>
           ))}
         </div>
       )}
+
+      {nextCursor ? (
+        <div className="text-center mt-6">
+          <button onClick={loadMore} disabled={loadingMore} className="px-4 py-2 bg-blue-600 text-white rounded">
+            {loadingMore ? 'Loading...' : 'Load more'}
+          </button>
+        </div>
+      ) : null}
     </div>
   );
 };
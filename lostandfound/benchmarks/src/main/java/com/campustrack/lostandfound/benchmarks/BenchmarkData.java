@@ -0,0 +1,54 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import java.util.SplittableRandom;
+
+// Seeded synthetic data so every run (and every release) scores the same vectors.
+// Vectors are drawn around a fixed set of centroids, which is closer to real description/image
+// embeddings than uniform noise and keeps the HNSW numbers meaningful.
+final class BenchmarkData {
+
+    // text model output, and text + image model output concatenated
+    static final int TEXT_DIM = 384;
+    static final int TEXT_IMAGE_DIM = 384 + 1280;
+
+    private static final int CENTROIDS = 64;
+
+    private BenchmarkData() {
+    }
+
+    static double[][] vectors(int count, int dim, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        double[][] centroids = new double[CENTROIDS][];
+        for (int c = 0; c < CENTROIDS; c++) centroids[c] = gaussian(rnd, dim, 1.0);
+        double[][] out = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double[] base = centroids[rnd.nextInt(CENTROIDS)];
+            double[] v = gaussian(rnd, dim, 0.35);
+            for (int d = 0; d < dim; d++) v[d] += base[d];
+            out[i] = v;
+        }
+        return out;
+    }
+
+    static double[] vector(int dim, long seed) {
+        return vectors(1, dim, seed)[0];
+    }
+
+    static double[] scores(int count, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        double[] out = new double[count];
+        for (int i = 0; i < count; i++) out[i] = rnd.nextDouble(-1.0, 1.0);
+        return out;
+    }
+
+    private static double[] gaussian(SplittableRandom rnd, int dim, double scale) {
+        double[] v = new double[dim];
+        for (int d = 0; d < dim; d++) {
+            // Box-Muller, one value per pair is enough here
+            double u1 = Math.max(rnd.nextDouble(), 1e-12);
+            double u2 = rnd.nextDouble();
+            v[d] = scale * Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+        }
+        return v;
+    }
+}
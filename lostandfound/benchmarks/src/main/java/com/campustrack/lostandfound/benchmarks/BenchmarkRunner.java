@@ -0,0 +1,26 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of benchmarks.jar. Accepts the usual JMH command line (e.g. a regex to select
+// benchmarks, -p candidates=1000) and always adds the GC profiler (bytes allocated per op)
+// and a JSON result file, so runs from different releases can be diffed.
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        String out = cli.getResult().orElse("target/jmh-results.json");
+        Options options = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(out)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,54 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import com.campustrack.lostandfound.service.AIService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One pairwise score: the original AIService.cosine on raw vectors, and the dot product the
+// in-memory index uses once both sides are pre-normalized.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CosineBenchmark {
+
+    @Param({"384", "1664"})
+    int dim;
+
+    double[] a;
+    double[] b;
+    double[] na;
+    double[] nb;
+
+    @Setup
+    public void setup() {
+        a = BenchmarkData.vector(dim, 1);
+        b = BenchmarkData.vector(dim, 2);
+        na = normalize(a);
+        nb = normalize(b);
+    }
+
+    @Benchmark
+    public double cosine() {
+        return AIService.cosine(a, b);
+    }
+
+    @Benchmark
+    public double normalizedDot() {
+        double dot = 0;
+        for (int i = 0; i < na.length; i++) dot += na[i] * nb[i];
+        return dot;
+    }
+
+    private static double[] normalize(double[] v) {
+        double norm = 0;
+        for (double d : v) norm += d * d;
+        norm = Math.sqrt(norm);
+        double[] out = new double[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = v[i] / norm;
+        return out;
+    }
+}
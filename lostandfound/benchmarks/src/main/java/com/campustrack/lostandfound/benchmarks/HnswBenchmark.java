@@ -0,0 +1,46 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import com.campustrack.lostandfound.matching.HnswIndex;
+import com.campustrack.lostandfound.matching.ScoredItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Approximate top-5 query (campustrack.matching.index=hnsw) at the configured defaults
+// (m=16, efConstruction=100) for a few efSearch values. Compare against VectorIndexBenchmark.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HnswBenchmark {
+
+    @Param({"10000", "50000"})
+    int candidates;
+
+    @Param({"384", "1664"})
+    int dim;
+
+    @Param({"32", "64", "128"})
+    int efSearch;
+
+    HnswIndex index;
+    double[][] queries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        index = new HnswIndex(16, 100, efSearch);
+        double[][] vs = BenchmarkData.vectors(candidates, dim, 11);
+        for (int i = 0; i < vs.length; i++) index.put(i, vs[i]);
+        queries = BenchmarkData.vectors(64, dim, 99);
+    }
+
+    @Benchmark
+    public List<ScoredItem> topFive() {
+        double[] q = queries[next++ & 63];
+        return index.topK(q, 5, 0);
+    }
+}
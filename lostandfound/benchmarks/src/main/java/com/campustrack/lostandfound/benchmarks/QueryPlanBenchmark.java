@@ -0,0 +1,338 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+
+// Query plans and latency of the repositories' hot lookups on a seeded MySQL/MariaDB database,
+// before and after V2__hot_path_indexes.sql (not JMH: what matters is the plan the server picks
+// at a realistic table size). The schema comes from the backend's own migrations: V1 and V1_1
+// create the tables, the rows are seeded, every query is EXPLAINed and timed, then V2 is applied and the
+// same queries run again.
+//
+// Point it at an empty scratch database; --reset drops every table in it first.
+//
+//   java -cp target/benchmarks.jar com.campustrack.lostandfound.benchmarks.QueryPlanBenchmark \
+//       --jdbc "jdbc:mysql://localhost:3306/campustrack_bench?createDatabaseIfNotExist=true" \
+//       --user root --password secret [--items 200000] [--runs 50] [--reset]
+public class QueryPlanBenchmark {
+
+    private static final String V1 = "db/migration/V1__initial_schema.sql";
+    private static final String V1_1 = "db/migration/V1_1__embeddings_renditions_blobs.sql";
+    private static final String V2 = "db/migration/V2__hot_path_indexes.sql";
+
+    private record HotQuery(String name, String sql, Function<SplittableRandom, Object[]> params) {
+    }
+
+    private record Result(String type, String key, long rows, String extra, double p50, double p95) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String jdbc = null;
+        String user = "root";
+        String password = "";
+        int items = 200_000;
+        int runs = 50;
+        boolean reset = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--jdbc" -> jdbc = args[++i];
+                case "--user" -> user = args[++i];
+                case "--password" -> password = args[++i];
+                case "--items" -> items = Integer.parseInt(args[++i]);
+                case "--runs" -> runs = Integer.parseInt(args[++i]);
+                case "--reset" -> reset = true;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (jdbc == null) throw new IllegalArgumentException("--jdbc is required");
+        if (!jdbc.contains("rewriteBatchedStatements")) jdbc += (jdbc.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+
+        try (Connection con = DriverManager.getConnection(jdbc, user, password)) {
+            List<String> existing = tables(con);
+            if (!existing.isEmpty()) {
+                if (!reset) throw new IllegalStateException("Database is not empty (" + existing + "); use a scratch database or --reset");
+                try (Statement st = con.createStatement()) {
+                    for (String t : existing) st.execute("drop table `" + t + "`");
+                }
+            }
+            runScript(con, V1);
+            runScript(con, V1_1);
+            Dataset data = new Dataset(items);
+            long t0 = System.nanoTime();
+            data.seed(con);
+            System.out.printf("seeded %d lost + %d found items, %d suggestions, %d notifications, %d chat messages in %.1fs%n",
+                    items, items, data.suggestions, data.notifications, data.messages, (System.nanoTime() - t0) / 1e9);
+
+            List<HotQuery> queries = data.queries();
+            analyze(con);
+            Map<String, Result> before = new LinkedHashMap<>();
+            for (HotQuery q : queries) before.put(q.name(), measure(con, q, runs));
+            runScript(con, V2);
+            analyze(con);
+            Map<String, Result> after = new LinkedHashMap<>();
+            for (HotQuery q : queries) after.put(q.name(), measure(con, q, runs));
+
+            System.out.printf("%n%-28s | %-40s | %-40s | %s%n", "query", "before: type key rows  p50/p95 ms", "after: type key rows  p50/p95 ms", "speedup");
+            for (HotQuery q : queries) {
+                Result b = before.get(q.name());
+                Result a = after.get(q.name());
+                System.out.printf("%-28s | %-40s | %-40s | %.0fx%n", q.name(), describe(b), describe(a), b.p50() / Math.max(a.p50(), 0.001));
+            }
+            System.out.println();
+            for (HotQuery q : queries) System.out.printf("%-28s after: %s%n", q.name(), after.get(q.name()).extra());
+        }
+    }
+
+    private static String describe(Result r) {
+        return String.format("%s %s %d  %.2f/%.2f", r.type(), r.key() == null ? "-" : r.key(), r.rows(), r.p50(), r.p95());
+    }
+
+    // Plan of one parameter set, then p50/p95 over runs executions with varying parameters
+    private static Result measure(Connection con, HotQuery q, int runs) throws SQLException {
+        SplittableRandom rnd = new SplittableRandom(7);
+        String type = null;
+        String key = null;
+        long rows = 0;
+        String extra = null;
+        try (PreparedStatement ps = con.prepareStatement("explain " + q.sql())) {
+            bind(ps, q.params().apply(rnd));
+            try (ResultSet rs = ps.executeQuery()) {
+                // the first table in the plan is the one the lookup hits
+                if (rs.next()) {
+                    type = rs.getString("type");
+                    key = rs.getString("key");
+                    rows = rs.getLong("rows");
+                    extra = rs.getString("Extra");
+                }
+            }
+        }
+        double[] millis = new double[runs];
+        try (PreparedStatement ps = con.prepareStatement(q.sql())) {
+            for (int i = -3; i < runs; i++) {
+                bind(ps, q.params().apply(rnd));
+                long t0 = System.nanoTime();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        // drain
+                    }
+                }
+                if (i >= 0) millis[i] = (System.nanoTime() - t0) / 1e6;
+            }
+        }
+        Arrays.sort(millis);
+        return new Result(type, key, rows, extra, millis[runs / 2], millis[Math.min(runs - 1, (int) (runs * 0.95))]);
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+    }
+
+    private static List<String> tables(Connection con) throws SQLException {
+        List<String> out = new ArrayList<>();
+        try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, "%", new String[]{"TABLE"})) {
+            while (rs.next()) out.add(rs.getString("TABLE_NAME"));
+        }
+        return out;
+    }
+
+    private static void analyze(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            for (String t : tables(con)) {
+                try (ResultSet ignored = st.executeQuery("analyze table `" + t + "`")) {
+                    // statistics refreshed
+                }
+            }
+        }
+    }
+
+    // The migration scripts are plain statements separated by ';' at the end of a line
+    private static void runScript(Connection con, String resource) throws IOException, SQLException {
+        String script;
+        try (InputStream in = QueryPlanBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) throw new IllegalStateException(resource + " not on the classpath");
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        StringBuilder sql = new StringBuilder();
+        try (Statement st = con.createStatement()) {
+            for (String line : script.split("\n")) {
+                if (line.trim().startsWith("--")) continue;
+                sql.append(line).append('\n');
+                if (line.trim().endsWith(";")) {
+                    String stmt = sql.toString().trim();
+                    st.execute(stmt.substring(0, stmt.length() - 1));
+                    sql.setLength(0);
+                }
+            }
+        }
+    }
+
+    // Seeded rows shaped like a busy campus: ~5 reports per user, 5 suggestions per lost item,
+    // conversations of ~50 messages, most of them already delivered
+    private static final class Dataset {
+
+        private static final String[] BRANDS = {"Apple", "Samsung", "Dell", "HP", "Lenovo", "Casio", "Nike", "Adidas",
+                "Sony", "JBL", "Milton", "Wildcraft", "Titan", "Fastrack", "Boat", "Other"};
+        private static final String[] LOCATIONS = {"Library", "Cafeteria", "Main Gate", "Hostel A", "Hostel B",
+                "Lab 3", "Auditorium", "Sports Complex", "Parking", "Admin Block"};
+
+        final int items;
+        final int users;
+        final int suggestions;
+        final int notifications;
+        final int messages;
+        final int pairs;
+        final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        Dataset(int items) {
+            this.items = items;
+            this.users = Math.max(10, items / 5);
+            this.suggestions = items * 5;
+            this.notifications = items / 2;
+            this.messages = items * 5;
+            this.pairs = Math.max(1, messages / 50);
+        }
+
+        String email(int i) {
+            return "user" + i + "@campus.edu";
+        }
+
+        // conversation p is between these two users
+        int pairFrom(int p) {
+            return (int) ((p * 2654435761L) % users);
+        }
+
+        int pairTo(int p) {
+            return (pairFrom(p) + 1 + p % 97) % users;
+        }
+
+        void seed(Connection con) throws SQLException {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            SplittableRandom rnd = new SplittableRandom(42);
+            try {
+                for (String table : List.of("lost_items", "found_item")) {
+                    String time = table.equals("lost_items") ? "lost_date_time" : "found_date_time";
+                    batch(con, "insert into " + table + " (item_name, brand, location, about, " + time
+                            + ", reporter_email) values (?, ?, ?, ?, ?, ?)", items, (ps, i) -> {
+                        ps.setString(1, "Item " + i);
+                        ps.setString(2, BRANDS[rnd.nextInt(BRANDS.length)]);
+                        ps.setString(3, LOCATIONS[rnd.nextInt(LOCATIONS.length)]);
+                        ps.setString(4, "Seeded description of item " + i);
+                        ps.setObject(5, start.plusMinutes(rnd.nextInt(60 * 24 * 700)));
+                        ps.setString(6, email(rnd.nextInt(users)));
+                    });
+                }
+                batch(con, "insert into match_suggestion (found_item_id, lost_item_id, score) values (?, ?, ?)", suggestions, (ps, i) -> {
+                    int lost = i / 5 + 1;
+                    // five distinct found items per lost item
+                    ps.setLong(1, (lost * 7919L + (i % 5) * (items / 5 + 1)) % items + 1);
+                    ps.setLong(2, lost);
+                    ps.setDouble(3, rnd.nextDouble());
+                });
+                batch(con, "insert into notification (lost_item_id, found_item_id, found_reporter_email, lost_reporter_email, message, created_at, delivered) values (?, ?, ?, ?, ?, ?, ?)", notifications, (ps, i) -> {
+                    ps.setLong(1, rnd.nextInt(items) + 1);
+                    ps.setLong(2, rnd.nextInt(items) + 1);
+                    ps.setString(3, email(rnd.nextInt(users)));
+                    ps.setString(4, email(rnd.nextInt(users)));
+                    ps.setString(5, "Your item may have been found");
+                    ps.setObject(6, start.plusMinutes(rnd.nextInt(60 * 24 * 700)));
+                    ps.setBoolean(7, rnd.nextInt(10) > 0);
+                });
+                batch(con, "insert into chat_records (from_email, to_email, text, created_at, delivered) values (?, ?, ?, ?, ?)", messages, (ps, i) -> {
+                    int p = rnd.nextInt(pairs);
+                    boolean reply = rnd.nextBoolean();
+                    ps.setString(1, email(reply ? pairTo(p) : pairFrom(p)));
+                    ps.setString(2, email(reply ? pairFrom(p) : pairTo(p)));
+                    ps.setString(3, "message " + i);
+                    ps.setObject(4, start.plusSeconds(rnd.nextInt(60 * 60 * 24 * 700)));
+                    ps.setBoolean(5, rnd.nextInt(50) > 0);
+                });
+                batch(con, "insert into user_blocks (blocker_email, blocked_email, reason, created_at) values (?, ?, ?, ?)", Math.max(1, users / 20), (ps, i) -> {
+                    ps.setString(1, email(rnd.nextInt(users)));
+                    ps.setString(2, email(rnd.nextInt(users)));
+                    ps.setString(3, "spam");
+                    ps.setObject(4, start);
+                });
+                batch(con, "insert into confirmed_match (found_item_id, lost_item_id, confirmer_email, confirmed_at) values (?, ?, ?, ?)", Math.max(1, items / 10), (ps, i) -> {
+                    ps.setLong(1, rnd.nextInt(items) + 1);
+                    ps.setLong(2, rnd.nextInt(items) + 1);
+                    ps.setString(3, email(rnd.nextInt(users)));
+                    ps.setObject(4, start);
+                });
+                con.commit();
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        }
+
+        // The SQL Hibernate generates for each repository method, minus the column lists
+        List<HotQuery> queries() {
+            List<HotQuery> out = new ArrayList<>();
+            out.add(new HotQuery("lost.findByReporterEmail",
+                    "select * from lost_items where reporter_email = ?",
+                    r -> new Object[]{email(r.nextInt(users))}));
+            out.add(new HotQuery("found.findByReporterEmail",
+                    "select * from found_item where reporter_email = ?",
+                    r -> new Object[]{email(r.nextInt(users))}));
+            out.add(new HotQuery("lost.browse(sort=time)",
+                    "select id from lost_items where lost_date_time is not null and (lost_date_time < ? or (lost_date_time = ? and id < ?)) order by lost_date_time desc, id desc limit 21",
+                    r -> {
+                        LocalDateTime t = start.plusMinutes(r.nextInt(60 * 24 * 700));
+                        return new Object[]{t, t, Long.MAX_VALUE};
+                    }));
+            out.add(new HotQuery("lost.browse(brand)",
+                    "select id from lost_items where brand = ? and id < ? order by id desc limit 21",
+                    r -> new Object[]{BRANDS[r.nextInt(BRANDS.length)], (long) r.nextInt(items) + 1}));
+            out.add(new HotQuery("suggestion.byFoundItem",
+                    "select * from match_suggestion where found_item_id = ? order by score desc",
+                    r -> new Object[]{(long) r.nextInt(items) + 1}));
+            out.add(new HotQuery("suggestion.byLostItemIn",
+                    "select * from match_suggestion where lost_item_id in (?, ?, ?, ?, ?)",
+                    r -> new Object[]{(long) r.nextInt(items) + 1, (long) r.nextInt(items) + 1,
+                            (long) r.nextInt(items) + 1, (long) r.nextInt(items) + 1, (long) r.nextInt(items) + 1}));
+            out.add(new HotQuery("confirmed.byPair",
+                    "select * from confirmed_match where found_item_id = ? and lost_item_id = ?",
+                    r -> new Object[]{(long) r.nextInt(items) + 1, (long) r.nextInt(items) + 1}));
+            out.add(new HotQuery("notification.inbox",
+                    "select * from notification where lost_reporter_email = ? order by created_at desc",
+                    r -> new Object[]{email(r.nextInt(users))}));
+            out.add(new HotQuery("chat.findConversation",
+                    "select * from chat_records where (from_email = ? and to_email = ?) or (from_email = ? and to_email = ?) order by created_at",
+                    r -> {
+                        int p = r.nextInt(pairs);
+                        return new Object[]{email(pairFrom(p)), email(pairTo(p)), email(pairTo(p)), email(pairFrom(p))};
+                    }));
+            out.add(new HotQuery("chat.undelivered",
+                    "select * from chat_records where to_email = ? and delivered = false order by created_at",
+                    r -> new Object[]{email(r.nextInt(users))}));
+            out.add(new HotQuery("userBlock.exists",
+                    "select id from user_blocks where blocker_email = ? and blocked_email = ? limit 1",
+                    r -> new Object[]{email(r.nextInt(users)), email(r.nextInt(users))}));
+            return out;
+        }
+
+        private interface Row {
+            void bind(PreparedStatement ps, int i) throws SQLException;
+        }
+
+        private static void batch(Connection con, String sql, int count, Row row) throws SQLException {
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (int i = 0; i < count; i++) {
+                    row.bind(ps, i);
+                    ps.addBatch();
+                    if (i % 5000 == 4999) {
+                        ps.executeBatch();
+                        con.commit();
+                    }
+                }
+                ps.executeBatch();
+                con.commit();
+            }
+        }
+    }
+}
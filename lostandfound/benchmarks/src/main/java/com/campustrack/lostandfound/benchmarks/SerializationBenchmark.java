@@ -0,0 +1,77 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import com.campustrack.lostandfound.model.MatchSuggestion;
+import com.campustrack.lostandfound.websocket.ChatMessage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson round trips on the two payloads pushed most often: a chat frame over the WebSocket
+// and a suggestion list over SSE / the REST endpoints.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final TypeReference<List<MatchSuggestion>> SUGGESTIONS = new TypeReference<>() {
+    };
+
+    @Param({"5", "50"})
+    int suggestions;
+
+    ObjectMapper mapper;
+    ChatMessage message;
+    String messageJson;
+    List<MatchSuggestion> list;
+    String listJson;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = new ObjectMapper();
+        message = new ChatMessage("alice@campus.edu", "bob@campus.edu",
+                "Hi, I think the blue backpack you found near the library is mine. Can we meet at 4pm?");
+        message.setId(123456L);
+        message.setType("message");
+        message.setCreatedAt("2025-10-01T16:04:11.532");
+        messageJson = mapper.writeValueAsString(message);
+
+        list = new ArrayList<>();
+        double[] scores = BenchmarkData.scores(suggestions, 3);
+        for (int i = 0; i < suggestions; i++) {
+            MatchSuggestion s = new MatchSuggestion();
+            s.setId(1000L + i);
+            s.setFoundItemId(500L + i);
+            s.setLostItemId(42L);
+            s.setScore(scores[i]);
+            list.add(s);
+        }
+        listJson = mapper.writeValueAsString(list);
+    }
+
+    @Benchmark
+    public String writeChatMessage() throws Exception {
+        return mapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public ChatMessage readChatMessage() throws Exception {
+        return mapper.readValue(messageJson, ChatMessage.class);
+    }
+
+    @Benchmark
+    public byte[] writeSuggestions() throws Exception {
+        return mapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public List<MatchSuggestion> readSuggestions() throws Exception {
+        return mapper.readValue(listJson, SUGGESTIONS);
+    }
+}
@@ -0,0 +1,54 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.matching.TopK;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Picking the top 5 out of already-computed scores: the original "collect every candidate,
+// sort, limit 5" approach against the bounded heap used by the index.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TopKSelectionBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int candidates;
+
+    @Param({"5"})
+    int k;
+
+    double[] scores;
+
+    @Setup
+    public void setup() {
+        scores = BenchmarkData.scores(candidates, 7);
+    }
+
+    @Benchmark
+    public List<ScoredItem> sortAll() {
+        List<ScoredItem> all = new ArrayList<>(scores.length);
+        for (int i = 0; i < scores.length; i++) all.add(new ScoredItem(i, scores[i]));
+        return all.stream()
+                .sorted(Comparator.comparingDouble(ScoredItem::score).reversed())
+                .limit(k)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ScoredItem> boundedHeap() {
+        TopK top = new TopK(k);
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > top.threshold()) top.offer(i, scores[i]);
+        }
+        return top.toSortedList();
+    }
+}
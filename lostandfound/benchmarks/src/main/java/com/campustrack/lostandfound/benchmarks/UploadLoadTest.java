@@ -0,0 +1,93 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+// HTTP load test for /uploads/** against a running backend (not JMH: it measures the whole
+// server, connector included). --mode full sends plain GETs, conditional replays each URL's ETag
+// in If-None-Match the way a browser revalidates (expect 304s), range asks for the first 64 KiB.
+//
+//   java -cp target/benchmarks.jar com.campustrack.lostandfound.benchmarks.UploadLoadTest \
+//       --url http://localhost:8080/uploads/ab/cd/<hash>.jpg [--url ...] \
+//       [--concurrency 32] [--seconds 10] [--mode full|conditional|range]
+public class UploadLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        List<String> urls = new ArrayList<>();
+        int concurrency = 32;
+        int seconds = 10;
+        String mode = "full";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> urls.add(args[++i]);
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--mode" -> mode = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (urls.isEmpty()) throw new IllegalArgumentException("At least one --url is required");
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Map<String, String> etags = new ConcurrentHashMap<>();
+        for (String url : urls) {
+            HttpResponse<Void> r = client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding());
+            r.headers().firstValue("ETag").ifPresent(e -> etags.put(url, e));
+        }
+
+        LongAdder bytes = new LongAdder();
+        LongAdder errors = new LongAdder();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        String m = mode;
+        long started = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                int worker = w;
+                workers.submit(() -> {
+                    long[] samples = new long[1 << 20];
+                    int n = 0;
+                    for (int i = worker; System.nanoTime() < deadline; i++) {
+                        String url = urls.get(i % urls.size());
+                        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url));
+                        if ("conditional".equals(m) && etags.containsKey(url)) req.header("If-None-Match", etags.get(url));
+                        if ("range".equals(m)) req.header("Range", "bytes=0-65535");
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> r = client.send(req.build(), HttpResponse.BodyHandlers.ofByteArray());
+                            bytes.add(r.body().length);
+                            statuses.computeIfAbsent(r.statusCode(), k -> new LongAdder()).increment();
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                        if (n < samples.length) samples[n++] = System.nanoTime() - t0;
+                    }
+                    latencies.add(Arrays.copyOf(samples, n));
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("mode=%s concurrency=%d urls=%d duration=%.1fs%n", mode, concurrency, urls.size(), elapsed);
+        System.out.printf("requests=%d (%.0f req/s), errors=%d, statuses=%s%n", all.length, all.length / elapsed, errors.sum(), statuses);
+        System.out.printf("body bytes=%d (%.1f MB/s)%n", bytes.sum(), bytes.sum() / elapsed / 1e6);
+        if (all.length > 0) {
+            System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                    pct(all, 0.50), pct(all, 0.90), pct(all, 0.99), all[all.length - 1] / 1e6);
+        }
+    }
+
+    private static double pct(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1e6;
+    }
+}
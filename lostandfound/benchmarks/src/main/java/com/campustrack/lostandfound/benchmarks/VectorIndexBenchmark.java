@@ -0,0 +1,56 @@
+package com.campustrack.lostandfound.benchmarks;
+
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.matching.VectorIndex;
+import com.campustrack.lostandfound.matching.VectorPrecision;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Exact top-5 query against the in-memory index. 1M candidates is not in the default matrix:
+// run it at 384 dims with -p candidates=1000000 -p dim=384 (at 1664 dims the vectors alone
+// would need ~13 GB of heap).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class VectorIndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int candidates;
+
+    @Param({"384", "1664"})
+    int dim;
+
+    @Param({"FLOAT32", "INT8"})
+    VectorPrecision precision;
+
+    VectorIndex index;
+    double[][] queries;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (candidates >= 1_000_000 && dim > BenchmarkData.TEXT_DIM) {
+            throw new IllegalStateException("1M x " + dim + " vectors does not fit the benchmark heap");
+        }
+        index = new VectorIndex(precision);
+        // generate in slices so the raw double[][] never has to sit next to the full index
+        int slice = 50_000;
+        for (int start = 0; start < candidates; start += slice) {
+            int n = Math.min(slice, candidates - start);
+            double[][] vs = BenchmarkData.vectors(n, dim, 11 + start);
+            for (int i = 0; i < n; i++) index.put(start + i, vs[i]);
+        }
+        queries = BenchmarkData.vectors(64, dim, 99);
+    }
+
+    @Benchmark
+    public List<ScoredItem> topFive() {
+        double[] q = queries[next++ & 63];
+        return index.topK(q, 5, 0);
+    }
+}
@@ -2,6 +2,10 @@ package com.campustrack.lostandfound.controller;
 
 import com.campustrack.lostandfound.model.User;
 import com.campustrack.lostandfound.repository.UserRepository;
+import com.campustrack.lostandfound.service.DashboardStats.Counter;
+import com.campustrack.lostandfound.service.ItemBrowseService;
+import com.campustrack.lostandfound.service.MetricRollups;
+import com.campustrack.lostandfound.service.MetricRollups.Granularity;
 import com.campustrack.lostandfound.websocket.ChatRecordRepository;
 import com.campustrack.lostandfound.websocket.UserBlockRepository;
 import jakarta.servlet.http.HttpSession;
@@ -9,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,9 +40,39 @@ public class AdminController {
     @Autowired
     private com.campustrack.lostandfound.repository.ConfirmedMatchRepository confirmedMatchRepository;
     @Autowired
+    private com.campustrack.lostandfound.service.AIService aiService;
+    @Autowired
+    private com.campustrack.lostandfound.service.MatchingQueue matchingQueue;
+    @Autowired
+    private com.campustrack.lostandfound.service.AIClient aiClient;
+    @Autowired
+    private com.campustrack.lostandfound.matching.ItemAttributeIndex itemAttributeIndex;
+    @Autowired
+    private com.campustrack.lostandfound.search.ItemSearchIndex itemSearchIndex;
+    @Autowired
+    private com.campustrack.lostandfound.location.Gazetteer gazetteer;
+    @Autowired
+    private com.campustrack.lostandfound.service.LocationZoneBackfill locationZoneBackfill;
+    @Autowired
+    private com.campustrack.lostandfound.service.DashboardStats dashboardStats;
+    @Autowired
+    private com.campustrack.lostandfound.service.MetricRollups metricRollups;
+    @Autowired
+    private com.campustrack.lostandfound.service.RematchJob rematchJob;
+    @Autowired
+    private com.campustrack.lostandfound.service.UploadStore uploadStore;
+    @Autowired
+    private com.campustrack.lostandfound.service.UploadFileServer uploadFileServer;
+    @Autowired
     private com.campustrack.lostandfound.websocket.ChatService chatService;
     @Autowired
     private com.campustrack.lostandfound.websocket.ChatWebSocketHandler chatWebSocketHandler;
+    @Autowired
+    private com.campustrack.lostandfound.websocket.ConversationIndex conversationIndex;
+    @Autowired
+    private com.campustrack.lostandfound.websocket.ReadReceipts readReceipts;
+    @Autowired
+    private com.campustrack.lostandfound.websocket.ChatIngest chatIngest;
 
     private boolean isAdmin(HttpSession session) {
         Object r = session.getAttribute("userRole");
@@ -47,15 +82,200 @@ public class AdminController {
     @GetMapping("/dashboard")
     public ResponseEntity<?> dashboard(HttpSession session) {
         if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        // served from the in-memory counters (DashboardStats), not one count() per figure
         Map<String, Object> out = new HashMap<>();
-        out.put("totalUsers", userRepository.count());
-        out.put("totalChats", chatRecordRepository.count());
-        out.put("totalBlocks", userBlockRepository.count());
-        out.put("lostCount", lostItemRepository.count());
-        out.put("foundCount", foundItemRepository.count());
-        out.put("matchedCount", confirmedMatchRepository.count());
+        out.put("totalUsers", dashboardStats.get(Counter.USERS));
+        out.put("totalChats", dashboardStats.get(Counter.CHATS));
+        out.put("totalBlocks", dashboardStats.get(Counter.BLOCKS));
+        out.put("lostCount", dashboardStats.get(Counter.LOST));
+        out.put("foundCount", dashboardStats.get(Counter.FOUND));
+        out.put("matchedCount", dashboardStats.get(Counter.MATCHES));
         // recovered uses matched count for now (no separate recovered flag exists)
-        out.put("recoveredCount", confirmedMatchRepository.count());
+        out.put("recoveredCount", dashboardStats.get(Counter.MATCHES));
+        return ResponseEntity.ok(out);
+    }
+
+    // Admin: dashboard counters, when they were last recounted and how far they had drifted
+    @GetMapping("/dashboard/counters")
+    public ResponseEntity<?> dashboardCounters(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(dashboardStats.stats());
+    }
+
+    // Admin: one metric over time from the rollups - metric (lost.reported, found.reported,
+    // match.confirmed, item.recovered, item.recovery-seconds, chat.messages), granularity minute,
+    // hour (default) or day, from/to as dates or date-times (default the last 24 hours)
+    @GetMapping("/analytics/series")
+    public ResponseEntity<?> analyticsSeries(@RequestParam("metric") String metric,
+                                             @RequestParam(value = "granularity", required = false) String granularity,
+                                             @RequestParam(value = "from", required = false) String from,
+                                             @RequestParam(value = "to", required = false) String to,
+                                             HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        try {
+            Granularity g = granularity == null || granularity.isBlank() ? Granularity.HOUR : Granularity.parse(granularity);
+            LocalDateTime end = ItemBrowseService.parseTo(to);
+            if (end == null) end = LocalDateTime.now();
+            LocalDateTime start = ItemBrowseService.parseFrom(from);
+            if (start == null) start = end.minusHours(24);
+            Map<String, Object> out = new java.util.LinkedHashMap<>();
+            out.put("metric", metric);
+            out.put("granularity", g.key());
+            out.put("points", metricRollups.series(metric, g, start, end));
+            return ResponseEntity.ok(out);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Admin: totals per metric over from/to (default the last 30 days), the share of found reports
+    // that got a confirmed match and the average hours from lost to recovered
+    @GetMapping("/analytics/summary")
+    public ResponseEntity<?> analyticsSummary(@RequestParam(value = "from", required = false) String from,
+                                              @RequestParam(value = "to", required = false) String to,
+                                              HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        try {
+            LocalDateTime end = ItemBrowseService.parseTo(to);
+            if (end == null) end = LocalDateTime.now();
+            LocalDateTime start = ItemBrowseService.parseFrom(from);
+            if (start == null) start = end.minusDays(30);
+            // hour rows are gone past their retention, so long ranges are summed from day rows
+            Granularity g = start.isAfter(end.minusDays(31)) ? Granularity.HOUR : Granularity.DAY;
+            Map<String, MetricRollups.Point> totals = metricRollups.totals(g, start, end);
+            Map<String, Object> counts = new java.util.LinkedHashMap<>();
+            totals.forEach((metric, p) -> counts.put(metric, p.events()));
+            long found = totals.get(MetricRollups.FOUND_REPORTED).events();
+            MetricRollups.Point recovery = totals.get(MetricRollups.RECOVERY_SECONDS);
+            Map<String, Object> out = new java.util.LinkedHashMap<>();
+            out.put("from", start);
+            out.put("to", end);
+            out.put("granularity", g.key());
+            out.put("totals", counts);
+            out.put("confirmationRate", found == 0 ? null : (double) totals.get(MetricRollups.MATCH_CONFIRMED).events() / found);
+            out.put("avgRecoveryHours", recovery.events() == 0 ? null : recovery.total() / recovery.events() / 3600);
+            return ResponseEntity.ok(out);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Admin: rollup pipeline - events waiting for the next flush, flushes and failures
+    @GetMapping("/analytics/pipeline")
+    public ResponseEntity<?> analyticsPipeline(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(metricRollups.stats());
+    }
+
+    // Admin: conversation index size, inbox reads and updates, last rebuild
+    @GetMapping("/chat/conversations")
+    public ResponseEntity<?> chatConversations(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(conversationIndex.stats());
+    }
+
+    // Admin: recompute every inbox from the chat records (after editing chat_records by hand)
+    @PostMapping("/chat/conversations/rebuild")
+    public ResponseEntity<?> rebuildChatConversations(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        int rows = conversationIndex.rebuild();
+        return ResponseEntity.ok(Map.of("rows", rows));
+    }
+
+    // Admin: read receipts waiting to be written, flushes and rows updated
+    @GetMapping("/chat/receipts")
+    public ResponseEntity<?> chatReceipts(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(readReceipts.stats());
+    }
+
+    // Admin: chat ingest - messages logged vs written to chat_records, batch sizes and fsync grouping
+    @GetMapping("/chat/ingest")
+    public ResponseEntity<?> chatIngest(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(chatIngest.stats());
+    }
+
+    // Admin: background matching queue depth, drops and wait/run times
+    @GetMapping("/matching/queue")
+    public ResponseEntity<?> matchingQueue(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(matchingQueue.stats());
+    }
+
+    // Admin: AI service client - circuit state, failures, timeouts, hedges, latency and pool usage
+    @GetMapping("/ai/client")
+    public ResponseEntity<?> aiClient(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(aiClient.stats());
+    }
+
+    // Admin: search index size, vocabulary and average query time
+    @GetMapping("/search")
+    public ResponseEntity<?> search(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(itemSearchIndex.stats());
+    }
+
+    // Admin: gazetteer coverage - how many locations resolved and the most common ones that did not
+    @GetMapping("/locations")
+    public ResponseEntity<?> locations(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        Map<String, Object> out = new java.util.LinkedHashMap<>(gazetteer.stats());
+        out.put("backfilled", locationZoneBackfill.updated());
+        return ResponseEntity.ok(out);
+    }
+
+    // Admin: attribute pre-filter rules, indexed items and how far it narrows candidate sets
+    @GetMapping("/matching/filter")
+    public ResponseEntity<?> matchingFilter(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(itemAttributeIndex.stats());
+    }
+
+    // Admin: progress of the current (or last) full re-match - phase, processed/total, rate and ETA
+    @GetMapping("/matching/rematch")
+    public ResponseEntity<?> rematchProgress(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        return ResponseEntity.ok(rematchJob.progress());
+    }
+
+    // Admin: re-score every pair from scratch; reembed=true embeds every item again first
+    @PostMapping("/matching/rematch")
+    public ResponseEntity<?> startRematch(HttpSession session, @RequestParam(value = "reembed", defaultValue = "false") boolean reembed) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        try {
+            rematchJob.start(reembed);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        }
+        return ResponseEntity.accepted().body(rematchJob.progress());
+    }
+
+    // Admin: stop the running re-match after its current chunk
+    @PostMapping("/matching/rematch/cancel")
+    public ResponseEntity<?> cancelRematch(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        if (!rematchJob.cancel()) return ResponseEntity.status(409).body("No re-match is running");
+        return ResponseEntity.ok(rematchJob.progress());
+    }
+
+    // Admin: upload store - blobs, bytes, deduplicated uploads and garbage collection
+    @GetMapping("/uploads")
+    public ResponseEntity<?> uploads(HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        Map<String, Object> out = uploadStore.stats();
+        out.put("serving", uploadFileServer.stats());
+        return ResponseEntity.ok(out);
+    }
+
+    // Admin: collect unreferenced uploads now; recount=true first recomputes every reference count
+    @PostMapping("/uploads/gc")
+    public ResponseEntity<?> uploadsGc(HttpSession session, @RequestParam(value = "recount", defaultValue = "false") boolean recount) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
+        Map<String, Object> out = new java.util.LinkedHashMap<>();
+        if (recount) out.putAll(uploadStore.recount());
+        out.putAll(uploadStore.gc());
         return ResponseEntity.ok(out);
     }
 
@@ -63,7 +283,13 @@ public class AdminController {
     @PostMapping("/lost/{id}/delete")
     public ResponseEntity<?> deleteLostItem(HttpSession session, @PathVariable("id") Long id) {
         if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
-        lostItemRepository.findById(id).ifPresent(l -> lostItemRepository.delete(l));
+        lostItemRepository.findById(id).ifPresent(l -> {
+            lostItemRepository.delete(l);
+            dashboardStats.lostRemoved(l.getReporterEmail());
+            aiService.removeItem("lost", l.getId());
+            itemSearchIndex.remove("lost", l.getId());
+            uploadStore.release(l.getImageUrl());
+        });
         return ResponseEntity.ok().build();
     }
 
@@ -76,7 +302,13 @@ public class AdminController {
     @PostMapping("/found/{id}/delete")
     public ResponseEntity<?> deleteFoundItem(HttpSession session, @PathVariable("id") Long id) {
         if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
-        foundItemRepository.findById(id).ifPresent(f -> foundItemRepository.delete(f));
+        foundItemRepository.findById(id).ifPresent(f -> {
+            foundItemRepository.delete(f);
+            dashboardStats.add(Counter.FOUND, -1);
+            aiService.removeItem("found", f.getId());
+            itemSearchIndex.remove("found", f.getId());
+            uploadStore.release(f.getImageUrl());
+        });
         return ResponseEntity.ok().build();
     }
 
@@ -101,7 +333,12 @@ public class AdminController {
     @PostMapping("/backups/{id}/delete")
     public ResponseEntity<?> deleteBackup(HttpSession session, @PathVariable("id") Long id) {
         if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
-        backupRepository.findById(id).ifPresent(b -> backupRepository.delete(b));
+        backupRepository.findById(id).ifPresent(b -> {
+            backupRepository.delete(b);
+            dashboardStats.add(Counter.BACKUPS, -1);
+            uploadStore.release(b.getLostImageUrl());
+            uploadStore.release(b.getFoundImageUrl());
+        });
         return ResponseEntity.ok().build();
     }
 
@@ -124,7 +361,10 @@ public class AdminController {
     @PostMapping("/user/{id}/delete")
     public ResponseEntity<?> deleteUser(HttpSession session, @PathVariable("id") Long id) {
         if (!isAdmin(session)) return ResponseEntity.status(403).body("Forbidden");
-        userRepository.findById(id).ifPresent(u -> userRepository.delete(u));
+        userRepository.findById(id).ifPresent(u -> {
+            userRepository.delete(u);
+            dashboardStats.add(Counter.USERS, -1);
+        });
         return ResponseEntity.ok().build();
     }
 
@@ -143,6 +383,7 @@ public class AdminController {
         userBlockRepository.findById(id).ifPresent(b -> {
             String blockedEmail = b.getBlockedEmail();
             userBlockRepository.delete(b);
+            dashboardStats.add(Counter.BLOCKS, -1);
             // also clear blocked flag on the user account (if present)
             var u = userRepository.findByEmail(blockedEmail);
             if (u != null) {
@@ -1,10 +1,7 @@
 package com.campustrack.lostandfound.controller;
 
-import com.campustrack.lostandfound.model.LostItem;
-import com.campustrack.lostandfound.repository.LostItemRepository;
-import com.campustrack.lostandfound.repository.FoundItemRepository;
-import com.campustrack.lostandfound.repository.BackupRepository;
-import com.campustrack.lostandfound.repository.ConfirmedMatchRepository;
+import com.campustrack.lostandfound.service.DashboardStats;
+import com.campustrack.lostandfound.service.DashboardStats.Counter;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -21,17 +18,9 @@ import java.util.*;
 public class DashboardController {
 
     @Autowired
-    private LostItemRepository lostItemRepository;
-
-    @Autowired
-    private FoundItemRepository foundItemRepository;
-
-    @Autowired
-    private BackupRepository backupRepository;
-
-    @Autowired
-    private ConfirmedMatchRepository confirmedMatchRepository;
+    private DashboardStats dashboardStats;
 
+    // Polled by every student's home page: answered from in-memory counters, no queries
     @GetMapping("/dashboard")
     public ResponseEntity<?> userDashboard(HttpSession session) {
         String email = (String) session.getAttribute("userEmail");
@@ -43,19 +32,13 @@ public class DashboardController {
         Map<String, Object> out = new HashMap<>();
 
         // lost items reported by this user
-        List<LostItem> losts = lostItemRepository.findByReporterEmail(email);
-        int lostCount = losts == null ? 0 : losts.size();
-        out.put("lostCount", lostCount);
+        out.put("lostCount", dashboardStats.lostReportedBy(email));
 
         // total found items on campus (global)
-        long foundCount = foundItemRepository.count();
-        out.put("foundCount", foundCount);
+        out.put("foundCount", dashboardStats.get(Counter.FOUND));
 
         // matched items: use overall confirmed matches (global)
-        long matchedCount = 0L;
-        try {
-            matchedCount = confirmedMatchRepository.count();
-        } catch (Exception ignore) { /* best-effort: if counting fails, leave as 0 */ }
+        long matchedCount = dashboardStats.get(Counter.MATCHES);
         out.put("matchedCount", matchedCount);
         // compatibility alias used by frontend
         out.put("matches", matchedCount);
@@ -63,10 +46,7 @@ public class DashboardController {
         out.put("overallMatchedCount", matchedCount);
 
         // recovered: use overall backup records count (global)
-        long recoveredCount = 0L;
-        try {
-            recoveredCount = backupRepository.count();
-        } catch (Exception ignore) { /* best-effort: if counting fails, leave as 0 */ }
+        long recoveredCount = dashboardStats.get(Counter.BACKUPS);
         out.put("recoveredCount", recoveredCount);
         out.put("recovered", recoveredCount);
         out.put("overallRecoveredCount", recoveredCount);
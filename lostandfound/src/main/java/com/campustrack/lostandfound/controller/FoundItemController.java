@@ -1,20 +1,21 @@
 package com.campustrack.lostandfound.controller;
 
+import com.campustrack.lostandfound.location.Gazetteer;
 import com.campustrack.lostandfound.model.FoundItem;
 import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.search.ItemSearchIndex;
+import com.campustrack.lostandfound.service.DashboardStats;
+import com.campustrack.lostandfound.service.ImageIngestService;
+import com.campustrack.lostandfound.service.ItemBrowseService;
+import com.campustrack.lostandfound.service.MetricRollups;
+import com.campustrack.lostandfound.service.UploadStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
@@ -30,10 +31,31 @@ public class FoundItemController {
     private FoundItemRepository foundItemRepository;
 
     @Autowired
-    private com.campustrack.lostandfound.repository.LostItemRepository lostItemRepository;
+    private com.campustrack.lostandfound.service.AIService aiService;
 
     @Autowired
-    private com.campustrack.lostandfound.service.AIService aiService;
+    private com.campustrack.lostandfound.service.MatchingQueue matchingQueue;
+
+    @Autowired
+    private ImageIngestService imageIngestService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private ItemBrowseService itemBrowseService;
+
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    @Autowired
+    private DashboardStats dashboardStats;
+
+    @Autowired
+    private MetricRollups metricRollups;
 
     @PostMapping(value = "/report", consumes = {"multipart/form-data"})
     public ResponseEntity<?> reportFoundItem(
@@ -54,6 +76,7 @@ public class FoundItemController {
             item.setModelNo(modelNo);
             item.setSize(size);
             item.setLocation(location);
+            item.setLocationZone(gazetteer.resolve(location));
             item.setAbout(about);
             // optional reporter contact - restrict to university domain
             if (reporterEmail != null && !reporterEmail.isBlank()) {
@@ -72,38 +95,23 @@ public class FoundItemController {
                 item.setFoundDateTime(LocalDateTime.now());
             }
 
-            // Handle image upload
+            // Handle image upload (original plus thumbnails and the model-input rendition)
             if (image != null && !image.isEmpty()) {
-                String projectDir = System.getProperty("user.dir");
-                Path uploadDirPath = Paths.get(projectDir, "uploads");
-
-                if (!Files.exists(uploadDirPath)) {
-                    Files.createDirectories(uploadDirPath);
-                }
-
-                String original = image.getOriginalFilename();
-                String cleanName = Paths.get(original).getFileName().toString();
-                String fileName = System.currentTimeMillis() + "_" + cleanName;
-                Path destPath = uploadDirPath.resolve(fileName);
-
-                try (InputStream in = image.getInputStream()) {
-                    Files.copy(in, destPath, StandardCopyOption.REPLACE_EXISTING);
-                }
-
-                item.setImageUrl("/uploads/" + fileName);
+                ImageIngestService.StoredImage stored = imageIngestService.store(image);
+                item.setImageUrl(stored.imageUrl());
+                item.setThumbnailUrl(stored.thumbnailUrl());
+                item.setPreviewUrl(stored.previewUrl());
+                item.setModelImageUrl(stored.modelImageUrl());
             }
 
             foundItemRepository.save(item);
+            uploadStore.acquire(item.getImageUrl());
+            itemSearchIndex.put(item);
+            dashboardStats.add(DashboardStats.Counter.FOUND, 1);
+            metricRollups.record(MetricRollups.FOUND_REPORTED, LocalDateTime.now());
 
-            // After saving, analyze for possible matches asynchronously
-            new Thread(() -> {
-                try {
-                    java.util.List<com.campustrack.lostandfound.model.LostItem> lostItems = lostItemRepository.findAll();
-                    aiService.analyzeAndSaveMatches(item, lostItems);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }).start();
+            // After saving, analyze for possible matches on the bounded matching queue
+            matchingQueue.submit("found", item.getId(), () -> aiService.analyzeAndSaveMatches(item));
 
             Map<String, Object> res = new HashMap<>();
             res.put("message", "✅ Found item reported successfully!");
@@ -121,6 +129,50 @@ public class FoundItemController {
         }
     }
 
+    // Browse found items a page at a time (summary rows, newest first). Pass nextCursor from the
+    // previous page as cursor; sort=id (default) or time; brand, location, from, to and reporter filter,
+    // and near keeps items in or close to a campus zone (zone id or place name, e.g. "lib").
+    @GetMapping
+    public ResponseEntity<?> browseFoundItems(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "brand", required = false) String brand,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "reporter", required = false) String reporter,
+            @RequestParam(value = "near", required = false) String near
+    ) {
+        try {
+            ItemBrowseService.Query q = new ItemBrowseService.Query(cursor, limit, sort, brand, location,
+                    ItemBrowseService.parseFrom(from), ItemBrowseService.parseTo(to), reporter, near);
+            return ResponseEntity.ok(itemBrowseService.found(q));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Free-text search over name, brand, model number, location and description; tolerates
+    // prefixes ("iph") and single typos ("iphnoe"). Results are the most relevant first; near ranks
+    // items in or close to that campus zone higher.
+    @GetMapping("/search")
+    public ResponseEntity<?> searchFoundItems(@RequestParam("q") String q,
+                                             @RequestParam(value = "limit", required = false) Integer limit,
+                                             @RequestParam(value = "near", required = false) String near) {
+        try {
+            return ResponseEntity.ok(itemBrowseService.searchFound(q, limit, near));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Distinct brands for the list page's category filter
+    @GetMapping("/brands")
+    public ResponseEntity<List<String>> foundItemBrands() {
+        return ResponseEntity.ok(foundItemRepository.findDistinctBrands());
+    }
+
     // Fetch all found items
     @GetMapping("/all")
     public ResponseEntity<List<FoundItem>> getAllFoundItems() {
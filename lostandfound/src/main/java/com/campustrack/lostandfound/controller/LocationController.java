@@ -0,0 +1,38 @@
+package com.campustrack.lostandfound.controller;
+
+import com.campustrack.lostandfound.location.CampusZone;
+import com.campustrack.lostandfound.location.Gazetteer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/locations")
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+public class LocationController {
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    // Campus zones for the report forms and the "near" filter
+    @GetMapping
+    public ResponseEntity<Collection<CampusZone>> zones() {
+        return ResponseEntity.ok(gazetteer.zones());
+    }
+
+    // What a typed location resolves to, and the zones counted as near it (zone is null if none)
+    @GetMapping("/resolve")
+    public ResponseEntity<?> resolve(@RequestParam("text") String text) {
+        String zone = gazetteer.zoneFor(text);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("zone", zone);
+        CampusZone z = gazetteer.zone(zone);
+        out.put("name", z == null ? null : z.name());
+        out.put("near", gazetteer.near(zone));
+        return ResponseEntity.ok(out);
+    }
+}
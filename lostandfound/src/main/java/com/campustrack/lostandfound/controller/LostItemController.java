@@ -1,21 +1,25 @@
 package com.campustrack.lostandfound.controller;
 
+import com.campustrack.lostandfound.location.Gazetteer;
 import com.campustrack.lostandfound.model.LostItem;
 import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.search.ItemSearchIndex;
+import com.campustrack.lostandfound.service.DashboardStats;
+import com.campustrack.lostandfound.service.ImageIngestService;
+import com.campustrack.lostandfound.service.ItemBrowseService;
+import com.campustrack.lostandfound.service.MetricRollups;
+import com.campustrack.lostandfound.service.UploadStore;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.io.File;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -27,10 +31,31 @@ public class LostItemController {
     private LostItemRepository lostItemRepository;
 
     @Autowired
-    private com.campustrack.lostandfound.repository.FoundItemRepository foundItemRepository;
+    private com.campustrack.lostandfound.service.AIService aiService;
 
     @Autowired
-    private com.campustrack.lostandfound.service.AIService aiService;
+    private com.campustrack.lostandfound.service.MatchingQueue matchingQueue;
+
+    @Autowired
+    private ImageIngestService imageIngestService;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private ItemBrowseService itemBrowseService;
+
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    @Autowired
+    private DashboardStats dashboardStats;
+
+    @Autowired
+    private MetricRollups metricRollups;
 
     // ✅ Report Lost Item with image upload
     @PostMapping(value = "/report", consumes = {"multipart/form-data"})
@@ -52,6 +77,7 @@ public class LostItemController {
             item.setModelNo(modelNo);
             item.setSize(size);
             item.setLocation(location);
+            item.setLocationZone(gazetteer.resolve(location));
             item.setAbout(about);
 
             // Handle date parsing safely
@@ -62,23 +88,13 @@ public class LostItemController {
                 item.setLostDateTime(LocalDateTime.now());
             }
 
-            // Handle image upload and store relative path
+            // Store the upload and its thumbnails / model-input rendition (relative paths for web access)
             if (image != null && !image.isEmpty()) {
-                String projectDir = System.getProperty("user.dir");
-                String uploadDir = projectDir + File.separator + "uploads";
-
-                File directory = new File(uploadDir);
-                if (!directory.exists()) {
-                    directory.mkdirs();
-                }
-
-                String fileName = System.currentTimeMillis() + "_" + image.getOriginalFilename();
-                String filePath = uploadDir + File.separator + fileName;
-                File dest = new File(filePath);
-                image.transferTo(dest);
-
-                // Save relative path for web access
-                item.setImageUrl("/uploads/" + fileName);
+                ImageIngestService.StoredImage stored = imageIngestService.store(image);
+                item.setImageUrl(stored.imageUrl());
+                item.setThumbnailUrl(stored.thumbnailUrl());
+                item.setPreviewUrl(stored.previewUrl());
+                item.setModelImageUrl(stored.modelImageUrl());
             }
 
             // optional reporter contact - restrict to university domain
@@ -91,28 +107,13 @@ public class LostItemController {
                 item.setReporterEmail(r);
             }
             lostItemRepository.save(item);
+            uploadStore.acquire(item.getImageUrl());
+            itemSearchIndex.put(item);
+            dashboardStats.lostAdded(item.getReporterEmail());
+            metricRollups.record(MetricRollups.LOST_REPORTED, LocalDateTime.now());
 
-            // analyze against found items asynchronously
-            new Thread(() -> {
-                try {
-                    java.util.List<com.campustrack.lostandfound.model.FoundItem> founds = foundItemRepository.findAll();
-                    // reuse aiService: analyze found items vs this lost item by swapping roles
-                    // create a temporary FoundItem-like wrapper using lost item's data
-                    com.campustrack.lostandfound.model.FoundItem temp = new com.campustrack.lostandfound.model.FoundItem();
-                    temp.setId(null);
-                    temp.setItemName(item.getItemName());
-                    temp.setBrand(item.getBrand());
-                    temp.setModelNo(item.getModelNo());
-                    temp.setSize(item.getSize());
-                    temp.setLocation(item.getLocation());
-                    temp.setAbout(item.getAbout());
-                    temp.setFoundDateTime(java.time.LocalDateTime.now());
-                    aiService.analyzeAndSaveMatches(temp, java.util.Collections.emptyList());
-                    // publish suggestions for lost side as well: the AIService.publish currently publishes for found items only
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }).start();
+            // analyze against open found items in the background (suggestions for both sides)
+            matchingQueue.submit("lost", item.getId(), () -> aiService.analyzeLostAndSaveMatches(item));
 
             Map<String, Object> res = new HashMap<>();
             res.put("message", "✅ Lost item reported successfully!");
@@ -130,6 +131,50 @@ public class LostItemController {
         }
     }
 
+    // Browse lost items a page at a time (summary rows, newest first). Pass nextCursor from the
+    // previous page as cursor; sort=id (default) or time; brand, location, from, to and reporter filter,
+    // and near keeps items in or close to a campus zone (zone id or place name, e.g. "lib").
+    @GetMapping
+    public ResponseEntity<?> browseLostItems(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "brand", required = false) String brand,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestParam(value = "reporter", required = false) String reporter,
+            @RequestParam(value = "near", required = false) String near
+    ) {
+        try {
+            ItemBrowseService.Query q = new ItemBrowseService.Query(cursor, limit, sort, brand, location,
+                    ItemBrowseService.parseFrom(from), ItemBrowseService.parseTo(to), reporter, near);
+            return ResponseEntity.ok(itemBrowseService.lost(q));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Free-text search over name, brand, model number, location and description; tolerates
+    // prefixes ("iph") and single typos ("iphnoe"). Results are the most relevant first; near ranks
+    // items in or close to that campus zone higher.
+    @GetMapping("/search")
+    public ResponseEntity<?> searchLostItems(@RequestParam("q") String q,
+                                             @RequestParam(value = "limit", required = false) Integer limit,
+                                             @RequestParam(value = "near", required = false) String near) {
+        try {
+            return ResponseEntity.ok(itemBrowseService.searchLost(q, limit, near));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Distinct brands for the list page's category filter
+    @GetMapping("/brands")
+    public ResponseEntity<List<String>> lostItemBrands() {
+        return ResponseEntity.ok(lostItemRepository.findDistinctBrands());
+    }
+
     // Fetch all reported lost items
     @GetMapping("/all")
     public ResponseEntity<?> getAllLostItems() {
@@ -141,16 +186,4 @@ public class LostItemController {
                     .body(Map.of("message", "❌ Failed to fetch lost items"));
         }
     }
-
-    // Enable serving uploaded images
-    @Bean
-    public WebMvcConfigurer webMvcConfigurer() {
-        return new WebMvcConfigurer() {
-            @Override
-            public void addResourceHandlers(ResourceHandlerRegistry registry) {
-                registry.addResourceHandler("/uploads/**")
-                        .addResourceLocations("file:" + System.getProperty("user.dir") + "/uploads/");
-            }
-        };
-    }
 }
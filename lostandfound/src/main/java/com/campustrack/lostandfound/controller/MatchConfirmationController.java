@@ -2,6 +2,8 @@ package com.campustrack.lostandfound.controller;
 
 import com.campustrack.lostandfound.model.ConfirmedMatch;
 import com.campustrack.lostandfound.repository.ConfirmedMatchRepository;
+import com.campustrack.lostandfound.service.DashboardStats;
+import com.campustrack.lostandfound.service.MetricRollups;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +21,12 @@ public class MatchConfirmationController {
     @Autowired
     private com.campustrack.lostandfound.service.NotificationService notificationService;
 
+    @Autowired
+    private DashboardStats dashboardStats;
+
+    @Autowired
+    private MetricRollups metricRollups;
+
     @PostMapping
     public ResponseEntity<?> confirmMatch(@RequestBody Map<String, Object> body, jakarta.servlet.http.HttpSession session) {
         try {
@@ -43,6 +51,8 @@ public class MatchConfirmationController {
             cm.setConfirmerEmail(confirmerEmail);
 
             ConfirmedMatch saved = confirmedMatchRepository.save(cm);
+            dashboardStats.add(DashboardStats.Counter.MATCHES, 1);
+            metricRollups.record(MetricRollups.MATCH_CONFIRMED, saved.getConfirmedAt());
             // create notification for the lost item reporter
             try {
                 notificationService.createConfirmationNotification(foundItemId, lostItemId);
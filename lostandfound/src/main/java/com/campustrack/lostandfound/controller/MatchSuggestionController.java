@@ -22,4 +22,9 @@ public class MatchSuggestionController {
     public ResponseEntity<List<MatchSuggestion>> getByFound(@PathVariable Long foundId) {
         return ResponseEntity.ok(matchSuggestionRepository.findByFoundItemIdOrderByScoreDesc(foundId));
     }
+
+    @GetMapping("/lost/{lostId}")
+    public ResponseEntity<List<MatchSuggestion>> getByLost(@PathVariable Long lostId) {
+        return ResponseEntity.ok(matchSuggestionRepository.findByLostItemIdOrderByScoreDesc(lostId));
+    }
 }
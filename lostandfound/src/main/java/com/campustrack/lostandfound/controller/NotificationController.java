@@ -29,6 +29,16 @@ public class NotificationController {
     private com.campustrack.lostandfound.repository.LostItemRepository lostItemRepository;
     @Autowired
     private FoundItemRepository foundItemRepository;
+    @Autowired
+    private com.campustrack.lostandfound.service.AIService aiService;
+    @Autowired
+    private com.campustrack.lostandfound.service.UploadStore uploadStore;
+    @Autowired
+    private com.campustrack.lostandfound.search.ItemSearchIndex itemSearchIndex;
+    @Autowired
+    private com.campustrack.lostandfound.service.DashboardStats dashboardStats;
+    @Autowired
+    private com.campustrack.lostandfound.service.MetricRollups metricRollups;
 
     @GetMapping("/lost/{lostId}")
     public ResponseEntity<List<Notification>> getNotificationsForLost(@PathVariable Long lostId) {
@@ -114,15 +124,34 @@ public class NotificationController {
             br.setLostItemSnapshot(lost != null ? lost.toString() : null);
             br.setFoundItemSnapshot(found != null ? found.toString() : null);
         }
+        // the archive keeps the photos referenced after the items are gone
+        br.setLostImageUrl(lost != null ? lost.getImageUrl() : null);
+        br.setFoundImageUrl(found != null ? found.getImageUrl() : null);
         backupRepository.save(br);
+        dashboardStats.add(com.campustrack.lostandfound.service.DashboardStats.Counter.BACKUPS, 1);
+        metricRollups.record(com.campustrack.lostandfound.service.MetricRollups.ITEM_RECOVERED, br.getArchivedAt());
+        if (lost != null && lost.getLostDateTime() != null && lost.getLostDateTime().isBefore(br.getArchivedAt())) {
+            long seconds = java.time.Duration.between(lost.getLostDateTime(), br.getArchivedAt()).getSeconds();
+            metricRollups.record(com.campustrack.lostandfound.service.MetricRollups.RECOVERY_SECONDS, br.getArchivedAt(), seconds);
+        }
+        uploadStore.acquire(br.getLostImageUrl());
+        uploadStore.acquire(br.getFoundImageUrl());
 
         // Now delete the original items and the notification itself
         notificationRepository.delete(n);
         if (lost != null) {
             lostItemRepository.delete(lost);
+            dashboardStats.lostRemoved(lost.getReporterEmail());
+            aiService.removeItem("lost", lost.getId());
+            itemSearchIndex.remove("lost", lost.getId());
+            uploadStore.release(lost.getImageUrl());
         }
         if (found != null) {
             foundItemRepository.delete(found);
+            dashboardStats.add(com.campustrack.lostandfound.service.DashboardStats.Counter.FOUND, -1);
+            aiService.removeItem("found", found.getId());
+            itemSearchIndex.remove("found", found.getId());
+            uploadStore.release(found.getImageUrl());
         }
         return ResponseEntity.ok(java.util.Map.of("status", "archived"));
     }
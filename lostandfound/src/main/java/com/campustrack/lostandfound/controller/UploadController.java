@@ -0,0 +1,24 @@
+package com.campustrack.lostandfound.controller;
+
+import com.campustrack.lostandfound.service.UploadFileServer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+// Uploaded item photos and their renditions (ETag / 304, Range, immutable caching, sendfile)
+@RestController
+public class UploadController {
+
+    @Autowired
+    private UploadFileServer uploadFileServer;
+
+    @RequestMapping(value = "/uploads/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        uploadFileServer.serve(request, response);
+    }
+}
@@ -0,0 +1,8 @@
+package com.campustrack.lostandfound.location;
+
+import java.util.List;
+
+// A named part of campus from the gazetteer. x/y are metres on the campus grid (only distances
+// between zones mean anything); adjacent lists zones that count as near whatever the distance.
+public record CampusZone(String id, String name, double x, double y, List<String> aliases, List<String> adjacent) {
+}
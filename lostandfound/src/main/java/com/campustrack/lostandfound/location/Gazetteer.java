@@ -0,0 +1,231 @@
+package com.campustrack.lostandfound.location;
+
+import com.campustrack.lostandfound.search.TextIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Maps the free-text location of a report ("Lib 2nd flr", "library level 2", "nr main gate") to one
+// of the campus zones in campustrack.location.gazetteer. The text is split into words,
+// abbreviations are expanded ("lib" -> "library"), floor and level mentions are dropped, and the
+// longest zone alias found in what is left wins; alias words of five letters or more also match
+// with one typo. Text that names no zone (or only "hostel") resolves to null.
+// Two zones are near each other when the gazetteer lists them as adjacent or they lie within
+// near-metres; near() sets are computed once at load.
+@Component
+public class Gazetteer {
+
+    private static final int MIN_FUZZY_LENGTH = 5;
+    private static final int MAX_UNRESOLVED_TRACKED = 500;
+
+    private static final Set<String> FLOOR_WORDS = Set.of("floor", "flr", "fl", "level", "lvl", "storey", "story", "basement");
+    private static final Set<String> FLOOR_NUMBERS = Set.of("ground", "first", "second", "third", "fourth", "top", "upper", "lower");
+    private static final Set<String> FILLER = Set.of(
+            "the", "of", "near", "nr", "at", "in", "on", "opp", "opposite", "behind", "beside", "outside", "inside",
+            "front", "next", "to", "area", "around", "side", "room", "corridor", "entrance");
+
+    private final double nearMetres;
+    private final Map<String, CampusZone> zones = new LinkedHashMap<>();
+    private final Map<String, String> abbreviations = new HashMap<>();
+    // first word of an alias -> (alias words, zone id), longest alias first
+    private final Map<String, List<Map.Entry<List<String>, String>>> aliases = new HashMap<>();
+    private final Set<String> aliasWords = new HashSet<>();
+    private final Map<String, Set<String>> near = new HashMap<>();
+
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+    // texts that named no zone, with counts: what to add to the gazetteer next
+    private final Map<String, LongAdder> unresolvedTexts = new ConcurrentHashMap<>();
+
+    public Gazetteer(@Value("${campustrack.location.gazetteer:classpath:campus-zones.json}") String location,
+                     @Value("${campustrack.location.near-metres:150}") double nearMetres,
+                     ResourceLoader resourceLoader) {
+        this.nearMetres = nearMetres;
+        try (InputStream in = resourceLoader.getResource(location).getInputStream()) {
+            load(new ObjectMapper().readTree(in));
+        } catch (Exception e) {
+            // without a gazetteer every location stays unresolved and proximity plays no part
+            e.printStackTrace();
+        }
+    }
+
+    private void load(JsonNode root) {
+        root.path("abbreviations").properties().forEach(e -> abbreviations.put(e.getKey().toLowerCase(Locale.ROOT), e.getValue().asText().toLowerCase(Locale.ROOT)));
+        for (JsonNode z : root.path("zones")) {
+            List<String> names = new ArrayList<>();
+            z.path("aliases").forEach(a -> names.add(a.asText()));
+            List<String> adjacent = new ArrayList<>();
+            z.path("adjacent").forEach(a -> adjacent.add(a.asText()));
+            CampusZone zone = new CampusZone(z.path("id").asText(), z.path("name").asText(z.path("id").asText()),
+                    z.path("x").asDouble(), z.path("y").asDouble(), names, adjacent);
+            zones.put(zone.id(), zone);
+            List<String> all = new ArrayList<>(names);
+            all.add(zone.name());
+            for (String alias : all) {
+                List<String> words = words(alias, false);
+                if (words.isEmpty()) continue;
+                aliasWords.addAll(words);
+                aliases.computeIfAbsent(words.get(0), k -> new ArrayList<>()).add(Map.entry(words, zone.id()));
+            }
+        }
+        for (List<Map.Entry<List<String>, String>> list : aliases.values()) {
+            list.sort((a, b) -> Integer.compare(b.getKey().size(), a.getKey().size()));
+        }
+        for (CampusZone a : zones.values()) {
+            Set<String> s = near.computeIfAbsent(a.id(), k -> new LinkedHashSet<>());
+            s.add(a.id());
+            for (CampusZone b : zones.values()) {
+                if (distanceMetres(a, b) <= nearMetres) s.add(b.id());
+            }
+            for (String b : a.adjacent()) {
+                if (!zones.containsKey(b)) continue;
+                s.add(b);
+                near.computeIfAbsent(b, k -> new LinkedHashSet<>(List.of(b))).add(a.id());
+            }
+        }
+    }
+
+    // Zone id named by a free-text location, or null; counted in stats() as resolved or not, so
+    // call it once per location someone typed (a report, a search)
+    public String resolve(String text) {
+        if (text == null || text.isBlank()) return null;
+        String best = lookup(text);
+        if (best != null) {
+            resolved.increment();
+        } else {
+            unresolved.increment();
+            String key = text.trim().toLowerCase(Locale.ROOT);
+            LongAdder n = unresolvedTexts.get(key);
+            if (n == null && unresolvedTexts.size() < MAX_UNRESOLVED_TRACKED) n = unresolvedTexts.computeIfAbsent(key, k -> new LongAdder());
+            if (n != null) n.increment();
+        }
+        return best;
+    }
+
+    // resolve() without the stats, for re-reading locations already counted when they were
+    // reported (backfills, rebuilding match attributes)
+    public String lookup(String text) {
+        if (text == null || text.isBlank()) return null;
+        List<String> words = words(text, true);
+        String best = null;
+        int bestLength = 0;
+        for (int i = 0; i < words.size(); i++) {
+            List<Map.Entry<List<String>, String>> candidates = aliases.get(words.get(i));
+            if (candidates == null) continue;
+            for (Map.Entry<List<String>, String> alias : candidates) {
+                List<String> a = alias.getKey();
+                if (a.size() <= bestLength) break;
+                if (i + a.size() <= words.size() && words.subList(i, i + a.size()).equals(a)) {
+                    best = alias.getValue();
+                    bestLength = a.size();
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    // A zone id as given, or else whatever zone the text names
+    public String zoneFor(String idOrText) {
+        if (idOrText == null) return null;
+        String id = idOrText.trim().toLowerCase(Locale.ROOT);
+        return zones.containsKey(id) ? id : resolve(idOrText);
+    }
+
+    public CampusZone zone(String id) {
+        return id == null ? null : zones.get(id);
+    }
+
+    public Collection<CampusZone> zones() {
+        return Collections.unmodifiableCollection(zones.values());
+    }
+
+    // The zone itself and every zone near it; empty for an unknown zone
+    public Set<String> near(String zoneId) {
+        Set<String> s = zoneId == null ? null : near.get(zoneId);
+        return s == null ? Set.of() : Collections.unmodifiableSet(s);
+    }
+
+    public boolean isNear(String a, String b) {
+        return a != null && b != null && near(a).contains(b);
+    }
+
+    public double distanceMetres(String a, String b) {
+        CampusZone za = zone(a);
+        CampusZone zb = zone(b);
+        return za == null || zb == null ? Double.NaN : distanceMetres(za, zb);
+    }
+
+    private static double distanceMetres(CampusZone a, CampusZone b) {
+        return Math.hypot(a.x() - b.x(), a.y() - b.y());
+    }
+
+    // lower-case words with abbreviations expanded and floor mentions ("2nd flr", "level 2",
+    // "ground floor") removed; in report text also filler words, and typos in alias words fixed
+    private List<String> words(String text, boolean report) {
+        List<String> raw = new ArrayList<>();
+        for (String t : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (t.isEmpty()) continue;
+            if (t.matches("\\d+(st|nd|rd|th)")) {
+                // an ordinal is a floor number ("2nd floor", "3rd flr")
+                raw.add("#");
+                continue;
+            }
+            // "lab3" -> "lab", "3"
+            for (String part : t.split("(?<=\\p{L})(?=\\p{N})|(?<=\\p{N})(?=\\p{L})")) {
+                String w = abbreviations.getOrDefault(part, part);
+                raw.add(FLOOR_WORDS.contains(w) ? "#floor" : w);
+            }
+        }
+        List<String> out = new ArrayList<>(raw.size());
+        for (int i = 0; i < raw.size(); i++) {
+            String w = raw.get(i);
+            if (w.startsWith("#")) continue;
+            boolean floorNext = i + 1 < raw.size() && "#floor".equals(raw.get(i + 1));
+            boolean floorBefore = i > 0 && "#floor".equals(raw.get(i - 1));
+            if ((floorNext && FLOOR_NUMBERS.contains(w)) || ((floorNext || floorBefore) && w.chars().allMatch(Character::isDigit))) continue;
+            if (!report) {
+                out.add(w);
+                continue;
+            }
+            if (FILLER.contains(w) && !aliasWords.contains(w)) continue;
+            out.add(aliasWords.contains(w) ? w : corrected(w));
+        }
+        return out;
+    }
+
+    // the one alias word within a typo of w, if there is exactly one
+    private String corrected(String w) {
+        if (w.length() < MIN_FUZZY_LENGTH) return w;
+        String match = null;
+        for (String a : aliasWords) {
+            if (a.length() >= MIN_FUZZY_LENGTH && TextIndex.withinOneEdit(w, a)) {
+                if (match != null) return w;
+                match = a;
+            }
+        }
+        return match == null ? w : match;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("zones", zones.size());
+        out.put("nearMetres", nearMetres);
+        out.put("resolved", resolved.sum());
+        out.put("unresolved", unresolved.sum());
+        List<Map.Entry<String, Long>> top = new ArrayList<>();
+        unresolvedTexts.forEach((k, v) -> top.add(Map.entry(k, v.sum())));
+        top.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        Map<String, Long> topUnresolved = new LinkedHashMap<>();
+        for (int i = 0; i < top.size() && i < 20; i++) topUnresolved.put(top.get(i).getKey(), top.get(i).getValue());
+        out.put("topUnresolved", topUnresolved);
+        return out;
+    }
+}
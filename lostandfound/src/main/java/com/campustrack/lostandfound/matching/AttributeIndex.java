@@ -0,0 +1,143 @@
+package com.campustrack.lostandfound.matching;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Inverted index over the structured fields of one side's items: a posting set per brand, name,
+// size and location token and per campus zone, and the items ordered by report time. Items with an empty field are
+// kept in a separate set per field, since an unknown value cannot rule a pair out.
+// Not thread-safe on its own; ItemAttributeIndex guards it.
+final class AttributeIndex {
+
+    static final String NAME = "name";
+    static final String BRAND = "brand";
+    static final String SIZE = "size";
+    static final String LOCATION = "location";
+    static final String ZONE = "zone";
+
+    private final Map<String, Field> fields = new HashMap<>();
+    private final TreeMap<Long, Set<Long>> byTime = new TreeMap<>();
+    private final Set<Long> noTime = new HashSet<>();
+    private final Map<Long, ItemAttributes> attributes = new HashMap<>();
+
+    AttributeIndex() {
+        for (String f : List.of(NAME, BRAND, SIZE, LOCATION, ZONE)) fields.put(f, new Field());
+    }
+
+    int size() {
+        return attributes.size();
+    }
+
+    ItemAttributes get(long id) {
+        return attributes.get(id);
+    }
+
+    void put(long id, ItemAttributes a) {
+        remove(id);
+        attributes.put(id, a);
+        fields.get(NAME).add(id, tokens(a.itemName()));
+        fields.get(BRAND).add(id, tokens(a.brand()));
+        fields.get(SIZE).add(id, tokens(a.size()));
+        fields.get(LOCATION).add(id, tokens(a.location()));
+        fields.get(ZONE).add(id, zones(a.zone()));
+        if (a.time() == null) noTime.add(id);
+        else byTime.computeIfAbsent(epochMinute(a.time()), k -> new HashSet<>()).add(id);
+    }
+
+    void remove(long id) {
+        ItemAttributes a = attributes.remove(id);
+        if (a == null) return;
+        fields.get(NAME).remove(id, tokens(a.itemName()));
+        fields.get(BRAND).remove(id, tokens(a.brand()));
+        fields.get(SIZE).remove(id, tokens(a.size()));
+        fields.get(LOCATION).remove(id, tokens(a.location()));
+        fields.get(ZONE).remove(id, zones(a.zone()));
+        if (a.time() == null) {
+            noTime.remove(id);
+        } else {
+            long t = epochMinute(a.time());
+            Set<Long> s = byTime.get(t);
+            if (s != null && s.remove(id) && s.isEmpty()) byTime.remove(t);
+        }
+    }
+
+    // Items sharing a token of the field with the query, plus items with no value for it;
+    // null when the query itself has no value (nothing to filter on)
+    Set<Long> matching(String field, String value) {
+        Set<String> q = tokens(value);
+        if (q.isEmpty()) return null;
+        return fields.get(field).matching(q);
+    }
+
+    // Items in any of the given zones, plus items with no zone; null when no zone is given
+    Set<Long> inZones(Set<String> zones) {
+        if (zones.isEmpty()) return null;
+        return fields.get(ZONE).matching(zones);
+    }
+
+    // Items whose time falls in [from, to], plus items with no time; null when both bounds are open
+    Set<Long> between(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) return null;
+        long lo = from == null ? Long.MIN_VALUE : epochMinute(from);
+        long hi = to == null ? Long.MAX_VALUE : epochMinute(to);
+        Set<Long> out = new HashSet<>(noTime);
+        for (Set<Long> s : byTime.subMap(lo, true, hi, true).values()) out.addAll(s);
+        return out;
+    }
+
+    private static long epochMinute(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "of", "and", "or", "with", "in", "on", "at", "near", "my", "to", "for",
+            "none", "unknown", "na", "nil", "no", "not", "other", "others");
+
+    // lower-case alphanumeric tokens of at least two characters, minus filler words
+    static Set<String> tokens(String value) {
+        Set<String> out = new HashSet<>();
+        if (value == null) return out;
+        for (String t : value.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (t.length() >= 2 && !STOP_WORDS.contains(t)) out.add(t);
+        }
+        return out;
+    }
+
+    private static Set<String> zones(String zone) {
+        return zone == null ? Set.of() : Set.of(zone);
+    }
+
+    private static final class Field {
+        final Map<String, Set<Long>> postings = new HashMap<>();
+        final Set<Long> empty = new HashSet<>();
+
+        void add(long id, Set<String> tokens) {
+            if (tokens.isEmpty()) {
+                empty.add(id);
+                return;
+            }
+            for (String t : tokens) postings.computeIfAbsent(t, k -> new HashSet<>()).add(id);
+        }
+
+        void remove(long id, Set<String> tokens) {
+            if (tokens.isEmpty()) {
+                empty.remove(id);
+                return;
+            }
+            for (String t : tokens) {
+                Set<Long> s = postings.get(t);
+                if (s != null && s.remove(id) && s.isEmpty()) postings.remove(t);
+            }
+        }
+
+        Set<Long> matching(Set<String> tokens) {
+            Set<Long> out = new HashSet<>(empty);
+            for (String t : tokens) {
+                Set<Long> s = postings.get(t);
+                if (s != null) out.addAll(s);
+            }
+            return out;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.campustrack.lostandfound.matching;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Hierarchical navigable small-world graph over float32 unit vectors of one dimension.
+// Not thread-safe on its own; HnswIndex guards it with a read/write lock.
+// Deletes are tombstones: the node stays navigable but never enters a result list, and the
+// graph is rebuilt from live nodes once tombstones pass a quarter of the nodes (HnswIndex does
+// that off the query path and swaps the new graph in).
+final class HnswGraph {
+
+    final int dim;
+    private final int m;
+    private final int m0;
+    private final int efConstruction;
+    private final double levelMult;
+    private final Random random = new Random(42);
+
+    private float[] data = new float[0];
+    private long[] ids = new long[0];
+    private int[] levels = new int[0];
+    private boolean[] deleted = new boolean[0];
+    // links[node][level] = {count, n1, n2, ...}
+    private int[][][] links = new int[0][][];
+    private int count;
+    private int live;
+    private int entry = -1;
+    private int maxLevel = -1;
+    private final Map<Long, Integer> nodeOf = new HashMap<>();
+
+    HnswGraph(int dim, int m, int efConstruction) {
+        this.dim = dim;
+        this.m = Math.max(2, m);
+        this.m0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMult = 1.0 / Math.log(this.m);
+    }
+
+    int live() {
+        return live;
+    }
+
+    boolean contains(long id) {
+        return nodeOf.containsKey(id);
+    }
+
+    Iterable<Long> ids() {
+        return nodeOf.keySet();
+    }
+
+    void insert(long id, float[] unit) {
+        remove(id);
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMult);
+        int node = addNode(id, unit, level);
+        if (entry < 0) {
+            entry = node;
+            maxLevel = level;
+            return;
+        }
+        int ep = entry;
+        for (int l = maxLevel; l > level; l--) ep = greedy(unit, 1.0, ep, l);
+        int[] eps = {ep};
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap found = searchLayer(unit, 1.0, eps, efConstruction, l, false);
+            int n = found.size();
+            int[] cand = new int[n];
+            double[] scores = new double[n];
+            // popping a min-heap yields ascending scores; fill from the back to get best first
+            for (int i = n - 1; i >= 0; i--) {
+                scores[i] = found.peekScore();
+                cand[i] = found.pop();
+            }
+            int cap = l == 0 ? m0 : m;
+            for (int s : selectNeighbours(cand, scores, m)) {
+                connect(node, s, l, cap);
+                connect(s, node, l, cap);
+            }
+            eps = cand;
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entry = node;
+        }
+    }
+
+    boolean remove(long id) {
+        Integer node = nodeOf.remove(id);
+        if (node == null) return false;
+        deleted[node] = true;
+        live--;
+        return true;
+    }
+
+    boolean needsCompaction() {
+        int dead = count - live;
+        return dead > 64 && dead * 4 > count;
+    }
+
+    // ids and vectors of the live nodes, copied so a compacted graph can be built without the lock
+    record LiveNodes(long[] ids, float[] data) {
+    }
+
+    LiveNodes liveNodes() {
+        long[] liveIds = new long[live];
+        float[] liveData = new float[live * dim];
+        int n = 0;
+        for (int node = 0; node < count; node++) {
+            if (deleted[node]) continue;
+            liveIds[n] = ids[node];
+            System.arraycopy(data, node * dim, liveData, n * dim, dim);
+            n++;
+        }
+        return new LiveNodes(liveIds, liveData);
+    }
+
+    // fresh graph with the same parameters holding only the given nodes
+    HnswGraph compacted(LiveNodes nodes) {
+        HnswGraph g = new HnswGraph(dim, m, efConstruction);
+        for (int i = 0; i < nodes.ids().length; i++) {
+            g.insert(nodes.ids()[i], Arrays.copyOfRange(nodes.data(), i * dim, (i + 1) * dim));
+        }
+        return g;
+    }
+
+    void search(float[] q, int k, int ef, TopK out, double minScore) {
+        if (entry < 0 || live == 0) return;
+        int n = Math.min(q.length, dim);
+        double qn = 1.0;
+        if (q.length != dim) {
+            qn = VectorKernels.sumSquares(q, 0, n);
+            if (qn == 0) return;
+        }
+        int ep = entry;
+        for (int l = maxLevel; l > 0; l--) ep = greedy(q, qn, ep, l);
+        // tombstones are walked through but kept out of the ef results, so up to ef live nodes come back
+        NodeHeap found = searchLayer(q, qn, new int[]{ep}, Math.max(ef, k), 0, true);
+        while (found.size() > 0) {
+            double score = found.peekScore();
+            int node = found.pop();
+            if (score >= minScore) out.offer(ids[node], score);
+        }
+    }
+
+    // exact score of one live item, or NaN if it is not in this graph
+    double score(float[] q, long id) {
+        Integer node = nodeOf.get(id);
+        if (node == null) return Double.NaN;
+        int n = Math.min(q.length, dim);
+        double qn = q.length == dim ? 1.0 : VectorKernels.sumSquares(q, 0, n);
+        if (qn == 0) return -1;
+        return similarity(q, qn, node);
+    }
+
+    private int addNode(long id, float[] unit, int level) {
+        if (count == ids.length) {
+            int cap = Math.max(16, ids.length * 2);
+            data = Arrays.copyOf(data, cap * dim);
+            ids = Arrays.copyOf(ids, cap);
+            levels = Arrays.copyOf(levels, cap);
+            deleted = Arrays.copyOf(deleted, cap);
+            links = Arrays.copyOf(links, cap);
+        }
+        int node = count++;
+        System.arraycopy(unit, 0, data, node * dim, dim);
+        ids[node] = id;
+        levels[node] = level;
+        deleted[node] = false;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) links[node][l] = new int[(l == 0 ? m0 : m) + 1];
+        nodeOf.put(id, node);
+        live++;
+        return node;
+    }
+
+    // cosine against a stored unit vector; a query of another length is compared on the shared prefix
+    private double similarity(float[] q, double qn, int node) {
+        int off = node * dim;
+        if (q.length == dim) return VectorKernels.dot(q, data, off, dim);
+        int n = Math.min(q.length, dim);
+        double dot = VectorKernels.dot(q, data, off, n);
+        double cn = VectorKernels.sumSquares(data, off, n);
+        return cn == 0 ? -1 : dot / Math.sqrt(qn * cn);
+    }
+
+    private double similarity(int a, int b) {
+        return VectorKernels.dot(data, data, a * dim, b * dim, dim);
+    }
+
+    private int greedy(float[] q, double qn, int ep, int level) {
+        double best = similarity(q, qn, ep);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int[] nb = links[ep][level];
+            for (int i = 1; i <= nb[0]; i++) {
+                double s = similarity(q, qn, nb[i]);
+                if (s > best) {
+                    best = s;
+                    ep = nb[i];
+                    moved = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    // returns a min-heap of at most ef nodes closest to q on this level; with liveOnly, deleted
+    // nodes are still expanded but never become results
+    private NodeHeap searchLayer(float[] q, double qn, int[] eps, int ef, int level, boolean liveOnly) {
+        BitSet visited = new BitSet(count);
+        NodeHeap candidates = new NodeHeap(true);
+        NodeHeap results = new NodeHeap(false);
+        for (int ep : eps) {
+            if (visited.get(ep)) continue;
+            visited.set(ep);
+            double s = similarity(q, qn, ep);
+            candidates.push(ep, s);
+            if (liveOnly && deleted[ep]) continue;
+            results.push(ep, s);
+            if (results.size() > ef) results.pop();
+        }
+        while (candidates.size() > 0) {
+            double cs = candidates.peekScore();
+            int c = candidates.pop();
+            if (results.size() >= ef && cs < results.peekScore()) break;
+            if (levels[c] < level) continue;
+            int[] nb = links[c][level];
+            for (int i = 1; i <= nb[0]; i++) {
+                int e = nb[i];
+                if (visited.get(e)) continue;
+                visited.set(e);
+                double s = similarity(q, qn, e);
+                if (results.size() < ef || s > results.peekScore()) {
+                    candidates.push(e, s);
+                    if (liveOnly && deleted[e]) continue;
+                    results.push(e, s);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    // HNSW neighbour heuristic: prefer candidates that are closer to the new node than to any
+    // neighbour already chosen, then top up with the best remaining ones
+    private int[] selectNeighbours(int[] cand, double[] scores, int max) {
+        int[] chosen = new int[Math.min(max, cand.length)];
+        int n = 0;
+        boolean[] taken = new boolean[cand.length];
+        for (int i = 0; i < cand.length && n < chosen.length; i++) {
+            if (deleted[cand[i]]) continue;
+            boolean keep = true;
+            for (int j = 0; j < n; j++) {
+                if (similarity(cand[i], chosen[j]) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                chosen[n++] = cand[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < cand.length && n < chosen.length; i++) {
+            if (!taken[i] && !deleted[cand[i]]) chosen[n++] = cand[i];
+        }
+        return Arrays.copyOf(chosen, n);
+    }
+
+    // add b to a's list on this level, evicting a's weakest link when the list is full
+    private void connect(int a, int b, int level, int cap) {
+        if (a == b) return;
+        int[] nb = links[a][level];
+        int size = nb[0];
+        for (int i = 1; i <= size; i++) if (nb[i] == b) return;
+        if (size < cap) {
+            nb[size + 1] = b;
+            nb[0] = size + 1;
+            return;
+        }
+        int worst = -1;
+        double worstScore = similarity(a, b);
+        for (int i = 1; i <= size; i++) {
+            double s = deleted[nb[i]] ? -2 : similarity(a, nb[i]);
+            if (s < worstScore) {
+                worstScore = s;
+                worst = i;
+            }
+        }
+        if (worst > 0) nb[worst] = b;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(dim);
+        out.writeInt(count);
+        out.writeInt(live);
+        out.writeInt(entry);
+        out.writeInt(maxLevel);
+        for (int node = 0; node < count; node++) {
+            out.writeLong(ids[node]);
+            out.writeBoolean(deleted[node]);
+            out.writeInt(levels[node]);
+            int off = node * dim;
+            for (int i = 0; i < dim; i++) out.writeFloat(data[off + i]);
+            for (int l = 0; l <= levels[node]; l++) {
+                int[] nb = links[node][l];
+                out.writeInt(nb[0]);
+                for (int i = 1; i <= nb[0]; i++) out.writeInt(nb[i]);
+            }
+        }
+    }
+
+    // version 1 snapshots stored the vectors as doubles
+    static HnswGraph read(DataInputStream in, int version, int m, int efConstruction) throws IOException {
+        HnswGraph g = new HnswGraph(in.readInt(), m, efConstruction);
+        int n = in.readInt();
+        int live = in.readInt();
+        g.entry = in.readInt();
+        g.maxLevel = in.readInt();
+        g.data = new float[n * g.dim];
+        g.ids = new long[n];
+        g.levels = new int[n];
+        g.deleted = new boolean[n];
+        g.links = new int[n][][];
+        for (int node = 0; node < n; node++) {
+            g.ids[node] = in.readLong();
+            g.deleted[node] = in.readBoolean();
+            g.levels[node] = in.readInt();
+            int off = node * g.dim;
+            for (int i = 0; i < g.dim; i++) g.data[off + i] = version == 1 ? (float) in.readDouble() : in.readFloat();
+            g.links[node] = new int[g.levels[node] + 1][];
+            for (int l = 0; l <= g.levels[node]; l++) {
+                int[] nb = new int[(l == 0 ? g.m0 : g.m) + 1];
+                int size = in.readInt();
+                // a snapshot written with a larger M keeps only the links that still fit
+                for (int i = 0; i < size; i++) {
+                    int v = in.readInt();
+                    if (i < nb.length - 1) nb[++nb[0]] = v;
+                }
+                g.links[node][l] = nb;
+            }
+            if (!g.deleted[node]) g.nodeOf.put(g.ids[node], node);
+        }
+        g.count = n;
+        g.live = live;
+        return g;
+    }
+
+    // binary heap of (node, score); max-heap when max is true, min-heap otherwise
+    private static final class NodeHeap {
+        private final boolean max;
+        private int[] nodes = new int[16];
+        private double[] scores = new double[16];
+        private int size;
+
+        NodeHeap(boolean max) {
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        double peekScore() {
+            return scores[0];
+        }
+
+        void push(int node, double score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            nodes[i] = node;
+            scores[i] = score;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (!before(i, p)) break;
+                swap(i, p);
+                i = p;
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            nodes[0] = nodes[size];
+            scores[0] = scores[size];
+            int i = 0;
+            while (true) {
+                int l = 2 * i + 1;
+                if (l >= size) break;
+                int r = l + 1;
+                int c = (r < size && before(r, l)) ? r : l;
+                if (!before(c, i)) break;
+                swap(i, c);
+                i = c;
+            }
+            return top;
+        }
+
+        private boolean before(int a, int b) {
+            return max ? scores[a] > scores[b] : scores[a] < scores[b];
+        }
+
+        private void swap(int a, int b) {
+            int tn = nodes[a]; nodes[a] = nodes[b]; nodes[b] = tn;
+            double ts = scores[a]; scores[a] = scores[b]; scores[b] = ts;
+        }
+    }
+}
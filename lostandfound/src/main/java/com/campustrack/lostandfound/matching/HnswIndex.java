@@ -0,0 +1,237 @@
+package com.campustrack.lostandfound.matching;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Approximate cosine index: one HNSW graph per vector length. Query cost grows with log(n) and
+// efSearch instead of n. m and efConstruction trade build time and memory for recall; efSearch
+// trades query latency for recall and can be changed at runtime.
+// A graph whose tombstones pass its compaction threshold is rebuilt on a background thread from a
+// copy of its live nodes; changes made meanwhile are replayed onto the new graph before it is
+// swapped in, so neither remove() nor queries wait for the rebuild.
+public class HnswIndex implements NearestNeighbourIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x484E5357; // "HNSW"
+    // 2: vectors stored as float32 (1 stored doubles; still readable)
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final int m;
+    private final int efConstruction;
+    private volatile int efSearch;
+
+    private final Map<Integer, HnswGraph> graphs = new HashMap<>();
+    private final Map<Long, Integer> dimOf = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // dim -> changes made to that graph while its replacement is being built
+    private final Map<Integer, List<Consumer<HnswGraph>>> compacting = new HashMap<>();
+    private ExecutorService compactor;
+
+    public HnswIndex(int m, int efConstruction, int efSearch) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    @Override
+    public void put(long id, double[] vector) {
+        float[] unit = VectorKernels.unit(vector);
+        if (unit == null) return;
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            graphs.computeIfAbsent(unit.length, d -> new HnswGraph(d, m, efConstruction)).insert(id, unit);
+            dimOf.put(id, unit.length);
+            List<Consumer<HnswGraph>> changes = compacting.get(unit.length);
+            if (changes != null) changes.add(g -> g.insert(id, unit));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean removeLocked(long id) {
+        Integer dim = dimOf.remove(id);
+        if (dim == null) return false;
+        HnswGraph g = graphs.get(dim);
+        g.remove(id);
+        List<Consumer<HnswGraph>> changes = compacting.get(dim);
+        if (changes != null) changes.add(c -> c.remove(id));
+        else if (g.needsCompaction()) startCompaction(dim, g);
+        return true;
+    }
+
+    private void startCompaction(int dim, HnswGraph g) {
+        compacting.put(dim, new ArrayList<>());
+        HnswGraph.LiveNodes nodes = g.liveNodes();
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "hnsw-compact");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        compactor.execute(() -> compact(dim, g, nodes));
+    }
+
+    private void compact(int dim, HnswGraph old, HnswGraph.LiveNodes nodes) {
+        HnswGraph fresh = null;
+        try {
+            fresh = old.compacted(nodes);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        lock.writeLock().lock();
+        try {
+            List<Consumer<HnswGraph>> changes = compacting.remove(dim);
+            // a snapshot load may have replaced the graph meanwhile; then the rebuild is stale
+            if (fresh == null || graphs.get(dim) != old) return;
+            for (Consumer<HnswGraph> c : changes) c.accept(fresh);
+            graphs.put(dim, fresh);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // true while a graph is being rebuilt in the background
+    boolean isCompacting() {
+        lock.readLock().lock();
+        try {
+            return !compacting.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return dimOf.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return dimOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Long> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(dimOf.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredItem> topK(double[] query, int k, double minScore) {
+        TopK heap = new TopK(k);
+        float[] q = VectorKernels.unit(query);
+        if (q == null) return heap.toSortedList();
+        int ef = efSearch;
+        lock.readLock().lock();
+        try {
+            for (HnswGraph g : graphs.values()) g.search(q, k, ef, heap, minScore);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return heap.toSortedList();
+    }
+
+    // Filtered queries score the candidate set directly instead of walking the graph
+    @Override
+    public List<ScoredItem> topK(double[] query, int k, double minScore, Collection<Long> candidates) {
+        TopK heap = new TopK(k);
+        float[] q = VectorKernels.unit(query);
+        if (q == null) return heap.toSortedList();
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates) {
+                Integer dim = dimOf.get(id);
+                if (dim == null) continue;
+                double score = graphs.get(dim).score(q, id);
+                if (score >= minScore && score > heap.threshold()) heap.offer(id, score);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return heap.toSortedList();
+    }
+
+    // Write the graphs to a temp file and move it into place, so a crash never leaves a torn snapshot
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(graphs.size());
+            for (HnswGraph g : graphs.values()) g.write(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Replace the current contents with a snapshot; returns false if there is no usable snapshot
+    public boolean load(Path file) throws IOException {
+        if (!Files.exists(file)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) return false;
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) return false;
+            int n = in.readInt();
+            Map<Integer, HnswGraph> loaded = new HashMap<>();
+            Map<Long, Integer> dims = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                HnswGraph g = HnswGraph.read(in, version, m, efConstruction);
+                loaded.put(g.dim, g);
+                for (Long id : g.ids()) dims.put(id, g.dim);
+            }
+            lock.writeLock().lock();
+            try {
+                graphs.clear();
+                graphs.putAll(loaded);
+                dimOf.clear();
+                dimOf.putAll(dims);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        }
+    }
+}
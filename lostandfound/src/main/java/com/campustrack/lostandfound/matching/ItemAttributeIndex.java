@@ -0,0 +1,184 @@
+package com.campustrack.lostandfound.matching;
+
+import com.campustrack.lostandfound.location.Gazetteer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Narrows the opposite side down to plausible partners before any vector is scored.
+// campustrack.matching.filter.fields lists the rules in force:
+//   time      the found time is no earlier than the lost time (minus a grace period) and at most
+//             time-window-days after it
+//   brand     the brands share a token
+//   name      the item names share a token
+//   size      the sizes share a token
+//   location  the locations share a token
+//   zone      the locations resolve to the same or nearby campus zones (see Gazetteer)
+// A field left empty on either report never excludes a pair. Every rule is symmetric, so the set
+// for a new item is also exactly the set of items whose candidates include the new item.
+// When all the rules together leave fewer than min-candidates, the most restrictive rule is
+// dropped (then the next) until enough pass, so a sparse brand or zone still gets a short list to
+// rank instead of the whole other side. candidates() returns null (meaning: scan everything) when
+// filtering is off, when the index has not been loaded yet, or when no single rule passes
+// min-candidates: the other side is then small or the item's fields match almost nothing, and
+// scanning all of it is the only way to fill its list.
+@Component
+public class ItemAttributeIndex {
+
+    private final AttributeIndex lost = new AttributeIndex();
+    private final AttributeIndex found = new AttributeIndex();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Gazetteer gazetteer;
+    private final boolean enabled;
+    private final Set<String> rules;
+    private final long windowDays;
+    private final long graceHours;
+    private final int minCandidates;
+    private volatile boolean ready;
+
+    private final LongAdder filtered = new LongAdder();
+    private final LongAdder widened = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder candidatesReturned = new LongAdder();
+
+    public ItemAttributeIndex(@Value("${campustrack.matching.filter.enabled:true}") boolean enabled,
+                              @Value("${campustrack.matching.filter.fields:time,brand}") String fields,
+                              @Value("${campustrack.matching.filter.time-window-days:90}") long windowDays,
+                              @Value("${campustrack.matching.filter.time-grace-hours:24}") long graceHours,
+                              @Value("${campustrack.matching.filter.min-candidates:5}") int minCandidates,
+                              Gazetteer gazetteer) {
+        this.gazetteer = gazetteer;
+        this.enabled = enabled;
+        this.rules = new LinkedHashSet<>();
+        for (String f : fields.split(",")) {
+            String r = f.trim().toLowerCase(Locale.ROOT);
+            if (!r.isEmpty()) rules.add(r);
+        }
+        this.windowDays = windowDays;
+        this.graceHours = graceHours;
+        this.minCandidates = minCandidates;
+    }
+
+    private AttributeIndex of(String type) {
+        return "lost".equals(type) ? lost : found;
+    }
+
+    public void put(String type, Long id, ItemAttributes attributes) {
+        if (id == null || attributes == null) return;
+        lock.writeLock().lock();
+        try {
+            of(type).put(id, attributes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String type, Long id) {
+        if (id == null) return;
+        lock.writeLock().lock();
+        try {
+            of(type).remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // set once every open item has been loaded; until then candidates() falls back to a full scan
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isActive() {
+        return enabled && ready && !rules.isEmpty();
+    }
+
+    // Ids on the other side that pass every rule against this item, or null for "all of them"
+    public Set<Long> candidates(String type, Long id) {
+        if (!isActive() || id == null) return null;
+        String other = "lost".equals(type) ? "found" : "lost";
+        lock.readLock().lock();
+        try {
+            ItemAttributes a = of(type).get(id);
+            if (a == null) return null;
+            AttributeIndex target = of(other);
+            List<Set<Long>> sets = new ArrayList<>();
+            for (String rule : rules) {
+                Set<Long> s = switch (rule) {
+                    case "time" -> timeWindow(type, a.time(), target);
+                    case "brand" -> target.matching(AttributeIndex.BRAND, a.brand());
+                    case "name" -> target.matching(AttributeIndex.NAME, a.itemName());
+                    case "size" -> target.matching(AttributeIndex.SIZE, a.size());
+                    case "location" -> target.matching(AttributeIndex.LOCATION, a.location());
+                    case "zone" -> target.inZones(gazetteer.near(a.zone()));
+                    default -> null;
+                };
+                if (s != null) sets.add(s);
+            }
+            if (sets.isEmpty()) {
+                fallbacks.increment();
+                return null;
+            }
+            // intersect starting from the smallest set; while that leaves too few, drop the most
+            // restrictive rule and intersect the rest, which can only add items
+            sets.sort(Comparator.comparingInt(Set::size));
+            for (int from = 0; from < sets.size(); from++) {
+                Set<Long> out = new HashSet<>(sets.get(from));
+                for (int i = from + 1; i < sets.size() && !out.isEmpty(); i++) out.retainAll(sets.get(i));
+                if (out.size() < minCandidates) continue;
+                if (from > 0) widened.increment();
+                filtered.increment();
+                candidatesReturned.add(out.size());
+                return out;
+            }
+            // even the loosest single rule passes fewer than min-candidates
+            fallbacks.increment();
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Campus zone the item's location resolved to, or null
+    public String zoneOf(String type, Long id) {
+        if (id == null) return null;
+        lock.readLock().lock();
+        try {
+            ItemAttributes a = of(type).get(id);
+            return a == null ? null : a.zone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<Long> timeWindow(String type, LocalDateTime t, AttributeIndex target) {
+        if (t == null) return null;
+        if ("lost".equals(type)) {
+            return target.between(t.minusHours(graceHours), windowDays > 0 ? t.plusDays(windowDays) : null);
+        }
+        return target.between(windowDays > 0 ? t.minusDays(windowDays) : null, t.plusHours(graceHours));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("active", isActive());
+        out.put("rules", rules);
+        lock.readLock().lock();
+        try {
+            out.put("lost", lost.size());
+            out.put("found", found.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        long n = filtered.sum();
+        out.put("filtered", n);
+        out.put("widened", widened.sum());
+        out.put("fallbacks", fallbacks.sum());
+        out.put("avgCandidates", n == 0 ? 0.0 : (double) candidatesReturned.sum() / n);
+        return out;
+    }
+}
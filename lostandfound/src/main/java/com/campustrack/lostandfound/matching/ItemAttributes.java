@@ -0,0 +1,10 @@
+package com.campustrack.lostandfound.matching;
+
+import java.time.LocalDateTime;
+
+// The structured fields of a lost or found report that candidate filtering looks at.
+// time is when the item was lost (lost side) or found (found side); zone is the gazetteer zone the
+// location resolved to (null when it named none).
+public record ItemAttributes(String itemName, String brand, String size, String location, String zone,
+                             LocalDateTime time) {
+}
@@ -0,0 +1,126 @@
+package com.campustrack.lostandfound.matching;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Live vectors for every open lost and found item. Items enter when they are reported (or when
+// the stored embeddings are loaded at startup) and leave when they are archived or deleted.
+// campustrack.matching.index=exact scans every vector; =hnsw uses the approximate graph index,
+// which is snapshotted to disk on shutdown so it does not have to be rebuilt at every boot.
+// Vectors are held as float32; campustrack.matching.precision=int8 quantizes the exact index
+// to a quarter of that (the HNSW graph stays float32).
+@Component
+public class ItemVectorIndex {
+
+    private final String mode;
+    private final VectorPrecision precision;
+    private final Path snapshotDir;
+    // snapshot files are per embedding provider; vectors from different providers never mix
+    private final String snapshotSuffix;
+    private final NearestNeighbourIndex lost;
+    private final NearestNeighbourIndex found;
+
+    public ItemVectorIndex(@Value("${campustrack.matching.index:exact}") String mode,
+                           @Value("${campustrack.matching.hnsw.m:16}") int m,
+                           @Value("${campustrack.matching.hnsw.ef-construction:100}") int efConstruction,
+                           @Value("${campustrack.matching.hnsw.ef-search:64}") int efSearch,
+                           @Value("${campustrack.matching.hnsw.snapshot-dir:index}") String snapshotDir,
+                           @Value("${campustrack.matching.precision:float32}") String precision,
+                           @Value("${campustrack.ai.provider:remote}") String provider) {
+        boolean hnsw = "hnsw".equalsIgnoreCase(mode);
+        this.mode = hnsw ? "hnsw" : "exact";
+        this.snapshotDir = Paths.get(System.getProperty("user.dir")).resolve(snapshotDir);
+        this.snapshotSuffix = "remote".equalsIgnoreCase(provider) ? ".hnsw" : "-" + provider.toLowerCase() + ".hnsw";
+        if (hnsw) {
+            this.precision = VectorPrecision.FLOAT32;
+            this.lost = new HnswIndex(m, efConstruction, efSearch);
+            this.found = new HnswIndex(m, efConstruction, efSearch);
+        } else {
+            this.precision = VectorPrecision.parse(precision);
+            this.lost = new VectorIndex(this.precision);
+            this.found = new VectorIndex(this.precision);
+        }
+    }
+
+    public boolean isApproximate() {
+        return "hnsw".equals(mode);
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public VectorPrecision getPrecision() {
+        return precision;
+    }
+
+    // scores are approximations of the stored vectors' cosine and worth re-ranking
+    public boolean isQuantized() {
+        return precision == VectorPrecision.INT8;
+    }
+
+    private NearestNeighbourIndex of(String type) {
+        return "lost".equals(type) ? lost : found;
+    }
+
+    public void put(String type, Long id, double[] vector) {
+        if (id == null || vector == null) return;
+        of(type).put(id, vector);
+    }
+
+    public void remove(String type, Long id) {
+        if (id == null) return;
+        of(type).remove(id);
+    }
+
+    public boolean contains(String type, Long id) {
+        return id != null && of(type).contains(id);
+    }
+
+    public int size(String type) {
+        return of(type).size();
+    }
+
+    public Set<Long> ids(String type) {
+        return of(type).ids();
+    }
+
+    public List<ScoredItem> topK(String type, double[] query, int k, double minScore) {
+        return of(type).topK(query, k, minScore);
+    }
+
+    public List<ScoredItem> topK(String type, double[] query, int k, double minScore, Collection<Long> candidates) {
+        return of(type).topK(query, k, minScore, candidates);
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (!isApproximate()) return;
+        try {
+            ((HnswIndex) lost).load(snapshotDir.resolve("lost" + snapshotSuffix));
+            ((HnswIndex) found).load(snapshotDir.resolve("found" + snapshotSuffix));
+        } catch (Exception e) {
+            // unreadable snapshot: the startup warm-up rebuilds the graphs from stored embeddings
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!isApproximate()) return;
+        try {
+            ((HnswIndex) lost).save(snapshotDir.resolve("lost" + snapshotSuffix));
+            ((HnswIndex) found).save(snapshotDir.resolve("found" + snapshotSuffix));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
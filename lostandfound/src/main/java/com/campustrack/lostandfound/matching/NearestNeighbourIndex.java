@@ -0,0 +1,25 @@
+package com.campustrack.lostandfound.matching;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Cosine top-K index over item vectors. VectorIndex is exact; HnswIndex is approximate.
+public interface NearestNeighbourIndex {
+
+    void put(long id, double[] vector);
+
+    boolean remove(long id);
+
+    boolean contains(long id);
+
+    int size();
+
+    Set<Long> ids();
+
+    // best k candidates with score >= minScore, best first
+    List<ScoredItem> topK(double[] query, int k, double minScore);
+
+    // same, but only the given ids are scored (exactly, whatever the index type)
+    List<ScoredItem> topK(double[] query, int k, double minScore, Collection<Long> candidates);
+}
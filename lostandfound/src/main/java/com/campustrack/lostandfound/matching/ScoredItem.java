@@ -0,0 +1,5 @@
+package com.campustrack.lostandfound.matching;
+
+// A candidate item id with its cosine similarity to the query vector
+public record ScoredItem(long id, double score) {
+}
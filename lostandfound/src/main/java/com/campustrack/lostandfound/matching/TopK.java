@@ -0,0 +1,79 @@
+package com.campustrack.lostandfound.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Bounded min-heap over primitive arrays: keeps the k best scores seen so far
+// without allocating an entry per candidate or sorting the full candidate list.
+public final class TopK {
+
+    private final int k;
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    public TopK(int k) {
+        this.k = Math.max(1, k);
+        this.ids = new long[this.k];
+        this.scores = new double[this.k];
+    }
+
+    // lowest score still in the heap once it is full; anything at or below it can be skipped
+    public double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void offer(long id, double score) {
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    // best first
+    public List<ScoredItem> toSortedList() {
+        List<ScoredItem> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(new ScoredItem(ids[i], scores[i]));
+        out.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return out;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[i] >= scores[parent]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) break;
+            int r = l + 1;
+            int min = (r < size && scores[r] < scores[l]) ? r : l;
+            if (scores[i] <= scores[min]) break;
+            swap(i, min);
+            i = min;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long ti = ids[a]; ids[a] = ids[b]; ids[b] = ti;
+        double ts = scores[a]; scores[a] = scores[b]; scores[b] = ts;
+    }
+}
@@ -0,0 +1,221 @@
+package com.campustrack.lostandfound.matching;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Exact in-memory cosine index. Vectors are L2-normalized on insert and packed row-major into one
+// primitive array per dimension, so a query is a tight dot-product loop over contiguous memory.
+// Rows are stored as float32, or as int8 codes with a per-row scale (see VectorPrecision).
+// Text-only and text+image embeddings have different lengths; as in AIService.cosine, vectors of
+// different lengths are compared on their shared prefix.
+public class VectorIndex implements NearestNeighbourIndex {
+
+    private final VectorPrecision precision;
+    private final Map<Integer, Segment> segments = new HashMap<>();
+    private final Map<Long, Segment> owner = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public VectorIndex() {
+        this(VectorPrecision.FLOAT32);
+    }
+
+    public VectorIndex(VectorPrecision precision) {
+        this.precision = precision;
+    }
+
+    public VectorPrecision getPrecision() {
+        return precision;
+    }
+
+    @Override
+    public void put(long id, double[] vector) {
+        float[] unit = VectorKernels.unit(vector);
+        if (unit == null) return;
+        lock.writeLock().lock();
+        try {
+            Segment prev = owner.get(id);
+            if (prev != null) prev.remove(id);
+            Segment seg = segments.computeIfAbsent(unit.length, d -> new Segment(d, precision));
+            seg.add(id, unit);
+            owner.put(id, seg);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    @Override
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Segment seg = owner.remove(id);
+            if (seg == null) return false;
+            seg.remove(id);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return owner.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return owner.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Long> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(owner.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<ScoredItem> topK(double[] query, int k, double minScore) {
+        TopK heap = new TopK(k);
+        float[] q = VectorKernels.unit(query);
+        if (q == null) return heap.toSortedList();
+        lock.readLock().lock();
+        try {
+            for (Segment seg : segments.values()) seg.scan(q, heap, minScore);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return heap.toSortedList();
+    }
+
+    @Override
+    public List<ScoredItem> topK(double[] query, int k, double minScore, Collection<Long> candidates) {
+        TopK heap = new TopK(k);
+        float[] q = VectorKernels.unit(query);
+        if (q == null) return heap.toSortedList();
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates) {
+                Segment seg = owner.get(id);
+                if (seg == null) continue;
+                double score = seg.score(q, seg.slot.get(id));
+                if (score >= minScore && score > heap.threshold()) heap.offer(id, score);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return heap.toSortedList();
+    }
+
+    private static final class Segment {
+        final int dim;
+        final boolean int8;
+        float[] data = new float[0];
+        byte[] codes = new byte[0];
+        float[] scales = new float[0];
+        long[] ids = new long[0];
+        int count;
+        final Map<Long, Integer> slot = new HashMap<>();
+
+        Segment(int dim, VectorPrecision precision) {
+            this.dim = dim;
+            this.int8 = precision == VectorPrecision.INT8;
+        }
+
+        void add(long id, float[] unit) {
+            if (count == ids.length) {
+                int cap = Math.max(16, ids.length * 2);
+                ids = Arrays.copyOf(ids, cap);
+                if (int8) {
+                    codes = Arrays.copyOf(codes, cap * dim);
+                    scales = Arrays.copyOf(scales, cap);
+                } else {
+                    data = Arrays.copyOf(data, cap * dim);
+                }
+            }
+            if (int8) {
+                scales[count] = VectorKernels.quantize(unit, codes, count * dim);
+            } else {
+                System.arraycopy(unit, 0, data, count * dim, dim);
+            }
+            ids[count] = id;
+            slot.put(id, count);
+            count++;
+        }
+
+        // swap-remove keeps the matrix dense
+        void remove(long id) {
+            Integer s = slot.remove(id);
+            if (s == null) return;
+            int last = --count;
+            if (s != last) {
+                if (int8) {
+                    System.arraycopy(codes, last * dim, codes, s * dim, dim);
+                    scales[s] = scales[last];
+                } else {
+                    System.arraycopy(data, last * dim, data, s * dim, dim);
+                }
+                ids[s] = ids[last];
+                slot.put(ids[s], s);
+            }
+        }
+
+        double score(float[] q, int r) {
+            int off = r * dim;
+            if (q.length == dim) {
+                return int8 ? VectorKernels.dot(q, codes, off, dim) * scales[r] : VectorKernels.dot(q, data, off, dim);
+            }
+            int n = Math.min(q.length, dim);
+            double qn = VectorKernels.sumSquares(q, 0, n);
+            double dot = int8 ? VectorKernels.dot(q, codes, off, n) : VectorKernels.dot(q, data, off, n);
+            double cn = int8 ? VectorKernels.sumSquares(codes, off, n) : VectorKernels.sumSquares(data, off, n);
+            return qn == 0 || cn == 0 ? -1 : dot / Math.sqrt(qn * cn);
+        }
+
+        void scan(float[] q, TopK heap, double minScore) {
+            if (q.length == dim) {
+                for (int r = 0, off = 0; r < count; r++, off += dim) {
+                    double dot = int8
+                            ? VectorKernels.dot(q, codes, off, dim) * scales[r]
+                            : VectorKernels.dot(q, data, off, dim);
+                    if (dot >= minScore && dot > heap.threshold()) heap.offer(ids[r], dot);
+                }
+                return;
+            }
+            // different lengths: cosine over the shared prefix, renormalizing both sides
+            int n = Math.min(q.length, dim);
+            double qn = VectorKernels.sumSquares(q, 0, n);
+            if (qn == 0) return;
+            for (int r = 0, off = 0; r < count; r++, off += dim) {
+                double dot, cn;
+                if (int8) {
+                    dot = VectorKernels.dot(q, codes, off, n);
+                    cn = VectorKernels.sumSquares(codes, off, n);
+                } else {
+                    dot = VectorKernels.dot(q, data, off, n);
+                    cn = VectorKernels.sumSquares(data, off, n);
+                }
+                if (cn == 0) continue;
+                double score = dot / Math.sqrt(qn * cn);
+                if (score >= minScore && score > heap.threshold()) heap.offer(ids[r], score);
+            }
+        }
+    }
+}
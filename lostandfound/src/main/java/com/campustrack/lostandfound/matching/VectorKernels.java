@@ -0,0 +1,84 @@
+package com.campustrack.lostandfound.matching;
+
+// Dot-product kernels over the compact vector forms used by the indexes. The loops keep four
+// independent accumulators so the JIT can pipeline them (a single float sum is a serial chain).
+public final class VectorKernels {
+
+    private VectorKernels() {
+    }
+
+    // L2-normalized float copy; null for a null or all-zero vector
+    public static float[] unit(double[] v) {
+        if (v == null) return null;
+        double n = 0;
+        for (double d : v) n += d * d;
+        if (n == 0) return null;
+        double inv = 1.0 / Math.sqrt(n);
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = (float) (v[i] * inv);
+        return out;
+    }
+
+    // q[0..n) . data[off..off+n)
+    public static float dot(float[] q, float[] data, int off, int n) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += q[i] * data[off + i];
+            s1 += q[i + 1] * data[off + i + 1];
+            s2 += q[i + 2] * data[off + i + 2];
+            s3 += q[i + 3] * data[off + i + 3];
+        }
+        for (; i < n; i++) s0 += q[i] * data[off + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // q[0..n) . codes[off..off+n); multiply by the row's scale to get the real dot product
+    public static float dot(float[] q, byte[] codes, int off, int n) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += q[i] * codes[off + i];
+            s1 += q[i + 1] * codes[off + i + 1];
+            s2 += q[i + 2] * codes[off + i + 2];
+            s3 += q[i + 3] * codes[off + i + 3];
+        }
+        for (; i < n; i++) s0 += q[i] * codes[off + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float sumSquares(float[] data, int off, int n) {
+        return dot(data, data, off, off, n);
+    }
+
+    public static int sumSquares(byte[] codes, int off, int n) {
+        int s = 0;
+        for (int i = 0; i < n; i++) s += codes[off + i] * codes[off + i];
+        return s;
+    }
+
+    // data[a..a+n) . data[b..b+n)
+    public static float dot(float[] data, float[] other, int a, int b, int n) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += data[a + i] * other[b + i];
+            s1 += data[a + i + 1] * other[b + i + 1];
+            s2 += data[a + i + 2] * other[b + i + 2];
+            s3 += data[a + i + 3] * other[b + i + 3];
+        }
+        for (; i < n; i++) s0 += data[a + i] * other[b + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Symmetric int8 quantization of v into codes[off..off+v.length); returns the scale
+    // (max |v_i| / 127) so that v_i ~= codes_i * scale
+    public static float quantize(float[] v, byte[] codes, int off) {
+        float max = 0;
+        for (float f : v) max = Math.max(max, Math.abs(f));
+        if (max == 0) return 0;
+        float inv = 127f / max;
+        for (int i = 0; i < v.length; i++) codes[off + i] = (byte) Math.round(v[i] * inv);
+        return max / 127f;
+    }
+}
@@ -0,0 +1,14 @@
+package com.campustrack.lostandfound.matching;
+
+// How the exact index keeps its vectors in memory.
+// FLOAT32: 4 bytes per dimension, scores match the full vectors to ~1e-6.
+// INT8: 1 byte per dimension plus one float scale per vector (symmetric scalar quantization);
+// scores are off by up to ~1e-2, which re-ranking against the stored vectors can correct.
+public enum VectorPrecision {
+    FLOAT32,
+    INT8;
+
+    public static VectorPrecision parse(String value) {
+        return "int8".equalsIgnoreCase(value) ? INT8 : FLOAT32;
+    }
+}
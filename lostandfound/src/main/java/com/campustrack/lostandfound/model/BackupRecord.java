@@ -21,5 +21,9 @@ public class BackupRecord {
     @Column(length = 4000)
     private String foundItemSnapshot;
 
+    // images kept with the archive; each holds a reference on its stored upload
+    private String lostImageUrl;
+    private String foundImageUrl;
+
     private LocalDateTime archivedAt = LocalDateTime.now();
 }
@@ -17,9 +17,15 @@ public class FoundItem {
     private String modelNo;
     private String size;
     private String location;
+    // campus zone the location resolved to (see Gazetteer); null when it names none
+    private String locationZone;
     private String about;
     private LocalDateTime foundDateTime;
     private String imageUrl;
+    // renditions made at upload by ImageIngestService (null for older items and undecodable formats)
+    private String thumbnailUrl;
+    private String previewUrl;
+    private String modelImageUrl;
     // Email/contact of the person who reported the found item (optional)
     private String reporterEmail;
 }
@@ -0,0 +1,35 @@
+package com.campustrack.lostandfound.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "item_embeddings",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"itemType", "itemId"}),
+        indexes = @Index(name = "idx_item_embeddings_hash", columnList = "contentHash"))
+public class ItemEmbedding {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "lost" or "found" (same keys used by MatchSuggestionPublisher)
+    @Column(nullable = false, length = 8)
+    private String itemType;
+
+    @Column(nullable = false)
+    private Long itemId;
+
+    // SHA-256 (hex) of the embedded text plus the image bytes
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    private int dimension;
+
+    // vector components, packed little-endian float32 (rows from before that: float64)
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] vector;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
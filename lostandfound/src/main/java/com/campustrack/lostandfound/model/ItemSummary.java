@@ -0,0 +1,11 @@
+package com.campustrack.lostandfound.model;
+
+import java.time.LocalDateTime;
+
+// List-page projection of a lost or found item: everything a card shows, with only the start of
+// the 1000-character description. reportedAt is lostDateTime or foundDateTime; locationZone is the
+// campus zone the location resolved to.
+public record ItemSummary(Long id, String itemName, String brand, String modelNo, String size, String location,
+                          String locationZone, LocalDateTime reportedAt, String aboutExcerpt, String imageUrl, String thumbnailUrl,
+                          String previewUrl) {
+}
@@ -19,12 +19,18 @@ public class LostItem {
     private String modelNo;
     private String size;
     private String location;
+    // campus zone the location resolved to (see Gazetteer); null when it names none
+    private String locationZone;
 
     @Column(length = 1000)
     private String about;
 
     private LocalDateTime lostDateTime;
     private String imageUrl;
+    // renditions made at upload by ImageIngestService (null for older items and undecodable formats)
+    private String thumbnailUrl;
+    private String previewUrl;
+    private String modelImageUrl;
     // Email/contact of the person who reported the lost item (optional)
     private String reporterEmail;
 }
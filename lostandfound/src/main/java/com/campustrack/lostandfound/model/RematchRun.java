@@ -0,0 +1,40 @@
+package com.campustrack.lostandfound.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// One admin-triggered full re-match, doubling as its checkpoint: the job stores the phase it is
+// in and the last item id it finished after every chunk, and resumes from there after a restart.
+@Entity
+@Data
+@Table(name = "rematch_runs")
+public class RematchRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // RUNNING, COMPLETED, CANCELLED or FAILED
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    // EMBED_LOST, EMBED_FOUND, SCORE_LOST or SCORE_FOUND
+    @Column(nullable = false, length = 16)
+    private String phase;
+
+    // items with an id up to this one are done in the current phase
+    private Long lastId = 0L;
+
+    // re-embed every item first (after a model change) instead of re-scoring stored vectors
+    private boolean reembed;
+
+    private long processed;
+    private long total;
+
+    private LocalDateTime startedAt = LocalDateTime.now();
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String message;
+}
@@ -0,0 +1,29 @@
+package com.campustrack.lostandfound.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// One uploaded file, keyed by the SHA-256 of its bytes. refCount is the number of lost/found items
+// and backup records pointing at it; at zero (after a grace period) UploadStore deletes the file.
+@Entity
+@Data
+@Table(name = "stored_blobs")
+public class StoredBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // relative to uploads/, e.g. ab/cd/abcd....jpg
+    @Column(nullable = false)
+    private String path;
+
+    private long size;
+
+    private int refCount;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // last upload or release; unreferenced blobs younger than the grace period are kept
+    private LocalDateTime touchedAt = LocalDateTime.now();
+}
@@ -1,10 +1,35 @@
 package com.campustrack.lostandfound.repository;
 
 import com.campustrack.lostandfound.model.FoundItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface FoundItemRepository extends JpaRepository<FoundItem, Long> {
     List<FoundItem> findByReporterEmail(String email);
+
+    @Query("select f.id from FoundItem f")
+    List<Long> findAllIds();
+
+    @Query("select distinct f.brand from FoundItem f where f.brand is not null and f.brand <> '' order by f.brand")
+    List<String> findDistinctBrands();
+
+    // keyset paging in id order (re-match job chunks)
+    @Query("select f from FoundItem f where f.id > :after order by f.id")
+    List<FoundItem> findChunkAfter(@Param("after") Long after, Pageable pageable);
+
+    // (id, location, locationZone) in id order, for re-resolving zones after a gazetteer change
+    @Query("select f.id, f.location, f.locationZone from FoundItem f where f.id > :after order by f.id")
+    List<Object[]> findLocationsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update FoundItem f set f.locationZone = :zone where f.id in :ids")
+    int setLocationZone(@Param("ids") Collection<Long> ids, @Param("zone") String zone);
 }
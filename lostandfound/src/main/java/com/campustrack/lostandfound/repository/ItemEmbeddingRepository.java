@@ -0,0 +1,19 @@
+package com.campustrack.lostandfound.repository;
+
+import com.campustrack.lostandfound.model.ItemEmbedding;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemEmbeddingRepository extends JpaRepository<ItemEmbedding, Long> {
+    Optional<ItemEmbedding> findByItemTypeAndItemId(String itemType, Long itemId);
+    List<ItemEmbedding> findByItemTypeAndItemIdIn(String itemType, Collection<Long> itemIds);
+    // any item with identical content can share its vector
+    Optional<ItemEmbedding> findFirstByContentHash(String contentHash);
+
+    @Transactional
+    void deleteByItemTypeAndItemId(String itemType, Long itemId);
+}
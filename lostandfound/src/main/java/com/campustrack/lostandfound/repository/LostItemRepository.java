@@ -1,11 +1,40 @@
 package com.campustrack.lostandfound.repository;
 
 import com.campustrack.lostandfound.model.LostItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface LostItemRepository extends JpaRepository<LostItem, Long> {
 	// find lost items reported by a given email (may be empty)
 	List<LostItem> findByReporterEmail(String email);
+
+	@Query("select l.id from LostItem l")
+	List<Long> findAllIds();
+
+	@Query("select distinct l.brand from LostItem l where l.brand is not null and l.brand <> '' order by l.brand")
+	List<String> findDistinctBrands();
+
+	// (lower-cased reporter email, lost items) for the dashboard counters
+	@Query("select lower(trim(l.reporterEmail)), count(l) from LostItem l where l.reporterEmail is not null group by lower(trim(l.reporterEmail))")
+	List<Object[]> countByReporter();
+
+	// keyset paging in id order (re-match job chunks)
+	@Query("select l from LostItem l where l.id > :after order by l.id")
+	List<LostItem> findChunkAfter(@Param("after") Long after, Pageable pageable);
+
+	// (id, location, locationZone) in id order, for re-resolving zones after a gazetteer change
+	@Query("select l.id, l.location, l.locationZone from LostItem l where l.id > :after order by l.id")
+	List<Object[]> findLocationsAfter(@Param("after") Long after, Pageable pageable);
+
+	@Transactional
+	@Modifying
+	@Query("update LostItem l set l.locationZone = :zone where l.id in :ids")
+	int setLocationZone(@Param("ids") Collection<Long> ids, @Param("zone") String zone);
 }
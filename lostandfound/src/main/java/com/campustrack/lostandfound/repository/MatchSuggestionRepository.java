@@ -7,5 +7,6 @@ import java.util.List;
 
 public interface MatchSuggestionRepository extends JpaRepository<MatchSuggestion, Long> {
     List<MatchSuggestion> findByFoundItemIdOrderByScoreDesc(Long foundItemId);
+    List<MatchSuggestion> findByLostItemIdOrderByScoreDesc(Long lostItemId);
     List<MatchSuggestion> findByLostItemIdIn(List<Long> lostItemIds);
 }
@@ -0,0 +1,11 @@
+package com.campustrack.lostandfound.repository;
+
+import com.campustrack.lostandfound.model.RematchRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface RematchRunRepository extends JpaRepository<RematchRun, Long> {
+    Optional<RematchRun> findFirstByOrderByIdDesc();
+    Optional<RematchRun> findFirstByStatusOrderByIdDesc(String status);
+}
@@ -0,0 +1,41 @@
+package com.campustrack.lostandfound.repository;
+
+import com.campustrack.lostandfound.model.StoredBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    // reference counts change in the database so concurrent reports never lose an update
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = b.refCount + :delta, b.touchedAt = :now where b.hash = :hash")
+    int adjustRefCount(@Param("hash") String hash, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update StoredBlob b set b.refCount = :refCount where b.hash = :hash and b.refCount <> :refCount")
+    int setRefCount(@Param("hash") String hash, @Param("refCount") int refCount);
+
+    @Query("select b from StoredBlob b where b.refCount <= 0 and b.touchedAt < :before order by b.touchedAt")
+    List<StoredBlob> findCollectable(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // only succeeds while the blob is still unreferenced and untouched since the grace cutoff, so a
+    // concurrent acquire, or a re-upload about to be acquired, wins over GC
+    @Transactional
+    @Modifying
+    @Query("delete from StoredBlob b where b.hash = :hash and b.refCount <= 0 and b.touchedAt < :before")
+    int deleteIfUnreferenced(@Param("hash") String hash, @Param("before") LocalDateTime before);
+
+    @Query("select coalesce(sum(b.size), 0) from StoredBlob b")
+    long totalSize();
+
+    long countByRefCountLessThanEqual(int refCount);
+}
@@ -0,0 +1,185 @@
+package com.campustrack.lostandfound.search;
+
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.model.FoundItem;
+import com.campustrack.lostandfound.model.LostItem;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Full-text search over open lost and found items (name, brand, model number, location and
+// description). Reports are indexed as they are saved and dropped when archived or deleted.
+// The index is snapshotted to index/search-*.idx on shutdown and every few minutes when it has
+// changed; at startup the snapshot is loaded and then reconciled with the database, so only items
+// reported or removed since the snapshot are touched.
+@Component
+public class ItemSearchIndex {
+
+    // field order and weights: a word in the name or brand says more than one in the description
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 2.0, 1.0, 1.0};
+    private static final int RECONCILE_CHUNK = 500;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    private final TextIndex lost;
+    private final TextIndex found;
+    private final Path snapshotDir;
+    private final long snapshotIntervalMinutes;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private volatile boolean ready;
+    private ScheduledExecutorService snapshots;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    public ItemSearchIndex(@Value("${campustrack.search.k1:1.2}") double k1,
+                           @Value("${campustrack.search.b:0.75}") double b,
+                           @Value("${campustrack.search.max-expansions:16}") int maxExpansions,
+                           @Value("${campustrack.search.snapshot-dir:index}") String snapshotDir,
+                           @Value("${campustrack.search.snapshot-interval-minutes:10}") long snapshotIntervalMinutes) {
+        this.lost = new TextIndex(FIELD_WEIGHTS, k1, b, maxExpansions);
+        this.found = new TextIndex(FIELD_WEIGHTS, k1, b, maxExpansions);
+        this.snapshotDir = Paths.get(System.getProperty("user.dir")).resolve(snapshotDir);
+        this.snapshotIntervalMinutes = snapshotIntervalMinutes;
+    }
+
+    private TextIndex of(String type) {
+        return "lost".equals(type) ? lost : found;
+    }
+
+    public void put(LostItem li) {
+        if (li == null || li.getId() == null) return;
+        lost.put(li.getId(), li.getItemName(), li.getBrand(), li.getModelNo(), li.getLocation(), li.getAbout());
+        dirty.set(true);
+    }
+
+    public void put(FoundItem fi) {
+        if (fi == null || fi.getId() == null) return;
+        found.put(fi.getId(), fi.getItemName(), fi.getBrand(), fi.getModelNo(), fi.getLocation(), fi.getAbout());
+        dirty.set(true);
+    }
+
+    public void remove(String type, Long id) {
+        if (id == null) return;
+        of(type).remove(id);
+        dirty.set(true);
+    }
+
+    // Best matches first; score is the BM25F relevance (only comparable within one query)
+    public List<ScoredItem> search(String type, String query, int limit) {
+        long t0 = System.nanoTime();
+        try {
+            return of(type).search(query, limit);
+        } finally {
+            queries.increment();
+            queryNanos.add(System.nanoTime() - t0);
+        }
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        try {
+            lost.load(snapshotDir.resolve("search-lost.idx"));
+            found.load(snapshotDir.resolve("search-found.idx"));
+        } catch (Exception e) {
+            // unreadable snapshot: reconcile() indexes every item from the database
+            e.printStackTrace();
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        if (snapshotIntervalMinutes > 0) {
+            snapshots.scheduleWithFixedDelay(() -> {
+                if (ready && dirty.get()) saveSnapshot();
+            }, snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    // Index items reported while the app was down (or since the last snapshot) and drop the ones
+    // archived or deleted meanwhile. Search answers from the snapshot until this is done.
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        snapshots.execute(() -> {
+            try {
+                reconcile(lost, lostItemRepository::findAllIds, ids -> lostItemRepository.findAllById(ids).forEach(this::put));
+                reconcile(found, foundItemRepository::findAllIds, ids -> foundItemRepository.findAllById(ids).forEach(this::put));
+                ready = true;
+                if (dirty.get()) saveSnapshot();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // the index is read before the database: an item reported in between is indexed twice,
+    // never dropped as stale
+    private void reconcile(TextIndex index, Supplier<List<Long>> current, Consumer<List<Long>> indexItems) {
+        Set<Long> indexed = index.ids();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : current.get()) {
+            if (!indexed.remove(id)) missing.add(id);
+        }
+        for (Long gone : indexed) index.remove(gone);
+        if (!indexed.isEmpty()) dirty.set(true);
+        for (int i = 0; i < missing.size(); i += RECONCILE_CHUNK) {
+            indexItems.accept(missing.subList(i, Math.min(missing.size(), i + RECONCILE_CHUNK)));
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized void saveSnapshot() {
+        try {
+            dirty.set(false);
+            lost.save(snapshotDir.resolve("search-lost.idx"));
+            found.save(snapshotDir.resolve("search-found.idx"));
+        } catch (Exception e) {
+            dirty.set(true);
+            e.printStackTrace();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (snapshots != null) snapshots.shutdownNow();
+        if (dirty.get()) saveSnapshot();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ready", ready);
+        out.put("lost", lost.size());
+        out.put("found", found.size());
+        out.put("lostTerms", lost.vocabularySize());
+        out.put("foundTerms", found.vocabularySize());
+        long n = queries.sum();
+        out.put("queries", n);
+        out.put("avgQueryMillis", n == 0 ? 0.0 : queryNanos.sum() / 1e6 / n);
+        return out;
+    }
+}
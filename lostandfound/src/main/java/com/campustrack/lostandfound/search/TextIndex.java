@@ -0,0 +1,589 @@
+package com.campustrack.lostandfound.search;
+
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.matching.TopK;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over a fixed list of weighted text fields, ranked with BM25F: a term's
+// frequency in each field is length-normalized, weighted and summed before BM25 saturation, so a
+// word in the item name counts for more than the same word in a long description.
+//
+// Each query word is looked up as
+//   - the exact term
+//   - prefix completions ("iph" -> "iphone"), most common first, scored a little lower; only for
+//     the last word (the one still being typed) or a word with no exact match
+//   - terms one edit away (insert, delete, substitute or swap two neighbours: "iphnoe" ->
+//     "iphone"), scored lower again, when the word itself is not in the index; found through a
+//     table of every term with one letter deleted, so the vocabulary is never scanned
+// and a document gets the best of those per query word, summed over the words.
+//
+// Documents are numbered in insertion order; a posting list holds document numbers in that order
+// with each document's packed field frequencies and its precomputed BM25F term weight, so a query
+// is one multiply per posting. The weights depend on the average field lengths and are recomputed
+// when those drift. Removing a document only marks it dead; dead postings are dropped in one pass
+// once they make up a quarter of the index.
+public class TextIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x43545458; // "CTTX"
+    private static final int SNAPSHOT_VERSION = 1;
+    // per-field term frequencies packed 6 bits each (capped at 63) into an int
+    private static final int TF_BITS = 6;
+    private static final int TF_MASK = (1 << TF_BITS) - 1;
+
+    private static final int MAX_QUERY_TERMS = 12;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int PREFIX_SCAN_LIMIT = 4096;
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final float FUZZY_WEIGHT = 0.6f;
+    // cached term weights are refreshed when an average field length moves this much
+    private static final double MAX_LENGTH_DRIFT = 0.1;
+
+    private final int fields;
+    private final double[] weights;
+    private final double k1;
+    private final double b;
+    private final int maxExpansions;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // vocabulary; a term keeps its id after its last document goes
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final TreeMap<String, Integer> sortedTerms = new TreeMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    // term with one character deleted -> ids of the terms it came from
+    private final Map<String, int[]> deletions = new HashMap<>();
+
+    // documents by number; itemIds[doc] is -1 once the document is removed
+    private final Map<Long, Integer> docOf = new HashMap<>();
+    private long[] itemIds = new long[0];
+    private int[] lengths = new int[0];
+    private int[][] docTerms = new int[0][];
+    private int docCount;
+    private int live;
+    private final long[] totalLength;
+    // average field lengths the cached term weights were computed with
+    private final double[] weightedAvg;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public TextIndex(double[] weights, double k1, double b, int maxExpansions) {
+        this.fields = weights.length;
+        if (fields * TF_BITS > Integer.SIZE) throw new IllegalArgumentException("At most " + Integer.SIZE / TF_BITS + " fields");
+        this.weights = weights.clone();
+        this.k1 = k1;
+        this.b = b;
+        this.maxExpansions = Math.max(1, maxExpansions);
+        this.totalLength = new long[fields];
+        this.weightedAvg = new double[fields];
+        Arrays.fill(weightedAvg, 1.0);
+    }
+
+    private static final class Postings {
+        int[] docs;
+        int[] tfs;
+        float[] weights;
+        int size;
+        // live documents (size counts dead ones until the next compaction)
+        int df;
+
+        Postings(int capacity) {
+            docs = new int[capacity];
+            tfs = new int[capacity];
+            weights = new float[capacity];
+        }
+
+        void add(int doc, int tf, float weight) {
+            if (size == docs.length) {
+                int cap = Math.max(2, size * 2);
+                docs = Arrays.copyOf(docs, cap);
+                tfs = Arrays.copyOf(tfs, cap);
+                weights = Arrays.copyOf(weights, cap);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            weights[size++] = weight;
+            df++;
+        }
+    }
+
+    // per-thread score accumulators, indexed by document number and cleared after each query
+    private static final class Scratch {
+        float[] total = new float[0];
+        float[] word = new float[0];
+        int[] touched = new int[0];
+        int[] wordTouched = new int[0];
+
+        void ensure(int n) {
+            if (total.length >= n) return;
+            int cap = Math.max(n, total.length * 2);
+            total = new float[cap];
+            word = new float[cap];
+            touched = new int[cap];
+            wordTouched = new int[cap];
+        }
+    }
+
+    // Index (or re-index) a document; texts are the field values in weight order, null for empty
+    public void put(long itemId, String... texts) {
+        int[] lens = new int[fields];
+        Map<String, Integer> tf = new LinkedHashMap<>();
+        for (int f = 0; f < fields && f < texts.length; f++) {
+            List<String> tokens = Tokenizer.tokens(texts[f]);
+            lens[f] = tokens.size();
+            int shift = f * TF_BITS;
+            for (String t : tokens) {
+                tf.merge(t, 1 << shift, (a, one) -> ((a >>> shift) & TF_MASK) == TF_MASK ? a : a + one);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(itemId);
+            int doc = newDoc(itemId, lens);
+            int[] ids = new int[tf.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                int id = termId(e.getKey());
+                postings.get(id).add(doc, e.getValue(), termWeight(e.getValue(), doc));
+                ids[i++] = id;
+            }
+            docTerms[doc] = ids;
+            if (lengthsDrifted()) reweight();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long itemId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long itemId) {
+        lock.readLock().lock();
+        try {
+            return docOf.containsKey(itemId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> ids() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(docOf.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int vocabularySize() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The k best documents for a free-text query, best first
+    public List<ScoredItem> search(String query, int k) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokens(query)));
+        if (words.size() > MAX_QUERY_TERMS) words = words.subList(0, MAX_QUERY_TERMS);
+        if (words.isEmpty()) return List.of();
+        lock.readLock().lock();
+        try {
+            if (live == 0) return List.of();
+            Scratch s = scratch.get();
+            s.ensure(docCount);
+            int touched = 0;
+            for (int w = 0; w < words.size(); w++) {
+                int wordTouched = 0;
+                for (long expansion : expand(words.get(w), w == words.size() - 1)) {
+                    Postings p = postings.get((int) (expansion >>> 32));
+                    float scale = (float) (Float.intBitsToFloat((int) expansion) * Math.log(1 + (live - p.df + 0.5) / (p.df + 0.5)));
+                    int[] docs = p.docs;
+                    float[] tw = p.weights;
+                    float[] word = s.word;
+                    for (int i = 0, n = p.size; i < n; i++) {
+                        int doc = docs[i];
+                        float score = scale * tw[i];
+                        float prev = word[doc];
+                        if (prev == 0) s.wordTouched[wordTouched++] = doc;
+                        if (score > prev) word[doc] = score;
+                    }
+                }
+                for (int i = 0; i < wordTouched; i++) {
+                    int doc = s.wordTouched[i];
+                    if (s.total[doc] == 0) s.touched[touched++] = doc;
+                    s.total[doc] += s.word[doc];
+                    s.word[doc] = 0;
+                }
+            }
+            TopK top = new TopK(k);
+            for (int i = 0; i < touched; i++) {
+                int doc = s.touched[i];
+                // removed documents are still in the postings until the next compaction
+                if (itemIds[doc] >= 0 && s.total[doc] > top.threshold()) top.offer(itemIds[doc], s.total[doc]);
+                s.total[doc] = 0;
+            }
+            return top.toSortedList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // BM25F without the idf: weighted, length-normalized frequency summed over fields, saturated once
+    private float termWeight(int packed, int doc) {
+        double tf = 0;
+        int base = doc * fields;
+        for (int f = 0; f < fields; f++) {
+            int n = (packed >>> (f * TF_BITS)) & TF_MASK;
+            if (n == 0) continue;
+            tf += weights[f] * n / (1 - b + b * lengths[base + f] / weightedAvg[f]);
+        }
+        return (float) (tf * (k1 + 1) / (tf + k1));
+    }
+
+    private boolean lengthsDrifted() {
+        if (live == 0) return false;
+        for (int f = 0; f < fields; f++) {
+            double avg = Math.max(1.0, (double) totalLength[f] / live);
+            if (Math.abs(avg - weightedAvg[f]) > MAX_LENGTH_DRIFT * weightedAvg[f]) return true;
+        }
+        return false;
+    }
+
+    // Recompute every cached term weight for the current average lengths, dropping dead postings
+    private void reweight() {
+        for (int f = 0; f < fields; f++) weightedAvg[f] = live == 0 ? 1.0 : Math.max(1.0, (double) totalLength[f] / live);
+        for (Postings p : postings) {
+            int n = 0;
+            for (int i = 0; i < p.size; i++) {
+                int doc = p.docs[i];
+                if (itemIds[doc] < 0) continue;
+                p.docs[n] = doc;
+                p.tfs[n] = p.tfs[i];
+                p.weights[n++] = termWeight(p.tfs[i], doc);
+            }
+            p.size = n;
+        }
+    }
+
+    // (term id << 32 | float weight) for every term a query word stands for
+    private List<Long> expand(String word, boolean last) {
+        List<Long> out = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        Integer exact = termIds.get(word);
+        boolean found = exact != null && postings.get(exact).df > 0;
+        if (found) {
+            out.add(expansion(exact, 1.0f));
+            seen.add(exact);
+        }
+        if ((last || !found) && word.length() >= MIN_PREFIX_LENGTH) {
+            List<Integer> completions = new ArrayList<>();
+            int scanned = 0;
+            for (Integer id : sortedTerms.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+                if (++scanned > PREFIX_SCAN_LIMIT) break;
+                if (postings.get(id).df > 0) completions.add(id);
+            }
+            completions.sort((x, y) -> Integer.compare(postings.get(y).df, postings.get(x).df));
+            for (int i = 0; i < completions.size() && i < maxExpansions; i++) {
+                if (seen.add(completions.get(i))) out.add(expansion(completions.get(i), PREFIX_WEIGHT));
+            }
+        }
+        if (!found && word.length() >= MIN_FUZZY_LENGTH) {
+            Set<Integer> candidates = new LinkedHashSet<>();
+            addAll(candidates, deletions.get(word));
+            for (String d : deletionsOf(word)) {
+                Integer id = termIds.get(d);
+                if (id != null) candidates.add(id);
+                addAll(candidates, deletions.get(d));
+            }
+            int added = 0;
+            for (Integer id : candidates) {
+                if (added >= maxExpansions) break;
+                if (postings.get(id).df == 0 || seen.contains(id) || !withinOneEdit(word, terms.get(id))) continue;
+                seen.add(id);
+                out.add(expansion(id, FUZZY_WEIGHT));
+                added++;
+            }
+        }
+        return out;
+    }
+
+    private static long expansion(int termId, float weight) {
+        return ((long) termId << 32) | (Float.floatToIntBits(weight) & 0xffffffffL);
+    }
+
+    private static void addAll(Set<Integer> out, int[] ids) {
+        if (ids == null) return;
+        for (int id : ids) out.add(id);
+    }
+
+    private static List<String> deletionsOf(String term) {
+        List<String> out = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            // deleting either of two equal neighbours gives the same string
+            if (i > 0 && term.charAt(i) == term.charAt(i - 1)) continue;
+            out.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return out;
+    }
+
+    // optimal string alignment distance <= 1, without filling a matrix
+    public static boolean withinOneEdit(String a, String c) {
+        int la = a.length();
+        int lc = c.length();
+        if (Math.abs(la - lc) > 1) return false;
+        int i = 0;
+        while (i < la && i < lc && a.charAt(i) == c.charAt(i)) i++;
+        if (i == la && i == lc) return true;
+        if (la == lc) {
+            if (a.regionMatches(i + 1, c, i + 1, la - i - 1)) return true;
+            return i + 1 < la && a.charAt(i) == c.charAt(i + 1) && a.charAt(i + 1) == c.charAt(i)
+                    && a.regionMatches(i + 2, c, i + 2, la - i - 2);
+        }
+        return la > lc ? a.regionMatches(i + 1, c, i, lc - i) : c.regionMatches(i + 1, a, i, la - i);
+    }
+
+    private int termId(String term) {
+        Integer id = termIds.get(term);
+        if (id != null) return id;
+        return newTerm(term, 2);
+    }
+
+    private int newTerm(String term, int capacity) {
+        int n = terms.size();
+        termIds.put(term, n);
+        sortedTerms.put(term, n);
+        terms.add(term);
+        postings.add(new Postings(capacity));
+        if (term.length() >= MIN_FUZZY_LENGTH - 1) {
+            for (String d : deletionsOf(term)) {
+                int[] ids = deletions.get(d);
+                if (ids == null) {
+                    deletions.put(d, new int[]{n});
+                } else {
+                    int[] grown = Arrays.copyOf(ids, ids.length + 1);
+                    grown[ids.length] = n;
+                    deletions.put(d, grown);
+                }
+            }
+        }
+        return n;
+    }
+
+    private int newDoc(long itemId, int[] lens) {
+        if (docCount == itemIds.length) {
+            int cap = Math.max(1024, docCount * 2);
+            itemIds = Arrays.copyOf(itemIds, cap);
+            lengths = Arrays.copyOf(lengths, cap * fields);
+            docTerms = Arrays.copyOf(docTerms, cap);
+        }
+        int doc = docCount++;
+        itemIds[doc] = itemId;
+        for (int f = 0; f < fields; f++) {
+            lengths[doc * fields + f] = lens[f];
+            totalLength[f] += lens[f];
+        }
+        docOf.put(itemId, doc);
+        live++;
+        return doc;
+    }
+
+    private void removeLocked(long itemId) {
+        Integer doc = docOf.remove(itemId);
+        if (doc == null) return;
+        for (int id : docTerms[doc]) postings.get(id).df--;
+        for (int f = 0; f < fields; f++) totalLength[f] -= lengths[doc * fields + f];
+        itemIds[doc] = -1;
+        docTerms[doc] = null;
+        live--;
+        if (docCount - live > Math.max(1024, live / 3)) compact();
+    }
+
+    // Drop dead postings and renumber the live documents 0..live-1 (order is kept, so the
+    // postings stay sorted)
+    private void compact() {
+        int[] renumber = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (itemIds[doc] < 0) {
+                renumber[doc] = -1;
+                continue;
+            }
+            renumber[doc] = next;
+            itemIds[next] = itemIds[doc];
+            System.arraycopy(lengths, doc * fields, lengths, next * fields, fields);
+            docTerms[next] = docTerms[doc];
+            next++;
+        }
+        for (int doc = next; doc < docCount; doc++) {
+            itemIds[doc] = -1;
+            docTerms[doc] = null;
+        }
+        for (Postings p : postings) {
+            int n = 0;
+            for (int i = 0; i < p.size; i++) {
+                int doc = renumber[p.docs[i]];
+                if (doc < 0) continue;
+                p.docs[n] = doc;
+                p.tfs[n] = p.tfs[i];
+                p.weights[n++] = p.weights[i];
+            }
+            p.size = n;
+        }
+        docCount = next;
+        for (Map.Entry<Long, Integer> e : docOf.entrySet()) e.setValue(renumber[e.getValue()]);
+        if (lengthsDrifted()) reweight();
+    }
+
+    // Live documents, then each term's postings with the documents renumbered densely; loading
+    // reads the arrays straight back instead of tokenizing every report again
+    public void save(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(fields);
+            int[] renumber = new int[docCount];
+            out.writeInt(live);
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+            int next = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                if (itemIds[doc] < 0) continue;
+                renumber[doc] = next++;
+                if (buf.remaining() < Long.BYTES + fields * Integer.BYTES) flush(out, buf);
+                buf.putLong(itemIds[doc]);
+                for (int f = 0; f < fields; f++) buf.putInt(lengths[doc * fields + f]);
+            }
+            flush(out, buf);
+            int usedTerms = 0;
+            for (Postings p : postings) if (p.df > 0) usedTerms++;
+            out.writeInt(usedTerms);
+            for (int t = 0; t < terms.size(); t++) {
+                Postings p = postings.get(t);
+                if (p.df == 0) continue;
+                out.writeUTF(terms.get(t));
+                out.writeInt(p.df);
+                for (int i = 0; i < p.size; i++) {
+                    if (itemIds[p.docs[i]] < 0) continue;
+                    if (buf.remaining() < 2 * Integer.BYTES) flush(out, buf);
+                    buf.putInt(renumber[p.docs[i]]);
+                    buf.putInt(p.tfs[i]);
+                }
+                flush(out, buf);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Replace the current contents with a snapshot; returns false if there is no usable snapshot
+    public boolean load(Path file) throws IOException {
+        if (!Files.exists(file)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION || in.readInt() != fields) return false;
+            lock.writeLock().lock();
+            try {
+                clear();
+                int n = in.readInt();
+                itemIds = new long[Math.max(1024, n)];
+                lengths = new int[itemIds.length * fields];
+                docTerms = new int[itemIds.length][];
+                Arrays.fill(itemIds, -1);
+                ByteBuffer buf = read(in, (long) n * (Long.BYTES + fields * Integer.BYTES));
+                for (int doc = 0; doc < n; doc++) {
+                    itemIds[doc] = buf.getLong();
+                    docOf.put(itemIds[doc], doc);
+                    for (int f = 0; f < fields; f++) {
+                        lengths[doc * fields + f] = buf.getInt();
+                        totalLength[f] += lengths[doc * fields + f];
+                    }
+                }
+                docCount = n;
+                live = n;
+                for (int f = 0; f < fields; f++) weightedAvg[f] = n == 0 ? 1.0 : Math.max(1.0, (double) totalLength[f] / n);
+                int[] termsPerDoc = new int[n];
+                int t = in.readInt();
+                for (int i = 0; i < t; i++) {
+                    String term = in.readUTF();
+                    int df = in.readInt();
+                    Postings p = postings.get(newTerm(term, df));
+                    buf = read(in, (long) df * 2 * Integer.BYTES);
+                    for (int j = 0; j < df; j++) {
+                        int doc = buf.getInt();
+                        int tf = buf.getInt();
+                        if (doc < 0 || doc >= n) throw new IOException("Corrupt snapshot " + file);
+                        p.add(doc, tf, termWeight(tf, doc));
+                        termsPerDoc[doc]++;
+                    }
+                }
+                for (int doc = 0; doc < n; doc++) docTerms[doc] = new int[termsPerDoc[doc]];
+                Arrays.fill(termsPerDoc, 0);
+                for (int id = 0; id < postings.size(); id++) {
+                    Postings p = postings.get(id);
+                    for (int j = 0; j < p.size; j++) docTerms[p.docs[j]][termsPerDoc[p.docs[j]]++] = id;
+                }
+            } catch (IOException | RuntimeException e) {
+                clear();
+                throw e;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return true;
+        }
+    }
+
+    private static void flush(DataOutputStream out, ByteBuffer buf) throws IOException {
+        out.write(buf.array(), 0, buf.position());
+        buf.clear();
+    }
+
+    private static ByteBuffer read(DataInputStream in, long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) throw new IOException("Snapshot section too large");
+        byte[] b = new byte[(int) bytes];
+        in.readFully(b);
+        return ByteBuffer.wrap(b);
+    }
+
+    private void clear() {
+        termIds.clear();
+        sortedTerms.clear();
+        terms.clear();
+        postings.clear();
+        deletions.clear();
+        docOf.clear();
+        itemIds = new long[0];
+        lengths = new int[0];
+        docTerms = new int[0][];
+        docCount = 0;
+        live = 0;
+        Arrays.fill(totalLength, 0);
+        Arrays.fill(weightedAvg, 1.0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.campustrack.lostandfound.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Splits report text into index terms: lower case, accents folded ("café" -> "cafe"), broken on
+// anything that is not a letter or digit. Single letters and a few filler words are dropped;
+// numbers are kept whatever their length since model numbers and sizes are often just digits.
+public final class Tokenizer {
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "are", "at", "by", "for", "from", "in", "is", "it", "its", "my", "near",
+            "of", "on", "or", "the", "this", "to", "was", "with");
+
+    // longer runs are not words anyone types (hashes, URLs with the punctuation stripped)
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.isEmpty()) return out;
+        String s = text.toLowerCase(Locale.ROOT);
+        if (!isAscii(s)) s = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                add(out, s.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private static void add(List<String> out, String term) {
+        if (term.length() > MAX_TERM_LENGTH) return;
+        if (term.length() == 1 && !Character.isDigit(term.charAt(0))) return;
+        if (STOPWORDS.contains(term)) return;
+        out.add(term);
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) > 0x7f) return false;
+        return true;
+    }
+}
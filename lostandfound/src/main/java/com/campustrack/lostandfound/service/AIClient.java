@@ -0,0 +1,389 @@
+package com.campustrack.lostandfound.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.SocketTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// HTTP client for the Python AI service, shared by single and batch embedding calls.
+// - pooled keep-alive connections with connect and read deadlines, so a hung model cannot hold
+//   a matching thread forever
+// - circuit breaker: after failure-threshold consecutive failures calls fail fast for open-ms,
+//   then one probe call decides whether to close again; listeners hear about every state change
+//   so deferred matching can resume
+// - optional hedging: if no answer arrives within hedge.delay-ms a second identical request is
+//   sent and whichever answers first wins
+// Every call returns null on failure, like the code it replaces.
+@Component
+public class AIClient {
+
+    private static final Logger log = LoggerFactory.getLogger(AIClient.class);
+    // set on a hedged attempt's thread so the request it sends can be aborted if the other one wins
+    private static final ThreadLocal<Attempt> CURRENT_ATTEMPT = new ThreadLocal<>();
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final RestTemplate restTemplate;
+    private final PoolingHttpClientConnectionManager connections;
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService attempts = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService ticker;
+
+    private final long callTimeoutMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final boolean hedging;
+    private final long hedgeDelayMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgeCancels = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder halfOpened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public AIClient(@Value("${campustrack.ai.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                    @Value("${campustrack.ai.read-timeout-ms:30000}") long readTimeoutMillis,
+                    @Value("${campustrack.ai.pool.max-connections:16}") int maxConnections,
+                    @Value("${campustrack.ai.breaker.failure-threshold:5}") int failureThreshold,
+                    @Value("${campustrack.ai.breaker.open-ms:30000}") long openMillis,
+                    @Value("${campustrack.ai.hedge.enabled:false}") boolean hedging,
+                    @Value("${campustrack.ai.hedge.delay-ms:2000}") long hedgeDelayMillis) {
+        this.connections = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(Math.max(1, maxConnections))
+                .setMaxConnPerRoute(Math.max(1, maxConnections))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        // waiting for a free pooled connection counts against the connect deadline
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableAutomaticRetries()
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected void postProcessHttpRequest(ClassicHttpRequest request) {
+                Attempt a = CURRENT_ATTEMPT.get();
+                if (a != null && request instanceof HttpUriRequestBase r) a.sending(r);
+            }
+        });
+        this.callTimeoutMillis = connectTimeoutMillis * 2 + readTimeoutMillis;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(1, openMillis);
+        this.hedging = hedging;
+        this.hedgeDelayMillis = Math.max(1, hedgeDelayMillis);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ai-client-breaker");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public void addStateListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // false while the breaker is open or probing: new work should be deferred rather than sent
+    public boolean isAvailable() {
+        return getState() == State.CLOSED;
+    }
+
+    // POST a multipart body and bind the JSON response; null when the call failed or was not sent
+    public <T> T postMultipart(String url, MultiValueMap<String, Object> body, Class<T> responseType) {
+        requests.increment();
+        if (!tryAcquire()) {
+            shortCircuited.increment();
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<>(body, headers);
+        long start = System.nanoTime();
+        try {
+            T result = execute(() -> {
+                ResponseEntity<T> response = restTemplate.postForEntity(url, entity, responseType);
+                return response.getBody();
+            });
+            record(System.nanoTime() - start);
+            successes.increment();
+            onSuccess();
+            return result;
+        } catch (HttpClientErrorException e) {
+            // the service answered; a rejected request says nothing about its health
+            clientErrors.increment();
+            onSuccess();
+            log.warn("AI service rejected request to {}: {}", url, e.getStatusCode());
+        } catch (Exception e) {
+            record(System.nanoTime() - start);
+            failures.increment();
+            if (isTimeout(e)) timeouts.increment();
+            onFailure();
+            log.warn("AI service call to {} failed: {}", url, e.toString());
+        }
+        return null;
+    }
+
+    // One hedged attempt. cancel() aborts its request, which closes the connection instead of
+    // leaving it leased until the slow response arrives.
+    private static final class Attempt {
+        private HttpUriRequestBase request;
+        private boolean cancelled;
+
+        synchronized void sending(HttpUriRequestBase r) {
+            request = r;
+            if (cancelled) r.cancel();
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (request != null) request.cancel();
+        }
+
+        <T> CompletableFuture<T> start(Supplier<T> attempt, Executor executor) {
+            return CompletableFuture.supplyAsync(() -> {
+                CURRENT_ATTEMPT.set(this);
+                try {
+                    return attempt.get();
+                } finally {
+                    CURRENT_ATTEMPT.remove();
+                }
+            }, executor);
+        }
+    }
+
+    // run the request, plus one hedge if it is slow and hedging is on; first success wins and the
+    // other attempt is aborted
+    private <T> T execute(Supplier<T> attempt) throws Exception {
+        if (!hedging || !isAvailable()) return attempt.get();
+        Attempt a1 = new Attempt();
+        CompletableFuture<T> first = a1.start(attempt, attempts);
+        try {
+            return first.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException slow) {
+            hedged.increment();
+            Attempt a2 = new Attempt();
+            CompletableFuture<T> second = a2.start(attempt, attempts);
+            CompletableFuture<T> winner = new CompletableFuture<>();
+            AtomicInteger pending = new AtomicInteger(2);
+            first.whenComplete((v, e) -> settle(winner, pending, v, e, false, a2));
+            second.whenComplete((v, e) -> settle(winner, pending, v, e, true, a1));
+            try {
+                return winner.get(callTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (TimeoutException e) {
+                a1.cancel();
+                a2.cancel();
+                throw e;
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private <T> void settle(CompletableFuture<T> winner, AtomicInteger pending, T value, Throwable error, boolean hedge, Attempt other) {
+        if (error == null) {
+            if (winner.complete(value)) {
+                if (hedge) hedgeWins.increment();
+                other.cancel();
+                hedgeCancels.increment();
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            winner.completeExceptionally(error);
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable c = e.getCause();
+        if (c instanceof CompletionException && c.getCause() != null) c = c.getCause();
+        return c instanceof Exception ex ? ex : e;
+    }
+
+    private static boolean isTimeout(Exception e) {
+        if (e instanceof TimeoutException) return true;
+        return e instanceof ResourceAccessException && e.getCause() instanceof SocketTimeoutException;
+    }
+
+    private boolean tryAcquire() {
+        State changed = null;
+        boolean acquired;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) return false;
+                // this call is the probe
+                changed = transition(State.HALF_OPEN);
+            }
+            if (state == State.CLOSED) {
+                acquired = true;
+            } else if (probeInFlight) {
+                acquired = false;
+            } else {
+                probeInFlight = true;
+                acquired = true;
+            }
+        }
+        notifyListeners(changed);
+        return acquired;
+    }
+
+    private void onSuccess() {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            if (state != State.CLOSED) changed = transition(State.CLOSED);
+        }
+        notifyListeners(changed);
+    }
+
+    private void onFailure() {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures++;
+            probeInFlight = false;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                openedAt = System.currentTimeMillis();
+                changed = transition(State.OPEN);
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    // move an open breaker to half-open on time even when no call arrives to do it
+    private void tick() {
+        State changed = null;
+        synchronized (this) {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                changed = transition(State.HALF_OPEN);
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    private State transition(State to) {
+        if (state == to) return null;
+        log.info("AI service circuit {} -> {}", state, to);
+        state = to;
+        switch (to) {
+            case OPEN -> opened.increment();
+            case HALF_OPEN -> halfOpened.increment();
+            case CLOSED -> closed.increment();
+        }
+        return to;
+    }
+
+    private void notifyListeners(State changed) {
+        if (changed == null) return;
+        for (Consumer<State> l : listeners) {
+            try {
+                l.accept(changed);
+            } catch (Exception e) {
+                log.warn("AI state listener failed", e);
+            }
+        }
+    }
+
+    private void record(long nanos) {
+        totalLatencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (this) {
+            out.put("state", state);
+            out.put("consecutiveFailures", consecutiveFailures);
+        }
+        long done = successes.sum() + failures.sum();
+        out.put("requests", requests.sum());
+        out.put("successes", successes.sum());
+        out.put("failures", failures.sum());
+        out.put("timeouts", timeouts.sum());
+        out.put("clientErrors", clientErrors.sum());
+        out.put("shortCircuited", shortCircuited.sum());
+        out.put("hedged", hedged.sum());
+        out.put("hedgeWins", hedgeWins.sum());
+        out.put("hedgeCancels", hedgeCancels.sum());
+        out.put("opened", opened.sum());
+        out.put("halfOpened", halfOpened.sum());
+        out.put("closed", closed.sum());
+        out.put("avgLatencyMs", done == 0 ? 0.0 : totalLatencyNanos.sum() / 1e6 / done);
+        out.put("maxLatencyMs", maxLatencyNanos.get() / 1e6);
+        PoolStats pool = connections.getTotalStats();
+        out.put("poolLeased", pool.getLeased());
+        out.put("poolAvailable", pool.getAvailable());
+        out.put("poolPending", pool.getPending());
+        out.put("poolMax", pool.getMax());
+        return out;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        attempts.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (Exception e) {
+            log.warn("closing AI http client", e);
+        }
+    }
+}
@@ -1,64 +1,303 @@
 package com.campustrack.lostandfound.service;
 
+import com.campustrack.lostandfound.location.Gazetteer;
+import com.campustrack.lostandfound.matching.ItemAttributeIndex;
+import com.campustrack.lostandfound.matching.ItemAttributes;
+import com.campustrack.lostandfound.matching.ItemVectorIndex;
 import com.campustrack.lostandfound.model.FoundItem;
+import com.campustrack.lostandfound.model.ItemEmbedding;
 import com.campustrack.lostandfound.model.LostItem;
-import com.campustrack.lostandfound.model.MatchSuggestion;
-import com.campustrack.lostandfound.repository.MatchSuggestionRepository;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
 import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AIService {
 
-    private final String AI_URL = "http://127.0.0.1:8000/predict_match/";
+    private static final int WARMUP_PAGE_SIZE = 500;
+    private static final long EMBEDDING_TIMEOUT_SECONDS = 60;
 
     @Autowired
-    private MatchSuggestionRepository matchSuggestionRepository;
+    private EmbeddingStore embeddingStore;
 
     @Autowired
-    private com.campustrack.lostandfound.service.MatchSuggestionPublisher suggestionPublisher;
+    private ItemVectorIndex itemVectorIndex;
 
-    private RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private ItemAttributeIndex itemAttributeIndex;
+
+    @Autowired
+    private MatchEngine matchEngine;
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Autowired
+    private List<EmbeddingProvider> providers;
+
+    @Autowired
+    private AIClient aiClient;
+
+    @Autowired
+    private MatchingQueue matchingQueue;
+
+    // remote (Python AI service) or local (in-JVM, no network)
+    @Value("${campustrack.ai.provider:remote}")
+    private String providerName;
+
+    private EmbeddingProvider provider;
+
+    // how often jobs parked after a failed embedding are retried while the provider is reachable
+    @Value("${campustrack.matching.retry-seconds:60}")
+    private long retrySeconds;
+
+    // set once the startup warm-up has loaded every item (RematchJob waits for it)
+    private volatile boolean indexReady;
+
+    private ScheduledExecutorService retryTimer;
+
+    @PostConstruct
+    public void init() {
+        provider = providers.stream().filter(p -> p.name().equalsIgnoreCase(providerName)).findFirst()
+                .orElseGet(() -> providers.stream().filter(p -> "remote".equals(p.name())).findFirst().orElseThrow());
+        // Matching parked while the AI service was down: one job goes out as the breaker's probe,
+        // everything else once it has closed again
+        aiClient.addStateListener(state -> {
+            if (state == AIClient.State.HALF_OPEN) matchingQueue.resumeDeferred(1);
+            else if (state == AIClient.State.CLOSED) matchingQueue.resumeDeferred(Integer.MAX_VALUE);
+        });
+        // An embedding can also fail while the breaker stays closed (a timeout, one bad response);
+        // those jobs are parked the same way and retried on a timer
+        retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "matching-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        if (retrySeconds > 0) {
+            retryTimer.scheduleWithFixedDelay(() -> {
+                if (provider.isAvailable()) matchingQueue.resumeDeferred(Integer.MAX_VALUE);
+            }, retrySeconds, retrySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (retryTimer != null) retryTimer.shutdownNow();
+    }
+
+    public String getProviderName() {
+        return provider.name();
+    }
 
     public double[] getEmbedding(String description, File imageFile) {
+        return await(provider.embed(description, imageFile));
+    }
+
+    private double[] await(CompletableFuture<double[]> f) {
         try {
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("description", description == null ? "" : description);
-            if (imageFile != null && imageFile.exists()) {
-                body.add("image_file", new FileSystemResource(imageFile));
-            }
+            return f.get(EMBEDDING_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Embedding for an item, served from the persistent store when its content is unchanged.
+    // Only a cache miss (new item or edited text/image) costs a call to the embedding provider.
+    public double[] embeddingFor(String type, Long id, String text, File imageFile) {
+        return await(embeddingForAsync(type, id, text, imageFile));
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    // Non-blocking variant so callers embedding many items let the batcher group them
+    public CompletableFuture<double[]> embeddingForAsync(String type, Long id, String text, File imageFile) {
+        String hash = embeddingStore.contentHash(provider.name(), text, imageFile);
+        double[] emb = embeddingStore.find(type, id, hash);
+        if (emb != null) return CompletableFuture.completedFuture(emb);
+        emb = embeddingStore.findByHash(hash);
+        if (emb != null) {
+            embeddingStore.save(type, id, hash, emb);
+            return CompletableFuture.completedFuture(emb);
+        }
+        return provider.embed(text, imageFile).thenApply(v -> {
+            if (v != null) embeddingStore.save(type, id, hash, v);
+            return v;
+        });
+    }
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-            ResponseEntity<Map> response = restTemplate.postForEntity(AI_URL, requestEntity, Map.class);
+    // Re-match after a model change: embed the item again even if its content is unchanged, and
+    // refresh its stored vector and index entry. Suggestions are left to the caller.
+    public CompletableFuture<double[]> reembed(LostItem li) {
+        itemAttributeIndex.put("lost", li.getId(), attributesOf(li));
+        return reembed("lost", li.getId(), textOf(li.getAbout(), li.getItemName()), imageFileFor(li.getModelImageUrl(), li.getImageUrl()));
+    }
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                Map<String, Object> map = response.getBody();
-                if (map != null && map.containsKey("embedding_vector")) {
-                    List<Number> list = (List<Number>) map.get("embedding_vector");
-                    double[] emb = new double[list.size()];
-                    for (int i = 0; i < list.size(); i++) emb[i] = list.get(i).doubleValue();
-                    return emb;
-                }
+    public CompletableFuture<double[]> reembed(FoundItem fi) {
+        itemAttributeIndex.put("found", fi.getId(), attributesOf(fi));
+        return reembed("found", fi.getId(), textOf(fi.getAbout(), fi.getItemName()), imageFileFor(fi.getModelImageUrl(), fi.getImageUrl()));
+    }
+
+    private CompletableFuture<double[]> reembed(String type, Long id, String text, File imageFile) {
+        String hash = embeddingStore.contentHash(provider.name(), text, imageFile);
+        return provider.embed(text, imageFile).thenApply(v -> {
+            if (v != null) {
+                embeddingStore.save(type, id, hash, v);
+                itemVectorIndex.put(type, id, v);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            return v;
+        });
+    }
+
+    public boolean isIndexReady() {
+        return indexReady;
+    }
+
+    public boolean isProviderAvailable() {
+        return provider.isAvailable();
+    }
+
+    public double[] embeddingFor(LostItem li) {
+        return embeddingFor("lost", li.getId(), textOf(li.getAbout(), li.getItemName()), imageFileFor(li.getModelImageUrl(), li.getImageUrl()));
+    }
+
+    public double[] embeddingFor(FoundItem fi) {
+        return embeddingFor("found", fi.getId(), textOf(fi.getAbout(), fi.getItemName()), imageFileFor(fi.getModelImageUrl(), fi.getImageUrl()));
+    }
+
+    // the zone is resolved afresh rather than read from the row, so gazetteer edits apply at once
+    private ItemAttributes attributesOf(LostItem li) {
+        return new ItemAttributes(li.getItemName(), li.getBrand(), li.getSize(), li.getLocation(),
+                gazetteer.lookup(li.getLocation()), li.getLostDateTime());
+    }
+
+    private ItemAttributes attributesOf(FoundItem fi) {
+        return new ItemAttributes(fi.getItemName(), fi.getBrand(), fi.getSize(), fi.getLocation(),
+                gazetteer.lookup(fi.getLocation()), fi.getFoundDateTime());
+    }
+
+    private String textOf(String about, String itemName) {
+        return about == null ? itemName : about;
+    }
+
+    // the 224px rendition made at upload when there is one (it is all the model looks at), so
+    // multi-megabyte originals are not sent to the AI service or hashed on every match
+    private File imageFileFor(String modelImageUrl, String imageUrl) {
+        File f = imageFileFor(modelImageUrl);
+        return f != null && f.exists() ? f : imageFileFor(imageUrl);
+    }
+
+    private File imageFileFor(String imageUrl) {
+        if (imageUrl != null && imageUrl.startsWith("/uploads/")) {
+            return new File(System.getProperty("user.dir") + imageUrl);
         }
         return null;
     }
 
-    private double cosine(double[] a, double[] b) {
+    // Item archived or deleted: it should no longer be offered as a candidate
+    public void removeItem(String type, Long id) {
+        matchEngine.onItemRemoved(type, id);
+        itemAttributeIndex.remove(type, id);
+        embeddingStore.delete(type, id);
+    }
+
+    // Load all open items into the index once the app is up. Stored vectors are reused when their
+    // content hash still matches; only items reported before the embedding store existed are embedded.
+    // Items already restored from an HNSW snapshot are kept, and snapshot entries for items deleted
+    // while the app was down are dropped. Items are read in id order by key, so a delete during
+    // warm-up cannot shift a live item out of the pass. The attribute filter stays off until every item is loaded.
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmIndex() {
+        new Thread(() -> {
+            try {
+                // ids indexed before the database is read: only these can be stale. An item reported
+                // during warm-up is indexed by its matching job and must not be dropped here.
+                Set<Long> stale = new HashSet<>(itemVectorIndex.ids("lost"));
+                long after = 0;
+                List<LostItem> losts;
+                do {
+                    losts = lostItemRepository.findChunkAfter(after, PageRequest.of(0, WARMUP_PAGE_SIZE));
+                    List<LostItem> missing = losts.stream().filter(li -> !itemVectorIndex.contains("lost", li.getId())).toList();
+                    var stored = embeddingStore.findAll("lost", missing.stream().map(LostItem::getId).toList());
+                    Map<Long, CompletableFuture<double[]>> vectors = new LinkedHashMap<>();
+                    for (LostItem li : missing) {
+                        vectors.put(li.getId(), storedOrEmbed("lost", li.getId(), textOf(li.getAbout(), li.getItemName()), imageFileFor(li.getModelImageUrl(), li.getImageUrl()), stored));
+                    }
+                    for (LostItem li : missing) {
+                        double[] v = await(vectors.get(li.getId()));
+                        if (v != null) itemVectorIndex.put("lost", li.getId(), v);
+                        else matchingQueue.defer("lost", li.getId(), () -> analyzeLostAndSaveMatches(li));
+                    }
+                    for (LostItem li : losts) {
+                        stale.remove(li.getId());
+                        itemAttributeIndex.put("lost", li.getId(), attributesOf(li));
+                        after = li.getId();
+                    }
+                } while (losts.size() == WARMUP_PAGE_SIZE);
+                for (Long id : stale) itemVectorIndex.remove("lost", id);
+
+                stale = new HashSet<>(itemVectorIndex.ids("found"));
+                after = 0;
+                List<FoundItem> founds;
+                do {
+                    founds = foundItemRepository.findChunkAfter(after, PageRequest.of(0, WARMUP_PAGE_SIZE));
+                    List<FoundItem> missing = founds.stream().filter(fi -> !itemVectorIndex.contains("found", fi.getId())).toList();
+                    var stored = embeddingStore.findAll("found", missing.stream().map(FoundItem::getId).toList());
+                    Map<Long, CompletableFuture<double[]>> vectors = new LinkedHashMap<>();
+                    for (FoundItem fi : missing) {
+                        vectors.put(fi.getId(), storedOrEmbed("found", fi.getId(), textOf(fi.getAbout(), fi.getItemName()), imageFileFor(fi.getModelImageUrl(), fi.getImageUrl()), stored));
+                    }
+                    for (FoundItem fi : missing) {
+                        double[] v = await(vectors.get(fi.getId()));
+                        if (v != null) itemVectorIndex.put("found", fi.getId(), v);
+                        else matchingQueue.defer("found", fi.getId(), () -> analyzeAndSaveMatches(fi));
+                    }
+                    for (FoundItem fi : founds) {
+                        stale.remove(fi.getId());
+                        itemAttributeIndex.put("found", fi.getId(), attributesOf(fi));
+                        after = fi.getId();
+                    }
+                } while (founds.size() == WARMUP_PAGE_SIZE);
+                for (Long id : stale) itemVectorIndex.remove("found", id);
+
+                itemAttributeIndex.markReady();
+                itemVectorIndex.saveSnapshot();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                indexReady = true;
+            }
+        }, "match-index-warmup").start();
+    }
+
+    // stored vector when its hash still matches the item's content, otherwise re-embed
+    private CompletableFuture<double[]> storedOrEmbed(String type, Long id, String text, File imageFile, Map<Long, ItemEmbedding> stored) {
+        var e = stored.get(id);
+        if (e != null && e.getContentHash() != null && e.getContentHash().equals(embeddingStore.contentHash(provider.name(), text, imageFile))) {
+            return CompletableFuture.completedFuture(EmbeddingStore.decode(e));
+        }
+        return embeddingForAsync(type, id, text, imageFile);
+    }
+
+    public static double cosine(double[] a, double[] b) {
         if (a == null || b == null) return -1;
         int n = Math.min(a.length, b.length);
         double dot = 0, na = 0, nb = 0;
@@ -71,85 +310,32 @@ public class AIService {
         return dot / (Math.sqrt(na) * Math.sqrt(nb));
     }
 
-    public void analyzeAndSaveMatches(FoundItem foundItem, List<LostItem> lostItems) {
+    // Score a new found item against open lost items; the engine also updates the lost items'
+    // own suggestion lists when the new item ranks among their best matches
+    public void analyzeAndSaveMatches(FoundItem foundItem) {
         try {
-            File imageFile = null;
-            if (foundItem.getImageUrl() != null && foundItem.getImageUrl().startsWith("/uploads/")) {
-                String path = System.getProperty("user.dir") + foundItem.getImageUrl();
-                imageFile = new File(path);
-            }
-
-            double[] foundEmb = getEmbedding(foundItem.getAbout() == null ? foundItem.getItemName() : foundItem.getAbout(), imageFile);
-            if (foundEmb == null) return;
-
-            List<MatchSuggestion> suggestions = new ArrayList<>();
-            for (LostItem li : lostItems) {
-                File liImage = null;
-                if (li.getImageUrl() != null && li.getImageUrl().startsWith("/uploads/")) {
-                    String p = System.getProperty("user.dir") + li.getImageUrl();
-                    liImage = new File(p);
-                }
-                double[] lostEmb = getEmbedding(li.getAbout() == null ? li.getItemName() : li.getAbout(), liImage);
-                double score = cosine(foundEmb, lostEmb);
-                MatchSuggestion ms = new MatchSuggestion();
-                ms.setFoundItemId(foundItem.getId());
-                ms.setLostItemId(li.getId());
-                ms.setScore(score);
-                suggestions.add(ms);
+            itemAttributeIndex.put("found", foundItem.getId(), attributesOf(foundItem));
+            double[] vector = embeddingFor(foundItem);
+            if (vector == null) {
+                matchingQueue.defer("found", foundItem.getId(), () -> analyzeAndSaveMatches(foundItem));
+                return;
             }
-
-            // pick top 5
-            List<MatchSuggestion> top = suggestions.stream()
-                    .filter(s -> s.getScore() != null && s.getScore() >= 0)
-                    .sorted(Comparator.comparingDouble(MatchSuggestion::getScore).reversed())
-                    .limit(5)
-                    .collect(Collectors.toList());
-
-            matchSuggestionRepository.saveAll(top);
-            // publish to SSE for this found item
-            suggestionPublisher.publish("found", foundItem.getId(), top);
+            matchEngine.onItemAdded("found", foundItem.getId(), vector);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    // Analyze a lost item against existing found items and store suggestions
-    public void analyzeLostAndSaveMatches(LostItem lostItem, List<FoundItem> foundItems) {
+    // Analyze a lost item against existing found items and store suggestions (both directions)
+    public void analyzeLostAndSaveMatches(LostItem lostItem) {
         try {
-            File imageFile = null;
-            if (lostItem.getImageUrl() != null && lostItem.getImageUrl().startsWith("/uploads/")) {
-                String path = System.getProperty("user.dir") + lostItem.getImageUrl();
-                imageFile = new File(path);
+            itemAttributeIndex.put("lost", lostItem.getId(), attributesOf(lostItem));
+            double[] vector = embeddingFor(lostItem);
+            if (vector == null) {
+                matchingQueue.defer("lost", lostItem.getId(), () -> analyzeLostAndSaveMatches(lostItem));
+                return;
             }
-
-            double[] lostEmb = getEmbedding(lostItem.getAbout() == null ? lostItem.getItemName() : lostItem.getAbout(), imageFile);
-            if (lostEmb == null) return;
-
-            List<MatchSuggestion> suggestions = new ArrayList<>();
-            for (FoundItem fi : foundItems) {
-                File fiImage = null;
-                if (fi.getImageUrl() != null && fi.getImageUrl().startsWith("/uploads/")) {
-                    String p = System.getProperty("user.dir") + fi.getImageUrl();
-                    fiImage = new File(p);
-                }
-                double[] foundEmb = getEmbedding(fi.getAbout() == null ? fi.getItemName() : fi.getAbout(), fiImage);
-                double score = cosine(lostEmb, foundEmb);
-                MatchSuggestion ms = new MatchSuggestion();
-                ms.setFoundItemId(fi.getId());
-                ms.setLostItemId(lostItem.getId());
-                ms.setScore(score);
-                suggestions.add(ms);
-            }
-
-            List<MatchSuggestion> top = suggestions.stream()
-                    .filter(s -> s.getScore() != null && s.getScore() >= 0)
-                    .sorted(Comparator.comparingDouble(MatchSuggestion::getScore).reversed())
-                    .limit(5)
-                    .collect(Collectors.toList());
-
-            matchSuggestionRepository.saveAll(top);
-            // publish to SSE for this lost item
-            suggestionPublisher.publish("lost", lostItem.getId(), top);
+            matchEngine.onItemAdded("lost", lostItem.getId(), vector);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,160 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.repository.BackupRepository;
+import com.campustrack.lostandfound.repository.ConfirmedMatchRepository;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.repository.UserRepository;
+import com.campustrack.lostandfound.websocket.ChatRecordRepository;
+import com.campustrack.lostandfound.websocket.UserBlockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Row counts behind the user and admin dashboards, kept in memory so a page load costs no query.
+// The code paths that add or remove users, chats, blocks, reports, confirmations and archive
+// records adjust the counters as they go; lost reports are also counted per reporter email.
+// A reconcile pass recounts everything from the database at startup and every reconcile-minutes,
+// which also repairs any drift (a write path without a hook, rows changed by hand).
+@Component
+public class DashboardStats {
+
+    public enum Counter {USERS, CHATS, BLOCKS, LOST, FOUND, MATCHES, BACKUPS}
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRecordRepository chatRecordRepository;
+
+    @Autowired
+    private UserBlockRepository userBlockRepository;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Autowired
+    private ConfirmedMatchRepository confirmedMatchRepository;
+
+    @Autowired
+    private BackupRepository backupRepository;
+
+    @Value("${campustrack.dashboard.reconcile-minutes:15}")
+    private long reconcileMinutes;
+
+    private final Map<Counter, AtomicLong> counters = new EnumMap<>(Counter.class);
+    // lower-cased reporter email -> lost items reported
+    private volatile Map<String, AtomicLong> lostByReporter = new ConcurrentHashMap<>();
+    private ScheduledExecutorService reconciler;
+
+    private volatile LocalDateTime reconciledAt;
+    private volatile long lastDrift;
+    private volatile long reconciles;
+
+    public DashboardStats() {
+        for (Counter c : Counter.values()) counters.put(c, new AtomicLong());
+    }
+
+    @PostConstruct
+    public void start() {
+        reconcile();
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-reconcile");
+            t.setDaemon(true);
+            return t;
+        });
+        if (reconcileMinutes > 0) {
+            reconciler.scheduleWithFixedDelay(this::reconcile, reconcileMinutes, reconcileMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reconciler != null) reconciler.shutdownNow();
+    }
+
+    public long get(Counter c) {
+        return Math.max(0, counters.get(c).get());
+    }
+
+    public void add(Counter c, long delta) {
+        counters.get(c).addAndGet(delta);
+    }
+
+    public long lostReportedBy(String email) {
+        AtomicLong n = email == null ? null : lostByReporter.get(key(email));
+        return n == null ? 0 : Math.max(0, n.get());
+    }
+
+    public void lostAdded(String reporterEmail) {
+        add(Counter.LOST, 1);
+        if (reporterEmail != null && !reporterEmail.isBlank()) {
+            lostByReporter.computeIfAbsent(key(reporterEmail), k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public void lostRemoved(String reporterEmail) {
+        add(Counter.LOST, -1);
+        if (reporterEmail != null && !reporterEmail.isBlank()) {
+            AtomicLong n = lostByReporter.get(key(reporterEmail));
+            if (n != null) n.decrementAndGet();
+        }
+    }
+
+    // Recount from the database. An update landing while the counts run may be off by one until
+    // the next pass.
+    public synchronized void reconcile() {
+        try {
+            Map<Counter, Long> fresh = new EnumMap<>(Counter.class);
+            fresh.put(Counter.USERS, userRepository.count());
+            fresh.put(Counter.CHATS, chatRecordRepository.count());
+            fresh.put(Counter.BLOCKS, userBlockRepository.count());
+            fresh.put(Counter.LOST, lostItemRepository.count());
+            fresh.put(Counter.FOUND, foundItemRepository.count());
+            fresh.put(Counter.MATCHES, confirmedMatchRepository.count());
+            fresh.put(Counter.BACKUPS, backupRepository.count());
+            Map<String, AtomicLong> byReporter = new ConcurrentHashMap<>();
+            for (Object[] row : lostItemRepository.countByReporter()) {
+                if (row[0] != null) byReporter.put((String) row[0], new AtomicLong((Long) row[1]));
+            }
+            long drift = 0;
+            for (Map.Entry<Counter, Long> e : fresh.entrySet()) {
+                drift += Math.abs(counters.get(e.getKey()).getAndSet(e.getValue()) - e.getValue());
+            }
+            lostByReporter = byReporter;
+            lastDrift = drift;
+            reconciles++;
+            reconciledAt = LocalDateTime.now();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Counter c : Counter.values()) out.put(c.name().toLowerCase(Locale.ROOT), get(c));
+        out.put("reporters", lostByReporter.size());
+        out.put("reconciles", reconciles);
+        out.put("reconciledAt", reconciledAt);
+        // how far the counters had drifted from the database at the last pass (should stay 0)
+        out.put("lastDrift", lastDrift);
+        return out;
+    }
+}
@@ -0,0 +1,146 @@
+package com.campustrack.lostandfound.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Collects concurrent embedding requests for a short window (or until the batch is full) and sends
+// them to the AI service's /predict_batch/ endpoint as one request, then hands each caller its vector.
+// The models are far cheaper per item in a batch than one POST per description/image pair.
+@Component
+public class EmbeddingBatcher {
+
+    private final String batchUrl;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatch;
+    private final int maxInFlight;
+
+    private final AIClient aiClient;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private ExecutorService senders;
+    private Thread collector;
+    private volatile boolean running;
+
+    private record Pending(String description, File imageFile, CompletableFuture<double[]> result) {
+    }
+
+    // bound straight to primitive arrays instead of a Map of boxed List<Number>
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record BatchResponse(@JsonProperty("embedding_vectors") double[][] vectors) {
+    }
+
+    public EmbeddingBatcher(AIClient aiClient,
+                            @Value("${campustrack.ai.batch-url:http://127.0.0.1:8000/predict_batch/}") String batchUrl,
+                            @Value("${campustrack.ai.batch.enabled:true}") boolean enabled,
+                            @Value("${campustrack.ai.batch.window-ms:10}") long windowMillis,
+                            @Value("${campustrack.ai.batch.max-size:32}") int maxBatch,
+                            @Value("${campustrack.ai.batch.max-in-flight:2}") int maxInFlight) {
+        this.aiClient = aiClient;
+        this.batchUrl = batchUrl;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        senders = Executors.newFixedThreadPool(maxInFlight, r -> {
+            Thread t = new Thread(r, "embedding-batch-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        collector = new Thread(this::collect, "embedding-batcher");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (collector != null) collector.interrupt();
+        if (senders != null) senders.shutdown();
+        // callers treat null as "no embedding", same as a failed request
+        Pending p;
+        while ((p = queue.poll()) != null) p.result().complete(null);
+    }
+
+    public CompletableFuture<double[]> submit(String description, File imageFile) {
+        CompletableFuture<double[]> f = new CompletableFuture<>();
+        // while the AI circuit is open there is no point waiting out a batch window
+        if (!running || aiClient.getState() == AIClient.State.OPEN) {
+            f.complete(null);
+            return f;
+        }
+        Pending p = new Pending(description == null ? "" : description, imageFile, f);
+        queue.add(p);
+        // stop() may have drained the queue between the check above and the add: take the entry
+        // back unless the collector or stop() already has it (both complete what they take)
+        if (!running && queue.remove(p)) f.complete(null);
+        return f;
+    }
+
+    private void collect() {
+        while (running) {
+            List<Pending> batch = new ArrayList<>(maxBatch);
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                senders.execute(() -> send(batch));
+            } catch (InterruptedException e) {
+                // stopping: the requests already taken off the queue are not going to be sent
+                for (Pending p : batch) p.result().complete(null);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RejectedExecutionException e) {
+                for (Pending p : batch) p.result().complete(null);
+                return;
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        double[][] vectors = null;
+        try {
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Pending p = batch.get(i);
+                body.add("description", p.description());
+                if (p.imageFile() != null && p.imageFile().exists()) {
+                    body.add("image_" + i, new FileSystemResource(p.imageFile()));
+                }
+            }
+            BatchResponse response = aiClient.postMultipart(batchUrl, body, BatchResponse.class);
+            if (response != null) vectors = response.vectors();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result().complete(vectors != null && i < vectors.length ? vectors[i] : null);
+        }
+    }
+}
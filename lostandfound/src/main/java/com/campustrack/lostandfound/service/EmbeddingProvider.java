@@ -0,0 +1,19 @@
+package com.campustrack.lostandfound.service;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+// Turns an item's description (and optional photo) into a vector for matching.
+// Vectors from different providers live in different spaces and are never compared with each
+// other: the provider name is part of the stored embedding's content hash.
+public interface EmbeddingProvider {
+
+    // "remote" or "local", as used by campustrack.ai.provider
+    String name();
+
+    // completes with null when no vector could be produced
+    CompletableFuture<double[]> embed(String description, File imageFile);
+
+    // false while the provider cannot serve requests (e.g. the AI service circuit is open)
+    boolean isAvailable();
+}
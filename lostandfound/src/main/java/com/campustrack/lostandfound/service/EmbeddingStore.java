@@ -0,0 +1,146 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.model.ItemEmbedding;
+import com.campustrack.lostandfound.repository.ItemEmbeddingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Persists one embedding per lost/found item so matching does not have to call the AI service
+// for every candidate on every report. Vectors are keyed by a hash of the content that produced them.
+// Vectors are stored as little-endian float32 (the models' own precision); rows written before that
+// hold doubles and are told apart by their byte length.
+@Component
+public class EmbeddingStore {
+
+    @Autowired
+    private ItemEmbeddingRepository repository;
+
+    // image hashes are memoized by path + size + mtime so unchanged uploads are read only once
+    private final ConcurrentHashMap<String, byte[]> imageDigests = new ConcurrentHashMap<>();
+
+    // Vectors from a provider other than the original remote one get its name mixed in, so a
+    // provider switch re-embeds everything instead of comparing vectors from different spaces
+    public String contentHash(String provider, String text, File imageFile) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            if (provider != null && !"remote".equals(provider)) {
+                md.update(provider.getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+            }
+            md.update((text == null ? "" : text).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            if (imageFile != null && imageFile.exists()) {
+                md.update(imageDigest(imageFile));
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private byte[] imageDigest(File f) throws Exception {
+        // content-addressed uploads are named by their hash: no need to read them
+        if (UploadStore.isContentAddressed(f.toPath())) return f.getName().getBytes(StandardCharsets.UTF_8);
+        String key = f.getAbsolutePath() + ":" + f.length() + ":" + f.lastModified();
+        byte[] cached = imageDigests.get(key);
+        if (cached != null) return cached;
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] buf = new byte[8192];
+        try (InputStream in = Files.newInputStream(f.toPath())) {
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        byte[] digest = md.digest();
+        imageDigests.put(key, digest);
+        return digest;
+    }
+
+    // stored vector for the item, only if it was computed from the same content
+    public double[] find(String type, Long id, String hash) {
+        if (id == null || hash == null) return null;
+        return repository.findByItemTypeAndItemId(type, id)
+                .filter(e -> hash.equals(e.getContentHash()))
+                .map(EmbeddingStore::decode)
+                .orElse(null);
+    }
+
+    // stored vector regardless of content hash (used to re-query for an item already in the index)
+    public double[] vectorOf(String type, Long id) {
+        if (id == null) return null;
+        return repository.findByItemTypeAndItemId(type, id).map(EmbeddingStore::decode).orElse(null);
+    }
+
+    // bulk variant used when scoring a candidate list (one query instead of one per row)
+    public Map<Long, ItemEmbedding> findAll(String type, Collection<Long> ids) {
+        Map<Long, ItemEmbedding> out = new HashMap<>();
+        if (ids == null || ids.isEmpty()) return out;
+        for (ItemEmbedding e : repository.findByItemTypeAndItemIdIn(type, ids)) out.put(e.getItemId(), e);
+        return out;
+    }
+
+    // a different item with identical text and image can reuse the vector
+    public double[] findByHash(String hash) {
+        if (hash == null) return null;
+        return repository.findFirstByContentHash(hash).map(EmbeddingStore::decode).orElse(null);
+    }
+
+    public void save(String type, Long id, String hash, double[] vector) {
+        if (id == null || hash == null || vector == null) return;
+        try {
+            ItemEmbedding e = repository.findByItemTypeAndItemId(type, id).orElseGet(ItemEmbedding::new);
+            e.setItemType(type);
+            e.setItemId(id);
+            e.setContentHash(hash);
+            e.setDimension(vector.length);
+            e.setVector(encode(vector));
+            e.setCreatedAt(java.time.LocalDateTime.now());
+            repository.save(e);
+        } catch (Exception ex) {
+            // a concurrent report may have stored the same item first; the cache is best-effort
+            ex.printStackTrace();
+        }
+    }
+
+    public void delete(String type, Long id) {
+        if (id == null) return;
+        try {
+            repository.deleteByItemTypeAndItemId(type, id);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    public static byte[] encode(double[] v) {
+        ByteBuffer bb = ByteBuffer.allocate(v.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (double d : v) bb.putFloat((float) d);
+        return bb.array();
+    }
+
+    public static double[] decode(ItemEmbedding e) {
+        return e == null ? null : decode(e.getVector(), e.getDimension());
+    }
+
+    public static double[] decode(byte[] bytes, int dimension) {
+        if (bytes == null) return null;
+        ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (dimension > 0 && bytes.length == dimension * Double.BYTES) {
+            double[] v = new double[dimension];
+            for (int i = 0; i < v.length; i++) v[i] = bb.getDouble();
+            return v;
+        }
+        double[] v = new double[bytes.length / Float.BYTES];
+        for (int i = 0; i < v.length; i++) v[i] = bb.getFloat();
+        return v;
+    }
+}
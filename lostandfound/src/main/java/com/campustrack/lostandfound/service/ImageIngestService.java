@@ -0,0 +1,164 @@
+package com.campustrack.lostandfound.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+
+// Runs once per uploaded item photo: the original is streamed into the UploadStore unchanged, then
+// decoded once and written out next to it as
+//   _model.jpg   224x224, what MobileNetV2 looks at (sent to the AI service instead of the original)
+//   _thumb.jpg   longest side 160px, for match lists
+//   _preview.jpg longest side 480px, for item cards
+// Formats ImageIO cannot decode (HEIC, WebP...) keep only the original; everything falls back to it.
+// A photo that is already stored reuses its renditions without decoding anything.
+@Component
+public class ImageIngestService {
+
+    public record StoredImage(String imageUrl, String thumbnailUrl, String previewUrl, String modelImageUrl) {
+    }
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    private final int thumbnailPx;
+    private final int previewPx;
+    private final int modelInputPx;
+    private final float jpegQuality;
+
+    public ImageIngestService(@Value("${campustrack.images.thumbnail-px:160}") int thumbnailPx,
+                              @Value("${campustrack.images.preview-px:480}") int previewPx,
+                              @Value("${campustrack.images.model-input-px:224}") int modelInputPx,
+                              @Value("${campustrack.images.jpeg-quality:0.85}") float jpegQuality) {
+        this.thumbnailPx = thumbnailPx;
+        this.previewPx = previewPx;
+        this.modelInputPx = modelInputPx;
+        this.jpegQuality = Math.max(0.1f, Math.min(1f, jpegQuality));
+    }
+
+    // The caller's item takes a reference with UploadStore.acquire(imageUrl) once it is saved
+    public StoredImage store(MultipartFile image) throws IOException {
+        UploadStore.Blob blob;
+        try (InputStream in = image.getInputStream()) {
+            blob = uploadStore.put(in, image.getOriginalFilename());
+        }
+        Path dir = blob.file().getParent();
+        String urlBase = blob.url().substring(0, blob.url().lastIndexOf('/') + 1) + blob.hash();
+        Path model = dir.resolve(blob.hash() + "_model.jpg");
+        Path thumb = dir.resolve(blob.hash() + "_thumb.jpg");
+        Path preview = dir.resolve(blob.hash() + "_preview.jpg");
+        StoredImage withRenditions = new StoredImage(blob.url(), urlBase + "_thumb.jpg", urlBase + "_preview.jpg", urlBase + "_model.jpg");
+        StoredImage originalOnly = new StoredImage(blob.url(), null, null, null);
+        if (!blob.created() && Files.exists(model) && Files.exists(thumb) && Files.exists(preview)) return withRenditions;
+
+        BufferedImage decoded;
+        try {
+            decoded = decode(blob.file().toFile());
+        } catch (Exception e) {
+            e.printStackTrace();
+            decoded = null;
+        }
+        if (decoded == null) return originalOnly;
+
+        try {
+            writeJpeg(resize(decoded, modelInputPx, modelInputPx), model);
+            writeJpeg(fit(decoded, thumbnailPx), thumb);
+            writeJpeg(fit(decoded, previewPx), preview);
+        } catch (Exception e) {
+            // renditions are an optimization; the item still has its original
+            e.printStackTrace();
+            return originalOnly;
+        }
+        return withRenditions;
+    }
+
+    // Decode with source subsampling so a 12MP phone photo is never held at full resolution:
+    // keep at least twice the largest rendition in each direction, which the resize then averages down
+    private BufferedImage decode(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                int step = Math.max(1, Math.min(Math.max(w, h) / (2 * previewPx), Math.min(w, h) / (2 * modelInputPx)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // longest side at most max, aspect ratio kept, never enlarged
+    private static BufferedImage fit(BufferedImage src, int max) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        double scale = Math.min(1.0, (double) max / Math.max(w, h));
+        return resize(src, Math.max(1, (int) Math.round(w * scale)), Math.max(1, (int) Math.round(h * scale)));
+    }
+
+    // Halve with bilinear filtering until within 2x of the target, then one last bilinear step;
+    // a single large bilinear step would skip most source pixels and alias. Output is opaque RGB.
+    private static BufferedImage resize(BufferedImage src, int width, int height) {
+        BufferedImage current = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        do {
+            w = w / 2 >= width ? w / 2 : width;
+            h = h / 2 >= height ? h / 2 : height;
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // transparent PNG areas become white rather than black
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+
+    // written to a temp name and renamed, so a concurrent upload of the same photo never sees half a file
+    private void writeJpeg(BufferedImage img, Path dest) throws IOException {
+        Path tmp = dest.resolveSibling(dest.getFileName() + "." + Thread.currentThread().threadId() + ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,260 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.location.Gazetteer;
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.model.FoundItem;
+import com.campustrack.lostandfound.model.ItemSummary;
+import com.campustrack.lostandfound.model.LostItem;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.search.ItemSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Keyset-paginated browsing of lost/found items for the list pages. Pages are newest first by id
+// or by report time (id breaks ties); the cursor is the last row's sort key, so a page costs the
+// same however deep the reader scrolls, unlike OFFSET. Only ItemSummary columns are selected.
+// location keeps items whose text contains it, or, when it names a campus zone, the items in that
+// zone. near (a zone id or any text the gazetteer resolves) keeps items in that campus zone and the zones
+// near it; in search it ranks those items higher instead of dropping the rest.
+@Service
+public class ItemBrowseService {
+
+    public static final String SORT_ID = "id";
+    public static final String SORT_TIME = "time";
+
+    public record Query(String cursor, Integer limit, String sort, String brand, String location,
+                        LocalDateTime from, LocalDateTime to, String reporter, String near) {
+    }
+
+    public record Page(List<ItemSummary> items, String nextCursor) {
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    @Value("${campustrack.browse.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${campustrack.browse.max-limit:100}")
+    private int maxLimit;
+
+    @Value("${campustrack.browse.excerpt-length:200}")
+    private int excerptLength;
+
+    // search relevance multipliers for items in the near zone itself / a zone close to it
+    @Value("${campustrack.location.search.same-zone-factor:1.5}")
+    private double sameZoneFactor;
+
+    @Value("${campustrack.location.search.near-factor:1.2}")
+    private double nearZoneFactor;
+
+    // with near, this many times the limit is ranked so nearby items further down can move up
+    private static final int NEAR_CANDIDATES = 3;
+
+    public Page lost(Query q) {
+        return browse(LostItem.class, "lostDateTime", q);
+    }
+
+    public Page found(Query q) {
+        return browse(FoundItem.class, "foundDateTime", q);
+    }
+
+    private <T> Page browse(Class<T> type, String timeField, Query q) {
+        boolean byTime = SORT_TIME.equalsIgnoreCase(q.sort());
+        int limit = clampLimit(q.limit());
+        Cursor after = q.cursor() == null || q.cursor().isBlank() ? null : Cursor.decode(q.cursor(), byTime);
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ItemSummary> cq = cb.createQuery(ItemSummary.class);
+        Root<T> root = cq.from(type);
+        Path<Long> id = root.get("id");
+        Path<LocalDateTime> time = root.get(timeField);
+
+        List<Predicate> where = new ArrayList<>();
+        if (notBlank(q.brand())) where.add(cb.equal(root.get("brand"), q.brand().trim()));
+        if (notBlank(q.location())) {
+            // text naming a campus zone is an equality on the indexed location_zone; anything else
+            // falls back to a substring scan of the free text
+            String zone = gazetteer.zoneFor(q.location());
+            if (zone != null) {
+                where.add(cb.equal(root.get("locationZone"), zone));
+            } else {
+                where.add(cb.like(cb.lower(root.get("location")), "%" + escapeLike(q.location().trim().toLowerCase()) + "%", '\\'));
+            }
+        }
+        if (notBlank(q.near())) where.add(root.get("locationZone").in(gazetteer.near(zoneFor(q.near()))));
+        if (notBlank(q.reporter())) where.add(cb.equal(root.get("reporterEmail"), q.reporter().trim()));
+        if (q.from() != null) where.add(cb.greaterThanOrEqualTo(time, q.from()));
+        if (q.to() != null) where.add(cb.lessThanOrEqualTo(time, q.to()));
+        if (byTime) {
+            // rows without a report time cannot be placed in time order
+            where.add(cb.isNotNull(time));
+            if (after != null) {
+                where.add(cb.or(cb.lessThan(time, after.time()),
+                        cb.and(cb.equal(time, after.time()), cb.lessThan(id, after.id()))));
+            }
+            cq.orderBy(cb.desc(time), cb.desc(id));
+        } else {
+            if (after != null) where.add(cb.lessThan(id, after.id()));
+            cq.orderBy(cb.desc(id));
+        }
+
+        cq.select(cb.construct(ItemSummary.class, id, root.get("itemName"), root.get("brand"), root.get("modelNo"),
+                root.get("size"), root.get("location"), root.get("locationZone"), time, cb.substring(root.get("about"), 1, excerptLength),
+                root.get("imageUrl"), root.get("thumbnailUrl"), root.get("previewUrl")));
+        cq.where(where.toArray(new Predicate[0]));
+
+        // one extra row tells whether there is a next page
+        List<ItemSummary> rows = entityManager.createQuery(cq).setMaxResults(limit + 1).getResultList();
+        String next = null;
+        if (rows.size() > limit) {
+            rows = new ArrayList<>(rows.subList(0, limit));
+            ItemSummary last = rows.get(limit - 1);
+            next = new Cursor(last.id(), byTime ? last.reportedAt() : null).encode();
+        }
+        return new Page(rows, next);
+    }
+
+    // Full-text search, most relevant first; a single page (no cursor)
+    public Page searchLost(String q, Integer limit, String near) {
+        return search("lost", q, limit, near, ids -> {
+            Map<Long, ItemSummary> byId = new HashMap<>();
+            lostItemRepository.findAllById(ids).forEach(li -> byId.put(li.getId(), new ItemSummary(li.getId(), li.getItemName(),
+                    li.getBrand(), li.getModelNo(), li.getSize(), li.getLocation(), li.getLocationZone(), li.getLostDateTime(),
+                    excerpt(li.getAbout()), li.getImageUrl(), li.getThumbnailUrl(), li.getPreviewUrl())));
+            return byId;
+        });
+    }
+
+    public Page searchFound(String q, Integer limit, String near) {
+        return search("found", q, limit, near, ids -> {
+            Map<Long, ItemSummary> byId = new HashMap<>();
+            foundItemRepository.findAllById(ids).forEach(fi -> byId.put(fi.getId(), new ItemSummary(fi.getId(), fi.getItemName(),
+                    fi.getBrand(), fi.getModelNo(), fi.getSize(), fi.getLocation(), fi.getLocationZone(), fi.getFoundDateTime(),
+                    excerpt(fi.getAbout()), fi.getImageUrl(), fi.getThumbnailUrl(), fi.getPreviewUrl())));
+            return byId;
+        });
+    }
+
+    private Page search(String type, String q, Integer limit, String near, Function<List<Long>, Map<Long, ItemSummary>> load) {
+        int n = clampLimit(limit);
+        String zone = notBlank(near) ? zoneFor(near) : null;
+        List<ScoredItem> hits = itemSearchIndex.search(type, q, zone == null ? n : n * NEAR_CANDIDATES);
+        Map<Long, ItemSummary> byId = load.apply(hits.stream().map(ScoredItem::id).toList());
+        if (zone != null) {
+            List<ScoredItem> boosted = new ArrayList<>(hits.size());
+            for (ScoredItem hit : hits) {
+                ItemSummary s = byId.get(hit.id());
+                if (s == null) continue;
+                double f = zone.equals(s.locationZone()) ? sameZoneFactor : gazetteer.isNear(zone, s.locationZone()) ? nearZoneFactor : 1;
+                boosted.add(new ScoredItem(hit.id(), hit.score() * f));
+            }
+            boosted.sort((a, b) -> Double.compare(b.score(), a.score()));
+            hits = boosted;
+        }
+        List<ItemSummary> items = new ArrayList<>(n);
+        for (ScoredItem hit : hits) {
+            ItemSummary s = byId.get(hit.id());
+            if (s != null && items.size() < n) items.add(s);
+        }
+        return new Page(items, null);
+    }
+
+    private String zoneFor(String near) {
+        String zone = gazetteer.zoneFor(near);
+        if (zone == null) throw new IllegalArgumentException("Unknown campus location: " + near);
+        return zone;
+    }
+
+    private int clampLimit(Integer limit) {
+        return Math.max(1, Math.min(maxLimit, limit == null ? defaultLimit : limit));
+    }
+
+    private String excerpt(String about) {
+        return about == null || about.length() <= excerptLength ? about : about.substring(0, excerptLength);
+    }
+
+    // from/to accept a date (whole day) or a date-time
+    public static LocalDateTime parseFrom(String s) {
+        return parseBound(s, false);
+    }
+
+    public static LocalDateTime parseTo(String s) {
+        return parseBound(s, true);
+    }
+
+    private static LocalDateTime parseBound(String s, boolean endOfDay) {
+        if (!notBlank(s)) return null;
+        try {
+            if (s.trim().length() == 10) {
+                LocalDate d = LocalDate.parse(s.trim());
+                return endOfDay ? d.atTime(LocalTime.MAX) : d.atStartOfDay();
+            }
+            return LocalDateTime.parse(s.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + s);
+        }
+    }
+
+    private static boolean notBlank(String s) {
+        return s != null && !s.isBlank();
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // Opaque to clients: base64url of "<id>" or "<id>|<reportedAt>"
+    private record Cursor(long id, LocalDateTime time) {
+        String encode() {
+            String raw = time == null ? Long.toString(id) : id + "|" + time;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token, boolean byTime) {
+            String raw;
+            try {
+                raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int bar = raw.indexOf('|');
+            if (byTime != (bar >= 0)) throw new IllegalArgumentException("Cursor does not match the sort order");
+            try {
+                if (!byTime) return new Cursor(Long.parseLong(raw), null);
+                return new Cursor(Long.parseLong(raw.substring(0, bar)), LocalDateTime.parse(raw.substring(bar + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.campustrack.lostandfound.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// In-JVM embeddings, no network hop. Used with campustrack.ai.provider=local, e.g. when the
+// Python service is not deployed or as a degraded mode while it is down.
+// Text: words and character 3-grams feature-hashed into TEXT_DIM signed buckets, weighted by
+// 1 + log(tf) (words count double, stop words are skipped), then L2-normalized.
+// Image: a 4x4x4 RGB colour histogram and a 64-bit difference hash (as +/-1 components) of the
+// photo scaled down to 9x8, each L2-normalized; appended after the text part like the remote
+// vectors, so text-only and text+image vectors still compare on their shared text prefix.
+@Component
+public class LocalEmbeddingProvider implements EmbeddingProvider {
+
+    static final int TEXT_DIM = 384;
+    static final int IMAGE_DIM = 128;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "of", "and", "or", "with", "in", "on", "at", "to", "for", "is", "it",
+            "my", "i", "was", "has", "have", "this", "that", "from", "by", "be", "near", "found", "lost");
+
+    @Override
+    public String name() {
+        return "local";
+    }
+
+    @Override
+    public CompletableFuture<double[]> embed(String description, File imageFile) {
+        try {
+            return CompletableFuture.completedFuture(embedNow(description, imageFile));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    double[] embedNow(String description, File imageFile) throws Exception {
+        double[] text = textVector(description);
+        double[] image = imageFile != null && imageFile.exists() ? imageVector(imageFile) : null;
+        if (image == null) return text;
+        double[] out = new double[TEXT_DIM + IMAGE_DIM];
+        System.arraycopy(text, 0, out, 0, TEXT_DIM);
+        System.arraycopy(image, 0, out, TEXT_DIM, IMAGE_DIM);
+        return out;
+    }
+
+    static double[] textVector(String text) {
+        double[] tf = new double[TEXT_DIM];
+        String norm = text == null ? "" : text.toLowerCase(Locale.ROOT);
+        for (String word : norm.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) continue;
+            add(tf, "w:" + word, 2.0);
+            String padded = "^" + word + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) add(tf, padded.substring(i, i + 3), 1.0);
+        }
+        // sublinear tf keeps one repeated word from dominating
+        for (int i = 0; i < TEXT_DIM; i++) {
+            double v = tf[i];
+            if (v != 0) tf[i] = Math.signum(v) * (1 + Math.log(Math.abs(v)));
+        }
+        return normalize(tf);
+    }
+
+    // feature hashing with a sign bit, so colliding features cancel rather than pile up
+    private static void add(double[] v, String feature, double weight) {
+        int h = murmurMix(feature.hashCode());
+        int bucket = Math.floorMod(h, TEXT_DIM);
+        v[bucket] += (h & 0x80000000) == 0 ? weight : -weight;
+    }
+
+    private static int murmurMix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    static double[] imageVector(File file) throws Exception {
+        BufferedImage img = ImageIO.read(file);
+        if (img == null) return null;
+        double[] hist = new double[64];
+        // sample on a grid of at most ~64x64 points instead of reading every pixel
+        int stepX = Math.max(1, img.getWidth() / 64);
+        int stepY = Math.max(1, img.getHeight() / 64);
+        for (int y = 0; y < img.getHeight(); y += stepY) {
+            for (int x = 0; x < img.getWidth(); x += stepX) {
+                int rgb = img.getRGB(x, y);
+                int r = (rgb >> 16) & 0xff, g = (rgb >> 8) & 0xff, b = rgb & 0xff;
+                hist[(r >> 6) * 16 + (g >> 6) * 4 + (b >> 6)]++;
+            }
+        }
+        double[] hash = differenceHash(img);
+        double[] out = new double[IMAGE_DIM];
+        System.arraycopy(normalize(hist), 0, out, 0, 64);
+        System.arraycopy(normalize(hash), 0, out, 64, 64);
+        return out;
+    }
+
+    // 9x8 grey thumbnail; bit = whether each pixel is brighter than its right neighbour
+    private static double[] differenceHash(BufferedImage img) {
+        double[] grey = new double[9 * 8];
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 9; x++) {
+                int x0 = x * img.getWidth() / 9, x1 = Math.max(x0 + 1, (x + 1) * img.getWidth() / 9);
+                int y0 = y * img.getHeight() / 8, y1 = Math.max(y0 + 1, (y + 1) * img.getHeight() / 8);
+                double sum = 0;
+                int n = 0;
+                int sx = Math.max(1, (x1 - x0) / 4), sy = Math.max(1, (y1 - y0) / 4);
+                for (int yy = y0; yy < y1 && yy < img.getHeight(); yy += sy) {
+                    for (int xx = x0; xx < x1 && xx < img.getWidth(); xx += sx) {
+                        int rgb = img.getRGB(xx, yy);
+                        sum += 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+                        n++;
+                    }
+                }
+                grey[y * 9 + x] = n == 0 ? 0 : sum / n;
+            }
+        }
+        double[] bits = new double[64];
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) bits[y * 8 + x] = grey[y * 9 + x] > grey[y * 9 + x + 1] ? 1 : -1;
+        }
+        return bits;
+    }
+
+    private static double[] normalize(double[] v) {
+        double n = 0;
+        for (double d : v) n += d * d;
+        if (n == 0) return v;
+        double inv = 1.0 / Math.sqrt(n);
+        for (int i = 0; i < v.length; i++) v[i] *= inv;
+        return v;
+    }
+}
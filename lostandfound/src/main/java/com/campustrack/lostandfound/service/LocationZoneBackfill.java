@@ -0,0 +1,71 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.location.Gazetteer;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+// Keeps the stored locationZone of every item in line with the gazetteer: at startup each item's
+// location is resolved again and rows whose zone differs (items reported before zones existed, or
+// a gazetteer edit since) are updated, one UPDATE per zone per chunk. Matching does not wait for
+// this; it resolves zones itself. Only the browse "near" filter reads the column.
+@Component
+public class LocationZoneBackfill {
+
+    private static final int CHUNK = 1000;
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    private volatile int updated;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        new Thread(() -> {
+            try {
+                updated += run(lostItemRepository::findLocationsAfter, lostItemRepository::setLocationZone);
+                updated += run(foundItemRepository::findLocationsAfter, foundItemRepository::setLocationZone);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "zone-backfill").start();
+    }
+
+    private int run(BiFunction<Long, PageRequest, List<Object[]>> chunkAfter, BiFunction<Collection<Long>, String, Integer> setZone) {
+        int changed = 0;
+        long after = 0;
+        List<Object[]> rows;
+        do {
+            rows = chunkAfter.apply(after, PageRequest.of(0, CHUNK));
+            Map<String, List<Long>> byZone = new HashMap<>();
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                String zone = gazetteer.lookup((String) row[1]);
+                if (!Objects.equals(zone, row[2])) byZone.computeIfAbsent(zone == null ? "" : zone, k -> new ArrayList<>()).add(id);
+                after = id;
+            }
+            for (Map.Entry<String, List<Long>> e : byZone.entrySet()) {
+                changed += setZone.apply(e.getValue(), e.getKey().isEmpty() ? null : e.getKey());
+            }
+        } while (rows.size() == CHUNK);
+        return changed;
+    }
+
+    // rows corrected by the last startup pass
+    public int updated() {
+        return updated;
+    }
+}
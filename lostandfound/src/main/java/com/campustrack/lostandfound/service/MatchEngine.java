@@ -0,0 +1,518 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.location.Gazetteer;
+import com.campustrack.lostandfound.matching.ItemAttributeIndex;
+import com.campustrack.lostandfound.matching.ItemVectorIndex;
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.model.ItemEmbedding;
+import com.campustrack.lostandfound.model.MatchSuggestion;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.repository.MatchSuggestionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps a live top-K suggestion list for every open lost and found item, in both directions.
+// When an item arrives only its pairs with the other side are scored (just the attribute-filtered
+// candidates when ItemAttributeIndex has a set for it): the best K become its own suggestions, and
+// every opposite item that now ranks it above its current K-th match gets it too.
+// Pairs whose locations resolve to the same or a nearby campus zone get a proximity boost that
+// closes part of the gap to a perfect score, so it reorders close calls without swamping cosine.
+// A MatchSuggestion row exists for a pair while it is in either item's list. Lists change under the
+// engine's lock; the pairs they touched are written by flush() outside it (upsert or delete by
+// pair), and each changed list is then pushed to its SSE subscribers.
+@Service
+public class MatchEngine {
+
+    @Autowired
+    private ItemVectorIndex itemVectorIndex;
+
+    @Autowired
+    private ItemAttributeIndex itemAttributeIndex;
+
+    @Autowired
+    private MatchSuggestionRepository matchSuggestionRepository;
+
+    @Autowired
+    private MatchSuggestionWriter matchSuggestionWriter;
+
+    @Autowired
+    private MatchSuggestionPublisher suggestionPublisher;
+
+    @Autowired
+    private EmbeddingStore embeddingStore;
+
+    @Autowired
+    private Gazetteer gazetteer;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Value("${campustrack.matching.top-k:5}")
+    private int topK;
+
+    // how many opposite items are checked for a reverse update when the index is approximate
+    @Value("${campustrack.matching.reverse-fanout:200}")
+    private int reverseFanout;
+
+    // with an int8 index, rescore this many of the best hits against the stored float32 vectors
+    @Value("${campustrack.matching.rerank:false}")
+    private boolean rerank;
+
+    @Value("${campustrack.matching.rerank-depth:20}")
+    private int rerankDepth;
+
+    // fraction of (1 - score) added for a partner in the same zone / a nearby zone
+    @Value("${campustrack.location.boost.same-zone:0.1}")
+    private double sameZoneBoost;
+
+    @Value("${campustrack.location.boost.near:0.05}")
+    private double nearZoneBoost;
+
+    // hits scored for the boost to pick from, so a near partner just outside the top K can move in
+    @Value("${campustrack.location.boost.depth:20}")
+    private int boostDepth;
+
+    private static final double MIN_SCORE = 0;
+    private static final long FLUSH_RETRY_SECONDS = 10;
+
+    private final Map<Long, Best> lostBest = new HashMap<>();
+    private final Map<Long, Best> foundBest = new HashMap<>();
+    // "found:lost" -> persisted row
+    private final Map<String, MatchSuggestion> pairs = new HashMap<>();
+    // "type:id" -> ids on the other side it currently has a row with
+    private final Map<String, Set<Long>> partners = new HashMap<>();
+    // "found:lost" pairs whose row has changed in memory and not been written yet
+    private final Set<String> dirty = new LinkedHashSet<>();
+    // taken by flush() only: matching workers wait on each other for DB writes, not on the engine
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flushRetry;
+
+    // retries a flush that failed even if no further matching comes along
+    @PostConstruct
+    public void start() {
+        flushRetry = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "match-suggestion-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flushRetry.scheduleWithFixedDelay(this::flush, FLUSH_RETRY_SECONDS, FLUSH_RETRY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushRetry != null) flushRetry.shutdownNow();
+        flush();
+    }
+
+    // Add (or re-add) an item: index it, then merge its pairs into both sides' lists
+    public void onItemAdded(String type, Long id, double[] vector) {
+        if (id == null || vector == null) return;
+        // insert before querying: of two items added concurrently, at least one sees the other
+        itemVectorIndex.put(type, id, vector);
+        List<ScoredItem> hits = score(type, id, vector, true);
+        Set<String> changed;
+        synchronized (this) {
+            if (!itemVectorIndex.contains(type, id)) return;
+            changed = merge(type, id, hits, true);
+            changed.add(type + ":" + id);
+        }
+        flush();
+        publish(changed);
+    }
+
+    // Item archived or deleted: drop its rows and refill the lists it was part of
+    public void onItemRemoved(String type, Long id) {
+        if (id == null) return;
+        String other = opposite(type);
+        itemVectorIndex.remove(type, id);
+        List<Long> affected = new ArrayList<>();
+        synchronized (this) {
+            best(type).remove(id);
+            Set<Long> ps = partners.remove(type + ":" + id);
+            if (ps == null) return;
+            for (Long p : ps) {
+                Best b = best(other).get(p);
+                if (b != null && b.remove(id)) affected.add(p);
+                Set<Long> back = partners.get(other + ":" + p);
+                if (back != null) back.remove(id);
+                if (pairs.remove(pairKey(type, id, p)) != null) dirty.add(pairKey(type, id, p));
+            }
+        }
+        Set<String> changed = new LinkedHashSet<>();
+        for (Long p : affected) {
+            double[] v = embeddingStore.vectorOf(other, p);
+            if (v != null) {
+                List<ScoredItem> hits = score(other, p, v, false);
+                synchronized (this) {
+                    if (itemVectorIndex.contains(other, p)) changed.addAll(merge(other, p, hits, false));
+                }
+            }
+            changed.add(other + ":" + p);
+        }
+        flush();
+        publish(changed);
+    }
+
+    // Score an item against the other side. With reverse, enough hits are returned to update the
+    // partners' lists as well: every candidate when exact, reverse-fanout of them when approximate.
+    private List<ScoredItem> score(String type, Long id, double[] vector, boolean reverse) {
+        String other = opposite(type);
+        int own = rerank && itemVectorIndex.isQuantized() ? Math.max(topK, rerankDepth) : topK;
+        String zone = boosting() ? itemAttributeIndex.zoneOf(type, id) : null;
+        if (zone != null) own = Math.max(own, boostDepth);
+        Set<Long> candidates = itemAttributeIndex.candidates(type, id);
+        List<ScoredItem> hits;
+        if (candidates != null) {
+            int k = reverse ? Math.max(own, candidates.size()) : own;
+            hits = itemVectorIndex.topK(other, vector, k, MIN_SCORE, candidates);
+        } else {
+            int k = !reverse ? own
+                    : itemVectorIndex.isApproximate() ? Math.max(own, reverseFanout)
+                    : Math.max(own, itemVectorIndex.size(other));
+            hits = itemVectorIndex.topK(other, vector, k, MIN_SCORE);
+        }
+        return boost(other, zone, rerank(other, vector, hits));
+    }
+
+    private boolean boosting() {
+        return sameZoneBoost > 0 || nearZoneBoost > 0;
+    }
+
+    // Lift partners in the same or a nearby zone and re-sort; the pair score stays below 1 and is
+    // the same from either side, since nearness is symmetric
+    private List<ScoredItem> boost(String type, String zone, List<ScoredItem> hits) {
+        if (zone == null || hits.isEmpty()) return hits;
+        List<ScoredItem> out = new ArrayList<>(hits.size());
+        boolean moved = false;
+        for (ScoredItem hit : hits) {
+            String theirs = itemAttributeIndex.zoneOf(type, hit.id());
+            double b = zone.equals(theirs) ? sameZoneBoost : gazetteer.isNear(zone, theirs) ? nearZoneBoost : 0;
+            if (b > 0) {
+                out.add(new ScoredItem(hit.id(), hit.score() + b * (1 - hit.score())));
+                moved = true;
+            } else {
+                out.add(hit);
+            }
+        }
+        if (moved) out.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return out;
+    }
+
+    // Replace the quantized scores of the leading hits with exact cosine against the stored vectors,
+    // so the pairs that end up in suggestion lists are ranked and persisted at full precision
+    private List<ScoredItem> rerank(String type, double[] query, List<ScoredItem> hits) {
+        if (!rerank || !itemVectorIndex.isQuantized() || hits.isEmpty()) return hits;
+        int n = Math.min(hits.size(), Math.max(topK, rerankDepth));
+        List<Long> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) ids.add(hits.get(i).id());
+        Map<Long, ItemEmbedding> stored = embeddingStore.findAll(type, ids);
+        List<ScoredItem> out = new ArrayList<>(hits.size());
+        for (int i = 0; i < n; i++) {
+            ScoredItem hit = hits.get(i);
+            double[] full = EmbeddingStore.decode(stored.get(hit.id()));
+            double score = full == null ? hit.score() : AIService.cosine(query, full);
+            if (score >= MIN_SCORE) out.add(new ScoredItem(hit.id(), score));
+        }
+        out.sort((a, b) -> Double.compare(b.score(), a.score()));
+        out.addAll(hits.subList(n, hits.size()));
+        return out;
+    }
+
+    // An item's own best K against the other side, without touching any list (used by RematchJob)
+    public List<ScoredItem> rank(String type, Long id, double[] vector) {
+        List<ScoredItem> hits = score(type, id, vector, false);
+        return hits.size() > topK ? hits.subList(0, topK) : hits;
+    }
+
+    // Replace the lists of a chunk of items with freshly ranked hits and persist the difference in
+    // one go. Partners' lists are left alone; a full re-match reaches them when it does their side.
+    public void replaceAll(String type, Map<Long, List<ScoredItem>> lists) {
+        Set<String> changed = new LinkedHashSet<>();
+        synchronized (this) {
+            Set<String> touched = new LinkedHashSet<>();
+            for (Map.Entry<Long, List<ScoredItem>> e : lists.entrySet()) {
+                long id = e.getKey();
+                if (!itemVectorIndex.contains(type, id)) continue;
+                Best fresh = new Best(topK);
+                for (ScoredItem hit : e.getValue()) fresh.offer(hit.id(), hit.score());
+                Best old = best(type).put(id, fresh);
+                if (fresh.sameAs(old)) continue;
+                if (old != null) for (int i = 0; i < old.size; i++) touched.add(pairKey(type, id, old.ids[i]));
+                for (int i = 0; i < fresh.size; i++) touched.add(pairKey(type, id, fresh.ids[i]));
+                changed.add(type + ":" + id);
+            }
+            sync(touched);
+        }
+        flush();
+        publish(changed);
+    }
+
+    public synchronized List<MatchSuggestion> suggestionsFor(String type, Long id) {
+        Best b = best(type).get(id);
+        List<MatchSuggestion> out = new ArrayList<>();
+        if (b == null) return out;
+        for (int i = 0; i < b.size; i++) {
+            MatchSuggestion row = pairs.get(pairKey(type, id, b.ids[i]));
+            if (row != null) out.add(row);
+        }
+        return out;
+    }
+
+    // Merge scored pairs into the item's own list and (when reverse) into each partner's list,
+    // then bring the persisted rows in line. Returns the "type:id" keys whose list changed.
+    private Set<String> merge(String type, long id, List<ScoredItem> hits, boolean reverse) {
+        String other = opposite(type);
+        Best own = best(type).computeIfAbsent(id, k -> new Best(topK));
+        Set<String> touched = new LinkedHashSet<>();
+        Set<String> changed = new LinkedHashSet<>();
+        for (ScoredItem hit : hits) {
+            long evicted = own.offer(hit.id(), hit.score());
+            if (evicted != Best.REJECTED) {
+                touched.add(pairKey(type, id, hit.id()));
+                if (evicted != Best.NONE) touched.add(pairKey(type, id, evicted));
+                changed.add(type + ":" + id);
+            }
+            if (!reverse) continue;
+            Best theirs = best(other).computeIfAbsent(hit.id(), k -> new Best(topK));
+            long theirEvicted = theirs.offer(id, hit.score());
+            if (theirEvicted != Best.REJECTED) {
+                touched.add(pairKey(type, id, hit.id()));
+                if (theirEvicted != Best.NONE) touched.add(pairKey(other, hit.id(), theirEvicted));
+                changed.add(other + ":" + hit.id());
+            }
+        }
+        sync(touched);
+        return changed;
+    }
+
+    // Bring the in-memory rows of the touched pairs in line: a pair keeps a row while it is in
+    // either item's list. Pairs whose row changed are left for flush() to write.
+    private void sync(Set<String> touched) {
+        for (String key : touched) {
+            String[] parts = key.split(":");
+            long f = Long.parseLong(parts[0]);
+            long l = Long.parseLong(parts[1]);
+            Best fb = foundBest.get(f);
+            Best lb = lostBest.get(l);
+            boolean keep = (fb != null && fb.contains(l)) || (lb != null && lb.contains(f));
+            MatchSuggestion row = pairs.get(key);
+            if (keep) {
+                Double score = fb != null && fb.contains(l) ? fb.scoreOf(l) : lb.scoreOf(f);
+                if (row == null) {
+                    row = new MatchSuggestion();
+                    row.setFoundItemId(f);
+                    row.setLostItemId(l);
+                    pairs.put(key, row);
+                    partners.computeIfAbsent("found:" + f, k -> new HashSet<>()).add(l);
+                    partners.computeIfAbsent("lost:" + l, k -> new HashSet<>()).add(f);
+                }
+                if (!score.equals(row.getScore())) {
+                    row.setScore(score);
+                    dirty.add(key);
+                }
+            } else if (row != null) {
+                pairs.remove(key);
+                Set<Long> a = partners.get("found:" + f);
+                if (a != null) a.remove(l);
+                Set<Long> b = partners.get("lost:" + l);
+                if (b != null) b.remove(f);
+                dirty.add(key);
+            }
+        }
+    }
+
+    // Write every dirty pair as it is in memory now: upsert the ones that have a row, delete the
+    // rest. Flushes run one at a time and each writes the state it read last, so the table ends up
+    // matching memory however callers interleave; after a failure the pairs stay dirty and go out
+    // with the next flush (or the retry timer's).
+    private void flush() {
+        synchronized (flushLock) {
+            List<String> keys;
+            List<MatchSuggestion> upsert = new ArrayList<>();
+            List<MatchSuggestion> delete = new ArrayList<>();
+            synchronized (this) {
+                if (dirty.isEmpty()) return;
+                keys = new ArrayList<>(dirty);
+                dirty.clear();
+                for (String key : keys) {
+                    String[] parts = key.split(":");
+                    MatchSuggestion row = pairs.get(key);
+                    MatchSuggestion copy = new MatchSuggestion();
+                    copy.setFoundItemId(Long.parseLong(parts[0]));
+                    copy.setLostItemId(Long.parseLong(parts[1]));
+                    if (row != null) {
+                        copy.setId(row.getId());
+                        copy.setScore(row.getScore());
+                        upsert.add(copy);
+                    } else {
+                        delete.add(copy);
+                    }
+                }
+            }
+            try {
+                if (!delete.isEmpty()) matchSuggestionWriter.deletePairs(delete);
+                if (!upsert.isEmpty()) matchSuggestionWriter.upsert(upsert);
+            } catch (Exception e) {
+                e.printStackTrace();
+                synchronized (this) {
+                    dirty.addAll(keys);
+                }
+                return;
+            }
+            synchronized (this) {
+                for (MatchSuggestion written : upsert) {
+                    MatchSuggestion row = pairs.get(written.getFoundItemId() + ":" + written.getLostItemId());
+                    if (row != null && row.getId() == null) row.setId(written.getId());
+                }
+            }
+        }
+    }
+
+    private void publish(Set<String> keys) {
+        for (String key : keys) {
+            String[] parts = key.split(":");
+            Long id = Long.parseLong(parts[1]);
+            suggestionPublisher.publish(parts[0], id, suggestionsFor(parts[0], id));
+        }
+    }
+
+    // Rebuild the lists from persisted rows. Rows for items that no longer exist, duplicate rows for
+    // one pair and rows that fall outside both items' top K are deleted.
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        try {
+            Set<Long> lostIds = new HashSet<>(lostItemRepository.findAllIds());
+            Set<Long> foundIds = new HashSet<>(foundItemRepository.findAllIds());
+            List<MatchSuggestion> stale = new ArrayList<>();
+            for (MatchSuggestion row : matchSuggestionRepository.findAll()) {
+                Long f = row.getFoundItemId();
+                Long l = row.getLostItemId();
+                String key = f + ":" + l;
+                if (f == null || l == null || row.getScore() == null || !foundIds.contains(f) || !lostIds.contains(l) || pairs.containsKey(key)) {
+                    stale.add(row);
+                    continue;
+                }
+                pairs.put(key, row);
+                foundBest.computeIfAbsent(f, k -> new Best(topK)).offer(l, row.getScore());
+                lostBest.computeIfAbsent(l, k -> new Best(topK)).offer(f, row.getScore());
+            }
+            for (Iterator<Map.Entry<String, MatchSuggestion>> it = pairs.entrySet().iterator(); it.hasNext(); ) {
+                MatchSuggestion row = it.next().getValue();
+                Best fb = foundBest.get(row.getFoundItemId());
+                Best lb = lostBest.get(row.getLostItemId());
+                if (!fb.contains(row.getLostItemId()) && !lb.contains(row.getFoundItemId())) {
+                    stale.add(row);
+                    it.remove();
+                    continue;
+                }
+                partners.computeIfAbsent("found:" + row.getFoundItemId(), k -> new HashSet<>()).add(row.getLostItemId());
+                partners.computeIfAbsent("lost:" + row.getLostItemId(), k -> new HashSet<>()).add(row.getFoundItemId());
+            }
+            if (!stale.isEmpty()) matchSuggestionWriter.delete(stale);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Map<Long, Best> best(String type) {
+        return "lost".equals(type) ? lostBest : foundBest;
+    }
+
+    private static String opposite(String type) {
+        return "lost".equals(type) ? "found" : "lost";
+    }
+
+    private static String pairKey(String type, long id, long otherId) {
+        return "found".equals(type) ? id + ":" + otherId : otherId + ":" + id;
+    }
+
+    // An item's current best K matches, best first
+    private static final class Best {
+        static final long NONE = Long.MIN_VALUE;
+        static final long REJECTED = Long.MIN_VALUE + 1;
+
+        final long[] ids;
+        final double[] scores;
+        int size;
+
+        Best(int k) {
+            ids = new long[Math.max(1, k)];
+            scores = new double[Math.max(1, k)];
+        }
+
+        boolean contains(long id) {
+            return indexOf(id) >= 0;
+        }
+
+        Double scoreOf(long id) {
+            int i = indexOf(id);
+            return i < 0 ? null : scores[i];
+        }
+
+        // returns REJECTED if the list did not change, the evicted id if one fell out, else NONE
+        long offer(long id, double score) {
+            int at = indexOf(id);
+            if (at >= 0) {
+                if (scores[at] == score) return REJECTED;
+                removeAt(at);
+            } else if (size == ids.length && score <= scores[size - 1]) {
+                return REJECTED;
+            }
+            long evicted = NONE;
+            if (size == ids.length) {
+                evicted = ids[size - 1];
+                size--;
+            }
+            int i = size;
+            while (i > 0 && scores[i - 1] < score) {
+                ids[i] = ids[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            ids[i] = id;
+            scores[i] = score;
+            size++;
+            return evicted;
+        }
+
+        boolean sameAs(Best other) {
+            if (other == null || other.size != size) return false;
+            for (int i = 0; i < size; i++) {
+                if (ids[i] != other.ids[i] || scores[i] != other.scores[i]) return false;
+            }
+            return true;
+        }
+
+        boolean remove(long id) {
+            int i = indexOf(id);
+            if (i < 0) return false;
+            removeAt(i);
+            return true;
+        }
+
+        private void removeAt(int i) {
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+            size--;
+        }
+
+        private int indexOf(long id) {
+            for (int i = 0; i < size; i++) if (ids[i] == id) return i;
+            return -1;
+        }
+    }
+}
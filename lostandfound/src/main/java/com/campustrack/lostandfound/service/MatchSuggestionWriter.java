@@ -0,0 +1,103 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.model.MatchSuggestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+// Writes match_suggestion rows with JDBC batches. The ids are IDENTITY columns, which stops
+// Hibernate from batching inserts, so a re-match that rewrites thousands of rows would otherwise
+// cost one round trip per row. Rows are written by pair (uk_match_suggestion_pair); new rows get
+// their id set.
+@Component
+public class MatchSuggestionWriter {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${campustrack.matching.jdbc-batch-size:500}")
+    private int batchSize;
+
+    // Insert or rescore rows by their (found, lost) pair, so writing the same state twice is harmless,
+    // then look up the ids of rows that did not have one yet
+    public void upsert(List<MatchSuggestion> rows) {
+        for (List<MatchSuggestion> part : partition(rows)) {
+            jdbcTemplate.batchUpdate("insert into match_suggestion (found_item_id, lost_item_id, score) values (?, ?, ?) "
+                    + "on duplicate key update score = values(score)", setter(part, (ps, row) -> {
+                ps.setLong(1, row.getFoundItemId());
+                ps.setLong(2, row.getLostItemId());
+                ps.setDouble(3, row.getScore());
+            }));
+        }
+        List<MatchSuggestion> missing = new ArrayList<>();
+        for (MatchSuggestion row : rows) if (row.getId() == null) missing.add(row);
+        for (List<MatchSuggestion> part : partition(missing)) {
+            Map<String, MatchSuggestion> byPair = new HashMap<>();
+            List<Object> args = new ArrayList<>();
+            StringJoiner in = new StringJoiner(", ", "(", ")");
+            for (MatchSuggestion row : part) {
+                byPair.put(row.getFoundItemId() + ":" + row.getLostItemId(), row);
+                args.add(row.getFoundItemId());
+                args.add(row.getLostItemId());
+                in.add("(?, ?)");
+            }
+            jdbcTemplate.query("select id, found_item_id, lost_item_id from match_suggestion where (found_item_id, lost_item_id) in " + in,
+                    rs -> {
+                        MatchSuggestion row = byPair.get(rs.getLong(2) + ":" + rs.getLong(3));
+                        if (row != null) row.setId(rs.getLong(1));
+                    }, args.toArray());
+        }
+    }
+
+    public void deletePairs(List<MatchSuggestion> rows) {
+        for (List<MatchSuggestion> part : partition(rows)) {
+            jdbcTemplate.batchUpdate("delete from match_suggestion where found_item_id = ? and lost_item_id = ?",
+                    setter(part, (ps, row) -> {
+                        ps.setLong(1, row.getFoundItemId());
+                        ps.setLong(2, row.getLostItemId());
+                    }));
+        }
+    }
+
+    public void delete(List<MatchSuggestion> rows) {
+        for (List<MatchSuggestion> part : partition(rows)) {
+            jdbcTemplate.batchUpdate("delete from match_suggestion where id = ?",
+                    setter(part, (ps, row) -> ps.setLong(1, row.getId())));
+        }
+    }
+
+    private List<List<MatchSuggestion>> partition(List<MatchSuggestion> rows) {
+        int n = Math.max(1, batchSize);
+        List<List<MatchSuggestion>> out = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += n) out.add(rows.subList(i, Math.min(rows.size(), i + n)));
+        return out;
+    }
+
+    private interface RowBinder {
+        void bind(PreparedStatement ps, MatchSuggestion row) throws SQLException;
+    }
+
+    private static BatchPreparedStatementSetter setter(List<MatchSuggestion> rows, RowBinder binder) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                binder.bind(ps, rows.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        };
+    }
+}
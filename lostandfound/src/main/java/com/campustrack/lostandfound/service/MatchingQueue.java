@@ -0,0 +1,200 @@
+package com.campustrack.lostandfound.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs background matching jobs (embedding + index lookup + saving suggestions) on a fixed number
+// of workers with a bounded queue, so a burst of reports cannot start hundreds of threads that all
+// hit MySQL and the AI service at once. A job for an item that is already waiting is dropped.
+// When the queue is full, policy "reject" turns away the new job and "shed-oldest" the longest
+// waiting one; that job is parked like a deferred one rather than lost, so the item is still
+// indexed and matched once the queue has room.
+// Jobs that cannot run because the AI service is down, or whose embedding failed, are parked with
+// defer() and put back on the queue by resumeDeferred() once it is reachable again (and on a timer).
+@Component
+public class MatchingQueue {
+
+    private final ThreadPoolExecutor executor;
+    private final String policy;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final LinkedHashMap<String, Runnable> deferred = new LinkedHashMap<>();
+    private final int deferredCapacity;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder deferrals = new LongAdder();
+    private final LongAdder resumed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public MatchingQueue(@Value("${campustrack.matching.queue.concurrency:4}") int concurrency,
+                         @Value("${campustrack.matching.queue.capacity:1000}") int capacity,
+                         @Value("${campustrack.matching.queue.policy:shed-oldest}") String policy,
+                         @Value("${campustrack.matching.queue.virtual-threads:true}") boolean virtualThreads) {
+        this.policy = "reject".equalsIgnoreCase(policy) ? "reject" : "shed-oldest";
+        ThreadFactory factory = virtualThreads
+                ? Thread.ofVirtual().name("matching-", 0).factory()
+                : Thread.ofPlatform().name("matching-", 0).daemon(true).factory();
+        this.deferredCapacity = Math.max(1, capacity);
+        int workers = Math.max(1, concurrency);
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacity)), factory, this::onFull);
+    }
+
+    private final class MatchJob implements Runnable {
+        final String key;
+        final Runnable work;
+        final long enqueuedAt = System.nanoTime();
+        volatile boolean dropped;
+
+        MatchJob(String key, Runnable work) {
+            this.key = key;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            queued.remove(key);
+            long start = System.nanoTime();
+            record(totalWaitNanos, maxWaitNanos, start - enqueuedAt);
+            try {
+                work.run();
+                completed.increment();
+            } catch (Exception e) {
+                failed.increment();
+                e.printStackTrace();
+            } finally {
+                record(totalRunNanos, maxRunNanos, System.nanoTime() - start);
+            }
+        }
+    }
+
+    // Queue a matching job for an item; returns false if it was a duplicate or had to be parked
+    public boolean submit(String type, Long id, Runnable work) {
+        return submit(type + ":" + id, work);
+    }
+
+    private boolean submit(String key, Runnable work) {
+        if (!queued.add(key)) {
+            deduplicated.increment();
+            return false;
+        }
+        submitted.increment();
+        MatchJob job = new MatchJob(key, work);
+        executor.execute(job);
+        return !job.dropped;
+    }
+
+    // Park a job until resumeDeferred(); a newer job for the same item replaces the older one,
+    // and past capacity the oldest parked job is dropped
+    public void defer(String type, Long id, Runnable work) {
+        defer(type + ":" + id, work);
+    }
+
+    private void defer(String key, Runnable work) {
+        synchronized (deferred) {
+            deferred.remove(key);
+            deferred.put(key, work);
+            if (deferred.size() > deferredCapacity) {
+                Iterator<String> it = deferred.keySet().iterator();
+                it.next();
+                it.remove();
+                shed.increment();
+            }
+        }
+        deferrals.increment();
+    }
+
+    // Queue up to max parked jobs, oldest first, as far as the queue has room; returns how many
+    // were taken
+    public int resumeDeferred(int max) {
+        max = Math.min(max, executor.getQueue().remainingCapacity());
+        List<Map.Entry<String, Runnable>> batch = new ArrayList<>();
+        synchronized (deferred) {
+            Iterator<Map.Entry<String, Runnable>> it = deferred.entrySet().iterator();
+            while (it.hasNext() && batch.size() < max) {
+                batch.add(it.next());
+                it.remove();
+            }
+        }
+        for (Map.Entry<String, Runnable> e : batch) submit(e.getKey(), e.getValue());
+        resumed.add(batch.size());
+        return batch.size();
+    }
+
+    private void onFull(Runnable r, ThreadPoolExecutor ex) {
+        MatchJob job = (MatchJob) r;
+        if (!ex.isShutdown() && "shed-oldest".equals(policy)) {
+            Runnable oldest = ex.getQueue().poll();
+            if (oldest instanceof MatchJob o) {
+                o.dropped = true;
+                queued.remove(o.key);
+                shed.increment();
+                defer(o.key, o.work);
+            }
+            if (ex.getQueue().offer(job)) return;
+        }
+        job.dropped = true;
+        queued.remove(job.key);
+        rejected.increment();
+        if (!ex.isShutdown()) defer(job.key, job.work);
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public Map<String, Object> stats() {
+        long done = completed.sum() + failed.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("policy", policy);
+        out.put("workers", executor.getMaximumPoolSize());
+        out.put("active", executor.getActiveCount());
+        out.put("queueDepth", executor.getQueue().size());
+        out.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        out.put("submitted", submitted.sum());
+        out.put("completed", completed.sum());
+        out.put("failed", failed.sum());
+        out.put("deduplicated", deduplicated.sum());
+        out.put("rejected", rejected.sum());
+        out.put("shed", shed.sum());
+        synchronized (deferred) {
+            out.put("deferredNow", deferred.size());
+        }
+        out.put("deferrals", deferrals.sum());
+        out.put("resumed", resumed.sum());
+        out.put("avgWaitMs", done == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / done);
+        out.put("maxWaitMs", maxWaitNanos.get() / 1e6);
+        out.put("avgRunMs", done == 0 ? 0.0 : totalRunNanos.sum() / 1e6 / done);
+        out.put("maxRunMs", maxRunNanos.get() / 1e6);
+        return out;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
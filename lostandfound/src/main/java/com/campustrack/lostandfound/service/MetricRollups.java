@@ -0,0 +1,235 @@
+package com.campustrack.lostandfound.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Time-series counts for the admin console, pre-aggregated into minute, hour and day buckets in
+// metric_rollups (one row per metric, granularity and bucket start). Write paths call record();
+// events are summed in memory per minute and every flush-seconds each pending minute is added to
+// its minute, hour and day rows with one batched upsert. A chart then reads a single index range
+// of at most a few thousand rows however much history there is. Minute rows are kept for
+// minute-retention-days and hour rows for hour-retention-days; day rows are kept for good.
+// History from before this existed was rolled up by the V4 migration.
+@Component
+public class MetricRollups {
+
+    public static final String LOST_REPORTED = "lost.reported";
+    public static final String FOUND_REPORTED = "found.reported";
+    public static final String MATCH_CONFIRMED = "match.confirmed";
+    public static final String ITEM_RECOVERED = "item.recovered";
+    // one event per recovery with a known lost time; total is the seconds from lost to archived
+    public static final String RECOVERY_SECONDS = "item.recovery-seconds";
+    public static final String CHAT_MESSAGES = "chat.messages";
+    public static final List<String> METRICS = List.of(LOST_REPORTED, FOUND_REPORTED, MATCH_CONFIRMED, ITEM_RECOVERED,
+            RECOVERY_SECONDS, CHAT_MESSAGES);
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public LocalDateTime bucketOf(LocalDateTime t) {
+            return t.truncatedTo(unit);
+        }
+
+        public static Granularity parse(String s) {
+            for (Granularity g : values()) if (g.key().equalsIgnoreCase(s.trim())) return g;
+            throw new IllegalArgumentException("Unknown granularity: " + s + " (minute, hour or day)");
+        }
+    }
+
+    public record Point(LocalDateTime t, long events, double total) {
+    }
+
+    private record Bucket(String metric, Granularity granularity, LocalDateTime start) {
+    }
+
+    private static final int MAX_POINTS = 5000;
+    private static final String UPSERT = "insert into metric_rollups (metric, granularity, bucket_start, events, total) values (?, ?, ?, ?, ?) "
+            + "on duplicate key update events = events + values(events), total = total + values(total)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${campustrack.analytics.flush-seconds:10}")
+    private long flushSeconds;
+
+    @Value("${campustrack.analytics.minute-retention-days:7}")
+    private long minuteRetentionDays;
+
+    @Value("${campustrack.analytics.hour-retention-days:400}")
+    private long hourRetentionDays;
+
+    // minute bucket -> {events, total}; swapped out whole by flush()
+    private Map<Bucket, double[]> pending = new HashMap<>();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder rowsUpserted = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metric-rollups");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushSeconds, Math.max(1, flushSeconds), TimeUnit.SECONDS);
+        flusher.scheduleWithFixedDelay(this::purge, 1, 24 * 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) flusher.shutdownNow();
+        flush();
+    }
+
+    public void record(String metric, LocalDateTime at) {
+        record(metric, at, 0);
+    }
+
+    public void record(String metric, LocalDateTime at, double value) {
+        Bucket k = new Bucket(metric, Granularity.MINUTE, Granularity.MINUTE.bucketOf(at == null ? LocalDateTime.now() : at));
+        synchronized (this) {
+            double[] v = pending.computeIfAbsent(k, x -> new double[2]);
+            v[0]++;
+            v[1] += value;
+        }
+        recorded.increment();
+    }
+
+    // Add the pending minutes to their minute, hour and day rows in one transaction; on failure
+    // nothing was added, so they are put back and go out with the next flush
+    public void flush() {
+        Map<Bucket, double[]> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        Map<Bucket, double[]> all = new LinkedHashMap<>(batch);
+        for (Map.Entry<Bucket, double[]> e : batch.entrySet()) {
+            for (Granularity g : List.of(Granularity.HOUR, Granularity.DAY)) {
+                Bucket minute = e.getKey();
+                double[] sum = all.computeIfAbsent(new Bucket(minute.metric(), g, g.bucketOf(minute.start())), x -> new double[2]);
+                sum[0] += e.getValue()[0];
+                sum[1] += e.getValue()[1];
+            }
+        }
+        List<Object[]> rows = new ArrayList<>(all.size());
+        for (Map.Entry<Bucket, double[]> e : all.entrySet()) {
+            Bucket b = e.getKey();
+            rows.add(new Object[]{b.metric(), b.granularity().key(), Timestamp.valueOf(b.start()), (long) e.getValue()[0], e.getValue()[1]});
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT, rows));
+            flushes.increment();
+            rowsUpserted.add(rows.size());
+        } catch (Exception e) {
+            flushFailures.increment();
+            e.printStackTrace();
+            synchronized (this) {
+                for (Map.Entry<Bucket, double[]> b : batch.entrySet()) {
+                    double[] v = pending.computeIfAbsent(b.getKey(), x -> new double[2]);
+                    v[0] += b.getValue()[0];
+                    v[1] += b.getValue()[1];
+                }
+            }
+        }
+    }
+
+    private void purge() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (String metric : METRICS) {
+                jdbcTemplate.update("delete from metric_rollups where metric = ? and granularity = ? and bucket_start < ?",
+                        metric, Granularity.MINUTE.key(), Timestamp.valueOf(now.minusDays(minuteRetentionDays)));
+                jdbcTemplate.update("delete from metric_rollups where metric = ? and granularity = ? and bucket_start < ?",
+                        metric, Granularity.HOUR.key(), Timestamp.valueOf(now.minusDays(hourRetentionDays)));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Buckets in [from, to), oldest first, with empty buckets filled in as zeros
+    public List<Point> series(String metric, Granularity g, LocalDateTime from, LocalDateTime to) {
+        requireMetric(metric);
+        LocalDateTime start = g.bucketOf(from);
+        long buckets = Duration.between(start, to).toMinutes() / Duration.of(1, g.unit).toMinutes() + 1;
+        if (buckets > MAX_POINTS) {
+            throw new IllegalArgumentException("Range too long for " + g.key() + " buckets (at most " + MAX_POINTS + ")");
+        }
+        Map<LocalDateTime, Point> found = new HashMap<>();
+        jdbcTemplate.query("select bucket_start, events, total from metric_rollups where metric = ? and granularity = ? "
+                        + "and bucket_start >= ? and bucket_start < ? order by bucket_start",
+                rs -> {
+                    LocalDateTime t = rs.getTimestamp(1).toLocalDateTime();
+                    found.put(t, new Point(t, rs.getLong(2), rs.getDouble(3)));
+                },
+                metric, g.key(), Timestamp.valueOf(start), Timestamp.valueOf(to));
+        List<Point> out = new ArrayList<>();
+        for (LocalDateTime t = start; t.isBefore(to); t = t.plus(1, g.unit)) {
+            out.add(found.getOrDefault(t, new Point(t, 0, 0)));
+        }
+        return out;
+    }
+
+    // Events and total per metric over [from, to), counted in whole buckets of g
+    public Map<String, Point> totals(Granularity g, LocalDateTime from, LocalDateTime to) {
+        Map<String, Point> out = new LinkedHashMap<>();
+        for (String metric : METRICS) {
+            jdbcTemplate.query("select coalesce(sum(events), 0), coalesce(sum(total), 0) from metric_rollups "
+                            + "where metric = ? and granularity = ? and bucket_start >= ? and bucket_start < ?",
+                    rs -> {
+                        out.put(metric, new Point(null, rs.getLong(1), rs.getDouble(2)));
+                    },
+                    metric, g.key(), Timestamp.valueOf(g.bucketOf(from)), Timestamp.valueOf(to));
+        }
+        return out;
+    }
+
+    private static void requireMetric(String metric) {
+        if (!METRICS.contains(metric)) throw new IllegalArgumentException("Unknown metric: " + metric + " " + METRICS);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (this) {
+            out.put("pendingBuckets", pending.size());
+        }
+        out.put("recorded", recorded.sum());
+        out.put("flushes", flushes.sum());
+        out.put("flushFailures", flushFailures.sum());
+        out.put("rowsUpserted", rowsUpserted.sum());
+        return out;
+    }
+}
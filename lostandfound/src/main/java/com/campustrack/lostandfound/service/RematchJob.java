@@ -0,0 +1,286 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.matching.ScoredItem;
+import com.campustrack.lostandfound.model.FoundItem;
+import com.campustrack.lostandfound.model.ItemEmbedding;
+import com.campustrack.lostandfound.model.LostItem;
+import com.campustrack.lostandfound.model.RematchRun;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.repository.RematchRunRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+// Admin-triggered full re-match: every open item's suggestion list is recomputed from scratch,
+// e.g. after changing top-k, the pre-filter rules or the embedding model (reembed=true first
+// embeds every item again). Items are walked in id order in chunks; a chunk is scored in parallel
+// on a fork/join pool and its rows are written in JDBC batches. The RematchRun row records the
+// phase and last finished id after each chunk, so a run interrupted by a crash or redeploy
+// carries on from there at the next startup. Items of a chunk that fail to re-embed are retried
+// (after waiting for the provider if it is down); if they still fail the run stops as FAILED with
+// its checkpoint before that chunk, so old vectors are never passed off as a finished re-embed.
+@Component
+public class RematchJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String FAILED = "FAILED";
+
+    private static final List<String> PHASES = List.of("EMBED_LOST", "EMBED_FOUND", "SCORE_LOST", "SCORE_FOUND");
+
+    @Autowired
+    private RematchRunRepository rematchRunRepository;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Autowired
+    private EmbeddingStore embeddingStore;
+
+    @Autowired
+    private MatchEngine matchEngine;
+
+    @Autowired
+    private AIService aiService;
+
+    @Value("${campustrack.matching.rematch.chunk-size:200}")
+    private int chunkSize;
+
+    // fork/join workers scoring a chunk; 0 = one per core
+    @Value("${campustrack.matching.rematch.parallelism:0}")
+    private int parallelism;
+
+    // further attempts for the items of a chunk that could not be re-embedded
+    @Value("${campustrack.matching.rematch.embed-retries:3}")
+    private int embedRetries;
+
+    @Value("${campustrack.matching.rematch.embed-retry-seconds:10}")
+    private long embedRetrySeconds;
+
+    private volatile RematchRun current;
+    private volatile boolean cancelRequested;
+    // set on shutdown: the worker stops after its current chunk and the run stays RUNNING
+    private volatile boolean stopping;
+    private Thread worker;
+    // throughput is measured over this process's part of the run
+    private volatile long sessionStartNanos;
+    private volatile long sessionStartProcessed;
+    // items whose re-embed failed in this process, retries included
+    private volatile long embedFailures;
+
+    // Start a new run; throws IllegalStateException while one is already running
+    public synchronized RematchRun start(boolean reembed) {
+        if (isRunning()) throw new IllegalStateException("A re-match is already running");
+        RematchRun run = new RematchRun();
+        run.setStatus(RUNNING);
+        run.setReembed(reembed);
+        run.setPhase(reembed ? PHASES.get(0) : PHASES.get(2));
+        long items = lostItemRepository.count() + foundItemRepository.count();
+        run.setTotal(reembed ? items * 2 : items);
+        launch(rematchRunRepository.save(run));
+        return run;
+    }
+
+    public synchronized boolean cancel() {
+        if (!isRunning()) return false;
+        cancelRequested = true;
+        return true;
+    }
+
+    public synchronized boolean isRunning() {
+        return worker != null && worker.isAlive();
+    }
+
+    // Pick up a run the previous process did not finish
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resume() {
+        try {
+            rematchRunRepository.findFirstByStatusOrderByIdDesc(RUNNING).ifPresent(this::launch);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void launch(RematchRun run) {
+        current = run;
+        cancelRequested = false;
+        worker = new Thread(() -> execute(run), "rematch");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void execute(RematchRun run) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        try {
+            // scoring needs both sides of the index loaded
+            while (!aiService.isIndexReady()) {
+                if (stopping) return;
+                Thread.sleep(1000);
+            }
+            sessionStartNanos = System.nanoTime();
+            sessionStartProcessed = run.getProcessed();
+            embedFailures = 0;
+            for (int p = PHASES.indexOf(run.getPhase()); p < PHASES.size() && !cancelRequested && !stopping; p++) {
+                if (p != PHASES.indexOf(run.getPhase())) {
+                    run.setPhase(PHASES.get(p));
+                    run.setLastId(0L);
+                    checkpoint(run);
+                }
+                runPhase(run, pool);
+            }
+            if (stopping) return;
+            run.setStatus(cancelRequested ? CANCELLED : COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+        } catch (Exception e) {
+            // shutting down: leave the run RUNNING so the next start resumes it
+            if (stopping) return;
+            e.printStackTrace();
+            run.setStatus(FAILED);
+            run.setMessage(String.valueOf(e.getMessage()));
+            run.setFinishedAt(LocalDateTime.now());
+        } finally {
+            pool.shutdown();
+        }
+        checkpoint(run);
+    }
+
+    private void runPhase(RematchRun run, ForkJoinPool pool) throws Exception {
+        String type = run.getPhase().endsWith("LOST") ? "lost" : "found";
+        boolean embed = run.getPhase().startsWith("EMBED");
+        while (!cancelRequested && !stopping) {
+            PageRequest page = PageRequest.of(0, Math.max(1, chunkSize));
+            List<?> chunk = "lost".equals(type)
+                    ? lostItemRepository.findChunkAfter(run.getLastId(), page)
+                    : foundItemRepository.findChunkAfter(run.getLastId(), page);
+            if (chunk.isEmpty()) return;
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Object item : chunk) ids.add(item instanceof LostItem li ? li.getId() : ((FoundItem) item).getId());
+            if (embed) {
+                if (!reembedChunk(chunk)) return;
+            } else {
+                scoreChunk(type, ids, pool);
+            }
+            run.setLastId(ids.get(ids.size() - 1));
+            run.setProcessed(run.getProcessed() + ids.size());
+            checkpoint(run);
+        }
+    }
+
+    // Re-embed a chunk, retrying the items that failed; false if the run stopped before all of them
+    // succeeded (the checkpoint then still points before this chunk)
+    private boolean reembedChunk(List<?> chunk) throws InterruptedException {
+        List<?> remaining = reembed(chunk);
+        for (int attempt = 1; !remaining.isEmpty() && attempt <= embedRetries; attempt++) {
+            if (!pause(embedRetrySeconds * attempt)) return false;
+            remaining = reembed(remaining);
+        }
+        if (remaining.isEmpty()) return true;
+        throw new IllegalStateException(remaining.size() + " item(s) could not be re-embedded after "
+                + embedRetries + " retries; the run stopped before this chunk");
+    }
+
+    // all embeddings are requested together so the batcher can group them; returns the items
+    // whose embedding failed or came back empty
+    private List<?> reembed(List<?> items) {
+        List<CompletableFuture<double[]>> pending = new ArrayList<>(items.size());
+        for (Object item : items) {
+            pending.add(item instanceof LostItem li ? aiService.reembed(li) : aiService.reembed((FoundItem) item));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        List<Object> failed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            CompletableFuture<double[]> f = pending.get(i);
+            if (f.isCompletedExceptionally() || f.join() == null) failed.add(items.get(i));
+        }
+        embedFailures += failed.size();
+        return failed;
+    }
+
+    // sleep before a retry, and on past it while the provider is down; false if the run was
+    // cancelled or the app is stopping
+    private boolean pause(long seconds) throws InterruptedException {
+        long until = System.currentTimeMillis() + seconds * 1000;
+        while (System.currentTimeMillis() < until || !aiService.isProviderAvailable()) {
+            if (cancelRequested || stopping) return false;
+            Thread.sleep(500);
+        }
+        return true;
+    }
+
+    private void scoreChunk(String type, List<Long> ids, ForkJoinPool pool) throws Exception {
+        Map<Long, ItemEmbedding> stored = embeddingStore.findAll(type, ids);
+        Map<Long, List<ScoredItem>> lists = new ConcurrentHashMap<>();
+        pool.submit(() -> ids.parallelStream().forEach(id -> {
+            double[] v = EmbeddingStore.decode(stored.get(id));
+            if (v != null) lists.put(id, matchEngine.rank(type, id, v));
+        })).get();
+        // apply in id order so rows are written in a stable order
+        matchEngine.replaceAll(type, new TreeMap<>(lists));
+    }
+
+    private void checkpoint(RematchRun run) {
+        try {
+            run.setUpdatedAt(LocalDateTime.now());
+            rematchRunRepository.save(run);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Current or most recent run: phase, processed/total, items per second and ETA
+    public Map<String, Object> progress() {
+        RematchRun run = current;
+        if (run == null) run = rematchRunRepository.findFirstByOrderByIdDesc().orElse(null);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("running", isRunning());
+        if (run == null) return out;
+        out.put("runId", run.getId());
+        out.put("status", run.getStatus());
+        out.put("phase", run.getPhase());
+        out.put("reembed", run.isReembed());
+        out.put("lastId", run.getLastId());
+        out.put("processed", run.getProcessed());
+        out.put("total", run.getTotal());
+        out.put("percent", run.getTotal() == 0 ? 100.0 : Math.min(100.0, 100.0 * run.getProcessed() / run.getTotal()));
+        double itemsPerSec = 0;
+        if (isRunning() && sessionStartNanos > 0) {
+            double secs = (System.nanoTime() - sessionStartNanos) / 1e9;
+            if (secs > 0) itemsPerSec = (run.getProcessed() - sessionStartProcessed) / secs;
+        } else if (run.getFinishedAt() != null && run.getStartedAt() != null) {
+            double secs = Duration.between(run.getStartedAt(), run.getFinishedAt()).toMillis() / 1000.0;
+            if (secs > 0) itemsPerSec = run.getProcessed() / secs;
+        }
+        out.put("itemsPerSec", itemsPerSec);
+        out.put("embedFailures", embedFailures);
+        long remaining = Math.max(0, run.getTotal() - run.getProcessed());
+        out.put("etaSeconds", RUNNING.equals(run.getStatus()) && itemsPerSec > 0 ? Math.round(remaining / itemsPerSec) : null);
+        out.put("parallelism", parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        out.put("chunkSize", chunkSize);
+        out.put("startedAt", run.getStartedAt());
+        out.put("updatedAt", run.getUpdatedAt());
+        out.put("finishedAt", run.getFinishedAt());
+        out.put("message", run.getMessage());
+        return out;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.campustrack.lostandfound.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+// Embeddings from the Python AI service (MiniLM text + MobileNetV2 image vectors).
+// Concurrent callers are grouped into one /predict_batch/ request when batching is enabled.
+@Component
+public class RemoteEmbeddingProvider implements EmbeddingProvider {
+
+    private final String AI_URL = "http://127.0.0.1:8000/predict_match/";
+
+    @Autowired
+    private AIClient aiClient;
+
+    @Autowired
+    private EmbeddingBatcher embeddingBatcher;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record EmbeddingResponse(@JsonProperty("embedding_vector") double[] vector) {
+    }
+
+    @Override
+    public String name() {
+        return "remote";
+    }
+
+    @Override
+    public CompletableFuture<double[]> embed(String description, File imageFile) {
+        if (embeddingBatcher.isEnabled()) return embeddingBatcher.submit(description, imageFile);
+        return CompletableFuture.completedFuture(postEmbedding(description, imageFile));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return aiClient.isAvailable();
+    }
+
+    private double[] postEmbedding(String description, File imageFile) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("description", description == null ? "" : description);
+        if (imageFile != null && imageFile.exists()) {
+            body.add("image_file", new FileSystemResource(imageFile));
+        }
+        EmbeddingResponse response = aiClient.postMultipart(AI_URL, body, EmbeddingResponse.class);
+        return response == null ? null : response.vector();
+    }
+}
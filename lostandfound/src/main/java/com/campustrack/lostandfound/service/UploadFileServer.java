@@ -0,0 +1,250 @@
+package com.campustrack.lostandfound.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serves /uploads/** with caching built for images that never change:
+// - strong ETag from the content: the hash in a content-addressed name, or a memoized SHA-256
+//   of legacy files; If-None-Match / If-Modified-Since answer 304 without a body
+// - Cache-Control immutable for a year on content-addressed names (a new photo is a new URL)
+// - single byte ranges (206 / 416, If-Range honoured); multi-range requests get the whole file
+// - bodies of at least sendfile-min-bytes go out with Tomcat's sendfile when the connector
+//   supports it, so those bytes never pass through the heap; smaller bodies, and everything on a
+//   connector without sendfile, are copied through the servlet output stream's buffer
+@Component
+public class UploadFileServer {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final int MAX_MEMOIZED_ETAGS = 10_000;
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final Path root;
+    private final long mutableMaxAgeSeconds;
+    private final long sendfileMinBytes;
+    // legacy (not content-addressed) files: path:size:mtime -> ETag
+    private final ConcurrentHashMap<String, String> legacyEtags = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder partial = new LongAdder();
+    private final LongAdder unsatisfiable = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder sendfile = new LongAdder();
+    private final LongAdder channelTransfers = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    public UploadFileServer(@Value("${campustrack.uploads.serve.legacy-max-age-seconds:86400}") long mutableMaxAgeSeconds,
+                            @Value("${campustrack.uploads.serve.sendfile-min-bytes:49152}") long sendfileMinBytes) {
+        this.root = Paths.get(System.getProperty("user.dir"), "uploads").toAbsolutePath().normalize();
+        this.mutableMaxAgeSeconds = mutableMaxAgeSeconds;
+        this.sendfileMinBytes = sendfileMinBytes;
+    }
+
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        requests.increment();
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        String rel = UriUtils.decode(uri.substring("/uploads/".length()), StandardCharsets.UTF_8);
+        Path file = root.resolve(rel).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            notFound.increment();
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        boolean immutable = UploadStore.isContentAddressed(file);
+        String etag = etagOf(file, length, lastModified, immutable);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable
+                ? "public, max-age=31536000, immutable"
+                : "public, max-age=" + mutableMaxAgeSeconds);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(request, etag, lastModified)) {
+            notModified.increment();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            long[] r = parseRange(range, length);
+            if (r == UNSATISFIABLE) {
+                unsatisfiable.increment();
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (r != null) {
+                start = r[0];
+                end = r[1];
+                partial.increment();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) return;
+        transfer(request, response, file, start, count);
+    }
+
+    private void transfer(HttpServletRequest request, HttpServletResponse response, Path file, long start, long count) throws IOException {
+        bytesSent.add(count);
+        if (count >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat writes the file with sendfile(2) after this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            sendfile.increment();
+            return;
+        }
+        // the servlet stream is not a file/socket channel, so transferTo falls back to a buffered copy
+        channelTransfers.increment();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long pos = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long n = in.transferTo(pos, remaining, out);
+                if (n <= 0) break;
+                pos += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    // Content-addressed names carry their hash; legacy files are hashed once per size/mtime
+    private String etagOf(Path file, long length, long lastModified, boolean immutable) throws IOException {
+        String name = file.getFileName().toString();
+        if (immutable) {
+            int dot = name.lastIndexOf('.');
+            return "\"" + (dot > 0 ? name.substring(0, dot) : name) + "\"";
+        }
+        String key = file + ":" + length + ":" + lastModified;
+        String cached = legacyEtags.get(key);
+        if (cached != null) return cached;
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+            String etag = "\"" + HexFormat.of().formatHex(md.digest()) + "\"";
+            if (legacyEtags.size() >= MAX_MEMOIZED_ETAGS) legacyEtags.clear();
+            legacyEtags.put(key, etag);
+            return etag;
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // If-None-Match wins over If-Modified-Since (RFC 9110 13.2.2)
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String inm = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (inm != null) {
+            for (String candidate : inm.split(",")) {
+                String c = candidate.trim();
+                if (c.equals("*") || stripWeak(c).equals(etag)) return true;
+            }
+            return false;
+        }
+        long since = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    // A Range is only honoured while the client's copy (If-Range) is still current
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        String v = ifRange.trim();
+        if (v.startsWith("\"")) return v.equals(etag);
+        if (v.startsWith("W/")) return false;
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    // {start, end} inclusive, UNSATISFIABLE, or null to ignore the header and send everything
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=")) return null;
+        String spec = header.substring("bytes=".length()).trim();
+        if (spec.contains(",")) return null;
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String a = spec.substring(0, dash).trim();
+            String b = spec.substring(dash + 1).trim();
+            if (a.isEmpty()) {
+                long suffix = Long.parseLong(b);
+                if (suffix <= 0 || length == 0) return UNSATISFIABLE;
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(a);
+            long end = b.isEmpty() ? length - 1 : Long.parseLong(b);
+            if (start < 0 || (!b.isEmpty() && end < start)) return null;
+            if (start >= length) return UNSATISFIABLE;
+            return new long[]{start, Math.min(end, length - 1)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("requests", requests.sum());
+        out.put("notModified", notModified.sum());
+        out.put("partial", partial.sum());
+        out.put("unsatisfiable", unsatisfiable.sum());
+        out.put("notFound", notFound.sum());
+        out.put("sendfile", sendfile.sum());
+        out.put("channelTransfers", channelTransfers.sum());
+        out.put("bytesSent", bytesSent.sum());
+        out.put("memoizedEtags", legacyEtags.size());
+        return out;
+    }
+}
@@ -0,0 +1,329 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.model.BackupRecord;
+import com.campustrack.lostandfound.model.FoundItem;
+import com.campustrack.lostandfound.model.LostItem;
+import com.campustrack.lostandfound.model.StoredBlob;
+import com.campustrack.lostandfound.repository.BackupRepository;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.repository.StoredBlobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Content-addressed upload storage. A file is hashed (SHA-256) while it is streamed to a temp
+// file and then moved to uploads/ab/cd/<hash>.<ext>, two levels of 256 shards so no directory
+// grows past a few dozen entries even at millions of files. The same photo posted twice is stored
+// once. Renditions live next to the original as <hash>_<kind>.jpg.
+// Every lost/found item and backup record holding a blob's URL counts one reference; a blob that
+// has had no references for the grace period is deleted together with its renditions. put() and
+// GC take a per-hash lock, so a collected blob's files are never removed under an upload that has
+// just stored or re-used the same content.
+// Files written before this (flat uploads/<millis>_<name>) are left alone and not counted.
+@Component
+public class UploadStore {
+
+    private static final Pattern BLOB_URL = Pattern.compile("^/uploads/[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})[._][^/]*$");
+    private static final Pattern BLOB_FILE = Pattern.compile("^[0-9a-f]{64}([._][A-Za-z0-9_.]*)?$");
+    private static final int GC_PAGE_SIZE = 500;
+    private static final int LOCK_STRIPES = 64;
+
+    public record Blob(String hash, String url, Path file, boolean created) {
+    }
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Autowired
+    private BackupRepository backupRepository;
+
+    private final Path root;
+    private final Path tmpDir;
+    private final long graceMillis;
+    private final long intervalMinutes;
+    private final ScheduledExecutorService gcTimer;
+    private final Object[] hashLocks = new Object[LOCK_STRIPES];
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder collected = new LongAdder();
+    private final LongAdder bytesCollected = new LongAdder();
+    private volatile LocalDateTime lastGc;
+
+    public UploadStore(@Value("${campustrack.uploads.gc.grace-hours:24}") long graceHours,
+                       @Value("${campustrack.uploads.gc.interval-minutes:60}") long intervalMinutes) {
+        this.root = Paths.get(System.getProperty("user.dir"), "uploads");
+        // outside uploads/ so half-written files are never served
+        this.tmpDir = Paths.get(System.getProperty("user.dir"), "uploads.tmp");
+        this.graceMillis = TimeUnit.HOURS.toMillis(Math.max(0, graceHours));
+        this.intervalMinutes = intervalMinutes;
+        this.gcTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "upload-gc");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < LOCK_STRIPES; i++) hashLocks[i] = new Object();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (intervalMinutes > 0) {
+            gcTimer.scheduleWithFixedDelay(this::gcQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return hashLocks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Stream an upload into the store. The returned blob is unreferenced until acquire() is called
+    // for the item that uses it; if that never happens it is collected after the grace period.
+    public Blob put(InputStream in, String originalName) throws IOException {
+        Files.createDirectories(tmpDir);
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        String hash;
+        long size;
+        try {
+            MessageDigest md = sha256();
+            try (DigestInputStream din = new DigestInputStream(in, md); OutputStream out = Files.newOutputStream(tmp)) {
+                size = din.transferTo(out);
+            }
+            hash = HexFormat.of().formatHex(md.digest());
+
+            synchronized (lockFor(hash)) {
+                StoredBlob existing = storedBlobRepository.findById(hash).orElse(null);
+                // restarting the grace period keeps GC off it until the new item references it; if
+                // the row is gone by then GC took it, and the content is stored afresh below
+                if (existing != null && storedBlobRepository.adjustRefCount(hash, 0, LocalDateTime.now()) == 0) existing = null;
+                if (existing != null && Files.exists(root.resolve(existing.getPath()))) {
+                    deduplicated.increment();
+                    bytesSaved.add(size);
+                    return new Blob(hash, "/uploads/" + existing.getPath(), root.resolve(existing.getPath()), false);
+                }
+                String rel = existing != null ? existing.getPath()
+                        : hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extensionOf(originalName);
+                Path dest = root.resolve(rel);
+                Files.createDirectories(dest.getParent());
+                move(tmp, dest);
+                if (existing == null) rel = register(hash, rel, size);
+                stored.increment();
+                return new Blob(hash, "/uploads/" + rel, root.resolve(rel), true);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Insert the blob row; if the same content was registered concurrently under another
+    // extension, keep that one and drop our copy
+    private String register(String hash, String rel, long size) throws IOException {
+        StoredBlob b = new StoredBlob();
+        b.setHash(hash);
+        b.setPath(rel);
+        b.setSize(size);
+        try {
+            storedBlobRepository.save(b);
+            return rel;
+        } catch (DataIntegrityViolationException e) {
+            StoredBlob other = storedBlobRepository.findById(hash).orElse(null);
+            if (other == null || other.getPath().equals(rel)) return rel;
+            Files.deleteIfExists(root.resolve(rel));
+            return other.getPath();
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Content hash of a stored blob or one of its renditions, null for legacy or external URLs
+    public static String hashOf(String url) {
+        if (url == null) return null;
+        Matcher m = BLOB_URL.matcher(url);
+        return m.matches() ? m.group(1) : null;
+    }
+
+    // True for files named by their content hash (originals and renditions): their bytes never
+    // change, so the name alone identifies the content
+    public static boolean isContentAddressed(Path file) {
+        return file != null && file.getFileName() != null && BLOB_FILE.matcher(file.getFileName().toString()).matches();
+    }
+
+    // One reference for an item or backup record using the blob behind this URL
+    public void acquire(String url) {
+        adjust(url, 1);
+    }
+
+    public void release(String url) {
+        adjust(url, -1);
+    }
+
+    private void adjust(String url, int delta) {
+        String hash = hashOf(url);
+        if (hash == null) return;
+        try {
+            storedBlobRepository.adjustRefCount(hash, delta, LocalDateTime.now());
+        } catch (Exception e) {
+            // a lost update only delays GC (or is fixed by recount); never fail the report over it
+            e.printStackTrace();
+        }
+    }
+
+    // Delete blobs unreferenced for longer than the grace period, and stale temp files
+    public synchronized Map<String, Object> gc() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(graceMillis));
+        int blobs = 0;
+        long bytes = 0;
+        List<StoredBlob> page;
+        Set<String> skipped = new HashSet<>();
+        do {
+            page = storedBlobRepository.findCollectable(before, PageRequest.of(0, GC_PAGE_SIZE));
+            int progressed = 0;
+            for (StoredBlob b : page) {
+                if (!skipped.add(b.getHash())) continue;
+                progressed++;
+                synchronized (lockFor(b.getHash())) {
+                    if (storedBlobRepository.deleteIfUnreferenced(b.getHash(), before) == 0) continue;
+                    bytes += deleteFiles(b);
+                }
+                blobs++;
+            }
+            if (progressed == 0) break;
+        } while (page.size() == GC_PAGE_SIZE);
+        int tmpFiles = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(tmpDir, "*.part")) {
+            for (Path p : ds) {
+                if (Files.getLastModifiedTime(p).toMillis() < System.currentTimeMillis() - graceMillis && Files.deleteIfExists(p)) tmpFiles++;
+            }
+        } catch (NoSuchFileException e) {
+            // nothing uploaded yet
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        collected.add(blobs);
+        bytesCollected.add(bytes);
+        lastGc = LocalDateTime.now();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("blobsDeleted", blobs);
+        out.put("bytesDeleted", bytes);
+        out.put("tempFilesDeleted", tmpFiles);
+        return out;
+    }
+
+    private void gcQuietly() {
+        try {
+            gc();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // the original and every rendition (<hash>.<ext>, <hash>_<kind>.jpg) in its shard
+    private long deleteFiles(StoredBlob b) {
+        long bytes = 0;
+        Path dir = root.resolve(b.getPath()).getParent();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, b.getHash() + "*")) {
+            for (Path p : ds) {
+                long size = Files.size(p);
+                if (Files.deleteIfExists(p)) bytes += size;
+            }
+        } catch (NoSuchFileException e) {
+            // already gone
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return bytes;
+    }
+
+    // Recompute every reference count from the items and backups that exist (repairs drift after
+    // a crash between saving an item and counting its image)
+    public synchronized Map<String, Object> recount() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (LostItem li : lostItemRepository.findAll()) count(counts, li.getImageUrl());
+        for (FoundItem fi : foundItemRepository.findAll()) count(counts, fi.getImageUrl());
+        for (BackupRecord br : backupRepository.findAll()) {
+            count(counts, br.getLostImageUrl());
+            count(counts, br.getFoundImageUrl());
+        }
+        int fixed = 0;
+        for (StoredBlob b : storedBlobRepository.findAll()) {
+            fixed += storedBlobRepository.setRefCount(b.getHash(), counts.getOrDefault(b.getHash(), 0));
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("referencedBlobs", counts.size());
+        out.put("countsFixed", fixed);
+        return out;
+    }
+
+    private static void count(Map<String, Integer> counts, String url) {
+        String hash = hashOf(url);
+        if (hash != null) counts.merge(hash, 1, Integer::sum);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("blobs", storedBlobRepository.count());
+        out.put("unreferenced", storedBlobRepository.countByRefCountLessThanEqual(0));
+        out.put("totalBytes", storedBlobRepository.totalSize());
+        out.put("stored", stored.sum());
+        out.put("deduplicated", deduplicated.sum());
+        out.put("bytesSaved", bytesSaved.sum());
+        out.put("collected", collected.sum());
+        out.put("bytesCollected", bytesCollected.sum());
+        out.put("graceHours", TimeUnit.MILLISECONDS.toHours(graceMillis));
+        out.put("lastGc", lastGc);
+        return out;
+    }
+
+    private static String extensionOf(String name) {
+        if (name == null) return "bin";
+        int dot = name.lastIndexOf('.');
+        String ext = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ext.matches("[a-z0-9]{1,5}") ? ext : "bin";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gcTimer.shutdownNow();
+    }
+}
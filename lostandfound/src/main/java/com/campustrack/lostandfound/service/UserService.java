@@ -11,6 +11,9 @@ public class UserService {
     @Autowired
     private UserRepository repo;
 
+    @Autowired
+    private DashboardStats dashboardStats;
+
     private BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
 
     public String register(User user) {
@@ -21,6 +24,7 @@ public class UserService {
         user.setEmail(email);
         user.setPassword(encoder.encode(user.getPassword()));
         repo.save(user);
+        dashboardStats.add(DashboardStats.Counter.USERS, 1);
         return "User registered successfully!";
     }
 
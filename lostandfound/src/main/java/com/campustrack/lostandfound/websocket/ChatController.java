@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 public class ChatController {
@@ -18,13 +19,26 @@ public class ChatController {
     @Autowired
     private ChatWebSocketHandler chatWebSocketHandler;
 
+    // One page of a conversation: {messages, hasMore}. Without before/after, the latest messages,
+    // newest first; before=<message id> continues with older ones (newest first); after=<message id>
+    // returns the messages since that one, oldest first, to fill a gap after a reconnect.
     @GetMapping("/api/chat/history")
-    public ResponseEntity<?> history(HttpSession session, @RequestParam("with") String other) {
+    public ResponseEntity<?> history(HttpSession session, @RequestParam("with") String other,
+                                     @RequestParam(value = "before", required = false) Long before,
+                                     @RequestParam(value = "after", required = false) Long after,
+                                     @RequestParam(value = "limit", required = false) Integer limit) {
         Object emailObj = session.getAttribute("userEmail");
         if (emailObj == null) return ResponseEntity.status(401).body("Unauthorized");
         String me = emailObj.toString().toLowerCase();
-        List<ChatRecord> conv = chatService.conversationBetween(me, other.toLowerCase());
-        return ResponseEntity.ok(conv);
+        try {
+            if (before != null && after != null) throw new IllegalArgumentException("Pass before or after, not both");
+            ChatService.HistoryPage page = after != null
+                    ? chatService.historyAfter(me, other.toLowerCase(), after, limit)
+                    : chatService.historyBefore(me, other.toLowerCase(), before, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
     @GetMapping("/api/chat/conversations")
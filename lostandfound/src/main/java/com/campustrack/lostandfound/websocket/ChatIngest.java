@@ -0,0 +1,416 @@
+package com.campustrack.lostandfound.websocket;
+
+import com.campustrack.lostandfound.service.DashboardStats;
+import com.campustrack.lostandfound.service.MetricRollups;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+// How chat messages reach chat_records without the database on the send path. save() takes an id
+// from a block reserved in chat_id_sequence (the next block is fetched in the background), appends
+// the message to the local ChatWal and returns once that is fsynced, so the handler can forward it
+// straight away. A drain thread writes what was logged to chat_records in multi-row batches of up
+// to batch-size, together with the conversation index rows, in one transaction per batch; the
+// dashboard counter and analytics follow after commit. Records the database rejects outright are
+// dropped one by one, each logged at warn with its id and the error, counted in rejected and kept
+// as lastRejected in stats (admin chat/ingest) for alerting; anything else is retried until it goes in.
+// On startup, records still in the log whose id is not in chat_records are queued again.
+// Reads that need the newest rows (history, inbox, delivery updates, block) first wait, at most
+// await-millis, for the messages of that conversation (awaitPersistedBetween) or that user
+// (awaitPersistedFor) saved so far - not for everyone's - so a lagging drain only holds up the
+// reads that would miss a message.
+@Component
+public class ChatIngest {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatIngest.class);
+    // TEXT column
+    private static final int MAX_TEXT_BYTES = 65535;
+    private static final String INSERT = "insert into chat_records (id, from_email, to_email, text, created_at, delivered) "
+            + "values (?, ?, ?, ?, ?, ?) on duplicate key update id = id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ConversationIndex conversationIndex;
+
+    @Autowired
+    private DashboardStats dashboardStats;
+
+    @Autowired
+    private MetricRollups metricRollups;
+
+    @Value("${campustrack.chat.wal.dir:chat-wal}")
+    private String walDir;
+
+    @Value("${campustrack.chat.wal.segment-bytes:8388608}")
+    private long segmentBytes;
+
+    @Value("${campustrack.chat.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${campustrack.chat.ingest.linger-millis:20}")
+    private long lingerMillis;
+
+    @Value("${campustrack.chat.ingest.max-pending:100000}")
+    private int maxPending;
+
+    @Value("${campustrack.chat.ingest.await-millis:2000}")
+    private long awaitMillis;
+
+    @Value("${campustrack.chat.ingest.id-block-size:1000}")
+    private int idBlockSize;
+
+    private ChatWal wal;
+    private final LinkedBlockingQueue<ChatWal.Entry> drainQueue = new LinkedBlockingQueue<>();
+    // ids handed out and not yet in chat_records
+    private final ConcurrentSkipListSet<Long> unpersisted = new ConcurrentSkipListSet<>();
+    // the same ids by participant (lower-cased email) and by conversation (see conversationKey)
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<Long>> unpersistedBy = new ConcurrentHashMap<>();
+    private final Object persistedSignal = new Object();
+    private Thread drainer;
+    private volatile boolean running;
+
+    // ids [nextId, blockEnd) are ours; the following block is fetched once a quarter is left
+    private long nextId;
+    private long blockEnd;
+    private CompletableFuture<long[]> nextBlock;
+    private ExecutorService idFetcher;
+
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchFailures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder awaitTimeouts = new LongAdder();
+    private volatile Map<String, Object> lastRejected;
+
+    @PostConstruct
+    public void start() throws IOException {
+        idFetcher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "chat-ids");
+            t.setDaemon(true);
+            return t;
+        });
+        wal = new ChatWal(Paths.get(walDir), segmentBytes);
+        replay(wal.replay());
+        wal.start();
+        running = true;
+        drainer = new Thread(this::drainLoop, "chat-drain");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    // Log whatever is still waiting, then write the rest into chat_records before closing the log
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (drainer != null) {
+            try {
+                drainer.join(awaitMillis + 10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (wal != null) wal.close();
+        if (idFetcher != null) idFetcher.shutdownNow();
+    }
+
+    private void replay(List<ChatWal.Entry> entries) {
+        if (entries.isEmpty()) return;
+        Set<Long> existing = new HashSet<>();
+        for (int i = 0; i < entries.size(); i += 1000) {
+            List<ChatWal.Entry> chunk = entries.subList(i, Math.min(entries.size(), i + 1000));
+            StringJoiner in = new StringJoiner(",", "(", ")");
+            for (ChatWal.Entry e : chunk) in.add(Long.toString(e.record().getId()));
+            existing.addAll(jdbcTemplate.queryForList("select id from chat_records where id in " + in, Long.class));
+        }
+        List<ChatWal.Entry> done = new ArrayList<>();
+        for (ChatWal.Entry e : entries) {
+            if (existing.contains(e.record().getId())) {
+                done.add(e);
+            } else {
+                pending(e.record());
+                drainQueue.add(e);
+                replayed.increment();
+            }
+        }
+        wal.persisted(done);
+    }
+
+    public ChatRecord save(String from, String to, String text, boolean delivered) {
+        if (text != null && text.getBytes(StandardCharsets.UTF_8).length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Message is too long");
+        }
+        if (unpersisted.size() >= maxPending) {
+            throw new IllegalStateException("Chat storage is behind; try again shortly");
+        }
+        ChatRecord r = new ChatRecord(from, to, text, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        r.setDelivered(delivered);
+        r.setId(nextId());
+        pending(r);
+        try {
+            drainQueue.add(wal.append(r));
+        } catch (IOException e) {
+            forget(List.of(r));
+            throw new UncheckedIOException("Could not log chat message", e);
+        }
+        saved.increment();
+        return r;
+    }
+
+    private synchronized long nextId() {
+        if (nextId >= blockEnd) {
+            long[] block;
+            try {
+                block = (nextBlock != null ? nextBlock : CompletableFuture.completedFuture(reserveBlock())).get();
+            } catch (Exception e) {
+                nextBlock = null;
+                throw new IllegalStateException("Could not reserve chat ids", e);
+            }
+            nextBlock = null;
+            nextId = block[0];
+            blockEnd = block[1];
+        }
+        if (nextBlock == null && blockEnd - nextId <= idBlockSize / 4) {
+            nextBlock = CompletableFuture.supplyAsync(this::reserveBlock, idFetcher);
+        }
+        return nextId++;
+    }
+
+    private long[] reserveBlock() {
+        return transactionTemplate.execute(status -> {
+            Long next = jdbcTemplate.queryForObject("select next_id from chat_id_sequence where name = 'chat_records' for update", Long.class);
+            jdbcTemplate.update("update chat_id_sequence set next_id = ? where name = 'chat_records'", next + idBlockSize);
+            return new long[]{next, next + idBlockSize};
+        });
+    }
+
+    // Wait until every message with an id up to this one is in chat_records (or await-millis passed)
+    public void awaitPersisted(long id) {
+        await(() -> noneUpTo(unpersisted, id));
+    }
+
+    // Just this message
+    public void awaitMessage(long id) {
+        await(() -> !unpersisted.contains(id));
+    }
+
+    // Everything saved so far to or from this user
+    public void awaitPersistedFor(String user) {
+        awaitAll(unpersistedBy.get(key(user)));
+    }
+
+    // Everything saved so far between these two users, either way
+    public void awaitPersistedBetween(String a, String b) {
+        awaitAll(unpersistedBy.get(conversationKey(a, b)));
+    }
+
+    private void awaitAll(ConcurrentSkipListSet<Long> ids) {
+        Long last = ids == null ? null : ids.floor(Long.MAX_VALUE);
+        if (last != null) await(() -> noneUpTo(ids, last));
+    }
+
+    // first()/last() would throw on a set emptied by the drain in between
+    private static boolean noneUpTo(ConcurrentSkipListSet<Long> ids, long id) {
+        Long first = ids.ceiling(Long.MIN_VALUE);
+        return first == null || first > id;
+    }
+
+    private void await(BooleanSupplier persisted) {
+        if (persisted.getAsBoolean()) return;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitMillis);
+        synchronized (persistedSignal) {
+            while (!persisted.getAsBoolean()) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) {
+                    awaitTimeouts.increment();
+                    return;
+                }
+                try {
+                    persistedSignal.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String key(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String conversationKey(String a, String b) {
+        String x = key(a);
+        String y = key(b);
+        return x.compareTo(y) <= 0 ? x + "|" + y : y + "|" + x;
+    }
+
+    private static List<String> keysOf(ChatRecord r) {
+        return List.of(key(r.getFromEmail()), key(r.getToEmail()), conversationKey(r.getFromEmail(), r.getToEmail()));
+    }
+
+    private void pending(ChatRecord r) {
+        unpersisted.add(r.getId());
+        for (String k : keysOf(r)) {
+            unpersistedBy.compute(k, (x, ids) -> {
+                if (ids == null) ids = new ConcurrentSkipListSet<>();
+                ids.add(r.getId());
+                return ids;
+            });
+        }
+    }
+
+    private void drainLoop() {
+        List<ChatWal.Entry> batch = new ArrayList<>(batchSize);
+        long backoff = 100;
+        while (running || !drainQueue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    ChatWal.Entry first = drainQueue.poll(200, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    // give a burst a moment to fill the batch
+                    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                    while (batch.size() < batchSize) {
+                        ChatWal.Entry e = drainQueue.poll(Math.max(0, until - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        if (e == null) break;
+                        batch.add(e);
+                        drainQueue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+                write(batch);
+                batch.clear();
+                backoff = 100;
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (Exception e) {
+                // keep the batch and try again; the records are safe in the log meanwhile
+                batchFailures.increment();
+                e.printStackTrace();
+                if (!running) break;
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                backoff = Math.min(backoff * 2, 5000);
+            }
+        }
+    }
+
+    private void write(List<ChatWal.Entry> batch) {
+        List<ChatWal.Entry> ok = new ArrayList<>(batch);
+        try {
+            insert(ok);
+        } catch (NonTransientDataAccessException e) {
+            // find the record(s) the database will never take and write the rest one by one
+            ok.clear();
+            for (ChatWal.Entry entry : batch) {
+                try {
+                    insert(List.of(entry));
+                    ok.add(entry);
+                } catch (NonTransientDataAccessException bad) {
+                    reject(entry.record(), bad);
+                    done(List.of(entry));
+                }
+            }
+        }
+        batches.increment();
+        persisted.add(ok.size());
+        List<ChatRecord> records = new ArrayList<>(ok.size());
+        for (ChatWal.Entry e : ok) records.add(e.record());
+        dashboardStats.add(DashboardStats.Counter.CHATS, records.size());
+        for (ChatRecord r : records) metricRollups.record(MetricRollups.CHAT_MESSAGES, r.getCreatedAt());
+        done(ok);
+    }
+
+    private void reject(ChatRecord r, NonTransientDataAccessException cause) {
+        rejected.increment();
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("id", r.getId());
+        info.put("from", r.getFromEmail());
+        info.put("to", r.getToEmail());
+        info.put("at", LocalDateTime.now());
+        info.put("error", cause.getMostSpecificCause().getMessage());
+        lastRejected = info;
+        log.warn("Dropping chat message {} from {} to {}: the database rejected it", r.getId(), r.getFromEmail(), r.getToEmail(), cause);
+    }
+
+    private void insert(List<ChatWal.Entry> entries) {
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        List<ChatRecord> records = new ArrayList<>(entries.size());
+        for (ChatWal.Entry e : entries) {
+            ChatRecord r = e.record();
+            records.add(r);
+            rows.add(new Object[]{r.getId(), r.getFromEmail(), r.getToEmail(), r.getText(), Timestamp.valueOf(r.getCreatedAt()), r.isDelivered()});
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+            conversationIndex.messagesSaved(records);
+        });
+    }
+
+    private void done(List<ChatWal.Entry> entries) {
+        wal.persisted(entries);
+        List<ChatRecord> records = new ArrayList<>(entries.size());
+        for (ChatWal.Entry e : entries) records.add(e.record());
+        forget(records);
+    }
+
+    private void forget(List<ChatRecord> records) {
+        for (ChatRecord r : records) {
+            for (String k : keysOf(r)) {
+                unpersistedBy.computeIfPresent(k, (x, ids) -> {
+                    ids.remove(r.getId());
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+            unpersisted.remove(r.getId());
+        }
+        synchronized (persistedSignal) {
+            persistedSignal.notifyAll();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("saved", saved.sum());
+        out.put("persisted", persisted.sum());
+        out.put("pending", unpersisted.size());
+        out.put("batches", batches.sum());
+        long b = batches.sum();
+        out.put("avgBatch", b == 0 ? 0 : (double) persisted.sum() / b);
+        out.put("batchFailures", batchFailures.sum());
+        out.put("rejected", rejected.sum());
+        out.put("lastRejected", lastRejected);
+        out.put("replayed", replayed.sum());
+        out.put("awaitTimeouts", awaitTimeouts.sum());
+        out.put("wal", wal.stats());
+        return out;
+    }
+}
@@ -6,8 +6,10 @@ public class ChatMessage {
     private String text;
     private Long id;
     private String createdAt;
-    private String type; // message | typing | read
+    private String type; // message | typing | read | sync
     private boolean delivered;
+    // on a sync reply: more missed messages remain after id
+    private boolean more;
 
     public ChatMessage() {}
 
@@ -29,6 +31,9 @@ public class ChatMessage {
     public boolean isDelivered() { return delivered; }
     public void setDelivered(boolean delivered) { this.delivered = delivered; }
 
+    public boolean isMore() { return more; }
+    public void setMore(boolean more) { this.more = more; }
+
     public String getFrom() { return from; }
     public void setFrom(String from) { this.from = from; }
 
@@ -6,8 +6,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "chat_records")
 public class ChatRecord {
+    // assigned from a block reserved in chat_id_sequence (ChatIngest), never generated on insert
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(nullable = false)
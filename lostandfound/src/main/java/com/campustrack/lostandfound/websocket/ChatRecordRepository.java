@@ -1,9 +1,13 @@
 package com.campustrack.lostandfound.websocket;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ChatRecordRepository extends JpaRepository<ChatRecord, Long> {
@@ -11,4 +15,34 @@ public interface ChatRecordRepository extends JpaRepository<ChatRecord, Long> {
     List<ChatRecord> findConversation(@Param("a") String a, @Param("b") String b);
 
     List<ChatRecord> findByToEmailAndDeliveredFalseOrderByCreatedAt(String toEmail);
+
+    @Query("select max(c.id) from ChatRecord c where c.toEmail = :to and c.fromEmail = :from and c.delivered = false")
+    Long findMaxUndeliveredId(@Param("to") String to, @Param("from") String from);
+
+    // One message delivered; 0 if it already was
+    @Transactional
+    @Modifying
+    @Query("update ChatRecord c set c.delivered = true where c.id = :id and c.delivered = false")
+    int markDelivered(@Param("id") Long id);
+
+    // Delivery state in bulk: every pending message from one sender to one recipient up to an id
+    @Transactional
+    @Modifying
+    @Query("update ChatRecord c set c.delivered = true where c.toEmail = :to and c.fromEmail = :from and c.delivered = false and c.id <= :upTo")
+    int markDeliveredUpTo(@Param("to") String to, @Param("from") String from, @Param("upTo") Long upTo);
+
+    // One direction of a conversation around a (createdAt, id) position, for history pages; each is a
+    // range of idx_chat_records_pair (InnoDB appends id to the index)
+    @Query("select c from ChatRecord c where c.fromEmail = :from and c.toEmail = :to order by c.createdAt desc, c.id desc")
+    List<ChatRecord> findLatestSent(@Param("from") String from, @Param("to") String to, Pageable pageable);
+
+    @Query("select c from ChatRecord c where c.fromEmail = :from and c.toEmail = :to "
+            + "and (c.createdAt < :at or (c.createdAt = :at and c.id < :id)) order by c.createdAt desc, c.id desc")
+    List<ChatRecord> findSentBefore(@Param("from") String from, @Param("to") String to,
+                                    @Param("at") LocalDateTime at, @Param("id") Long id, Pageable pageable);
+
+    @Query("select c from ChatRecord c where c.fromEmail = :from and c.toEmail = :to "
+            + "and (c.createdAt > :at or (c.createdAt = :at and c.id > :id)) order by c.createdAt, c.id")
+    List<ChatRecord> findSentAfter(@Param("from") String from, @Param("to") String to,
+                                   @Param("at") LocalDateTime at, @Param("id") Long id, Pageable pageable);
 }
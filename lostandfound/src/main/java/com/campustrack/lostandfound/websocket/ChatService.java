@@ -1,95 +1,150 @@
 package com.campustrack.lostandfound.websocket;
 
+import com.campustrack.lostandfound.service.DashboardStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
-import java.util.LinkedHashMap;
-import java.util.Comparator;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 @Service
 public class ChatService {
 
+    // A page of one conversation's history; hasMore when the page stopped at the limit
+    public record HistoryPage(List<ChatRecord> messages, boolean hasMore) {
+    }
+
+    private static final Comparator<ChatRecord> OLDEST_FIRST = Comparator.comparing(ChatRecord::getCreatedAt).thenComparing(ChatRecord::getId);
+
     private final ChatRecordRepository repository;
     private final UserBlockRepository blockRepository;
-
-    public ChatService(ChatRecordRepository repository, UserBlockRepository blockRepository) {
+    private final DashboardStats dashboardStats;
+    private final ConversationIndex conversationIndex;
+    private final ReadReceipts readReceipts;
+    private final ChatIngest chatIngest;
+    private final int historyDefaultLimit;
+    private final int historyMaxLimit;
+
+    public ChatService(ChatRecordRepository repository, UserBlockRepository blockRepository, DashboardStats dashboardStats,
+                       ConversationIndex conversationIndex, ReadReceipts readReceipts, ChatIngest chatIngest,
+                       @Value("${campustrack.chat.history.default-limit:50}") int historyDefaultLimit,
+                       @Value("${campustrack.chat.history.max-limit:200}") int historyMaxLimit) {
         this.repository = repository;
         this.blockRepository = blockRepository;
+        this.dashboardStats = dashboardStats;
+        this.conversationIndex = conversationIndex;
+        this.readReceipts = readReceipts;
+        this.chatIngest = chatIngest;
+        this.historyDefaultLimit = historyDefaultLimit;
+        this.historyMaxLimit = historyMaxLimit;
     }
 
     public ChatRecord save(String from, String to, String text) {
-        ChatRecord r = new ChatRecord(from, to, text, LocalDateTime.now());
-        r.setDelivered(false);
-        return repository.save(r);
+        return save(from, to, text, false);
+    }
+
+    // delivered when the recipient is online to be handed the message straight away, which saves
+    // an UPDATE per live message. The message is in the chat log with its id when this returns and
+    // reaches chat_records with the next ingest batch (ChatIngest).
+    public ChatRecord save(String from, String to, String text, boolean delivered) {
+        return chatIngest.save(from, to, text, delivered);
+    }
+
+    // History pages run newest to oldest by (createdAt, id): the latest messages first, then the
+    // ones before the oldest message the client holds. Each direction of the conversation is read
+    // as one index range of at most limit + 1 rows and the two are merged.
+    public HistoryPage historyBefore(String me, String other, Long beforeId, Integer limit) {
+        chatIngest.awaitPersistedBetween(me, other);
+        String a = me.toLowerCase();
+        String b = other.toLowerCase();
+        int n = clampLimit(limit);
+        PageRequest page = PageRequest.of(0, n + 1);
+        List<ChatRecord> rows = new ArrayList<>();
+        if (beforeId == null) {
+            rows.addAll(repository.findLatestSent(a, b, page));
+            if (!a.equals(b)) rows.addAll(repository.findLatestSent(b, a, page));
+        } else {
+            ChatRecord anchor = anchor(a, b, beforeId);
+            rows.addAll(repository.findSentBefore(a, b, anchor.getCreatedAt(), anchor.getId(), page));
+            if (!a.equals(b)) rows.addAll(repository.findSentBefore(b, a, anchor.getCreatedAt(), anchor.getId(), page));
+        }
+        rows.sort(OLDEST_FIRST.reversed());
+        return trim(rows, n);
     }
 
-    public List<ChatRecord> conversationBetween(String a, String b) {
-        return repository.findConversation(a.toLowerCase(), b.toLowerCase());
+    // Messages after one the client already has, oldest first: what it missed while disconnected
+    public HistoryPage historyAfter(String me, String other, long afterId, Integer limit) {
+        chatIngest.awaitPersistedBetween(me, other);
+        String a = me.toLowerCase();
+        String b = other.toLowerCase();
+        int n = clampLimit(limit);
+        PageRequest page = PageRequest.of(0, n + 1);
+        ChatRecord anchor = anchor(a, b, afterId);
+        List<ChatRecord> rows = new ArrayList<>(repository.findSentAfter(a, b, anchor.getCreatedAt(), anchor.getId(), page));
+        if (!a.equals(b)) rows.addAll(repository.findSentAfter(b, a, anchor.getCreatedAt(), anchor.getId(), page));
+        rows.sort(OLDEST_FIRST);
+        return trim(rows, n);
+    }
+
+    private ChatRecord anchor(String a, String b, long id) {
+        ChatRecord r = repository.findById(id).orElse(null);
+        if (r == null || !((a.equalsIgnoreCase(r.getFromEmail()) && b.equalsIgnoreCase(r.getToEmail()))
+                || (b.equalsIgnoreCase(r.getFromEmail()) && a.equalsIgnoreCase(r.getToEmail())))) {
+            throw new IllegalArgumentException("Unknown message " + id + " in this conversation");
+        }
+        return r;
+    }
+
+    private static HistoryPage trim(List<ChatRecord> rows, int n) {
+        if (rows.size() <= n) return new HistoryPage(rows, false);
+        return new HistoryPage(new ArrayList<>(rows.subList(0, n)), true);
+    }
+
+    private int clampLimit(Integer limit) {
+        return Math.max(1, Math.min(historyMaxLimit, limit == null ? historyDefaultLimit : limit));
     }
 
     public List<ChatRecord> undeliveredFor(String to) {
+        chatIngest.awaitPersistedFor(to);
         return repository.findByToEmailAndDeliveredFalseOrderByCreatedAt(to.toLowerCase());
     }
 
     public void markDelivered(ChatRecord r) {
+        if (r.isDelivered()) return;
+        chatIngest.awaitMessage(r.getId());
         r.setDelivered(true);
-        repository.save(r);
+        if (repository.markDelivered(r.getId()) > 0) conversationIndex.delivered(r);
     }
 
     public void markDeliveredById(Long id) {
         if (id == null) return;
-        repository.findById(id).ifPresent(r -> {
-            r.setDelivered(true);
-            repository.save(r);
-        });
+        chatIngest.awaitMessage(id);
+        repository.findById(id).ifPresent(this::markDelivered);
     }
 
-    // Build a conversation summary list for the given user. We query recent records and aggregate per partner.
+    // Read receipt from the websocket: written behind, coalesced per conversation (ReadReceipts)
+    public void markRead(String reader, String sender, long messageId) {
+        readReceipts.read(reader, sender, messageId);
+    }
+
+    // Conversation summaries for the given user, most recent first, from the conversation index
     public List<ChatConversation> listConversations(String me) {
-        String lme = me.toLowerCase();
-        List<ChatRecord> all = repository.findAll();
-        // keep only records where me is either from or to
-    List<ChatRecord> involved = all.stream().filter(r -> lme.equals(r.getFromEmail()) || lme.equals(r.getToEmail())).toList();
-
-        // Map partner -> latest record (by createdAt)
-        Map<String, ChatRecord> latest = new LinkedHashMap<>();
-        involved.stream()
-                .sorted(Comparator.comparing(ChatRecord::getCreatedAt).reversed())
-                .forEach(r -> {
-                    String partner = lme.equals(r.getFromEmail()) ? r.getToEmail() : r.getFromEmail();
-                    partner = partner.toLowerCase();
-                    if (!latest.containsKey(partner)) latest.put(partner, r);
-                });
-
-        // build unread counts per partner
-        Map<String, Long> unread = new LinkedHashMap<>();
-        involved.stream()
-                .filter(r -> !r.isDelivered() && lme.equals(r.getToEmail()))
-                .forEach(r -> unread.put(r.getFromEmail(), unread.getOrDefault(r.getFromEmail(), 0L) + 1));
-
-        List<ChatConversation> out = new ArrayList<>();
-        for (Map.Entry<String, ChatRecord> e : latest.entrySet()) {
-            String partner = e.getKey();
-            ChatRecord r = e.getValue();
-            long ucount = unread.getOrDefault(partner, 0L);
-            // lastOutgoingUndelivered is true when the most recent message was FROM me and it's not delivered
-            boolean lastOutgoingUndelivered = lme.equals(r.getFromEmail()) && !r.isDelivered();
-            out.add(new ChatConversation(partner, r.getText(), r.getCreatedAt(), ucount, lastOutgoingUndelivered));
-        }
-        return out;
+        chatIngest.awaitPersistedFor(me);
+        return conversationIndex.conversationsOf(me);
     }
 
-    // mark all undelivered messages TO me from partner as delivered
+    // mark all undelivered messages TO me from partner as delivered, in one UPDATE
     public void markDeliveredForConversation(String me, String partner) {
         if (me == null || partner == null) return;
-        List<ChatRecord> undelivered = repository.findByToEmailAndDeliveredFalseOrderByCreatedAt(me.toLowerCase());
-        undelivered.stream().filter(r -> partner.toLowerCase().equals(r.getFromEmail())).forEach(r -> {
-            r.setDelivered(true);
-            repository.save(r);
-        });
+        String lme = me.toLowerCase();
+        String lpartner = partner.toLowerCase();
+        chatIngest.awaitPersistedBetween(lme, lpartner);
+        Long upToId = repository.findMaxUndeliveredId(lme, lpartner);
+        if (upToId == null) return;
+        int count = repository.markDeliveredUpTo(lme, lpartner, upToId);
+        conversationIndex.conversationDelivered(lme, lpartner, upToId, count);
     }
 
     // Persist a block and remove all chat records between the two users
@@ -97,11 +152,17 @@ public class ChatService {
         if (blocker == null || blocked == null) return null;
         String bLower = blocker.toLowerCase();
         String dLower = blocked.toLowerCase();
+        chatIngest.awaitPersistedBetween(bLower, dLower);
         UserBlock ub = new UserBlock(bLower, dLower, reason);
         UserBlock saved = blockRepository.save(ub);
+        dashboardStats.add(DashboardStats.Counter.BLOCKS, 1);
         // delete conversation records both directions
         List<ChatRecord> conv = repository.findConversation(bLower, dLower);
-        if (conv != null && !conv.isEmpty()) repository.deleteAll(conv);
+        if (conv != null && !conv.isEmpty()) {
+            repository.deleteAll(conv);
+            dashboardStats.add(DashboardStats.Counter.CHATS, -conv.size());
+        }
+        conversationIndex.conversationRemoved(bLower, dLower);
         return saved;
     }
 
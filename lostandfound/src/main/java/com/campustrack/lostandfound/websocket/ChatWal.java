@@ -0,0 +1,366 @@
+package com.campustrack.lostandfound.websocket;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+// Local write-ahead log for chat messages that are not in chat_records yet. Records are appended to
+// numbered segment files (chat-<n>.wal) by one writer thread; every append waiting when it wakes
+// goes out in one write and one fsync, and append() returns once its group is on disk. A segment is
+// rolled at segment-bytes and deleted once every record in it has been persisted (persisted()).
+// Record: length, CRC32 of the payload, payload (id, createdAt, delivered, from, to, text); a torn
+// or corrupt tail - an append that never returned - ends replay of that segment. A group whose write
+// or fsync fails is cut off again before its appends fail. If the file cannot be truncated, the
+// group may be complete on disk, so its offset is recorded in a chat-<n>.cut marker that replay
+// stops at, and writing continues in a new segment; later records never sit behind a failed group.
+public class ChatWal implements Closeable {
+
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int MAX_GROUP = 1024;
+
+    public static final class Segment {
+        private final Path path;
+        private final AtomicInteger unpersisted = new AtomicInteger();
+        private volatile boolean closed;
+
+        private Segment(Path path) {
+            this.path = path;
+        }
+    }
+
+    public record Entry(ChatRecord record, Segment segment) {
+    }
+
+    private record Append(ChatRecord record, byte[] bytes, CompletableFuture<Segment> done) {
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final UnaryOperator<FileChannel> channels;
+    private final LinkedBlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private volatile boolean running;
+
+    // writer thread only
+    private FileChannel channel;
+    private Segment current;
+    private long nextSeq;
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder syncNanos = new LongAdder();
+    private final LongAdder segmentsDeleted = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    public ChatWal(Path dir, long segmentBytes) throws IOException {
+        this(dir, segmentBytes, UnaryOperator.identity());
+    }
+
+    // channels wraps each segment channel as it is opened (tests inject I/O failures with it)
+    ChatWal(Path dir, long segmentBytes, UnaryOperator<FileChannel> channels) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.channels = channels;
+        Files.createDirectories(dir);
+    }
+
+    // Records left by the last run, in append order, each counted against its (closed) segment
+    // until persisted. Call once, before start().
+    public List<Entry> replay() throws IOException {
+        List<Entry> out = new ArrayList<>();
+        for (Path p : segmentFiles()) {
+            nextSeq = Math.max(nextSeq, seqOf(p) + 1);
+            Segment s = new Segment(p);
+            s.closed = true;
+            long cut = cutOffset(p);
+            try (InputStream file = Files.newInputStream(p)) {
+                // records from a cut offset on belong to appends that failed
+                InputStream bounded = cut < 0 ? file : new ByteArrayInputStream(file.readNBytes((int) Math.min(cut, Integer.MAX_VALUE)));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(bounded, 1 << 16));
+                ChatRecord r;
+                while ((r = read(in)) != null) {
+                    s.unpersisted.incrementAndGet();
+                    out.add(new Entry(r, s));
+                }
+            }
+            if (s.unpersisted.get() == 0) delete(s);
+        }
+        return out;
+    }
+
+    public void start() throws IOException {
+        openSegment();
+        running = true;
+        writer = new Thread(this::writeLoop, "chat-wal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Durable once this returns; the entry is then counted against its segment until persisted()
+    public Entry append(ChatRecord r) throws IOException {
+        if (!running) throw new IOException("Chat log is closed");
+        Append a = new Append(r, encode(r), new CompletableFuture<>());
+        queue.add(a);
+        try {
+            return new Entry(r, a.done().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the chat log", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+    }
+
+    // The entries are in chat_records; segments that were rolled and have nothing left go
+    public void persisted(Collection<Entry> entries) {
+        for (Entry e : entries) {
+            Segment s = e.segment();
+            if (s.unpersisted.decrementAndGet() == 0 && s.closed) delete(s);
+        }
+    }
+
+    private void writeLoop() {
+        List<Append> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<Append> group) {
+        long start = -1;
+        try {
+            // a failed roll, or an interrupt during a write, leaves the channel closed
+            if (!channel.isOpen() || channel.size() >= segmentBytes) roll();
+            start = channel.size();
+            int size = 0;
+            for (Append a : group) size += a.bytes().length;
+            ByteBuffer buf = ByteBuffer.allocate(size);
+            for (Append a : group) buf.put(a.bytes());
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            long t0 = System.nanoTime();
+            channel.force(false);
+            syncNanos.add(System.nanoTime() - t0);
+            syncs.increment();
+            appends.add(group.size());
+            current.unpersisted.addAndGet(group.size());
+            for (Append a : group) a.done().complete(current);
+        } catch (IOException | RuntimeException e) {
+            writeFailures.increment();
+            if (start >= 0) discardFrom(start);
+            for (Append a : group) a.done().completeExceptionally(e);
+        }
+    }
+
+    // Drop a failed group from the segment. If the file cannot be cut back, the group's records may
+    // be complete and pass their CRC, so a durable marker tells replay to stop at the group, and
+    // the next group goes to a new segment.
+    private void discardFrom(long size) {
+        try {
+            channel.truncate(size);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            try {
+                writeCut(current.path, size);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+            try {
+                roll();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private static Path cutMarker(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - 4) + ".cut");
+    }
+
+    private void writeCut(Path segment, long offset) throws IOException {
+        try (FileChannel ch = FileChannel.open(cutMarker(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(8).putLong(offset).flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        // make the new directory entry durable too (not supported on every platform)
+        try (FileChannel d = FileChannel.open(dir, StandardOpenOption.READ)) {
+            d.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    // offset replay of this segment stops at, or -1
+    private static long cutOffset(Path segment) throws IOException {
+        Path marker = cutMarker(segment);
+        if (!Files.exists(marker)) return -1;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(marker))) {
+            return in.readLong();
+        } catch (EOFException e) {
+            // cut short by a crash before it was synced: there is no offset to go by
+            return -1;
+        }
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        Segment old = current;
+        old.closed = true;
+        if (old.unpersisted.get() == 0) delete(old);
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        current = new Segment(dir.resolve("chat-" + nextSeq++ + ".wal"));
+        channel = channels.apply(FileChannel.open(current.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    private void delete(Segment s) {
+        try {
+            if (Files.deleteIfExists(s.path)) segmentsDeleted.increment();
+            Files.deleteIfExists(cutMarker(s.path));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Stops the writer after what is queued has been written; the current segment is removed if
+    // everything in it was persisted, otherwise kept for replay
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Append a;
+        while ((a = queue.poll()) != null) a.done().completeExceptionally(new IOException("Chat log is closed"));
+        if (channel != null) {
+            channel.close();
+            current.closed = true;
+            if (current.unpersisted.get() == 0) delete(current);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "chat-*.wal")) {
+            for (Path p : ds) files.add(p);
+        }
+        files.sort(Comparator.comparingLong(ChatWal::seqOf));
+        return files;
+    }
+
+    private static long seqOf(Path p) {
+        String name = p.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(5, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static byte[] encode(ChatRecord r) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64 + (r.getText() == null ? 0 : r.getText().length() * 3));
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeLong(r.getId());
+        out.writeLong(r.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(r.getCreatedAt().getNano());
+        out.writeBoolean(r.isDelivered());
+        writeString(out, r.getFromEmail());
+        writeString(out, r.getToEmail());
+        writeString(out, r.getText());
+        byte[] body = payload.toByteArray();
+        if (body.length > MAX_RECORD_BYTES) throw new IOException("Chat message too large for the log");
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer framed = ByteBuffer.allocate(8 + body.length);
+        framed.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        return framed.array();
+    }
+
+    // next record, or null at the end of the segment or at a torn/corrupt record
+    private static ChatRecord read(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES) return null;
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 check = new CRC32();
+            check.update(body);
+            if ((int) check.getValue() != crc) return null;
+            DataInputStream p = new DataInputStream(new ByteArrayInputStream(body));
+            long id = p.readLong();
+            LocalDateTime createdAt = LocalDateTime.ofEpochSecond(p.readLong(), p.readInt(), ZoneOffset.UTC);
+            boolean delivered = p.readBoolean();
+            ChatRecord r = new ChatRecord(readString(p), readString(p), readString(p), createdAt);
+            r.setId(id);
+            r.setDelivered(delivered);
+            return r;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("dir", dir.toAbsolutePath().toString());
+        out.put("appends", appends.sum());
+        out.put("syncs", syncs.sum());
+        long n = syncs.sum();
+        // messages per fsync: how well appends are grouped
+        out.put("avgGroup", n == 0 ? 0 : (double) appends.sum() / n);
+        out.put("avgSyncMicros", n == 0 ? 0 : syncNanos.sum() / n / 1000);
+        out.put("queued", queue.size());
+        out.put("segmentsDeleted", segmentsDeleted.sum());
+        out.put("writeFailures", writeFailures.sum());
+        return out;
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
+import java.io.UncheckedIOException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -72,7 +73,9 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             // client notifies that a message id has been read/delivered
             Long mid = msg.getId();
             if (mid != null) {
-                chatService.markDeliveredById(mid);
+                // everything the other side sent up to mid; older clients may omit to
+                if (msg.getTo() != null) chatService.markRead(from, msg.getTo(), mid);
+                else chatService.markDeliveredById(mid);
             }
             // forward read receipt to other side
             if (msg.getTo() != null) {
@@ -89,6 +92,37 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
+        if ("sync".equals(type)) {
+            // client (re)connected holding messages up to id: send only what it missed, oldest first,
+            // then a sync reply with the last id sent and whether more remain
+            if (msg.getTo() == null || msg.getId() == null) return;
+            ChatService.HistoryPage page;
+            try {
+                page = chatService.historyAfter(from, msg.getTo(), msg.getId(), null);
+            } catch (IllegalArgumentException e) {
+                ChatMessage err = new ChatMessage();
+                err.setType("error");
+                err.setText(e.getMessage());
+                err.setTo(from);
+                session.sendMessage(new TextMessage(mapper.writeValueAsString(err)));
+                return;
+            }
+            long last = msg.getId();
+            for (ChatRecord r : page.messages()) {
+                ChatMessage out = toMessage(r);
+                out.setDelivered(r.isDelivered());
+                session.sendMessage(new TextMessage(mapper.writeValueAsString(out)));
+                last = r.getId();
+            }
+            ChatMessage done = new ChatMessage();
+            done.setType("sync");
+            done.setTo(msg.getTo());
+            done.setId(last);
+            done.setMore(page.hasMore());
+            session.sendMessage(new TextMessage(mapper.writeValueAsString(done)));
+            return;
+        }
+
         // before persisting, check block status
         if (msg.getTo() != null && chatService != null && chatService.isBlockedBetween(msg.getFrom(), msg.getTo())) {
             // inform sender that the message cannot be delivered (optional)
@@ -100,17 +134,25 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        // default: normal chat message -> persist and forward
-        ChatRecord saved = chatService.save(msg.getFrom(), msg.getTo(), msg.getText());
+        // default: normal chat message -> persist and forward; a recipient with an open session
+        // gets it now, so it is stored as delivered
+        Set<WebSocketSession> recipients = msg.getTo() == null ? null : sessions.get(msg.getTo().toLowerCase());
+        boolean online = recipients != null && recipients.stream().anyMatch(WebSocketSession::isOpen);
+        ChatRecord saved;
+        try {
+            saved = chatService.save(msg.getFrom(), msg.getTo(), msg.getText(), online);
+        } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException e) {
+            // too long, or the chat log is not taking messages: the sender may retry
+            ChatMessage err = new ChatMessage();
+            err.setType("error");
+            err.setText(e.getMessage());
+            err.setTo(msg.getFrom());
+            session.sendMessage(new TextMessage(mapper.writeValueAsString(err)));
+            return;
+        }
 
         // build outgoing message payload with metadata
-        ChatMessage out = new ChatMessage();
-        out.setFrom(saved.getFromEmail());
-        out.setTo(saved.getToEmail());
-        out.setText(saved.getText());
-        out.setId(saved.getId());
-        out.setCreatedAt(saved.getCreatedAt().toString());
-        out.setType("message");
+        ChatMessage out = toMessage(saved);
 
         // send to recipient if connected
         boolean delivered = false;
@@ -124,7 +166,8 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     if (s.isOpen()) s.sendMessage(outMsg);
                 }
                 delivered = true;
-                chatService.markDelivered(saved);
+                // stored undelivered if the recipient connected after the check above
+                if (!saved.isDelivered()) chatService.markDelivered(saved);
             }
         }
 
@@ -134,6 +177,17 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
         session.sendMessage(new TextMessage(echo));
     }
 
+    private static ChatMessage toMessage(ChatRecord r) {
+        ChatMessage out = new ChatMessage();
+        out.setFrom(r.getFromEmail());
+        out.setTo(r.getToEmail());
+        out.setText(r.getText());
+        out.setId(r.getId());
+        out.setCreatedAt(r.getCreatedAt().toString());
+        out.setType("message");
+        return out;
+    }
+
     // Close sessions for a set of emails (used when blocking to drop live connections)
     public void closeSessionsForEmails(String... emails) {
         if (emails == null || emails.length == 0) return;
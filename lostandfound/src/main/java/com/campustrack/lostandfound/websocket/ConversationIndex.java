@@ -0,0 +1,155 @@
+package com.campustrack.lostandfound.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// The inbox (GET /api/chat/conversations) read from chat_conversations: one row per user and chat
+// partner with the last message, its time, whether it was sent by the owner and delivered, and how
+// many messages from the partner the owner has not had delivered. The rows are kept up to date as
+// messages are written (with each ChatIngest batch), delivered and blocked, so listing an inbox
+// reads only that user's rows instead of every chat record. A row only moves to a newer message (higher id), so two
+// messages saved at once leave the later one as the last. rebuild() recomputes the table from
+// chat_records (V5 ran the same statement for existing history).
+@Component
+public class ConversationIndex {
+
+    // the owner's side of a new message: last message replaced if newer, unread count added to
+    private static final String UPSERT = "insert into chat_conversations "
+            + "(owner_email, partner_email, last_message_id, last_text, last_at, last_from_me, last_delivered, unread_count) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update "
+            + "last_text = if(values(last_message_id) > last_message_id, values(last_text), last_text), "
+            + "last_at = if(values(last_message_id) > last_message_id, values(last_at), last_at), "
+            + "last_from_me = if(values(last_message_id) > last_message_id, values(last_from_me), last_from_me), "
+            + "last_delivered = if(values(last_message_id) > last_message_id, values(last_delivered), last_delivered), "
+            + "unread_count = unread_count + values(unread_count), "
+            + "last_message_id = greatest(last_message_id, values(last_message_id))";
+
+    private static final String REBUILD = "insert into chat_conversations "
+            + "(owner_email, partner_email, last_message_id, last_text, last_at, last_from_me, last_delivered, unread_count) "
+            + "select owner_email, partner_email, id, text, created_at, from_me, delivered, unread from ("
+            + "select m.*, row_number() over (partition by owner_email, partner_email order by id desc) rn, "
+            + "sum(case when (from_me = 0 or owner_email = partner_email) and delivered = 0 then 1 else 0 end) over (partition by owner_email, partner_email) unread "
+            + "from (select lower(from_email) owner_email, lower(to_email) partner_email, id, text, created_at, 1 from_me, delivered from chat_records "
+            + "union all select lower(to_email), lower(from_email), id, text, created_at, 0, delivered from chat_records "
+            + "where lower(to_email) <> lower(from_email)) m) c where rn = 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private volatile LocalDateTime rebuiltAt;
+    private volatile int rebuiltRows;
+
+    // Most recent conversation first
+    public List<ChatConversation> conversationsOf(String me) {
+        reads.increment();
+        return jdbcTemplate.query("select partner_email, last_text, last_at, last_from_me, last_delivered, unread_count "
+                        + "from chat_conversations where owner_email = ? order by last_at desc, last_message_id desc",
+                (rs, i) -> new ChatConversation(rs.getString(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                        rs.getLong(6), rs.getBoolean(4) && !rs.getBoolean(5)),
+                key(me));
+    }
+
+    // Messages written together: one row per owner and partner, carrying the newest message of the
+    // batch and the unread messages added up
+    public void messagesSaved(Collection<ChatRecord> records) {
+        Map<List<String>, Object[]> rows = new LinkedHashMap<>();
+        for (ChatRecord r : records) {
+            String from = key(r.getFromEmail());
+            String to = key(r.getToEmail());
+            int unread = r.isDelivered() ? 0 : 1;
+            // a note to self is one row, outgoing and unread at once
+            merge(rows, r, from, to, true, from.equals(to) ? unread : 0);
+            if (!from.equals(to)) merge(rows, r, to, from, false, unread);
+        }
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(UPSERT, new ArrayList<>(rows.values()));
+        updates.increment();
+    }
+
+    private static void merge(Map<List<String>, Object[]> rows, ChatRecord r, String owner, String partner, boolean fromMe, int unread) {
+        Object[] row = rows.get(List.of(owner, partner));
+        if (row == null) {
+            rows.put(List.of(owner, partner), new Object[]{owner, partner, r.getId(), r.getText(), Timestamp.valueOf(r.getCreatedAt()),
+                    fromMe, r.isDelivered(), unread});
+            return;
+        }
+        if (r.getId() > (Long) row[2]) {
+            row[2] = r.getId();
+            row[3] = r.getText();
+            row[4] = Timestamp.valueOf(r.getCreatedAt());
+            row[5] = fromMe;
+            row[6] = r.isDelivered();
+        }
+        row[7] = (Integer) row[7] + unread;
+    }
+
+    // one message was delivered to its recipient
+    public void delivered(ChatRecord r) {
+        delivered(r.getToEmail(), r.getFromEmail(), "=", r.getId(), 1);
+    }
+
+    // count messages from partner to me were delivered, all that were pending up to upToId
+    public void conversationDelivered(String me, String partner, long upToId, int count) {
+        delivered(me, partner, "<=", upToId, count);
+    }
+
+    private void delivered(String me, String partner, String idTest, long id, int count) {
+        if (count <= 0) return;
+        String lme = key(me);
+        String lpartner = key(partner);
+        jdbcTemplate.update("update chat_conversations set unread_count = greatest(unread_count - ?, 0), "
+                        + "last_delivered = if(last_from_me = 0 and last_message_id " + idTest + " ?, 1, last_delivered) "
+                        + "where owner_email = ? and partner_email = ?",
+                count, id, lme, lpartner);
+        jdbcTemplate.update("update chat_conversations set last_delivered = 1 "
+                        + "where owner_email = ? and partner_email = ? and last_from_me = 1 and last_message_id " + idTest + " ?",
+                lpartner, lme, id);
+        updates.increment();
+    }
+
+    public void conversationRemoved(String a, String b) {
+        String la = key(a);
+        String lb = key(b);
+        jdbcTemplate.update("delete from chat_conversations where (owner_email = ? and partner_email = ?) "
+                + "or (owner_email = ? and partner_email = ?)", la, lb, lb, la);
+        updates.increment();
+    }
+
+    // Recompute every row from chat_records in one transaction; readers see the old rows until it
+    // commits. Returns the number of conversation rows.
+    public int rebuild() {
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("delete from chat_conversations");
+            return jdbcTemplate.update(REBUILD);
+        });
+        rebuiltRows = rows == null ? 0 : rows;
+        rebuiltAt = LocalDateTime.now();
+        return rebuiltRows;
+    }
+
+    private static String key(String email) {
+        return email == null ? "" : email.toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("rows", jdbcTemplate.queryForObject("select count(*) from chat_conversations", Long.class));
+        out.put("reads", reads.sum());
+        out.put("updates", updates.sum());
+        out.put("rebuiltAt", rebuiltAt);
+        out.put("rebuiltRows", rebuiltRows);
+        return out;
+    }
+}
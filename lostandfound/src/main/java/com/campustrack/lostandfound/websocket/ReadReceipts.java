@@ -0,0 +1,128 @@
+package com.campustrack.lostandfound.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind for chat read receipts. A "read" frame only raises the high-water mark of its
+// conversation (reader, sender) in memory; every flush-millis, or sooner once max-pending
+// conversations are waiting, each mark becomes one bulk UPDATE of the sender's undelivered messages
+// up to it, all in one transaction, and the conversation index is adjusted by the rows changed.
+// Delivery state on disk is at most flush-millis behind; pending marks are flushed on shutdown and
+// put back if a flush fails.
+@Component
+public class ReadReceipts {
+
+    private record Conversation(String reader, String sender) {
+    }
+
+    @Autowired
+    private ChatRecordRepository repository;
+
+    @Autowired
+    private ConversationIndex conversationIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ChatIngest chatIngest;
+
+    @Value("${campustrack.chat.receipts.flush-millis:500}")
+    private long flushMillis;
+
+    @Value("${campustrack.chat.receipts.max-pending:1000}")
+    private int maxPending;
+
+    // conversation -> highest message id read
+    private final ConcurrentHashMap<Conversation, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder receipts = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder conversationsFlushed = new LongAdder();
+    private final LongAdder rowsUpdated = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "read-receipts");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, Math.max(1, flushMillis), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) flusher.shutdownNow();
+        flush();
+    }
+
+    // reader has seen messageId and everything sender sent them before it
+    public void read(String reader, String sender, long messageId) {
+        pending.merge(new Conversation(reader.toLowerCase(Locale.ROOT), sender.toLowerCase(Locale.ROOT)), messageId, Math::max);
+        receipts.increment();
+        if (pending.size() >= maxPending && !flusher.isShutdown() && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flush();
+            });
+        }
+    }
+
+    public synchronized void flush() {
+        if (pending.isEmpty()) return;
+        Map<Conversation, Long> batch = new HashMap<>();
+        for (Conversation c : new ArrayList<>(pending.keySet())) {
+            // a receipt arriving after this starts a new entry for the next flush
+            Long upTo = pending.remove(c);
+            if (upTo != null) batch.put(c, upTo);
+        }
+        // the messages read may still be on their way into chat_records
+        if (!batch.isEmpty()) chatIngest.awaitPersisted(Collections.max(batch.values()));
+        try {
+            Integer rows = transactionTemplate.execute(status -> {
+                int changed = 0;
+                for (Map.Entry<Conversation, Long> e : batch.entrySet()) {
+                    Conversation c = e.getKey();
+                    int n = repository.markDeliveredUpTo(c.reader(), c.sender(), e.getValue());
+                    conversationIndex.conversationDelivered(c.reader(), c.sender(), e.getValue(), n);
+                    changed += n;
+                }
+                return changed;
+            });
+            flushes.increment();
+            conversationsFlushed.add(batch.size());
+            rowsUpdated.add(rows == null ? 0 : rows);
+        } catch (Exception e) {
+            flushFailures.increment();
+            e.printStackTrace();
+            batch.forEach((c, upTo) -> pending.merge(c, upTo, Math::max));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("pendingConversations", pending.size());
+        out.put("receipts", receipts.sum());
+        out.put("flushes", flushes.sum());
+        out.put("flushFailures", flushFailures.sum());
+        out.put("conversationsFlushed", conversationsFlushed.sum());
+        out.put("rowsUpdated", rowsUpdated.sum());
+        return out;
+    }
+}
@@ -0,0 +1,62 @@
+-- Tables and columns added since the released schema in V1. They are a migration of their own so
+-- that a database baselined at V1 gets them as well.
+
+-- per-item embeddings keyed by content hash
+create table item_embeddings (
+    id bigint not null auto_increment,
+    content_hash varchar(64) not null,
+    created_at datetime(6),
+    dimension integer not null,
+    item_id bigint not null,
+    item_type varchar(8) not null,
+    vector MEDIUMBLOB,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_item_embeddings_hash
+   on item_embeddings (content_hash);
+
+alter table item_embeddings
+   add constraint uk_item_embeddings_item unique (item_type, item_id);
+
+-- image renditions made at upload
+alter table lost_items
+    add column model_image_url varchar(255),
+    add column preview_url varchar(255),
+    add column thumbnail_url varchar(255);
+
+alter table found_item
+    add column model_image_url varchar(255),
+    add column preview_url varchar(255),
+    add column thumbnail_url varchar(255);
+
+-- resumable re-match runs
+create table rematch_runs (
+    id bigint not null auto_increment,
+    finished_at datetime(6),
+    last_id bigint,
+    message varchar(1000),
+    phase varchar(16) not null,
+    processed bigint not null,
+    reembed bit not null,
+    started_at datetime(6),
+    status varchar(16) not null,
+    total bigint not null,
+    updated_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+-- content-addressed uploads and the archive images that reference them
+create table stored_blobs (
+    hash varchar(64) not null,
+    created_at datetime(6),
+    path varchar(255) not null,
+    ref_count integer not null,
+    size bigint not null,
+    touched_at datetime(6),
+    primary key (hash)
+) engine=InnoDB;
+
+alter table backup_record
+    add column found_image_url varchar(255),
+    add column lost_image_url varchar(255);
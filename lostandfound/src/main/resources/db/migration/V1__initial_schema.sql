@@ -0,0 +1,116 @@
+-- Schema as Hibernate created it with ddl-auto=update for the released application, before
+-- migrations were introduced. Databases that already have these tables are baselined at version 1
+-- and skip this script (spring.flyway.baseline-on-migrate); new databases are created from it.
+-- Everything added since then comes in later versions, so a baselined database gets it too.
+
+create table backup_record (
+    id bigint not null auto_increment,
+    archived_at datetime(6),
+    found_item_snapshot varchar(4000),
+    found_reporter_email varchar(255),
+    lost_item_snapshot varchar(4000),
+    lost_reporter_email varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table chat_records (
+    id bigint not null auto_increment,
+    created_at datetime(6) not null,
+    delivered bit not null,
+    from_email varchar(255) not null,
+    text TEXT not null,
+    to_email varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table confirmed_match (
+    id bigint not null auto_increment,
+    confirmed_at datetime(6),
+    confirmer_email varchar(255),
+    found_item_id bigint,
+    lost_item_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table found_item (
+    id bigint not null auto_increment,
+    about varchar(255),
+    brand varchar(255),
+    found_date_time datetime(6),
+    image_url varchar(255),
+    item_name varchar(255),
+    location varchar(255),
+    model_no varchar(255),
+    reporter_email varchar(255),
+    size varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table lost_items (
+    id bigint not null auto_increment,
+    about varchar(1000),
+    brand varchar(255),
+    image_url varchar(255),
+    item_name varchar(255),
+    location varchar(255),
+    lost_date_time datetime(6),
+    model_no varchar(255),
+    reporter_email varchar(255),
+    size varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table match_suggestion (
+    id bigint not null auto_increment,
+    found_item_id bigint,
+    lost_item_id bigint,
+    score float(53),
+    primary key (id)
+) engine=InnoDB;
+
+create table notice (
+    id bigint not null auto_increment,
+    author_email varchar(255),
+    content varchar(2000),
+    created_at datetime(6),
+    title varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table notification (
+    id bigint not null auto_increment,
+    created_at datetime(6),
+    delivered bit not null,
+    found_item_id bigint,
+    found_reporter_email varchar(255),
+    found_reporter_name varchar(255),
+    lost_item_id bigint,
+    lost_reporter_email varchar(255),
+    message varchar(1000),
+    primary key (id)
+) engine=InnoDB;
+
+create table user (
+    id bigint not null auto_increment,
+    admin_id varchar(255),
+    blocked bit not null,
+    blocked_at datetime(6),
+    blocked_reason varchar(255),
+    email varchar(255) not null,
+    name varchar(255),
+    password varchar(255),
+    role varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table user_blocks (
+    id bigint not null auto_increment,
+    blocked_email varchar(255),
+    blocker_email varchar(255),
+    created_at datetime(6),
+    reason varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+alter table user
+   add constraint uk_user_email unique (email);
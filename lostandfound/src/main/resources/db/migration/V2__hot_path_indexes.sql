@@ -0,0 +1,40 @@
+-- Indexes for the lookups that run on every request, and one suggestion row per pair.
+-- benchmarks/QueryPlanBenchmark seeds a scratch database and prints each query's plan and
+-- latency before and after this script.
+
+-- "my reports" (findByReporterEmail) and the list pages: newest by report time, brand filter
+create index idx_lost_items_reporter on lost_items (reporter_email);
+create index idx_lost_items_time on lost_items (lost_date_time, id);
+create index idx_lost_items_brand on lost_items (brand);
+
+create index idx_found_item_reporter on found_item (reporter_email);
+create index idx_found_item_time on found_item (found_date_time, id);
+create index idx_found_item_brand on found_item (brand);
+
+-- per-item suggestion lists come back already in score order
+create index idx_match_suggestion_found_score on match_suggestion (found_item_id, score);
+create index idx_match_suggestion_lost_score on match_suggestion (lost_item_id, score);
+-- MatchEngine keeps one row per (found, lost) pair; drop any duplicates an older version left
+-- behind (keeping the first) before enforcing it. The join goes through the index above.
+delete m from match_suggestion m
+    join match_suggestion k
+      on k.found_item_id = m.found_item_id and k.lost_item_id = m.lost_item_id and k.id < m.id;
+alter table match_suggestion
+    add constraint uk_match_suggestion_pair unique (found_item_id, lost_item_id);
+
+create index idx_confirmed_match_pair on confirmed_match (found_item_id, lost_item_id);
+
+-- inbox (newest first), per-item history and the admin feed
+create index idx_notification_recipient on notification (lost_reporter_email, created_at);
+create index idx_notification_lost_item on notification (lost_item_id, created_at);
+create index idx_notification_created on notification (created_at);
+
+-- a conversation is two (from, to) ranges merged on created_at; undelivered messages are
+-- replayed in order when the recipient connects
+create index idx_chat_records_pair on chat_records (from_email, to_email, created_at);
+create index idx_chat_records_pending on chat_records (to_email, delivered, created_at);
+
+create index idx_user_blocks_pair on user_blocks (blocker_email, blocked_email);
+
+-- upload GC walks unreferenced blobs oldest first
+create index idx_stored_blobs_touched on stored_blobs (touched_at);
@@ -0,0 +1,7 @@
+-- Campus zone each report's free-text location resolves to (Gazetteer); filled in for existing
+-- rows by LocationZoneBackfill at startup. The index serves the list pages' "near" filter.
+alter table lost_items add column location_zone varchar(255);
+alter table found_item add column location_zone varchar(255);
+
+create index idx_lost_items_zone on lost_items (location_zone);
+create index idx_found_item_zone on found_item (location_zone);
@@ -0,0 +1,46 @@
+-- Pre-aggregated event counts for the admin analytics charts (MetricRollups): one row per metric,
+-- granularity (minute, hour, day) and bucket start. events counts what happened in the bucket and
+-- total sums the value recorded with each event (recovery seconds; 0 elsewhere).
+create table metric_rollups (
+    id bigint not null auto_increment,
+    bucket_start datetime(6) not null,
+    events bigint not null,
+    granularity varchar(8) not null,
+    metric varchar(64) not null,
+    total float(53) not null,
+    primary key (id),
+    unique key uk_metric_rollups_bucket (metric, granularity, bucket_start)
+) engine=InnoDB;
+
+-- Roll up the history already in the tables. Lost and found items carry no report time, so the
+-- lost/found time stands in for it. Minute rows are only kept for a week, so only the last week
+-- gets them. Recovery times are not backfilled: the archived snapshots do not reliably hold one.
+create temporary table metric_events (
+    metric varchar(64) not null,
+    t datetime(6) not null
+) engine=InnoDB;
+
+insert into metric_events (metric, t)
+select 'lost.reported', lost_date_time from lost_items where lost_date_time is not null;
+insert into metric_events (metric, t)
+select 'found.reported', found_date_time from found_item where found_date_time is not null;
+insert into metric_events (metric, t)
+select 'match.confirmed', confirmed_at from confirmed_match where confirmed_at is not null;
+insert into metric_events (metric, t)
+select 'item.recovered', archived_at from backup_record where archived_at is not null;
+insert into metric_events (metric, t)
+select 'chat.messages', created_at from chat_records;
+
+insert into metric_rollups (metric, granularity, bucket_start, events, total)
+select metric, 'day', cast(date(t) as datetime), count(*), 0
+from metric_events group by metric, date(t);
+
+insert into metric_rollups (metric, granularity, bucket_start, events, total)
+select metric, 'hour', cast(date_format(t, '%Y-%m-%d %H:00:00') as datetime), count(*), 0
+from metric_events group by metric, date_format(t, '%Y-%m-%d %H:00:00');
+
+insert into metric_rollups (metric, granularity, bucket_start, events, total)
+select metric, 'minute', cast(date_format(t, '%Y-%m-%d %H:%i:00') as datetime), count(*), 0
+from metric_events where t >= now() - interval 7 day group by metric, date_format(t, '%Y-%m-%d %H:%i:00');
+
+drop temporary table metric_events;
@@ -0,0 +1,30 @@
+-- Per-user inbox (ConversationIndex): one row per owner and chat partner with the last message
+-- and the number of messages from the partner not yet delivered to the owner. Kept up to date by
+-- ChatService; the unique key is also the inbox lookup.
+create table chat_conversations (
+    id bigint not null auto_increment,
+    last_at datetime(6) not null,
+    last_delivered bit not null,
+    last_from_me bit not null,
+    last_message_id bigint not null,
+    last_text TEXT,
+    owner_email varchar(255) not null,
+    partner_email varchar(255) not null,
+    unread_count bigint not null,
+    primary key (id),
+    unique key uk_chat_conversations_pair (owner_email, partner_email)
+) engine=InnoDB;
+
+-- Existing history, as ConversationIndex.rebuild() computes it
+insert into chat_conversations
+    (owner_email, partner_email, last_message_id, last_text, last_at, last_from_me, last_delivered, unread_count)
+select owner_email, partner_email, id, text, created_at, from_me, delivered, unread from (
+    select m.*,
+           row_number() over (partition by owner_email, partner_email order by id desc) rn,
+           sum(case when (from_me = 0 or owner_email = partner_email) and delivered = 0 then 1 else 0 end) over (partition by owner_email, partner_email) unread
+    from (select lower(from_email) owner_email, lower(to_email) partner_email, id, text, created_at, 1 from_me, delivered
+          from chat_records
+          union all
+          select lower(to_email), lower(from_email), id, text, created_at, 0, delivered
+          from chat_records where lower(to_email) <> lower(from_email)) m) c
+where rn = 1;
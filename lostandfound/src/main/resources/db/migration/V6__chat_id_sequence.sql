@@ -0,0 +1,10 @@
+-- Chat message ids (ChatIngest): each app instance reserves next_id .. next_id + block - 1 by
+-- moving next_id on, so messages get their id before they are written to chat_records.
+create table chat_id_sequence (
+    name varchar(64) not null,
+    next_id bigint not null,
+    primary key (name)
+) engine=InnoDB;
+
+insert into chat_id_sequence (name, next_id)
+select 'chat_records', coalesce(max(id), 0) + 1 from chat_records;
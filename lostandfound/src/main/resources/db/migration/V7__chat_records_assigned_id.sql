@@ -0,0 +1,3 @@
+-- chat_records ids come only from chat_id_sequence blocks; without auto_increment an insert that
+-- does not bring its id fails instead of taking one a reserved block may hand out later.
+alter table chat_records modify id bigint not null;
@@ -0,0 +1,95 @@
+package com.campustrack.lostandfound.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIM = 32;
+    private static final int K = 10;
+
+    private static double[] randomVector(Random random) {
+        double[] v = new double[DIM];
+        for (int i = 0; i < DIM; i++) v[i] = random.nextGaussian();
+        return v;
+    }
+
+    // fraction of the exact top K that the approximate index also returned
+    private static double recall(VectorIndex exact, HnswIndex hnsw, List<double[]> queries) {
+        int hit = 0;
+        int total = 0;
+        for (double[] q : queries) {
+            Set<Long> truth = new HashSet<>();
+            for (ScoredItem s : exact.topK(q, K, -1)) truth.add(s.id());
+            for (ScoredItem s : hnsw.topK(q, K, -1)) if (truth.contains(s.id())) hit++;
+            total += truth.size();
+        }
+        return (double) hit / total;
+    }
+
+    @Test
+    void recallAgainstExactScan() {
+        Random random = new Random(7);
+        VectorIndex exact = new VectorIndex();
+        HnswIndex hnsw = new HnswIndex(16, 100, 64);
+        for (long id = 0; id < 2000; id++) {
+            double[] v = randomVector(random);
+            exact.put(id, v);
+            hnsw.put(id, v);
+        }
+        List<double[]> queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) queries.add(randomVector(random));
+        assertTrue(recall(exact, hnsw, queries) >= 0.9);
+    }
+
+    @Test
+    void deletedItemsNeverReturnedAndResultsStayFull() throws Exception {
+        Random random = new Random(11);
+        VectorIndex exact = new VectorIndex();
+        HnswIndex hnsw = new HnswIndex(16, 100, 64);
+        for (long id = 0; id < 2000; id++) {
+            double[] v = randomVector(random);
+            exact.put(id, v);
+            hnsw.put(id, v);
+        }
+        List<double[]> queries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) queries.add(randomVector(random));
+        // just under the compaction threshold: every result has to come past the tombstones
+        for (long id = 0; id < 2000; id += 5) {
+            exact.remove(id);
+            hnsw.remove(id);
+        }
+        assertFalse(hnsw.isCompacting());
+        for (double[] q : queries) {
+            List<ScoredItem> hits = hnsw.topK(q, K, -1);
+            assertEquals(K, hits.size());
+            for (ScoredItem s : hits) assertNotEquals(0, s.id() % 5);
+        }
+        assertTrue(recall(exact, hnsw, queries) >= 0.9);
+
+        // past the threshold the graph is rebuilt in the background; queries keep working meanwhile
+        for (long id = 1; id < 2000; id += 5) {
+            exact.remove(id);
+            hnsw.remove(id);
+        }
+        for (double[] q : queries) assertEquals(K, hnsw.topK(q, K, -1).size());
+        // changes made during the rebuild survive the swap
+        hnsw.remove(2L);
+        exact.remove(2L);
+        double[] late = randomVector(random);
+        hnsw.put(5000L, late);
+        exact.put(5000L, late);
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (hnsw.isCompacting() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertFalse(hnsw.isCompacting());
+        assertEquals(exact.size(), hnsw.size());
+        assertEquals(5000L, hnsw.topK(late, 1, -1).get(0).id());
+        for (double[] q : queries) {
+            for (ScoredItem s : hnsw.topK(q, K, -1)) assertTrue(exact.contains(s.id()));
+        }
+        assertTrue(recall(exact, hnsw, queries) >= 0.9);
+    }
+}
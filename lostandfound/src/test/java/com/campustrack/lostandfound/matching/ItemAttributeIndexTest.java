@@ -0,0 +1,55 @@
+package com.campustrack.lostandfound.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemAttributeIndexTest {
+
+    private static final LocalDateTime LOST_AT = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    // one lost item against six found ones; every found item passes a different mix of the rules
+    private static ItemAttributeIndex index(int minCandidates) {
+        ItemAttributeIndex index = new ItemAttributeIndex(true, "time,brand,name", 90, 24, minCandidates, null);
+        index.put("lost", 1L, new ItemAttributes("black wallet", "gucci", null, null, null, LOST_AT));
+        index.put("lost", 2L, new ItemAttributes("black wallet", "prada", null, null, null, LOST_AT));
+        LocalDateTime soon = LOST_AT.plusDays(1);
+        index.put("found", 11L, new ItemAttributes("wallet", "gucci", null, null, null, soon));
+        index.put("found", 12L, new ItemAttributes("wallet", "prada", null, null, null, soon));
+        index.put("found", 13L, new ItemAttributes("leather wallet", "prada", null, null, null, soon));
+        index.put("found", 14L, new ItemAttributes("wallet", "prada", null, null, null, soon));
+        index.put("found", 15L, new ItemAttributes("phone", "apple", null, null, null, soon));
+        index.put("found", 16L, new ItemAttributes("wallet", "prada", null, null, null, LOST_AT.plusDays(200)));
+        index.markReady();
+        return index;
+    }
+
+    @Test
+    void enoughPassingEveryRuleIsNotWidened() {
+        ItemAttributeIndex index = index(3);
+        assertEquals(Set.of(12L, 13L, 14L), index.candidates("lost", 2L));
+        assertEquals(0L, index.stats().get("widened"));
+    }
+
+    @Test
+    void tooFewDropsTheMostRestrictiveRule() {
+        ItemAttributeIndex index = index(3);
+        // only 11 passes all three; without the brand rule 11-14 pass time and name
+        assertEquals(Set.of(11L, 12L, 13L, 14L), index.candidates("lost", 1L));
+        assertEquals(1L, index.stats().get("widened"));
+        assertEquals(0L, index.stats().get("fallbacks"));
+    }
+
+    @Test
+    void widensRuleByRuleBeforeScanningEverything() {
+        // time and name together pass 4; name alone passes 5
+        assertEquals(Set.of(11L, 12L, 13L, 14L, 16L), index(5).candidates("lost", 1L));
+        // no single rule passes 6
+        ItemAttributeIndex index = index(6);
+        assertNull(index.candidates("lost", 1L));
+        assertEquals(1L, index.stats().get("fallbacks"));
+    }
+}
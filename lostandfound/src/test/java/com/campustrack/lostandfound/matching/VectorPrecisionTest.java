@@ -0,0 +1,133 @@
+package com.campustrack.lostandfound.matching;
+
+import com.campustrack.lostandfound.model.ItemEmbedding;
+import com.campustrack.lostandfound.service.AIService;
+import com.campustrack.lostandfound.service.EmbeddingStore;
+import com.campustrack.lostandfound.service.MatchEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Index scores against AIService.cosine on the full vectors, and int8 hits re-ranked by MatchEngine
+class VectorPrecisionTest {
+
+    private static final int DIM = 256;
+    private static final double FLOAT32_TOLERANCE = 1e-5;
+    private static final double INT8_TOLERANCE = 1e-2;
+
+    private static double[] randomVector(Random random, int dim) {
+        double[] v = new double[dim];
+        for (int i = 0; i < dim; i++) v[i] = random.nextGaussian();
+        return v;
+    }
+
+    // largest |index score - AIService.cosine| over every stored vector, for a few queries
+    private static double maxError(VectorPrecision precision, Map<Long, double[]> vectors, List<double[]> queries) {
+        VectorIndex index = new VectorIndex(precision);
+        vectors.forEach(index::put);
+        double max = 0;
+        for (double[] q : queries) {
+            List<ScoredItem> all = index.topK(q, vectors.size(), -1);
+            assertEquals(vectors.size(), all.size());
+            for (ScoredItem s : all) max = Math.max(max, Math.abs(s.score() - AIService.cosine(q, vectors.get(s.id()))));
+        }
+        return max;
+    }
+
+    @Test
+    void scoresStayCloseToCosine() {
+        Random random = new Random(1);
+        Map<Long, double[]> vectors = new HashMap<>();
+        for (long id = 0; id < 500; id++) vectors.put(id, randomVector(random, DIM));
+        List<double[]> queries = new ArrayList<>();
+        for (int i = 0; i < 20; i++) queries.add(randomVector(random, DIM));
+
+        assertTrue(maxError(VectorPrecision.FLOAT32, vectors, queries) < FLOAT32_TOLERANCE);
+        assertTrue(maxError(VectorPrecision.INT8, vectors, queries) < INT8_TOLERANCE);
+    }
+
+    @Test
+    void mixedLengthScoresStayCloseToCosine() {
+        // text-only and text+image embeddings are compared on their shared prefix
+        Random random = new Random(2);
+        Map<Long, double[]> vectors = new HashMap<>();
+        for (long id = 0; id < 300; id++) vectors.put(id, randomVector(random, id % 2 == 0 ? DIM : DIM * 2));
+        List<double[]> queries = List.of(randomVector(random, DIM), randomVector(random, DIM * 2));
+
+        assertTrue(maxError(VectorPrecision.FLOAT32, vectors, queries) < FLOAT32_TOLERANCE);
+        assertTrue(maxError(VectorPrecision.INT8, vectors, queries) < INT8_TOLERANCE);
+    }
+
+    @Test
+    void quantizedComponentsAreWithinHalfAStep() {
+        Random random = new Random(3);
+        float[] unit = VectorKernels.unit(randomVector(random, DIM));
+        byte[] codes = new byte[DIM + 8];
+        float scale = VectorKernels.quantize(unit, codes, 8);
+        for (int i = 0; i < DIM; i++) assertEquals(unit[i], codes[8 + i] * scale, scale / 2 + 1e-7);
+        assertEquals(0, VectorKernels.quantize(new float[DIM], new byte[DIM], 0));
+    }
+
+    @Test
+    void rerankRestoresTheExactOrder() {
+        Random random = new Random(4);
+        double[] query = randomVector(random, DIM);
+        Map<Long, double[]> vectors = new HashMap<>();
+        for (long id = 0; id < 1000; id++) vectors.put(id, randomVector(random, DIM));
+        // near-duplicates of the query whose cosines differ by less than the int8 error
+        for (long id = 1000; id < 1030; id++) {
+            double[] v = query.clone();
+            for (int i = 0; i < DIM; i++) v[i] += 0.05 * random.nextGaussian();
+            vectors.put(id, v);
+        }
+        // what the stored embeddings decode to
+        Map<Long, ItemEmbedding> stored = new HashMap<>();
+        Map<Long, double[]> full = new HashMap<>();
+        vectors.forEach((id, v) -> {
+            ItemEmbedding e = new ItemEmbedding();
+            e.setItemType("found");
+            e.setItemId(id);
+            e.setDimension(v.length);
+            e.setVector(EmbeddingStore.encode(v));
+            stored.put(id, e);
+            full.put(id, EmbeddingStore.decode(e));
+        });
+        int topK = 5;
+        List<ScoredItem> exact = full.entrySet().stream()
+                .map(e -> new ScoredItem(e.getKey(), AIService.cosine(query, e.getValue())))
+                .sorted((a, b) -> Double.compare(b.score(), a.score()))
+                .limit(topK)
+                .toList();
+
+        ItemVectorIndex index = new ItemVectorIndex("exact", 16, 100, 64, "index", "int8", "remote");
+        vectors.forEach((id, v) -> index.put("found", id, v));
+        List<Long> quantized = index.topK("found", query, topK, 0).stream().map(ScoredItem::id).toList();
+        assertNotEquals(exact.stream().map(ScoredItem::id).toList(), quantized, "int8 alone should misorder these");
+
+        EmbeddingStore embeddingStore = mock(EmbeddingStore.class);
+        when(embeddingStore.findAll(eq("found"), anyCollection())).thenAnswer(inv -> {
+            Map<Long, ItemEmbedding> out = new HashMap<>();
+            for (Long id : inv.<Collection<Long>>getArgument(1)) out.put(id, stored.get(id));
+            return out;
+        });
+        // no attribute filter: the whole found side is scored
+        ItemAttributeIndex attributes = mock(ItemAttributeIndex.class);
+        when(attributes.candidates(anyString(), anyLong())).thenReturn(null);
+        MatchEngine engine = new MatchEngine();
+        ReflectionTestUtils.setField(engine, "itemVectorIndex", index);
+        ReflectionTestUtils.setField(engine, "itemAttributeIndex", attributes);
+        ReflectionTestUtils.setField(engine, "embeddingStore", embeddingStore);
+        ReflectionTestUtils.setField(engine, "topK", topK);
+        ReflectionTestUtils.setField(engine, "rerank", true);
+        ReflectionTestUtils.setField(engine, "rerankDepth", 40);
+
+        List<ScoredItem> reranked = engine.rank("lost", 1L, query);
+        assertEquals(exact.stream().map(ScoredItem::id).toList(), reranked.stream().map(ScoredItem::id).toList());
+        for (int i = 0; i < topK; i++) assertEquals(exact.get(i).score(), reranked.get(i).score(), 1e-12);
+    }
+}
@@ -0,0 +1,155 @@
+package com.campustrack.lostandfound.search;
+
+import com.campustrack.lostandfound.matching.ScoredItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+
+    // name, description
+    private static final double[] WEIGHTS = {3.0, 1.0};
+    private static final String[] WORDS = {
+            "wallet", "phone", "iphone", "charger", "umbrella", "keys", "backpack", "laptop", "calculator",
+            "headphones", "bottle", "jacket", "scarf", "glasses", "notebook", "black", "blue", "red",
+            "leather", "silver", "library", "cafeteria", "gym", "lecture", "hall", "parking", "bench"};
+    private static final List<String> QUERIES = List.of(
+            "wallet", "black wallet", "blue jacket library", "iph", "umbrela", "silver laptop gym");
+
+    @TempDir
+    Path dir;
+
+    private static TextIndex index() {
+        return new TextIndex(WEIGHTS, 1.2, 0.75, 16);
+    }
+
+    private static String words(Random random, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        return sb.toString();
+    }
+
+    // every document has a two-word name and a five-word description, so removing some never
+    // moves the average field lengths and the cached term weights stay as they are
+    private static TextIndex filled(long n, long seed) {
+        Random random = new Random(seed);
+        TextIndex index = index();
+        for (long id = 0; id < n; id++) index.put(id, words(random, 2), words(random, 5));
+        return index;
+    }
+
+    private static Map<String, List<ScoredItem>> results(TextIndex index) {
+        Map<String, List<ScoredItem>> out = new LinkedHashMap<>();
+        for (String q : QUERIES) out.put(q, index.search(q, 20));
+        return out;
+    }
+
+    private static List<Long> ids(List<ScoredItem> results) {
+        return results.stream().map(ScoredItem::id).toList();
+    }
+
+    @Test
+    void nameHitOutranksDescriptionHit() {
+        TextIndex index = index();
+        index.put(1, "umbrella", "left under a bench with a black wallet inside");
+        index.put(2, "black wallet", "found under a bench");
+        index.put(3, "blue jacket", "hanging in the gym");
+
+        assertEquals(List.of(2L, 1L), ids(index.search("wallet", 10)));
+        assertEquals(List.of(2L, 1L), ids(index.search("black wallet", 10)));
+        assertEquals(List.of(1L), ids(index.search("umbrella", 10)));
+    }
+
+    @Test
+    void prefixAndFuzzyWordsFindTheTerm() {
+        TextIndex index = index();
+        index.put(1, "iphone", "cracked screen");
+        index.put(2, "wallet", "brown leather");
+
+        assertEquals(List.of(1L), ids(index.search("iph", 10)));
+        assertEquals(List.of(1L), ids(index.search("iphnoe", 10)));
+        assertEquals(List.of(2L), ids(index.search("walet", 10)));
+        // an exact match scores above the same document found through a typo
+        assertTrue(index.search("wallet", 1).get(0).score() > index.search("walet", 1).get(0).score());
+    }
+
+    @Test
+    void withinOneEdit() {
+        assertTrue(TextIndex.withinOneEdit("wallet", "wallet"));
+        // insert, delete, substitute, transpose
+        assertTrue(TextIndex.withinOneEdit("walet", "wallet"));
+        assertTrue(TextIndex.withinOneEdit("walllet", "wallet"));
+        assertTrue(TextIndex.withinOneEdit("wallat", "wallet"));
+        assertTrue(TextIndex.withinOneEdit("wlalet", "wallet"));
+        assertTrue(TextIndex.withinOneEdit("walelt", "wallet"));
+        // at either end
+        assertTrue(TextIndex.withinOneEdit("allet", "wallet"));
+        assertTrue(TextIndex.withinOneEdit("wallets", "wallet"));
+        assertTrue(TextIndex.withinOneEdit("wallte", "wallet"));
+
+        assertFalse(TextIndex.withinOneEdit("wlaelt", "wallet"));
+        assertFalse(TextIndex.withinOneEdit("walt", "wallet"));
+        assertFalse(TextIndex.withinOneEdit("wellat", "wallet"));
+        assertFalse(TextIndex.withinOneEdit("walletss", "wallet"));
+        // a swap of two letters that are not neighbours is two edits
+        assertFalse(TextIndex.withinOneEdit("tallew", "wallet"));
+    }
+
+    @Test
+    void resultsUnchangedByCompaction() {
+        TextIndex index = filled(3000, 3);
+        index.put(9999, "filler", "never matches any query here");
+        // removing just this many leaves the dead documents one short of triggering a compaction
+        Random random = new Random(5);
+        Set<Long> removed = new HashSet<>();
+        while (removed.size() < 1024) {
+            long id = random.nextInt(3000);
+            if (removed.add(id)) index.remove(id);
+        }
+        int docCount = (int) ReflectionTestUtils.getField(index, "docCount");
+        assertEquals(3001, docCount);
+        Map<String, List<ScoredItem>> before = results(index);
+        for (List<ScoredItem> r : before.values()) {
+            assertFalse(r.isEmpty());
+            for (ScoredItem s : r) assertFalse(removed.contains(s.id()));
+        }
+
+        // re-indexing a document kills its old copy, which tips the index into compacting
+        index.put(9999, "filler", "never matches any query here");
+        assertEquals(index.size(), (int) ReflectionTestUtils.getField(index, "docCount"));
+        assertEquals(3001 - 1024, index.size());
+        assertEquals(before, results(index));
+    }
+
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        TextIndex index = filled(500, 9);
+        for (long id = 0; id < 500; id += 7) index.remove(id);
+        Path file = dir.resolve("search.idx");
+        index.save(file);
+
+        TextIndex loaded = index();
+        assertTrue(loaded.load(file));
+        assertEquals(index.ids(), loaded.ids());
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.vocabularySize(), loaded.vocabularySize());
+        Map<String, List<ScoredItem>> expected = results(index);
+        Map<String, List<ScoredItem>> actual = results(loaded);
+        for (String q : QUERIES) {
+            assertEquals(ids(expected.get(q)), ids(actual.get(q)), q);
+            for (int i = 0; i < expected.get(q).size(); i++) {
+                assertEquals(expected.get(q).get(i).score(), actual.get(q).get(i).score(), 1e-6, q);
+            }
+        }
+
+        // a snapshot written with other fields is not used
+        assertFalse(new TextIndex(new double[]{1.0}, 1.2, 0.75, 16).load(file));
+        assertFalse(index().load(dir.resolve("missing.idx")));
+    }
+}
@@ -0,0 +1,304 @@
+package com.campustrack.lostandfound.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// AIClient against a local HTTP stub that answers each request as the test scripts it
+class AIClientTest {
+
+    private static final int THRESHOLD = 3;
+    private static final long OPEN_MILLIS = 200;
+    private static final long HEDGE_DELAY_MILLIS = 100;
+
+    // how the stub answers one request: status after delay, or after a latch is released
+    private record Reply(int status, long delayMillis, CountDownLatch release) {
+        static Reply status(int status) {
+            return new Reply(status, 0, null);
+        }
+
+        static Reply delayed(int status, long delayMillis) {
+            return new Reply(status, delayMillis, null);
+        }
+
+        static Reply held(CountDownLatch release) {
+            return new Reply(200, 0, release);
+        }
+    }
+
+    private HttpServer server;
+    private String url;
+    private final BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+    private final AtomicInteger received = new AtomicInteger();
+    private final List<AIClient> clients = new CopyOnWriteArrayList<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/embed", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/embed";
+    }
+
+    @AfterEach
+    void stop() {
+        for (AIClient c : clients) c.shutdown();
+        callers.shutdownNow();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        received.incrementAndGet();
+        try (ex) {
+            ex.getRequestBody().readAllBytes();
+            Reply r = replies.poll();
+            if (r == null) r = Reply.status(200);
+            try {
+                if (r.release() != null) r.release().await();
+                if (r.delayMillis() > 0) Thread.sleep(r.delayMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"status\":" + r.status() + "}").getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(r.status(), body.length);
+            ex.getResponseBody().write(body);
+        } catch (IOException e) {
+            // the client aborted the request
+        }
+    }
+
+    private AIClient client(boolean hedging) {
+        AIClient c = new AIClient(1000, 5000, 4, THRESHOLD, OPEN_MILLIS, hedging, HEDGE_DELAY_MILLIS);
+        clients.add(c);
+        return c;
+    }
+
+    private Map<?, ?> call(AIClient c) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("text", "black wallet");
+        return c.postMultipart(url, body, Map.class);
+    }
+
+    private static long stat(AIClient c, String name) {
+        return ((Number) c.stats().get(name)).longValue();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(10);
+        }
+    }
+
+    private void open(AIClient c) {
+        for (int i = 0; i < THRESHOLD; i++) replies.add(Reply.status(500));
+        for (int i = 0; i < THRESHOLD; i++) assertNull(call(c));
+        assertEquals(AIClient.State.OPEN, c.getState());
+    }
+
+    private static void tick(AIClient c) throws InterruptedException {
+        Thread.sleep(OPEN_MILLIS + 50);
+        ReflectionTestUtils.invokeMethod(c, "tick");
+    }
+
+    @Test
+    void opensAtTheFailureThresholdAndShortCircuits() {
+        AIClient c = client(false);
+        List<AIClient.State> changes = new CopyOnWriteArrayList<>();
+        c.addStateListener(changes::add);
+
+        assertNotNull(call(c));
+        for (int i = 0; i < THRESHOLD - 1; i++) replies.add(Reply.status(503));
+        for (int i = 0; i < THRESHOLD - 1; i++) assertNull(call(c));
+        assertEquals(AIClient.State.CLOSED, c.getState());
+        assertTrue(c.isAvailable());
+
+        replies.add(Reply.status(500));
+        assertNull(call(c));
+        assertEquals(AIClient.State.OPEN, c.getState());
+        assertFalse(c.isAvailable());
+        assertEquals(List.of(AIClient.State.OPEN), changes);
+
+        // open: nothing reaches the service
+        int sent = received.get();
+        assertNull(call(c));
+        assertEquals(sent, received.get());
+        assertEquals(1, stat(c, "shortCircuited"));
+        assertEquals(THRESHOLD, stat(c, "failures"));
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        AIClient c = client(false);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < THRESHOLD - 1; i++) replies.add(Reply.status(500));
+            replies.add(Reply.status(200));
+            for (int i = 0; i < THRESHOLD; i++) call(c);
+        }
+        assertEquals(AIClient.State.CLOSED, c.getState());
+        assertEquals(0, stat(c, "opened"));
+    }
+
+    @Test
+    void clientErrorsCountAsSuccess() {
+        AIClient c = client(false);
+        for (int i = 0; i < THRESHOLD * 2; i++) replies.add(Reply.status(i % 2 == 0 ? 400 : 404));
+        for (int i = 0; i < THRESHOLD * 2; i++) assertNull(call(c));
+
+        assertEquals(AIClient.State.CLOSED, c.getState());
+        assertEquals(THRESHOLD * 2, stat(c, "clientErrors"));
+        assertEquals(0, stat(c, "failures"));
+        assertEquals(0, stat(c, "consecutiveFailures"));
+
+        // a 4xx also ends a run of failures
+        for (int i = 0; i < THRESHOLD - 1; i++) replies.add(Reply.status(500));
+        replies.add(Reply.status(422));
+        replies.add(Reply.status(500));
+        for (int i = 0; i < THRESHOLD + 1; i++) call(c);
+        assertEquals(AIClient.State.CLOSED, c.getState());
+        assertEquals(1, stat(c, "consecutiveFailures"));
+    }
+
+    @Test
+    void tickMovesAnOpenBreakerToHalfOpenWithoutACall() throws InterruptedException {
+        AIClient c = client(false);
+        List<AIClient.State> changes = new CopyOnWriteArrayList<>();
+        c.addStateListener(changes::add);
+        open(c);
+
+        // not yet due
+        ReflectionTestUtils.invokeMethod(c, "tick");
+        assertEquals(AIClient.State.OPEN, c.getState());
+
+        int sent = received.get();
+        tick(c);
+        assertEquals(AIClient.State.HALF_OPEN, c.getState());
+        assertEquals(sent, received.get());
+        assertEquals(List.of(AIClient.State.OPEN, AIClient.State.HALF_OPEN), changes);
+        // half-open still defers new work
+        assertFalse(c.isAvailable());
+    }
+
+    @Test
+    void onlyOneProbeWhileHalfOpen() throws Exception {
+        AIClient c = client(false);
+        open(c);
+        tick(c);
+
+        CountDownLatch release = new CountDownLatch(1);
+        replies.add(Reply.held(release));
+        Future<Map<?, ?>> probe = callers.submit(() -> call(c));
+        await(() -> received.get() == THRESHOLD + 1);
+        assertTrue((boolean) ReflectionTestUtils.getField(c, "probeInFlight"));
+
+        // everything else fails fast while the probe is out
+        for (int i = 0; i < 5; i++) assertNull(call(c));
+        assertEquals(THRESHOLD + 1, received.get());
+        assertEquals(5, stat(c, "shortCircuited"));
+
+        release.countDown();
+        assertNotNull(probe.get(5, TimeUnit.SECONDS));
+        assertEquals(AIClient.State.CLOSED, c.getState());
+        assertFalse((boolean) ReflectionTestUtils.getField(c, "probeInFlight"));
+        assertNotNull(call(c));
+    }
+
+    @Test
+    void failedProbeOpensAgain() throws InterruptedException {
+        AIClient c = client(false);
+        open(c);
+        tick(c);
+
+        replies.add(Reply.status(502));
+        assertNull(call(c));
+        assertEquals(AIClient.State.OPEN, c.getState());
+        assertEquals(2, stat(c, "opened"));
+        assertFalse((boolean) ReflectionTestUtils.getField(c, "probeInFlight"));
+
+        // the first call after open-ms is the probe even if tick has not run
+        Thread.sleep(OPEN_MILLIS + 50);
+        assertNotNull(call(c));
+        assertEquals(AIClient.State.CLOSED, c.getState());
+    }
+
+    @Test
+    void hedgeWinsAndTheSlowAttemptIsCancelled() throws InterruptedException {
+        AIClient c = client(true);
+        replies.add(Reply.delayed(200, 4000));
+        replies.add(Reply.status(200));
+
+        long t0 = System.nanoTime();
+        assertNotNull(call(c));
+        assertTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, received.get());
+        assertEquals(1, stat(c, "hedged"));
+        // the winner is counted just after the caller is woken
+        await(() -> stat(c, "hedgeCancels") == 1);
+        assertEquals(1, stat(c, "hedgeWins"));
+        // the aborted request gives its connection back long before the slow answer would come
+        await(() -> stat(c, "poolLeased") == 0);
+    }
+
+    @Test
+    void firstAttemptCanStillWinAfterTheHedgeIsSent() throws InterruptedException {
+        AIClient c = client(true);
+        replies.add(Reply.delayed(200, 250));
+        replies.add(Reply.delayed(200, 4000));
+
+        assertNotNull(call(c));
+        assertEquals(1, stat(c, "hedged"));
+        await(() -> stat(c, "hedgeCancels") == 1);
+        assertEquals(0, stat(c, "hedgeWins"));
+        await(() -> stat(c, "poolLeased") == 0);
+    }
+
+    @Test
+    void hedgedCallFailsOnlyWhenBothAttemptsFail() throws InterruptedException {
+        AIClient c = client(true);
+        // one attempt failing is not the call failing
+        replies.add(Reply.delayed(500, 150));
+        replies.add(Reply.delayed(200, 150));
+        assertNotNull(call(c));
+        assertEquals(0, stat(c, "failures"));
+        await(() -> stat(c, "hedgeCancels") == 1);
+        assertEquals(1, stat(c, "hedgeWins"));
+
+        replies.add(Reply.delayed(500, 150));
+        replies.add(Reply.delayed(500, 150));
+        assertNull(call(c));
+        assertEquals(2, stat(c, "hedged"));
+        assertEquals(1, stat(c, "hedgeCancels"));
+        // the two attempts are one failed call as far as the breaker is concerned
+        assertEquals(1, stat(c, "failures"));
+        assertEquals(1, stat(c, "consecutiveFailures"));
+    }
+
+    @Test
+    void fastAnswerIsNotHedged() {
+        AIClient c = client(true);
+        assertNotNull(call(c));
+        assertEquals(1, received.get());
+        assertEquals(0, stat(c, "hedged"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.campustrack.lostandfound.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmbeddingBatcherTest {
+
+    private final AIClient aiClient = mock(AIClient.class);
+    private EmbeddingBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) batcher.stop();
+    }
+
+    private EmbeddingBatcher start(long windowMillis, int maxBatch) {
+        batcher = new EmbeddingBatcher(aiClient, "http://127.0.0.1:1/predict_batch/", true, windowMillis, maxBatch, 1);
+        batcher.start();
+        return batcher;
+    }
+
+    @Test
+    void requestsInOneWindowGoOutAsOneBatch() throws Exception {
+        when(aiClient.postMultipart(anyString(), any(), eq(EmbeddingBatcher.BatchResponse.class)))
+                .thenReturn(new EmbeddingBatcher.BatchResponse(new double[][]{{1}, {2}, {3}}));
+        start(200, 3);
+        List<CompletableFuture<double[]>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) results.add(batcher.submit("item " + i, null));
+
+        for (int i = 0; i < 3; i++) assertArrayEquals(new double[]{i + 1}, results.get(i).get(5, TimeUnit.SECONDS));
+        verify(aiClient, times(1)).postMultipart(anyString(), any(), any());
+    }
+
+    @Test
+    void stopCompletesTheBatchBeingCollected() throws Exception {
+        // a long window: the collector is holding the first request while it waits for more
+        start(60_000, 32);
+        CompletableFuture<double[]> held = batcher.submit("wallet", null);
+        Thread.sleep(100);
+        assertFalse(held.isDone());
+
+        batcher.stop();
+        assertNull(held.get(5, TimeUnit.SECONDS));
+        verify(aiClient, never()).postMultipart(anyString(), any(), any());
+    }
+
+    @Test
+    void submitAfterStopIsAnsweredAtOnce() throws Exception {
+        start(10, 32);
+        batcher.stop();
+        CompletableFuture<double[]> f = batcher.submit("keys", null);
+        assertTrue(f.isDone());
+        assertNull(f.get());
+    }
+}
@@ -0,0 +1,174 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.model.LostItem;
+import com.campustrack.lostandfound.repository.BackupRepository;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.repository.StoredBlobRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// The stored_blobs reference counting and GC conditions against a real MySQL/MariaDB, in a schema
+// of its own that is dropped afterwards (see ChatIngestDatabaseTest for the properties)
+@SpringBootTest
+@EnabledIfSystemProperty(named = "campustrack.test.jdbc-url", matches = ".+")
+class UploadStoreDatabaseTest {
+
+    private static final String SERVER = System.getProperty("campustrack.test.jdbc-url", "");
+    private static final String USER = System.getProperty("campustrack.test.jdbc-user", "root");
+    private static final String PASSWORD = System.getProperty("campustrack.test.jdbc-password", "");
+    private static final String SCHEMA = "campustrack_test_" + Long.toHexString(System.nanoTime());
+    private static final long GRACE_HOURS = 1;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String base = SERVER.endsWith("/") ? SERVER : SERVER + "/";
+        registry.add("spring.datasource.url", () -> base + SCHEMA + "?createDatabaseIfNotExist=true&rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", () -> USER);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+    }
+
+    @AfterAll
+    static void dropSchema() throws SQLException {
+        try (Connection c = DriverManager.getConnection(SERVER, USER, PASSWORD); Statement st = c.createStatement()) {
+            st.execute("drop database if exists " + SCHEMA);
+        }
+    }
+
+    @TempDir
+    Path dir;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private LostItemRepository lostItemRepository;
+
+    @Autowired
+    private FoundItemRepository foundItemRepository;
+
+    @Autowired
+    private BackupRepository backupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UploadStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("delete from stored_blobs");
+        store = storeWith(storedBlobRepository);
+    }
+
+    // an UploadStore of its own (no GC timer) writing under the test's temp dir
+    private UploadStore storeWith(StoredBlobRepository blobs) {
+        UploadStore s = new UploadStore(GRACE_HOURS, 0);
+        ReflectionTestUtils.setField(s, "storedBlobRepository", blobs);
+        ReflectionTestUtils.setField(s, "lostItemRepository", lostItemRepository);
+        ReflectionTestUtils.setField(s, "foundItemRepository", foundItemRepository);
+        ReflectionTestUtils.setField(s, "backupRepository", backupRepository);
+        ReflectionTestUtils.setField(s, "root", dir.resolve("uploads"));
+        ReflectionTestUtils.setField(s, "tmpDir", dir.resolve("uploads.tmp"));
+        return s;
+    }
+
+    private UploadStore.Blob put(UploadStore s, String content) throws IOException {
+        return s.put(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), "photo.jpg");
+    }
+
+    private Integer refCount(UploadStore.Blob blob) {
+        return jdbcTemplate.queryForList("select ref_count from stored_blobs where hash = ?", Integer.class, blob.hash())
+                .stream().findFirst().orElse(null);
+    }
+
+    private void age(UploadStore.Blob blob) {
+        jdbcTemplate.update("update stored_blobs set touched_at = ? where hash = ?",
+                LocalDateTime.now().minusHours(GRACE_HOURS + 1), blob.hash());
+    }
+
+    @Test
+    void referencesKeepABlobUntilReleasedForTheGracePeriod() throws IOException {
+        UploadStore.Blob blob = put(store, "wallet");
+        store.acquire(blob.url());
+        store.acquire(blob.url());
+        store.release(blob.url());
+        assertEquals(1, refCount(blob));
+
+        age(blob);
+        assertEquals(0, store.gc().get("blobsDeleted"));
+
+        // released just now: still inside the grace period
+        store.release(blob.url());
+        assertEquals(0, store.gc().get("blobsDeleted"));
+
+        age(blob);
+        assertEquals(1, store.gc().get("blobsDeleted"));
+        assertNull(refCount(blob));
+        assertFalse(Files.exists(blob.file()));
+    }
+
+    @Test
+    void acquireRacingGcKeepsTheBlob() throws IOException {
+        // GC lists the blob as collectable, then a report acquires it before the delete
+        StoredBlobRepository racing = mock(StoredBlobRepository.class, delegatesTo(storedBlobRepository));
+        UploadStore s = storeWith(racing);
+        UploadStore.Blob blob = put(s, "umbrella");
+        age(blob);
+        doAnswer(inv -> {
+            Object page = storedBlobRepository.findCollectable(inv.getArgument(0), inv.<Pageable>getArgument(1));
+            s.acquire(blob.url());
+            return page;
+        }).when(racing).findCollectable(any(), any());
+
+        assertEquals(0, s.gc().get("blobsDeleted"));
+        assertEquals(1, refCount(blob));
+        assertTrue(Files.exists(blob.file()));
+    }
+
+    @Test
+    void recountRepairsDriftedCounts() throws IOException {
+        UploadStore.Blob used = put(store, "phone");
+        UploadStore.Blob orphan = put(store, "bottle");
+        LostItem li = new LostItem();
+        li.setItemName("phone");
+        li.setImageUrl(used.url());
+        li = lostItemRepository.save(li);
+        try {
+            // the acquire for the item was lost, and the orphan kept one it should have released
+            store.acquire(orphan.url());
+
+            assertEquals(2, store.recount().get("countsFixed"));
+            assertEquals(1, refCount(used));
+            assertEquals(0, refCount(orphan));
+        } finally {
+            lostItemRepository.delete(li);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.campustrack.lostandfound.service;
+
+import com.campustrack.lostandfound.model.BackupRecord;
+import com.campustrack.lostandfound.model.FoundItem;
+import com.campustrack.lostandfound.model.LostItem;
+import com.campustrack.lostandfound.model.StoredBlob;
+import com.campustrack.lostandfound.repository.BackupRepository;
+import com.campustrack.lostandfound.repository.FoundItemRepository;
+import com.campustrack.lostandfound.repository.LostItemRepository;
+import com.campustrack.lostandfound.repository.StoredBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// UploadStore without a database: stored_blobs is a map behind a mocked StoredBlobRepository whose
+// updates and deletes carry the same conditions as its queries (UploadStoreDatabaseTest runs the
+// real ones)
+class UploadStoreTest {
+
+    private static final long GRACE_HOURS = 1;
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, StoredBlob> rows = new ConcurrentHashMap<>();
+    private final StoredBlobRepository blobs = mock(StoredBlobRepository.class);
+    private final LostItemRepository lostItems = mock(LostItemRepository.class);
+    private final FoundItemRepository foundItems = mock(FoundItemRepository.class);
+    private final BackupRepository backups = mock(BackupRepository.class);
+    // run between GC finding collectable blobs and deleting them
+    private Runnable afterFind = () -> { };
+    private UploadStore store;
+
+    @BeforeEach
+    void setUp() {
+        when(blobs.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(rows.get(inv.<String>getArgument(0))));
+        when(blobs.save(any(StoredBlob.class))).thenAnswer(inv -> {
+            StoredBlob b = inv.getArgument(0);
+            rows.put(b.getHash(), b);
+            return b;
+        });
+        when(blobs.findAll()).thenAnswer(inv -> new ArrayList<>(rows.values()));
+        when(blobs.adjustRefCount(anyString(), anyInt(), any())).thenAnswer(inv -> {
+            StoredBlob b = rows.get(inv.<String>getArgument(0));
+            if (b == null) return 0;
+            synchronized (b) {
+                b.setRefCount(b.getRefCount() + inv.<Integer>getArgument(1));
+                b.setTouchedAt(inv.getArgument(2));
+            }
+            return 1;
+        });
+        when(blobs.setRefCount(anyString(), anyInt())).thenAnswer(inv -> {
+            StoredBlob b = rows.get(inv.<String>getArgument(0));
+            int n = inv.getArgument(1);
+            if (b == null || b.getRefCount() == n) return 0;
+            b.setRefCount(n);
+            return 1;
+        });
+        when(blobs.findCollectable(any(), any(Pageable.class))).thenAnswer(inv -> {
+            LocalDateTime before = inv.getArgument(0);
+            List<StoredBlob> out = rows.values().stream()
+                    .filter(b -> b.getRefCount() <= 0 && b.getTouchedAt().isBefore(before))
+                    .sorted(Comparator.comparing(StoredBlob::getTouchedAt))
+                    .limit(inv.<Pageable>getArgument(1).getPageSize())
+                    .toList();
+            afterFind.run();
+            return out;
+        });
+        when(blobs.deleteIfUnreferenced(anyString(), any())).thenAnswer(inv -> {
+            String hash = inv.getArgument(0);
+            LocalDateTime before = inv.getArgument(1);
+            StoredBlob b = rows.get(hash);
+            if (b == null) return 0;
+            synchronized (b) {
+                if (b.getRefCount() > 0 || !b.getTouchedAt().isBefore(before)) return 0;
+                rows.remove(hash);
+            }
+            return 1;
+        });
+
+        store = new UploadStore(GRACE_HOURS, 0);
+        ReflectionTestUtils.setField(store, "storedBlobRepository", blobs);
+        ReflectionTestUtils.setField(store, "lostItemRepository", lostItems);
+        ReflectionTestUtils.setField(store, "foundItemRepository", foundItems);
+        ReflectionTestUtils.setField(store, "backupRepository", backups);
+        ReflectionTestUtils.setField(store, "root", dir.resolve("uploads"));
+        ReflectionTestUtils.setField(store, "tmpDir", dir.resolve("uploads.tmp"));
+    }
+
+    private UploadStore.Blob put(String content, String name) throws IOException {
+        return store.put(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), name);
+    }
+
+    private int refCount(UploadStore.Blob blob) {
+        return rows.get(blob.hash()).getRefCount();
+    }
+
+    // as if the last upload or release was longer ago than the grace period
+    private void age(UploadStore.Blob blob) {
+        rows.get(blob.hash()).setTouchedAt(LocalDateTime.now().minusHours(GRACE_HOURS + 1));
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws IOException {
+        UploadStore.Blob first = put("wallet photo", "IMG_1.JPG");
+        UploadStore.Blob second = put("wallet photo", "other.png");
+
+        assertTrue(first.created());
+        assertFalse(second.created());
+        assertEquals(first.url(), second.url());
+        assertTrue(first.url().endsWith(".jpg"));
+        assertEquals(first.hash(), UploadStore.hashOf(first.url()));
+        assertTrue(Files.exists(first.file()));
+        assertEquals(1, rows.size());
+        assertEquals(0, refCount(first));
+    }
+
+    @Test
+    void acquireAndReleaseCountReferences() throws IOException {
+        UploadStore.Blob blob = put("keys", "keys.jpg");
+        store.acquire(blob.url());
+        store.acquire(blob.url());
+        store.release(blob.url());
+        assertEquals(1, refCount(blob));
+
+        // legacy and external URLs are not counted
+        store.acquire("/uploads/1700000000000_keys.jpg");
+        store.acquire("https://example.com/keys.jpg");
+        store.acquire(null);
+        verify(blobs, times(3)).adjustRefCount(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void gcDeletesOnlyBlobsUnreferencedForTheGracePeriod() throws IOException {
+        UploadStore.Blob kept = put("referenced", "a.jpg");
+        UploadStore.Blob young = put("just released", "b.jpg");
+        UploadStore.Blob old = put("long released", "c.jpg");
+        Path rendition = old.file().resolveSibling(old.hash() + "_thumb.jpg");
+        Files.writeString(rendition, "thumbnail");
+        store.acquire(kept.url());
+        age(kept);
+        age(old);
+
+        Map<String, Object> result = store.gc();
+        assertEquals(1, result.get("blobsDeleted"));
+        assertFalse(rows.containsKey(old.hash()));
+        assertFalse(Files.exists(old.file()));
+        assertFalse(Files.exists(rendition));
+        assertTrue(Files.exists(kept.file()));
+        assertTrue(Files.exists(young.file()));
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    void acquireRacingGcKeepsTheBlob() throws IOException {
+        UploadStore.Blob blob = put("umbrella", "umbrella.jpg");
+        age(blob);
+        // a report takes the blob after GC has listed it as collectable
+        afterFind = () -> {
+            afterFind = () -> { };
+            store.acquire(blob.url());
+        };
+
+        Map<String, Object> result = store.gc();
+        assertEquals(0, result.get("blobsDeleted"));
+        assertTrue(rows.containsKey(blob.hash()));
+        assertEquals(1, refCount(blob));
+        assertTrue(Files.exists(blob.file()));
+    }
+
+    @Test
+    void reuploadRestartsTheGracePeriod() throws IOException {
+        UploadStore.Blob blob = put("scarf", "scarf.jpg");
+        age(blob);
+        // the same photo posted again before GC runs: kept for the new item to acquire
+        assertFalse(put("scarf", "scarf2.jpg").created());
+
+        assertEquals(0, store.gc().get("blobsDeleted"));
+        assertTrue(Files.exists(blob.file()));
+    }
+
+    @Test
+    void recountRepairsDriftedCounts() throws IOException {
+        UploadStore.Blob a = put("phone", "phone.jpg");
+        UploadStore.Blob b = put("laptop", "laptop.jpg");
+        UploadStore.Blob orphan = put("bottle", "bottle.jpg");
+        LostItem li = new LostItem();
+        li.setImageUrl(a.url());
+        FoundItem fi = new FoundItem();
+        fi.setImageUrl(a.url());
+        BackupRecord br = new BackupRecord();
+        br.setLostImageUrl(b.url());
+        br.setFoundImageUrl("/uploads/legacy.jpg");
+        when(lostItems.findAll()).thenReturn(List.of(li));
+        when(foundItems.findAll()).thenReturn(List.of(fi));
+        when(backups.findAll()).thenReturn(List.of(br));
+        // a crash lost one acquire for a, and a release for the orphan
+        store.acquire(a.url());
+        store.acquire(orphan.url());
+        store.acquire(b.url());
+
+        Map<String, Object> result = store.recount();
+        assertEquals(2, result.get("referencedBlobs"));
+        assertEquals(2, result.get("countsFixed"));
+        assertEquals(2, refCount(a));
+        assertEquals(1, refCount(b));
+        assertEquals(0, refCount(orphan));
+        assertEquals(0, store.recount().get("countsFixed"));
+    }
+}
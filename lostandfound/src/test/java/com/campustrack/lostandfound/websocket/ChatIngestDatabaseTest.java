@@ -0,0 +1,93 @@
+package com.campustrack.lostandfound.websocket;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ChatIngest against a real MySQL/MariaDB: the batched insert, the not-null rejection and replay.
+// Runs only when a server is given, in a schema of its own that is dropped afterwards:
+//   mvn test -Dcampustrack.test.jdbc-url=jdbc:mysql://localhost:3306/ [-Dcampustrack.test.jdbc-user=root]
+//       [-Dcampustrack.test.jdbc-password=...]
+@SpringBootTest
+@EnabledIfSystemProperty(named = "campustrack.test.jdbc-url", matches = ".+")
+class ChatIngestDatabaseTest {
+
+    private static final String SERVER = System.getProperty("campustrack.test.jdbc-url", "");
+    private static final String USER = System.getProperty("campustrack.test.jdbc-user", "root");
+    private static final String PASSWORD = System.getProperty("campustrack.test.jdbc-password", "");
+    private static final String SCHEMA = "campustrack_test_" + Long.toHexString(System.nanoTime());
+    private static final long LEFT_OVER_ID = 42L;
+    private static Path walDir;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        walDir = Files.createTempDirectory("chat-wal-test");
+        // a message the last run logged but never wrote to chat_records
+        try (ChatWal wal = new ChatWal(walDir, 1 << 20)) {
+            wal.replay();
+            wal.start();
+            ChatRecord r = new ChatRecord("left@campus.edu", "over@campus.edu", "from the last run", LocalDateTime.now().withNano(0));
+            r.setId(LEFT_OVER_ID);
+            wal.append(r);
+        }
+        String base = SERVER.endsWith("/") ? SERVER : SERVER + "/";
+        registry.add("spring.datasource.url", () -> base + SCHEMA + "?createDatabaseIfNotExist=true&rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", () -> USER);
+        registry.add("spring.datasource.password", () -> PASSWORD);
+        registry.add("campustrack.chat.wal.dir", walDir::toString);
+    }
+
+    @AfterAll
+    static void dropSchema() throws SQLException, IOException {
+        try (Connection c = DriverManager.getConnection(SERVER, USER, PASSWORD); Statement st = c.createStatement()) {
+            st.execute("drop database if exists " + SCHEMA);
+        }
+        if (walDir != null) FileSystemUtils.deleteRecursively(walDir);
+    }
+
+    @Autowired
+    private ChatIngest chatIngest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String textOf(long id) {
+        return jdbcTemplate.queryForList("select text from chat_records where id = ?", String.class, id).stream().findFirst().orElse(null);
+    }
+
+    @Test
+    void replaysMessagesLeftInTheLog() {
+        chatIngest.awaitMessage(LEFT_OVER_ID);
+        assertEquals("from the last run", textOf(LEFT_OVER_ID));
+    }
+
+    @Test
+    void databaseRejectionDropsOnlyThatMessage() {
+        long rejectedBefore = (long) chatIngest.stats().get("rejected");
+        // chat_records.from_email is not null, so the database refuses this one for good
+        ChatRecord bad = chatIngest.save(null, "b@campus.edu", "no sender", false);
+        ChatRecord good = chatIngest.save("a@campus.edu", "b@campus.edu", "hello", false);
+        chatIngest.awaitPersisted(good.getId());
+
+        assertNull(textOf(bad.getId()));
+        assertEquals("hello", textOf(good.getId()));
+        assertEquals(rejectedBefore + 1, chatIngest.stats().get("rejected"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.campustrack.lostandfound.websocket;
+
+import com.campustrack.lostandfound.service.DashboardStats;
+import com.campustrack.lostandfound.service.MetricRollups;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// ChatIngest without a database: chat_records and chat_id_sequence are mocked JdbcTemplate calls
+class ChatIngestTest {
+
+    private static final int ID_BLOCK = 4;
+    private static final long AWAIT_MILLIS = 300;
+
+    @TempDir
+    Path walDir;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    // chat_id_sequence.next_id
+    private final AtomicLong sequence = new AtomicLong(1);
+    private final Set<Long> inserted = ConcurrentHashMap.newKeySet();
+    // the drain blocks on a batch with a message from this address until released
+    private final CountDownLatch slowRelease = new CountDownLatch(1);
+    private ChatIngest ingest;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(inv -> {
+            inv.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(jdbcTemplate.queryForObject(contains("chat_id_sequence"), eq(Long.class))).thenAnswer(inv -> sequence.getAndAdd(ID_BLOCK));
+        when(jdbcTemplate.queryForList(contains("from chat_records"), eq(Long.class))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(contains("insert into chat_records"), anyList())).thenAnswer(inv -> {
+            List<Object[]> rows = inv.getArgument(1);
+            for (Object[] row : rows) {
+                // the not-null constraint on from_email
+                if (row[1] == null) throw new DataIntegrityViolationException("Column 'from_email' cannot be null");
+                if ("slow@campus.edu".equals(row[1])) slowRelease.await();
+            }
+            for (Object[] row : rows) inserted.add((Long) row[0]);
+            return new int[rows.size()];
+        });
+    }
+
+    private void start() throws IOException {
+        ingest = new ChatIngest();
+        ReflectionTestUtils.setField(ingest, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(ingest, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(ingest, "conversationIndex", mock(ConversationIndex.class));
+        ReflectionTestUtils.setField(ingest, "dashboardStats", mock(DashboardStats.class));
+        ReflectionTestUtils.setField(ingest, "metricRollups", mock(MetricRollups.class));
+        ReflectionTestUtils.setField(ingest, "walDir", walDir.toString());
+        ReflectionTestUtils.setField(ingest, "segmentBytes", 1L << 20);
+        ReflectionTestUtils.setField(ingest, "batchSize", 100);
+        ReflectionTestUtils.setField(ingest, "lingerMillis", 5L);
+        ReflectionTestUtils.setField(ingest, "maxPending", 1000);
+        ReflectionTestUtils.setField(ingest, "awaitMillis", AWAIT_MILLIS);
+        ReflectionTestUtils.setField(ingest, "idBlockSize", ID_BLOCK);
+        ingest.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        slowRelease.countDown();
+        if (ingest != null) ingest.stop();
+    }
+
+    @Test
+    void idsComeFromReservedBlocksWithoutGaps() throws IOException {
+        start();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3 * ID_BLOCK + 1; i++) ids.add(ingest.save("a@campus.edu", "b@campus.edu", "m" + i, false).getId());
+        for (int i = 0; i < ids.size(); i++) assertEquals(1L + i, ids.get(i));
+
+        ingest.awaitPersisted(ids.get(ids.size() - 1));
+        assertEquals(Set.copyOf(ids), inserted);
+        assertEquals(0, ingest.stats().get("pending"));
+    }
+
+    @Test
+    void rejectedMessageIsDroppedAndTheRestOfTheBatchIsWritten() throws IOException {
+        start();
+        ChatRecord bad = ingest.save(null, "b@campus.edu", "no sender", false);
+        ChatRecord good = ingest.save("a@campus.edu", "b@campus.edu", "hello", false);
+        ingest.awaitPersisted(good.getId());
+
+        assertFalse(inserted.contains(bad.getId()));
+        assertTrue(inserted.contains(good.getId()));
+        Map<String, Object> stats = ingest.stats();
+        assertEquals(1L, stats.get("rejected"));
+        assertEquals(0, stats.get("pending"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> last = (Map<String, Object>) stats.get("lastRejected");
+        assertEquals(bad.getId(), last.get("id"));
+    }
+
+    @Test
+    void readsWaitOnlyForTheirOwnMessages() throws IOException {
+        start();
+        ChatRecord slow = ingest.save("slow@campus.edu", "c@campus.edu", "stuck", false);
+
+        long t0 = System.nanoTime();
+        ingest.awaitPersistedBetween("a@campus.edu", "b@campus.edu");
+        ingest.awaitPersistedFor("A@campus.edu");
+        assertTrue(System.nanoTime() - t0 < AWAIT_MILLIS * 1_000_000 / 2, "unrelated reads must not wait");
+        assertEquals(0L, ingest.stats().get("awaitTimeouts"));
+
+        ingest.awaitPersistedBetween("C@campus.edu", "slow@campus.edu");
+        assertEquals(1L, ingest.stats().get("awaitTimeouts"));
+
+        slowRelease.countDown();
+        ingest.awaitMessage(slow.getId());
+        assertTrue(inserted.contains(slow.getId()));
+    }
+
+    @Test
+    void messagesLeftInTheLogAreWrittenOnStartup() throws IOException {
+        try (ChatWal wal = new ChatWal(walDir, 1 << 20)) {
+            wal.replay();
+            wal.start();
+            ChatRecord r = new ChatRecord("left@campus.edu", "over@campus.edu", "from the last run", LocalDateTime.now());
+            r.setId(500L);
+            wal.append(r);
+        }
+
+        start();
+        ingest.awaitMessage(500L);
+        assertTrue(inserted.contains(500L));
+        assertEquals(1L, ingest.stats().get("replayed"));
+    }
+}
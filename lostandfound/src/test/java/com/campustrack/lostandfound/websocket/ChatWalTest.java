@@ -0,0 +1,254 @@
+package com.campustrack.lostandfound.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatWalTest {
+
+    private static final long SEGMENT_BYTES = 1 << 20;
+
+    @TempDir
+    Path dir;
+
+    private static ChatRecord message(long id) {
+        ChatRecord r = new ChatRecord("a@campus.edu", "b@campus.edu", "message " + id,
+                LocalDateTime.of(2026, 10, 18, 12, 0, 0, (int) id * 1000));
+        r.setId(id);
+        return r;
+    }
+
+    // appends each id in its own group to the log in dir and closes it without persisting anything
+    private void write(long... ids) throws IOException {
+        try (ChatWal wal = new ChatWal(dir, SEGMENT_BYTES)) {
+            wal.replay();
+            wal.start();
+            for (long id : ids) wal.append(message(id));
+        }
+    }
+
+    private List<Long> replayedIds() throws IOException {
+        try (ChatWal wal = new ChatWal(dir, SEGMENT_BYTES)) {
+            List<Long> ids = new ArrayList<>();
+            for (ChatWal.Entry e : wal.replay()) ids.add(e.record().getId());
+            return ids;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".wal"))
+                    .sorted(Comparator.comparing(p -> Long.parseLong(p.getFileName().toString().replaceAll("\\D", ""))))
+                    .toList();
+        }
+    }
+
+    @Test
+    void replaysUnpersistedRecordsInOrder() throws IOException {
+        write(1, 2, 3);
+
+        ChatWal wal = new ChatWal(dir, SEGMENT_BYTES);
+        List<ChatWal.Entry> entries = wal.replay();
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(e -> e.record().getId()).toList());
+        ChatRecord r = entries.get(1).record();
+        ChatRecord expected = message(2);
+        assertEquals(expected.getFromEmail(), r.getFromEmail());
+        assertEquals(expected.getToEmail(), r.getToEmail());
+        assertEquals(expected.getText(), r.getText());
+        assertEquals(expected.getCreatedAt(), r.getCreatedAt());
+
+        // once everything replayed is in the database the segment goes
+        wal.persisted(entries);
+        wal.close();
+        assertTrue(segments().isEmpty());
+    }
+
+    @Test
+    void tornMiddleRecordEndsItsSegmentButNotLaterOnes() throws IOException {
+        write(1, 2, 3);
+        write(4);
+        List<Path> files = segments();
+        assertEquals(2, files.size());
+
+        // flip a payload byte of record 2
+        long offset = ChatWal.encode(message(1)).length + 12;
+        try (FileChannel ch = FileChannel.open(files.get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, offset);
+            b.put(0, (byte) ~b.get(0)).rewind();
+            ch.write(b, offset);
+        }
+
+        assertEquals(List.of(1L, 4L), replayedIds());
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        write(1, 2, 3);
+        Path file = segments().get(0);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 5);
+        }
+
+        assertEquals(List.of(1L, 2L), replayedIds());
+    }
+
+    @Test
+    void failedAppendDoesNotStopTheLog() throws IOException {
+        // a segment of one byte rolls before every append after the first
+        try (ChatWal wal = new ChatWal(dir, 1)) {
+            wal.replay();
+            wal.start();
+            wal.append(message(1));
+            for (Path p : segments()) Files.delete(p);
+            Files.delete(dir);
+            assertThrows(IOException.class, () -> wal.append(message(2)));
+
+            Files.createDirectories(dir);
+            wal.append(message(3));
+            assertEquals(1L, wal.stats().get("writeFailures"));
+        }
+
+        assertEquals(List.of(3L), replayedIds());
+    }
+
+    @Test
+    void groupThatCannotBeTruncatedIsNotReplayed() throws IOException {
+        // the write goes through, then fsync and truncate fail: the records are whole on disk but
+        // their appends failed, so they must not come back
+        AtomicBoolean failing = new AtomicBoolean();
+        try (ChatWal wal = new ChatWal(dir, SEGMENT_BYTES, ch -> new FailingChannel(ch, failing))) {
+            wal.replay();
+            wal.start();
+            wal.append(message(1));
+            failing.set(true);
+            assertThrows(IOException.class, () -> wal.append(message(2)));
+            failing.set(false);
+            wal.append(message(3));
+        }
+
+        assertEquals(List.of(1L, 3L), replayedIds());
+    }
+
+    // delegates to a real channel; force and truncate throw while failing is set
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel ch;
+        private final AtomicBoolean failing;
+
+        FailingChannel(FileChannel ch, AtomicBoolean failing) {
+            this.ch = ch;
+            this.failing = failing;
+        }
+
+        private void check() throws IOException {
+            if (failing.get()) throw new IOException("injected failure");
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            check();
+            ch.force(metaData);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            check();
+            ch.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return ch.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return ch.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return ch.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return ch.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return ch.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            ch.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return ch.size();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return ch.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return ch.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return ch.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return ch.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return ch.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return ch.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return ch.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            ch.close();
+        }
+    }
+}